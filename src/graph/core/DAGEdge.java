@@ -5,8 +5,6 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Arrays;
 
-import org.apache.commons.lang3.StringUtils;
-
 /**
  * An unnamed edge between two or more nodes. The nodes are not necessarily
  * ordered - it is up to the agent to determine if they are or not.
@@ -100,7 +98,13 @@ public class DAGEdge extends DAGObject implements Edge {
 
 	@Override
 	public String toString() {
-		return "(" + StringUtils.join(edgeNodes_, ' ') + ")";
+		StringBuilder buffer = new StringBuilder("(");
+		for (int i = 0; i < edgeNodes_.length; i++) {
+			if (i > 0)
+				buffer.append(' ');
+			buffer.append(edgeNodes_[i]);
+		}
+		return buffer.append(')').toString();
 	}
 
 	@Override
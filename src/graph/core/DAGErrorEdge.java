@@ -5,7 +5,8 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 
 public enum DAGErrorEdge implements ErrorEdge {
-	NON_EXISTENT_NODE("Edge using a non-existent node.");
+	NON_EXISTENT_NODE("Edge using a non-existent node."), CYCLIC_EDGE(
+			"Edge would create a cycle.");
 
 	private String error_;
 
@@ -18,6 +18,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -66,6 +67,9 @@ public class DirectedAcyclicGraph {
 
 	protected final Lock edgeLock_;
 
+	/** Incremented after every change to the DAG. */
+	private final AtomicLong epoch_ = new AtomicLong();
+
 	protected IndexedCollection<DAGEdge> edges_;
 
 	protected final Lock nodeLock_;
@@ -244,6 +248,7 @@ public class DirectedAcyclicGraph {
 
 		for (DAGModule<?> module : modules_.values())
 			module.addProperty(dagObj, key, value);
+		epoch_.incrementAndGet();
 	}
 
 	public void clear() {
@@ -253,17 +258,12 @@ public class DirectedAcyclicGraph {
 		// Trigger modules
 		for (DAGModule<?> module : modules_.values())
 			module.clear();
+		epoch_.incrementAndGet();
 	}
 
 	public DAGNode findDAGNode(String nodeName) {
 		NodeAliasModule nodeAlias = (NodeAliasModule) getModule(NodeAliasModule.class);
-		Collection<DAGNode> nodes = nodeAlias.findNodeByName(nodeName, true);
-		if (nodes.isEmpty())
-			return null;
-		if (nodes.size() > 1)
-			System.err.println("WARNING: More than one node found with name: "
-					+ nodeName);
-		return nodes.iterator().next();
+		return nodeAlias.findNodeByExactName(nodeName, true);
 	}
 
 	/**
@@ -311,6 +311,11 @@ public class DirectedAcyclicGraph {
 										createNodes, false, false) == null)
 							return DAGErrorEdge.NON_EXISTENT_NODE;
 				}
+				for (DAGModule<?> module : modules_.values()) {
+					ErrorEdge error = module.checkEdge(edgeNodes);
+					if (error != null)
+						return error;
+				}
 
 				edge = new DAGEdge(creator, true, edgeNodes);
 				boolean result = edges_.add((DAGEdge) edge);
@@ -318,6 +323,7 @@ public class DirectedAcyclicGraph {
 					// Trigger modules
 					for (DAGModule<?> module : modules_.values())
 						module.addEdge(edge);
+					epoch_.incrementAndGet();
 				}
 			}
 			return edge;
@@ -372,6 +378,7 @@ public class DirectedAcyclicGraph {
 					// Trigger modules
 					for (DAGModule<?> module : modules_.values())
 						module.addNode(node);
+					epoch_.incrementAndGet();
 				} else
 					return null;
 			}
@@ -392,6 +399,27 @@ public class DirectedAcyclicGraph {
 		return edges_.get(id);
 	}
 
+	/**
+	 * Copies every edge of the DAG into an array. The DAG cannot change
+	 * while the edges are copied.
+	 * 
+	 * @return The edges of the DAG.
+	 */
+	public synchronized DAGEdge[] getEdges() {
+		return edges_.toArray(new DAGEdge[edges_.size()]);
+	}
+
+	/**
+	 * Gets the mutation epoch of the DAG, which changes whenever a node, edge
+	 * or property is added or removed. Results computed at one epoch are
+	 * still valid while the epoch is unchanged.
+	 * 
+	 * @return The current epoch.
+	 */
+	public long getEpoch() {
+		return epoch_.get();
+	}
+
 	public DAGModule<?> getModule(Class<? extends DAGModule<?>> moduleClass) {
 		DAGModule<?> module = modules_.get(moduleClass.getCanonicalName());
 		if (module == null) {
@@ -497,6 +525,7 @@ public class DirectedAcyclicGraph {
 				// Trigger modules
 				for (DAGModule<?> module : modules_.values())
 					module.removeEdge(edge);
+				epoch_.incrementAndGet();
 			}
 			return result;
 		} finally {
@@ -556,6 +585,7 @@ public class DirectedAcyclicGraph {
 				// Trigger modules
 				for (DAGModule<?> module : modules_.values())
 					module.removeNode(node);
+				epoch_.incrementAndGet();
 			}
 			return result;
 		} finally {
@@ -580,6 +610,7 @@ public class DirectedAcyclicGraph {
 
 		for (DAGModule<?> module : modules_.values())
 			module.removeProperty(dagObj, key);
+		epoch_.incrementAndGet();
 	}
 
 	public synchronized void saveState() {
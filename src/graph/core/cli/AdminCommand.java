@@ -0,0 +1,11 @@
+package graph.core.cli;
+
+/**
+ * Marks a command that administers the DAG (such as saving or shutting it
+ * down) rather than reading or changing its contents, so it is scheduled in
+ * the admin lane of the {@link CommandScheduler}.
+ *
+ * @author Sam Sarjant
+ */
+public interface AdminCommand {
+}
@@ -0,0 +1,193 @@
+package graph.core.cli;
+
+import graph.core.DirectedAcyclicGraph;
+import graph.core.Identifiable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import core.Command;
+import core.CommandParser;
+
+/**
+ * Handles a connection using the binary protocol, for machine clients that
+ * would otherwise format and parse every ID as text. Every message is a frame
+ * of a varint length followed by that many bytes. A request frame holds a
+ * varint request ID and the UTF-8 text of a command (the same commands as the
+ * text protocol, with any further lines of a multi-line command following
+ * the first). Each request is answered by frames starting with the request
+ * ID and a frame type:
+ * <ul>
+ * <li>{@link FrameEncoder#ITEMS}: items of a collection, each a type byte
+ * followed by a varint ID (DAG nodes and edges), a length-prefixed string,
+ * or a number. Large collections span several frames.</li>
+ * <li>{@link FrameEncoder#TEXT}: any other output of the command, as UTF-8
+ * text.</li>
+ * <li>{@link FrameEncoder#END}: the end of the response.</li>
+ * </ul>
+ * Requests are executed in the order they are received (queued commands on
+ * the {@link CommandScheduler}, as for text connections), so a client may
+ * send requests without waiting for responses.
+ *
+ * @author Sam Sarjant
+ */
+public class BinaryPortHandler extends DAGPortHandler {
+	/** The largest request frame accepted. */
+	public static final int MAX_REQUEST_SIZE = 1 << 24;
+
+	private FrameEncoder encoder_;
+
+	/** The lines of the current request after the command. */
+	private BufferedReader reader_;
+
+	/** The ID of the current request. */
+	private long requestID_;
+
+	private Socket socket_;
+
+	public BinaryPortHandler(Socket aSocket, CommandScheduler scheduler,
+			DirectedAcyclicGraph dag) {
+		super(aSocket, scheduler, dag);
+		// The connection thread is already started, and waits for the socket
+		synchronized (this) {
+			socket_ = aSocket;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits for the constructor to complete.
+	 */
+	private synchronized Socket awaitSocket() throws InterruptedException {
+		while (socket_ == null)
+			wait();
+		return socket_;
+	}
+
+	/**
+	 * Executes a request, writing the response frames.
+	 *
+	 * @param requestID
+	 *            The ID of the request.
+	 * @param text
+	 *            The command text.
+	 */
+	private void execute(long requestID, String text) throws IOException {
+		requestID_ = requestID;
+		int lineEnd = text.indexOf('\n');
+		String line = text;
+		String rest = "";
+		if (lineEnd != -1) {
+			line = text.substring(0, lineEnd);
+			rest = text.substring(lineEnd + 1);
+		}
+		reader_ = new BufferedReader(new StringReader(rest));
+
+		Command command = CommandParser.parse(line.trim());
+		if (command == null) {
+			encoder_.writeText(requestID, "-1|Unknown command.\n");
+		} else {
+			command.setPortHandler(this);
+			if (command instanceof CollectionCommand)
+				((CollectionCommand) command).setStreaming(true);
+			if (command.addToCommandQueue())
+				executeQueued(command);
+			else
+				command.execute();
+			String result = command.getResult();
+			if (!result.isEmpty())
+				encoder_.writeText(requestID, result);
+		}
+		encoder_.writeEnd(requestID);
+	}
+
+	/**
+	 * Responses that are formatted as text are not streamed, as they need to
+	 * be framed.
+	 */
+	@Override
+	public boolean canStream() {
+		return false;
+	}
+
+	/**
+	 * Gets the remaining lines of the current request.
+	 */
+	@Override
+	public BufferedReader getReader() {
+		return reader_;
+	}
+
+	@Override
+	public void run() {
+		Socket socket = null;
+		try {
+			socket = awaitSocket();
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					socket.getInputStream()));
+			encoder_ = new FrameEncoder(new BufferedOutputStream(
+					socket.getOutputStream(), FrameEncoder.CHUNK_SIZE * 2));
+			long length;
+			while ((length = FrameEncoder.readVarint(in)) != -1) {
+				if (length > MAX_REQUEST_SIZE)
+					throw new IOException("Request of " + length
+							+ " bytes is too large.");
+				byte[] frame = new byte[(int) length];
+				in.readFully(frame);
+				int[] position = { 0 };
+				long requestID = FrameEncoder.readVarint(frame, position);
+				execute(requestID, new String(frame, position[0], frame.length
+						- position[0], StandardCharsets.UTF_8));
+			}
+		} catch (Exception e) {
+			System.err.println("Binary connection closed: " + e);
+		} finally {
+			try {
+				if (socket != null)
+					socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Encodes the items as typed binary items, rather than text.
+	 */
+	@Override
+	public boolean streamItems(Collection<? extends Identifiable> items) {
+		String pretty = get(PRETTY_RESULTS);
+		try {
+			encoder_.writeItems(requestID_, items, "true".equals(pretty)
+					|| "only".equals(pretty));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return true;
+	}
+
+	/**
+	 * Text cannot be written outside of a frame.
+	 */
+	@Override
+	public synchronized void write(String text) throws IOException {
+		throw new IOException(
+				"Binary connections cannot be written to as text.");
+	}
+
+	/**
+	 * Bytes cannot be written outside of a frame.
+	 */
+	@Override
+	public synchronized void write(byte[] bytes) throws IOException {
+		throw new IOException(
+				"Binary connections cannot be written to outside a frame.");
+	}
+}
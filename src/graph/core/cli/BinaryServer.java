@@ -0,0 +1,50 @@
+package graph.core.cli;
+
+import graph.core.DirectedAcyclicGraph;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Listens for binary protocol clients on a port of their own, alongside the
+ * text protocol, handling each connection with a {@link BinaryPortHandler}.
+ *
+ * @author Sam Sarjant
+ */
+public class BinaryServer implements Runnable {
+	private final DirectedAcyclicGraph dag_;
+
+	private final int port_;
+
+	/** The scheduler executing the commands. */
+	private final CommandScheduler scheduler_;
+
+	public BinaryServer(int port, CommandScheduler scheduler,
+			DirectedAcyclicGraph dag) {
+		port_ = port;
+		scheduler_ = scheduler;
+		dag_ = dag;
+	}
+
+	@Override
+	public void run() {
+		try (ServerSocket serverSocket = new ServerSocket(port_)) {
+			System.out.println("Listening for binary connections on port "
+					+ port_);
+			while (true) {
+				Socket socket = serverSocket.accept();
+				new BinaryPortHandler(socket, scheduler_, dag_);
+			}
+		} catch (IOException e) {
+			System.err.println("Binary connections stopped: " + e);
+		}
+	}
+
+	/**
+	 * Starts listening on a new thread.
+	 */
+	public void start() {
+		new Thread(this, "BinaryServer").start();
+	}
+}
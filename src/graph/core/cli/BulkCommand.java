@@ -0,0 +1,12 @@
+package graph.core.cli;
+
+/**
+ * Marks a command that may run for a long time over many items (such as
+ * mapping a function over a collection), so it is scheduled in the bulk lane
+ * of the {@link CommandScheduler}, where it cannot hold up interactive
+ * commands.
+ *
+ * @author Sam Sarjant
+ */
+public interface BulkCommand {
+}
@@ -1,5 +1,8 @@
 package graph.core.cli;
 
+import graph.core.Identifiable;
+
+import java.util.Collection;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -10,9 +13,18 @@ public abstract class CollectionCommand extends Command {
 			.compile("(.+?) \\[(\\d+), *(\\d+)\\)");
 	protected int rangeStart_ = 0;
 	protected int rangeEnd_ = Integer.MAX_VALUE;
+	/** If only the size of the collection is required. */
+	protected boolean countOnly_ = false;
+	/** If the command may stream its output straight to the client. */
+	protected boolean streaming_ = false;
+	/** The epoch of the DAG when the command started. */
+	protected long epoch_ = -1;
+	/** The items last printed by this command. */
+	private Collection<? extends Identifiable> printedItems_;
 
 	@Override
 	protected void executeImpl() {
+		epoch_ = ((DAGPortHandler) handler).getDAG().getEpoch();
 		if (data.isEmpty()) {
 			printErrorNoData();
 			return;
@@ -31,4 +43,94 @@ public abstract class CollectionCommand extends Command {
 		}
 	}
 
+	/**
+	 * Gets the requested page from the cursor of an earlier request of the
+	 * same query (or a cached sorted result), skipping re-running the query.
+	 * 
+	 * @return The page of results, or null if the query must be run.
+	 */
+	protected <T> Collection<T> continuePage() {
+		return ((DAGPortHandler) handler).continueQuery(getCursorKey(),
+				rangeStart_, rangeEnd_);
+	}
+
+	/**
+	 * The key identifying this query between page requests.
+	 */
+	protected String getCursorKey() {
+		return getClass().getName() + " " + data;
+	}
+
+	/**
+	 * Gets the items this command printed, so a calling command can use the
+	 * items themselves rather than parsing the output.
+	 * 
+	 * @return The printed items, or null if the command printed none (or
+	 *         only printed a count).
+	 */
+	public Collection<? extends Identifiable> getPrintedItems() {
+		return printedItems_;
+	}
+
+	/**
+	 * Sorts and trims the results of this command to the requested range,
+	 * keeping a cursor open for the following pages.
+	 * 
+	 * @param items
+	 *            The full results.
+	 * @return The page of results.
+	 */
+	protected <T> Collection<T> page(Collection<T> items) {
+		return ((DAGPortHandler) handler).sort(getCursorKey(), epoch_, items,
+				rangeStart_, rangeEnd_);
+	}
+
+	/**
+	 * Prints the size of a collection (bounded by the range) in place of its
+	 * contents.
+	 * 
+	 * @param size
+	 *            The full size of the collection.
+	 */
+	protected void printCount(int size) {
+		int start = Math.max(0, rangeStart_);
+		int end = Math.min(size, rangeEnd_);
+		print(Math.max(0, end - start) + "|\n");
+	}
+
+	/**
+	 * Prints a collection of items in the standard count|item|item| format,
+	 * streaming it to the client if possible.
+	 * 
+	 * @param items
+	 *            The items to print.
+	 */
+	protected void printItems(Collection<? extends Identifiable> items) {
+		printedItems_ = items;
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		if (streaming_ && dagHandler.streamItems(items))
+			return;
+
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(items.size()).append('|');
+		for (Identifiable item : items)
+			buffer.append(dagHandler.textIDObject(item)).append('|');
+		print(buffer.append('\n').toString());
+	}
+
+	/**
+	 * Notes that only the size of the collection is required, so the command
+	 * may count its results instead of collecting and printing them.
+	 */
+	public void setCountOnly(boolean countOnly) {
+		countOnly_ = countOnly;
+	}
+
+	/**
+	 * Notes that the command is run directly for a client (not within
+	 * another command), so its output may be streamed straight to the client.
+	 */
+	public void setStreaming(boolean streaming) {
+		streaming_ = streaming;
+	}
 }
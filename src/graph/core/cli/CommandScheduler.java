@@ -0,0 +1,361 @@
+package graph.core.cli;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.Command;
+
+/**
+ * Schedules queued commands over a fixed set of workers, with a lane (queue)
+ * per class of command: reads, writes, administration and bulk jobs. The
+ * workers are threads of the scheduler's own, rather than the threads of the
+ * GenericCLI command queue (which are left idle). Each lane may only
+ * use up to its budget of workers (and never every worker), so a burst of
+ * slow commands of one lane always leaves workers for the others. Free
+ * workers are shared between the waiting lanes by weighted fair queuing:
+ * each lane is charged the time its commands take, divided by its weight,
+ * and the lane charged least goes next (a lane that was idle starts level
+ * with the others, rather than with the credit of its idle time). Each lane
+ * reports its depth and the time commands waited in it.
+ *
+ * @author Sam Sarjant
+ */
+public class CommandScheduler {
+	/** The classes of command, each with its own queue. */
+	public enum Lane {
+		READ(DEFAULT_WORKERS - 1, 8), WRITE(4, 4), ADMIN(2, 2), BULK(2, 1);
+
+		/** The default maximum number of workers of the lane. */
+		private final int budget_;
+
+		/** The default share of the workers when lanes compete. */
+		private final int weight_;
+
+		private Lane(int budget, int weight) {
+			budget_ = budget;
+			weight_ = weight;
+		}
+
+		/**
+		 * Gets the lane of a command.
+		 *
+		 * @param command
+		 *            The command.
+		 * @return The lane the command gives from its arguments, the lane
+		 *         from its marker interface, or the lane of a built-in
+		 *         command, otherwise WRITE.
+		 */
+		public static Lane of(Command command) {
+			if (command instanceof LanedCommand)
+				return ((LanedCommand) command).getLane();
+			if (command instanceof ReadOnlyCommand)
+				return READ;
+			if (command instanceof BulkCommand)
+				return BULK;
+			if (command instanceof AdminCommand)
+				return ADMIN;
+			Lane lane = BUILT_IN_LANES.get(command.getClass().getName());
+			return (lane != null) ? lane : WRITE;
+		}
+	}
+
+	/** The lanes of queued GenericCLI commands (which run other commands). */
+	private static final Map<String, Lane> BUILT_IN_LANES;
+
+	/** The default number of workers. */
+	public static final int DEFAULT_WORKERS = 8;
+
+	private static CommandScheduler instance_;
+
+	static {
+		Map<String, Lane> lanes = new HashMap<>();
+		lanes.put("commands.Batch", Lane.BULK);
+		lanes.put("commands.Intersect", Lane.BULK);
+		lanes.put("commands.Union", Lane.BULK);
+		BUILT_IN_LANES = Collections.unmodifiableMap(lanes);
+	}
+
+	private final int[] budgets_;
+
+	/** The number of commands completed, per lane. */
+	private final long[] completed_;
+
+	/** The longest wait, per lane. */
+	private final long[] maxWait_;
+
+	/** The time charged to each lane, divided by its weight. */
+	private final double[] pass_;
+
+	private final List<ArrayDeque<Task>> queues_;
+
+	/** The number of commands executing, per lane. */
+	private final int[] running_;
+
+	/** The total time commands waited, per lane. */
+	private final long[] totalWait_;
+
+	private final int[] weights_;
+
+	private final int numWorkers_;
+
+	/** If the workers are stopping. */
+	private volatile boolean shutdown_;
+
+	/** The threads executing the tasks. */
+	private final Thread[] workers_;
+
+	/**
+	 * Creates a scheduler with the default budgets and weights, starting its
+	 * workers.
+	 *
+	 * @param numWorkers
+	 *            The number of workers.
+	 */
+	public CommandScheduler(int numWorkers) {
+		this(numWorkers, null, null);
+	}
+
+	/**
+	 * Creates a scheduler, starting its workers.
+	 *
+	 * @param numWorkers
+	 *            The number of workers.
+	 * @param budgets
+	 *            The maximum workers of each lane (in lane order), or null for
+	 *            the defaults. Each is at most one less than the number of
+	 *            workers.
+	 * @param weights
+	 *            The share of each lane (in lane order), or null for the
+	 *            defaults.
+	 */
+	public CommandScheduler(int numWorkers, int[] budgets, int[] weights) {
+		Lane[] lanes = Lane.values();
+		numWorkers_ = numWorkers;
+		budgets_ = new int[lanes.length];
+		weights_ = new int[lanes.length];
+		for (Lane lane : lanes) {
+			int i = lane.ordinal();
+			budgets_[i] = Math.max(1, (budgets == null) ? lane.budget_
+					: budgets[i]);
+			// Always leave a worker for the other lanes
+			budgets_[i] = Math.min(budgets_[i], Math.max(1, numWorkers - 1));
+			weights_[i] = Math.max(1, (weights == null) ? lane.weight_
+					: weights[i]);
+		}
+		completed_ = new long[lanes.length];
+		maxWait_ = new long[lanes.length];
+		pass_ = new double[lanes.length];
+		running_ = new int[lanes.length];
+		totalWait_ = new long[lanes.length];
+		queues_ = new ArrayList<>(lanes.length);
+		for (int i = 0; i < lanes.length; i++)
+			queues_.add(new ArrayDeque<Task>());
+
+		workers_ = new Thread[numWorkers];
+		for (int i = 0; i < numWorkers; i++) {
+			workers_[i] = new Thread(new Worker(), "CommandScheduler-" + i);
+			workers_[i].setDaemon(true);
+			workers_[i].start();
+		}
+	}
+
+	/**
+	 * Gets the scheduler shared by all connections, creating it with the
+	 * default workers if it does not exist yet.
+	 */
+	public static synchronized CommandScheduler getInstance() {
+		if (instance_ == null)
+			instance_ = new CommandScheduler(DEFAULT_WORKERS);
+		return instance_;
+	}
+
+	/**
+	 * If a lane has commands queued or executing.
+	 */
+	private boolean isActive(int lane) {
+		return !queues_.get(lane).isEmpty() || running_[lane] > 0;
+	}
+
+	/**
+	 * Takes the next task to execute, waiting until a lane with a queued task
+	 * is under its budget.
+	 */
+	private synchronized Task take() throws InterruptedException {
+		while (true) {
+			int best = -1;
+			for (int i = 0; i < queues_.size(); i++) {
+				if (queues_.get(i).isEmpty() || running_[i] >= budgets_[i])
+					continue;
+				if (best == -1 || pass_[i] < pass_[best])
+					best = i;
+			}
+			if (best != -1) {
+				Task task = queues_.get(best).poll();
+				running_[best]++;
+				long wait = System.nanoTime() - task.queued_;
+				totalWait_[best] += wait;
+				maxWait_[best] = Math.max(maxWait_[best], wait);
+				return task;
+			}
+			wait();
+		}
+	}
+
+	/**
+	 * Notes that a task is complete, charging its lane for its time.
+	 */
+	private synchronized void complete(Task task, long elapsed) {
+		int lane = task.lane_.ordinal();
+		running_[lane]--;
+		completed_[lane]++;
+		pass_[lane] += (double) elapsed / weights_[lane];
+		notifyAll();
+	}
+
+	/**
+	 * Queues a task to execute on a worker.
+	 *
+	 * @param lane
+	 *            The lane of the task.
+	 * @param task
+	 *            The task.
+	 */
+	public synchronized void execute(Lane lane, Runnable task) {
+		int index = lane.ordinal();
+		if (!isActive(index)) {
+			// Start level with the other active lanes
+			double minPass = Double.MAX_VALUE;
+			for (int i = 0; i < queues_.size(); i++)
+				if (i != index && isActive(i))
+					minPass = Math.min(minPass, pass_[i]);
+			if (minPass != Double.MAX_VALUE)
+				pass_[index] = Math.max(pass_[index], minPass);
+		}
+		queues_.get(index).add(new Task(lane, task));
+		notifyAll();
+	}
+
+	/**
+	 * Queues a command to execute on a worker of its lane.
+	 *
+	 * @param command
+	 *            The command.
+	 * @param task
+	 *            The task executing the command.
+	 */
+	public void execute(Command command, Runnable task) {
+		execute(Lane.of(command), task);
+	}
+
+	public synchronized int getBudget(Lane lane) {
+		return budgets_[lane.ordinal()];
+	}
+
+	public synchronized long getCompleted(Lane lane) {
+		return completed_[lane.ordinal()];
+	}
+
+	/**
+	 * Gets the longest time a command waited in a lane.
+	 *
+	 * @return The longest wait in nanoseconds.
+	 */
+	public synchronized long getMaxWait(Lane lane) {
+		return maxWait_[lane.ordinal()];
+	}
+
+	/**
+	 * Gets the mean time commands waited in a lane before executing.
+	 *
+	 * @return The mean wait in nanoseconds (0 if none have executed).
+	 */
+	public synchronized long getMeanWait(Lane lane) {
+		int i = lane.ordinal();
+		long started = completed_[i] + running_[i];
+		return (started == 0) ? 0 : totalWait_[i] / started;
+	}
+
+	public int getNumWorkers() {
+		return numWorkers_;
+	}
+
+	/**
+	 * Gets the number of commands waiting in a lane.
+	 */
+	public synchronized int getQueueDepth(Lane lane) {
+		return queues_.get(lane.ordinal()).size();
+	}
+
+	/**
+	 * Gets the number of commands of a lane executing.
+	 */
+	public synchronized int getRunning(Lane lane) {
+		return running_[lane.ordinal()];
+	}
+
+	/**
+	 * Resets the completed counts and wait times of every lane.
+	 */
+	public synchronized void resetStatistics() {
+		Arrays.fill(completed_, 0);
+		Arrays.fill(maxWait_, 0);
+		Arrays.fill(totalWait_, 0);
+	}
+
+	/**
+	 * Stops the workers once their current tasks are complete. Queued tasks
+	 * are not executed.
+	 */
+	public void shutdown() {
+		shutdown_ = true;
+		for (Thread worker : workers_)
+			worker.interrupt();
+	}
+
+	/**
+	 * A queued task.
+	 */
+	private static class Task {
+		private final Lane lane_;
+
+		private final long queued_ = System.nanoTime();
+
+		private final Runnable runnable_;
+
+		public Task(Lane lane, Runnable runnable) {
+			lane_ = lane;
+			runnable_ = runnable;
+		}
+	}
+
+	/**
+	 * Executes tasks as the lanes allow, until interrupted.
+	 */
+	private class Worker implements Runnable {
+		@Override
+		public void run() {
+			while (!shutdown_) {
+				Task task;
+				try {
+					task = take();
+				} catch (InterruptedException e) {
+					return;
+				}
+				long start = System.nanoTime();
+				try {
+					task.runnable_.run();
+				} catch (Throwable e) {
+					// Keep the worker, whatever the task threw
+					e.printStackTrace();
+				} finally {
+					complete(task, System.nanoTime() - start);
+				}
+			}
+		}
+	}
+}
@@ -1,9 +1,33 @@
 package graph.core.cli;
 
+import graph.core.cli.CommandScheduler.Lane;
 import core.Command;
 import core.CommandParser;
 
-public class CountCommand extends Command {
+public class CountCommand extends Command implements LanedCommand {
+	/** The command being counted, once parsed. */
+	private Command counted_;
+
+	/**
+	 * Gets the command being counted, parsing it from the arguments.
+	 * 
+	 * @return The command, or null if it is unknown.
+	 */
+	private Command getCounted() {
+		if (counted_ == null && data != null && !data.isEmpty())
+			counted_ = CommandParser.parse(data);
+		return counted_;
+	}
+
+	/**
+	 * Counting is scheduled as the command being counted.
+	 */
+	@Override
+	public Lane getLane() {
+		Command command = getCounted();
+		return (command != null) ? Lane.of(command) : Lane.READ;
+	}
+
 	@Override
 	public String helpText() {
 		return "{1} <command + args> : "
@@ -24,8 +48,11 @@ public class CountCommand extends Command {
 		}
 
 		try {
-			Command command = CommandParser.parse(data);
+			Command command = getCounted();
 			command.setPortHandler(handler);
+			// Collections can count their results without printing them
+			if (command instanceof CollectionCommand)
+				((CollectionCommand) command).setCountOnly(true);
 			command.execute();
 			String result = command.getResult();
 			int index = result.indexOf("|");
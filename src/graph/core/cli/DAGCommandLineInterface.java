@@ -24,6 +24,8 @@ public class DAGCommandLineInterface extends Main {
 			.compile("\\((" + DAGNode.NAME_OR_ID + ")\\)");
 	private static final int DEFAULT_PORT_NUMBER = 2425;
 	private static CommandLine arguments_;
+	/** The scheduler executing the commands of every connection. */
+	private final CommandScheduler scheduler_;
 	protected DirectedAcyclicGraph dag_;
 
 	public DAGCommandLineInterface(int aPort, DirectedAcyclicGraph dag) {
@@ -50,22 +52,62 @@ public class DAGCommandLineInterface extends Main {
 		CommandParser.addCommand("stats", DAGStatsCommand.class);
 		CommandParser.addCommand("sync", SyncCommand.class);
 		CommandParser.addCommand("count", CountCommand.class);
+		CommandParser.addCommand("pipeline", PipelineCommand.class);
+		CommandParser.addCommand("scheduler", SchedulerCommand.class);
+
+		// Every server's commands are executed by the scheduler's workers
+		scheduler_ = CommandScheduler.getInstance();
+	}
+
+	/**
+	 * Gets the scheduler whose workers execute the commands of every
+	 * connection.
+	 */
+	public CommandScheduler getScheduler() {
+		return scheduler_;
 	}
 
+	/**
+	 * Creates the handler of a text connection. The GenericCLI command queue
+	 * is not used, as commands are executed by the scheduler.
+	 */
 	@Override
 	protected PortHandler createPortHandler(Socket serverSocket,
 			CommandQueue commandQueue) throws IOException {
-		return new DAGPortHandler(serverSocket, commandQueue, dag_);
+		return new DAGPortHandler(serverSocket, scheduler_, dag_);
 	}
 
 	public static void main(String[] args) {
 		DirectedAcyclicGraph dag = new DirectedAcyclicGraph(getRootDir(args),
 				getNumNodes(args), getNumEdges(args));
-		new DAGCommandLineInterface(getPort(args), dag).start();
+		DAGCommandLineInterface cli = new DAGCommandLineInterface(
+				getPort(args), dag);
+		if (isEventLoop(args))
+			new EventLoopServer(getPort(args), cli.getScheduler(), dag)
+					.start();
+		else
+			cli.start();
+		int binaryPort = getBinaryPort(args);
+		if (binaryPort != -1)
+			new BinaryServer(binaryPort, cli.getScheduler(), dag).start();
 
 		dag.initialise();
 	}
 
+	/**
+	 * Gets the port for binary protocol clients.
+	 * 
+	 * @return The port, or -1 if binary clients are not accepted.
+	 */
+	public static int getBinaryPort(String[] args) {
+		if (arguments_ == null)
+			parseArgs(args);
+
+		if (arguments_.hasOption("b"))
+			return Integer.parseInt(arguments_.getOptionValue("b"));
+		return -1;
+	}
+
 	public static int getNumEdges(String[] args) {
 		if (arguments_ == null)
 			parseArgs(args);
@@ -106,10 +148,25 @@ public class DAGCommandLineInterface extends Main {
 		return root;
 	}
 
+	/**
+	 * If connections are served from an event loop, rather than a thread
+	 * each.
+	 */
+	public static boolean isEventLoop(String[] args) {
+		if (arguments_ == null)
+			parseArgs(args);
+
+		return arguments_.hasOption("s");
+	}
+
 	protected static void parseArgs(String[] args) {
 		Options options = new Options();
 		options.addOption("r", true, "The root directory of the DAG.");
 		options.addOption("p", true, "The port number to use.");
+		options.addOption("b", true,
+				"The port number for binary protocol clients (if any).");
+		options.addOption("s", false, "Serve connections from a selector "
+				+ "event loop, rather than a thread per connection.");
 		options.addOption("n", true, "The initial hashmap size for the nodes.");
 		options.addOption("e", true, "The initial hashmap size for the edges.");
 
@@ -11,38 +11,196 @@ import graph.core.cli.comparator.IDComparator;
 import graph.core.cli.comparator.StringCaseInsComparator;
 import graph.core.cli.comparator.StringComparator;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Socket;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import util.UtilityMethods;
+import core.Command;
 import core.CommandQueue;
 import core.PortHandler;
 
 public class DAGPortHandler extends PortHandler {
+	public static final String CACHE_SORTED = "/env/cacheSorted";
 	public static final String DYNAMICALLY_ADD_NODES = "/env/edgesAddNodes";
+	/** The maximum number of items the map command executes at once. */
+	public static final String MAP_CONCURRENCY = "/env/mapThreads";
+	/** The maximum number of pipelined commands executing at once. */
+	public static final String PIPELINE_DEPTH = "/env/pipelineDepth";
+	/** If pipelined responses are returned in request order. */
+	public static final String PIPELINE_ORDERED = "/env/pipelineOrdered";
 	public static final String PRETTY_RESULTS = "/env/pretty";
 	public static final String SORT_ORDER = "/env/sort";
+	public static final String STREAM_RESULTS = "/env/stream";
+	/** The maximum number of cursors kept open per connection. */
+	private static final int MAX_CURSORS = 8;
+	/** The open cursors, by query and sort order. */
+	private Map<String, ResultCursor<?>> cursors_ = Collections
+			.synchronizedMap(new LinkedHashMap<String, ResultCursor<?>>(16,
+					0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<String, ResultCursor<?>> eldest) {
+					return size() > MAX_CURSORS;
+				}
+			});
+	/** The sorted results shared by all connections. */
+	private static final SortedResultCache sortedCache_ = new SortedResultCache();
 	protected DirectedAcyclicGraph dag_;
+	/** The reusable encoder for streamed responses. */
+	private ResponseEncoder encoder_;
+	/** The queue passing this connection's commands to the scheduler. */
+	private final TopLevelQueue queue_;
+	/** The output of the socket, for writing bytes. */
+	private OutputStream output_;
+
+	/**
+	 * Creates a handler for a connection.
+	 * 
+	 * @param aSocket
+	 *            The socket of the connection.
+	 * @param scheduler
+	 *            The scheduler executing queued commands.
+	 * @param dag
+	 *            The DAG.
+	 */
+	public DAGPortHandler(Socket aSocket, CommandScheduler scheduler,
+			DirectedAcyclicGraph dag) {
+		this(aSocket, new TopLevelQueue(scheduler), dag);
+	}
 
-	public DAGPortHandler(Socket aSocket, CommandQueue aQueue,
+	private DAGPortHandler(Socket aSocket, TopLevelQueue queue,
 			DirectedAcyclicGraph dag) {
-		super(aSocket, aQueue);
+		super(aSocket, queue);
+		queue_ = queue;
+		try {
+			output_ = aSocket.getOutputStream();
+		} catch (IOException e) {
+		}
 		set(SORT_ORDER, "default");
+		set(CACHE_SORTED, "false");
+		set(STREAM_RESULTS, "true");
+		set(MAP_CONCURRENCY, ""
+				+ Runtime.getRuntime().availableProcessors());
+		set(PIPELINE_DEPTH, "64");
+		set(PIPELINE_ORDERED, "true");
 		dag_ = dag;
 	}
 
+	/**
+	 * If responses can be streamed to the client. Responses are not streamed
+	 * when timing commands, as the time is reported before the response.
+	 */
+	public boolean canStream() {
+		return "true".equals(get(STREAM_RESULTS))
+				&& !"true".equalsIgnoreCase(get("/env/time"));
+	}
+
+	/**
+	 * Starts a streamed response, which is written straight to the client.
+	 * Only a command executing from the command queue (so the connection is
+	 * waiting on it) may stream its response.
+	 * 
+	 * @return The encoder to write the response with.
+	 */
+	public synchronized ResponseEncoder startResponse() {
+		if (encoder_ == null)
+			encoder_ = new ResponseEncoder(this, out);
+		return encoder_.start();
+	}
+
+	/**
+	 * Streams a collection of items to the client in the standard
+	 * count|item|item| format, if responses can be streamed.
+	 * 
+	 * @param items
+	 *            The items to stream.
+	 * @return True if the items were streamed.
+	 */
+	public boolean streamItems(Collection<? extends Identifiable> items) {
+		if (!canStream())
+			return false;
+		ResponseEncoder encoder = startResponse();
+		encoder.append(items.size()).append('|');
+		for (Identifiable item : items)
+			encoder.appendItem(item);
+		encoder.newLine().flush();
+		return true;
+	}
+
+	/**
+	 * Writes text straight to the client, for commands that respond outside
+	 * of the usual response (such as pipelined commands).
+	 * 
+	 * @param text
+	 *            The text to write.
+	 * @throws IOException
+	 *             If the client cannot be written to.
+	 */
+	public synchronized void write(String text) throws IOException {
+		out.write(text);
+		out.flush();
+	}
+
+	/**
+	 * Writes bytes straight to the client, after any buffered text. The text
+	 * output of the connection is in the platform charset, so output framed
+	 * by its length in bytes is written as bytes.
+	 * 
+	 * @param bytes
+	 *            The bytes to write.
+	 * @throws IOException
+	 *             If the client cannot be written to.
+	 */
+	public synchronized void write(byte[] bytes) throws IOException {
+		out.flush();
+		if (output_ == null)
+			throw new IOException("The connection has no output.");
+		output_.write(bytes);
+		output_.flush();
+	}
+
+	/**
+	 * Executes a command on the command scheduler (in the lane of the
+	 * command), waiting for it to complete.
+	 * 
+	 * @param command
+	 *            The command, with this as its handler.
+	 */
+	protected void executeQueued(Command command) {
+		queue_.execute(command);
+		queue_.waitForCompletion(this);
+	}
+
 	public DirectedAcyclicGraph getDAG() {
 		return dag_;
 	}
 
 	public String textIDObject(Identifiable obj) {
-		if (get(PRETTY_RESULTS).equals("true"))
+		return textIDObject(obj, get(PRETTY_RESULTS));
+	}
+
+	/**
+	 * Formats an object in a pretty results format.
+	 * 
+	 * @param obj
+	 *            The object to format.
+	 * @param pretty
+	 *            The pretty results mode (true, only, or anything else for
+	 *            the identifier alone).
+	 * @return The formatted object.
+	 */
+	public static String textIDObject(Identifiable obj, String pretty) {
+		if ("true".equals(pretty))
 			return obj.getIdentifier() + ":" + obj.toString();
-		else if (get(PRETTY_RESULTS).equals("only"))
+		else if ("only".equals(pretty))
 			return obj.toString();
 		else
 			return obj.getIdentifier();
@@ -65,6 +223,75 @@ public class DAGPortHandler extends PortHandler {
 		return new DAGNode(name, creator);
 	}
 
+	/**
+	 * Continues a previous ranged query from its cursor, if the query is still
+	 * open, the range is a later page (a range starting at 0 always re-runs
+	 * the query) and the DAG has not changed since the cursor was opened (a
+	 * stale cursor is dropped, as unsorted cursors read from the live
+	 * result). If sorted results are cached, any page of a
+	 * query sorted since the DAG last changed is read from the cache.
+	 * 
+	 * @param query
+	 *            The query (without range) the cursor was opened for.
+	 * @param start
+	 *            The start of the range.
+	 * @param end
+	 *            The end of the range.
+	 * @return The page of results, or null if no cursor is open.
+	 */
+	@SuppressWarnings("unchecked")
+	public final <T> Collection<T> continueQuery(String query, int start,
+			int end) {
+		String key = getCursorKey(query);
+		if (start > 0) {
+			ResultCursor<T> cursor = (ResultCursor<T>) cursors_.get(key);
+			if (cursor != null && cursor.getEpoch() != dag_.getEpoch()) {
+				cursors_.remove(key);
+				cursor = null;
+			}
+			if (cursor != null) {
+				if (end >= cursor.size())
+					cursors_.remove(key);
+				try {
+					Collection<T> page = cursor.page(start, end);
+					if (cursor.getEpoch() == dag_.getEpoch())
+						return page;
+				} catch (ConcurrentModificationException e) {
+				}
+				// The DAG changed while the page was read
+				cursors_.remove(key);
+			}
+		}
+
+		if (isCachingSorted()) {
+			ResultCursor<T> cached = (ResultCursor<T>) sortedCache_.get(key,
+					dag_);
+			if (cached != null)
+				return cached.page(start, end);
+		}
+		return null;
+	}
+
+	/**
+	 * The key of a query's cursor, distinguishing sort orders.
+	 */
+	private String getCursorKey(String query) {
+		return getClass().getName() + "\t" + query + "\t" + get(SORT_ORDER);
+	}
+
+	public static SortedResultCache getSortedCache() {
+		return sortedCache_;
+	}
+
+	/**
+	 * If sorted results are cached for this connection (only applicable when
+	 * the sort order is not default).
+	 */
+	private boolean isCachingSorted() {
+		return "true".equals(get(CACHE_SORTED))
+				&& !"default".equals(get(SORT_ORDER));
+	}
+
 	/**
 	 * Sorts a collection by the collection defined in the variables.
 	 * 
@@ -74,36 +301,50 @@ public class DAGPortHandler extends PortHandler {
 	 *         defined/defined as default.
 	 */
 	public final <T> Collection<T> sort(Collection<T> items, int start, int end) {
+		return sort(null, -1, items, start, end);
+	}
+
+	/**
+	 * Sorts a collection by the collection defined in the variables, keeping
+	 * a cursor open on the result if it has more items than the range
+	 * covers, so the next page can be read with
+	 * {@link #continueQuery(String, int, int)}. If sorted results are cached,
+	 * the fully sorted result is also cached for the epoch the query was
+	 * started at.
+	 * 
+	 * @param query
+	 *            The query (without range) the items are the result of, or
+	 *            null to not keep a cursor.
+	 * @param epoch
+	 *            The epoch of the DAG when the query was started, or -1 if
+	 *            unknown (no cursor is kept).
+	 * @param items
+	 *            The collection to be sorted.
+	 * @return A sorted collection, or the same collection if no sorter
+	 *         defined/defined as default.
+	 */
+	public final <T> Collection<T> sort(String query, long epoch,
+			Collection<T> items, int start, int end) {
 		if (items == null || items.isEmpty())
 			return items;
 		DefaultComparator comparator = getComparator();
-
-		// Range values
-		start = Math.max(0, start);
-		end = Math.min(items.size(), end);
-
-		if (comparator != null) {
+		if (comparator == null && start <= 0 && end >= items.size())
+			return items;
+		if (comparator != null)
 			comparator.setHandler(this);
-			List<T> sortedNodes = new ArrayList<>(items);
-			Collections.sort(sortedNodes, comparator);
-			if (start != 0 || end != items.size())
-				sortedNodes = sortedNodes.subList(start, end);
-			return sortedNodes;
-		}
 
-		// Trim the results
-		if (start != 0 || end != items.size()) {
-			Collection<T> trimmedItems = new ArrayList<T>(end - start);
-			Iterator<T> iter = items.iterator();
-			for (int i = 0; i < end; i++) {
-				T item = iter.next();
-				if (i >= start)
-					trimmedItems.add(item);
-			}
-			return trimmedItems;
+		// Unsorted items are not copied, only read up to the end of the page
+		ResultCursor<T> cursor = new ResultCursor<>(items, comparator, epoch);
+		if (query == null)
+			return cursor.page(start, end);
+		String key = getCursorKey(query);
+		if (comparator != null && epoch >= 0 && isCachingSorted()) {
+			cursor.complete();
+			sortedCache_.put(key, dag_, epoch, cursor);
 		}
-
-		return items;
+		if (end < items.size() && epoch >= 0)
+			cursors_.put(key, cursor);
+		return cursor.page(start, end);
 	}
 
 	/**
@@ -122,7 +363,77 @@ public class DAGPortHandler extends PortHandler {
 		return comparator;
 	}
 
+	/**
+	 * If results are sorted by the sort variable, rather than returned in the
+	 * order the command produces them.
+	 */
+	public boolean isSorting() {
+		return getComparator() != null;
+	}
+
 	public Object convertToComparable(Object o) {
 		return o;
 	}
+
+	/**
+	 * Passes commands to the command scheduler (which executes them by lane
+	 * on its workers, rather than every command in turn), marking them as
+	 * top-level commands so they may stream their output (commands run within
+	 * other commands are executed directly, and their output is read by the
+	 * outer command).
+	 */
+	private static class TopLevelQueue extends CommandQueue {
+		/** If the last command added is complete. */
+		private boolean complete_ = true;
+
+		private final CommandScheduler scheduler_;
+
+		public TopLevelQueue(CommandScheduler scheduler) {
+			super(0);
+			scheduler_ = scheduler;
+		}
+
+		@Override
+		public void addCommand(Command aCommand) {
+			if (aCommand instanceof CollectionCommand)
+				((CollectionCommand) aCommand).setStreaming(true);
+			execute(aCommand);
+		}
+
+		@Override
+		public synchronized void completed(Command aCommand) {
+			complete_ = true;
+			notifyAll();
+		}
+
+		/**
+		 * Passes a command to the scheduler, without marking it as a
+		 * top-level command.
+		 */
+		public void execute(final Command aCommand) {
+			synchronized (this) {
+				complete_ = false;
+			}
+			scheduler_.execute(aCommand, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						aCommand.execute();
+					} finally {
+						completed(aCommand);
+					}
+				}
+			});
+		}
+
+		@Override
+		public synchronized void waitForCompletion(PortHandler aPort) {
+			while (!complete_) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+				}
+			}
+		}
+	}
 }
@@ -1,13 +1,26 @@
 package graph.core.cli;
 
+import graph.core.DAGNode;
 import graph.module.DAGModule;
+import graph.module.StatisticsModule;
 
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import core.Command;
 
-public class DAGStatsCommand extends Command {
+public class DAGStatsCommand extends Command implements ReadOnlyCommand {
+	/** The default number of top predicates and hub nodes listed. */
+	public static final int DEFAULT_TOP = 10;
+
+	@Override
+	public String helpText() {
+		return "{0} [k] : Outputs the uptime, node and edge counts, and "
+				+ "each module's summary. With the statistics module, also "
+				+ "outputs histograms of edge arity and node degree, and "
+				+ "the k (default " + DEFAULT_TOP + ") most frequent "
+				+ "predicates and highest degree nodes.";
+	}
 
 	@Override
 	public String shortDescription() {
@@ -36,5 +49,46 @@ public class DAGStatsCommand extends Command {
 		for (String modName : modules.keySet()) {
 			print("\t" + modName + ": " + modules.get(modName) + "\n");
 		}
+
+		StatisticsModule statsModule = (StatisticsModule) dagHandler.getDAG()
+				.getModule(StatisticsModule.class);
+		if (statsModule == null)
+			return;
+		int k = DEFAULT_TOP;
+		if (!data.isEmpty()) {
+			try {
+				k = Integer.parseInt(data.trim());
+			} catch (NumberFormatException e) {
+				print("-1|Could not parse k.\n");
+				return;
+			}
+		}
+
+		print("Edge arity:\n");
+		long[] arities = statsModule.getArityHistogram();
+		for (int i = 0; i < arities.length; i++) {
+			if (arities[i] == 0)
+				continue;
+			String arity = (i == arities.length - 1) ? i + "+" : i + "";
+			print("\t" + arity + ": " + arities[i] + "\n");
+		}
+		print("Node degree:\n");
+		long[] degrees = statsModule.getDegreeHistogram();
+		for (int i = 0; i < degrees.length; i++) {
+			if (degrees[i] == 0)
+				continue;
+			long low = 1L << i;
+			long high = (1L << (i + 1)) - 1;
+			String range = (low == high) ? low + "" : low + "-" + high;
+			print("\t" + range + ": " + degrees[i] + "\n");
+		}
+		print("Top predicates (of " + statsModule.getNumPredicates() + "):\n");
+		for (DAGNode predicate : statsModule.getTopPredicates(k))
+			print("\t" + dagHandler.textIDObject(predicate) + ": "
+					+ statsModule.getPredicateCount(predicate) + "\n");
+		print("Hub nodes:\n");
+		for (DAGNode hub : statsModule.getHubs(k))
+			print("\t" + dagHandler.textIDObject(hub) + ": "
+					+ statsModule.getDegree(hub) + "\n");
 	}
 }
@@ -3,7 +3,7 @@ package graph.core.cli;
 import graph.core.DAGEdge;
 import core.Command;
 
-public class EdgeCommand extends Command {
+public class EdgeCommand extends Command implements ReadOnlyCommand {
 	@Override
 	public String helpText() {
 		return "{0} ID : Returns information about an edge by ID.";
@@ -0,0 +1,190 @@
+package graph.core.cli;
+
+import graph.core.DirectedAcyclicGraph;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import core.Command;
+
+/**
+ * Serves text protocol connections from a single selector thread, rather than
+ * a thread per connection, so idle connections cost only their buffers.
+ * Reading, line splitting and writing are done by the selector thread, and
+ * each command is executed by the {@link CommandScheduler} (or, for commands
+ * that are not queued, such as set or pipeline, on a pool of up to
+ * {@link #MAX_DIRECT_THREADS} threads), so commands behave as they do on a
+ * {@link DAGPortHandler} of their own.
+ *
+ * @author Sam Sarjant
+ */
+public class EventLoopServer implements Runnable {
+	/**
+	 * The maximum number of threads executing commands that are not queued.
+	 * Further commands wait for a thread (and a pipeline holds its thread
+	 * until it ends).
+	 */
+	public static final int MAX_DIRECT_THREADS = 64;
+
+	/** The size of the buffer shared by every connection for reading. */
+	public static final int READ_BUFFER_SIZE = 1 << 16;
+
+	private final DirectedAcyclicGraph dag_;
+
+	/** The executor of commands that are not queued. */
+	private final ThreadPoolExecutor direct_ = new ThreadPoolExecutor(
+			MAX_DIRECT_THREADS, MAX_DIRECT_THREADS, 60, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>());
+
+	private final int port_;
+
+	/** The scheduler executing the queued commands. */
+	private final CommandScheduler scheduler_;
+
+	private final ByteBuffer readBuffer_ = ByteBuffer
+			.allocateDirect(READ_BUFFER_SIZE);
+
+	/** The connections to resume reading. */
+	private final Queue<SelectionKey> readRequests_ = new ConcurrentLinkedQueue<>();
+
+	private volatile Selector selector_;
+
+	/** The connections with output to write. */
+	private final Queue<SelectionKey> writeRequests_ = new ConcurrentLinkedQueue<>();
+
+	public EventLoopServer(int port, CommandScheduler scheduler,
+			DirectedAcyclicGraph dag) {
+		port_ = port;
+		scheduler_ = scheduler;
+		dag_ = dag;
+		// Idle threads are released, so the pool only grows as required
+		direct_.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Accepts every pending connection.
+	 */
+	private void accept(ServerSocketChannel serverChannel) throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			SelectionKey key = channel.register(selector_,
+					SelectionKey.OP_READ);
+			key.attach(new NioPortHandler(channel, key, this, scheduler_,
+					dag_));
+		}
+	}
+
+	/**
+	 * Gets the executor to run a command on.
+	 *
+	 * @param command
+	 *            The command, or null if the command was unknown.
+	 * @return The lane of the command scheduler for queued commands,
+	 *         otherwise the bounded pool.
+	 */
+	public Executor getExecutor(final Command command) {
+		if (command != null && command.addToCommandQueue()) {
+			return new Executor() {
+				@Override
+				public void execute(Runnable task) {
+					scheduler_.execute(command, task);
+				}
+			};
+		}
+		return direct_;
+	}
+
+	/**
+	 * Notes that a connection may be read from again, to be picked up by the
+	 * selector thread.
+	 *
+	 * @param key
+	 *            The key of the connection.
+	 */
+	public void requestRead(SelectionKey key) {
+		readRequests_.add(key);
+		selector_.wakeup();
+	}
+
+	/**
+	 * Notes that a connection has output to write, to be picked up by the
+	 * selector thread.
+	 *
+	 * @param key
+	 *            The key of the connection.
+	 */
+	public void requestWrite(SelectionKey key) {
+		writeRequests_.add(key);
+		selector_.wakeup();
+	}
+
+	@Override
+	public void run() {
+		try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+			selector_ = Selector.open();
+			serverChannel.bind(new InetSocketAddress(port_));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector_, SelectionKey.OP_ACCEPT);
+			System.out.println("Ready. Listening for connections on port "
+					+ port_ + " (event loop)...");
+
+			while (true) {
+				selector_.select();
+				SelectionKey key;
+				while ((key = readRequests_.poll()) != null)
+					if (key.isValid())
+						key.interestOps(key.interestOps()
+								| SelectionKey.OP_READ);
+				while ((key = writeRequests_.poll()) != null)
+					if (key.isValid())
+						key.interestOps(key.interestOps()
+								| SelectionKey.OP_WRITE);
+
+				Iterator<SelectionKey> iter = selector_.selectedKeys()
+						.iterator();
+				while (iter.hasNext()) {
+					key = iter.next();
+					iter.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable()) {
+						accept(serverChannel);
+						continue;
+					}
+
+					NioPortHandler handler = (NioPortHandler) key.attachment();
+					try {
+						if (key.isReadable())
+							handler.readable(readBuffer_);
+						if (key.isValid() && key.isWritable())
+							handler.writable();
+					} catch (IOException e) {
+						handler.close();
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Event loop stopped: " + e);
+		}
+	}
+
+	/**
+	 * Starts listening on a new thread.
+	 */
+	public void start() {
+		new Thread(this, "EventLoopServer").start();
+	}
+}
@@ -0,0 +1,273 @@
+package graph.core.cli;
+
+import graph.core.DAGEdge;
+import graph.core.DAGNode;
+import graph.core.Identifiable;
+import graph.core.PrimitiveNode;
+import graph.core.StringNode;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Encodes responses into the length-prefixed frames of the binary protocol
+ * (see {@link BinaryPortHandler}). Frames are built in a reusable buffer, and
+ * collections are split into frames of about {@link #CHUNK_SIZE} bytes, so a
+ * large collection is written as it is encoded. Integers are written as
+ * varints (7 bits per byte, least significant first), with signed values
+ * zig-zag encoded first.
+ *
+ * @author Sam Sarjant
+ */
+public class FrameEncoder {
+	/** The number of bytes of items in a frame before starting another. */
+	public static final int CHUNK_SIZE = 1 << 13;
+
+	/** Frame type: the text output of a command (UTF-8). */
+	public static final byte TEXT = 0;
+	/** Frame type: typed items of a collection. */
+	public static final byte ITEMS = 1;
+	/** Frame type: the end of a response. */
+	public static final byte END = 2;
+
+	/** Item type: a DAG node ID (followed by its name if pretty). */
+	public static final byte NODE = 0;
+	/** Item type: a DAG edge ID (followed by its text if pretty). */
+	public static final byte EDGE = 1;
+	/** Item type: a string node. */
+	public static final byte STRING = 2;
+	/** Item type: a zig-zag varint integer primitive. */
+	public static final byte INTEGER = 3;
+	/** Item type: an 8-byte floating point primitive. */
+	public static final byte REAL = 4;
+	/** Item type: any other item, as its text identifier. */
+	public static final byte OTHER = 5;
+
+	private byte[] buffer_ = new byte[CHUNK_SIZE * 2];
+
+	/** The length prefix of a frame. */
+	private final byte[] header_ = new byte[10];
+
+	private int length_;
+
+	private final OutputStream out_;
+
+	public FrameEncoder(OutputStream out) {
+		out_ = out;
+	}
+
+	/**
+	 * Ensures the buffer has room for more bytes.
+	 */
+	private void ensureCapacity(int extra) {
+		if (length_ + extra > buffer_.length) {
+			byte[] buffer = new byte[Math.max(buffer_.length * 2, length_
+					+ extra)];
+			System.arraycopy(buffer_, 0, buffer, 0, length_);
+			buffer_ = buffer;
+		}
+	}
+
+	private void writeByte(int b) {
+		ensureCapacity(1);
+		buffer_[length_++] = (byte) b;
+	}
+
+	private void writeBytes(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer_, length_, bytes.length);
+		length_ += bytes.length;
+	}
+
+	private void writeString(String str) {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		writeBytes(bytes);
+	}
+
+	/**
+	 * Writes an unsigned varint.
+	 */
+	private void writeVarint(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7fL) != 0) {
+			buffer_[length_++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buffer_[length_++] = (byte) value;
+	}
+
+	/**
+	 * Writes an item with its type.
+	 *
+	 * @param item
+	 *            The item to write.
+	 * @param named
+	 *            If DAG objects are followed by their text.
+	 */
+	private void writeItem(Identifiable item, boolean named) {
+		if (item instanceof DAGNode) {
+			writeByte(NODE);
+			writeVarint(((DAGNode) item).getID());
+			if (named)
+				writeString(((DAGNode) item).getName());
+		} else if (item instanceof DAGEdge) {
+			writeByte(EDGE);
+			writeVarint(((DAGEdge) item).getID());
+			if (named)
+				writeString(item.toString());
+		} else if (item instanceof StringNode) {
+			writeByte(STRING);
+			writeString(((StringNode) item).getName());
+		} else if (item instanceof PrimitiveNode) {
+			Object primitive = ((PrimitiveNode) item).getPrimitive();
+			if (primitive instanceof Float || primitive instanceof Double) {
+				writeByte(REAL);
+				long bits = Double.doubleToLongBits(((Number) primitive)
+						.doubleValue());
+				ensureCapacity(8);
+				for (int shift = 56; shift >= 0; shift -= 8)
+					buffer_[length_++] = (byte) (bits >>> shift);
+			} else if (primitive instanceof Number) {
+				long value = ((Number) primitive).longValue();
+				writeByte(INTEGER);
+				writeVarint((value << 1) ^ (value >> 63));
+			} else {
+				writeByte(OTHER);
+				writeString(item.getIdentifier());
+			}
+		} else {
+			writeByte(OTHER);
+			writeString(item.getIdentifier());
+		}
+	}
+
+	/**
+	 * Starts a new frame in the buffer.
+	 */
+	private void startFrame(long requestID, byte type) {
+		length_ = 0;
+		writeVarint(requestID);
+		writeByte(type);
+	}
+
+	/**
+	 * Writes the frame in the buffer, prefixed by its length.
+	 */
+	private void endFrame() throws IOException {
+		int headerLength = 0;
+		long value = length_;
+		while ((value & ~0x7fL) != 0) {
+			header_[headerLength++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		header_[headerLength++] = (byte) value;
+		out_.write(header_, 0, headerLength);
+		out_.write(buffer_, 0, length_);
+		length_ = 0;
+	}
+
+	/**
+	 * Writes the end of a response, and sends any frames still buffered to
+	 * the client.
+	 *
+	 * @param requestID
+	 *            The ID of the request.
+	 */
+	public void writeEnd(long requestID) throws IOException {
+		startFrame(requestID, END);
+		endFrame();
+		out_.flush();
+	}
+
+	/**
+	 * Writes a collection of items in as many frames as required.
+	 *
+	 * @param requestID
+	 *            The ID of the request.
+	 * @param items
+	 *            The items to write.
+	 * @param named
+	 *            If DAG objects are followed by their text.
+	 */
+	public void writeItems(long requestID,
+			Collection<? extends Identifiable> items, boolean named)
+			throws IOException {
+		startFrame(requestID, ITEMS);
+		int headerLength = length_;
+		for (Identifiable item : items) {
+			writeItem(item, named);
+			if (length_ >= CHUNK_SIZE) {
+				endFrame();
+				startFrame(requestID, ITEMS);
+			}
+		}
+		if (length_ > headerLength)
+			endFrame();
+	}
+
+	/**
+	 * Writes a text frame.
+	 *
+	 * @param requestID
+	 *            The ID of the request.
+	 * @param text
+	 *            The text.
+	 */
+	public void writeText(long requestID, String text) throws IOException {
+		startFrame(requestID, TEXT);
+		writeBytes(text.getBytes(StandardCharsets.UTF_8));
+		endFrame();
+	}
+
+	/**
+	 * Reads an unsigned varint.
+	 *
+	 * @param in
+	 *            The stream to read from.
+	 * @return The value, or -1 if the stream ended before the first byte.
+	 */
+	public static long readVarint(InputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.read();
+			if (b == -1) {
+				if (shift == 0)
+					return -1;
+				throw new EOFException("Stream ended within a varint.");
+			}
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Varint is too long.");
+	}
+
+	/**
+	 * Reads an unsigned varint from a frame.
+	 *
+	 * @param frame
+	 *            The frame.
+	 * @param position
+	 *            The position of the varint, which is set to the position
+	 *            after it.
+	 * @return The value.
+	 */
+	public static long readVarint(byte[] frame, int[] position)
+			throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (position[0] >= frame.length)
+				throw new EOFException("Frame ended within a varint.");
+			int b = frame[position[0]++];
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Varint is too long.");
+	}
+}
@@ -10,7 +10,7 @@ import java.util.ArrayList;
 import util.UtilityMethods;
 import core.Command;
 
-public class GetPropertyCommand extends Command {
+public class GetPropertyCommand extends Command implements ReadOnlyCommand {
 	@Override
 	public String helpText() {
 		return "{0} N/E nodeID/edgeID propertyKey : "
@@ -0,0 +1,17 @@
+package graph.core.cli;
+
+import graph.core.cli.CommandScheduler.Lane;
+
+/**
+ * A command whose lane of the {@link CommandScheduler} depends on its
+ * arguments (such as a command that only sometimes changes the DAG), rather
+ * than being fixed by a marker interface.
+ *
+ * @author Sam Sarjant
+ */
+public interface LanedCommand {
+	/**
+	 * Gets the lane of the command, from its arguments.
+	 */
+	public Lane getLane();
+}
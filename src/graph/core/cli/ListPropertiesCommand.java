@@ -11,7 +11,7 @@ import java.util.Map;
 import util.UtilityMethods;
 import core.Command;
 
-public class ListPropertiesCommand extends Command {
+public class ListPropertiesCommand extends Command implements ReadOnlyCommand {
 	@Override
 	public String helpText() {
 		return "{0} N/E nodeID/edgeID : Lists all properties active on the node/edge.";
@@ -1,14 +1,23 @@
 package graph.core.cli;
 
+import graph.core.Identifiable;
+import graph.core.cli.CommandScheduler.Lane;
+
 import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import util.UtilityMethods;
 import core.Command;
 import core.CommandParser;
 
-public class MapCommand extends Command {
+public class MapCommand extends Command implements BulkCommand {
+	/** The token in function args replaced by each capture group. */
+	private static final Pattern GROUP_PATTERN = Pattern.compile("\\$(\\d+)");
 
 	@Override
 	public String helpText() {
@@ -16,7 +25,12 @@ public class MapCommand extends Command {
 				+ "\\n captureRegExp : Applies function with "
 				+ "args (using $1, $2,... syntax for regexp) to every "
 				+ "item in the output of collection using collectionArgs. "
-				+ "Every output is separated by delimiter. Note that "
+				+ "If captureRegExp is empty, function is applied to the "
+				+ "ID of every item of the collection ($1). Every output "
+				+ "is separated by delimiter, in the order of the items. "
+				+ "Items are executed in parallel, up to the value of "
+				+ DAGPortHandler.MAP_CONCURRENCY + " at once (within "
+				+ "the budget of the BULK scheduler lane). Note that "
 				+ "multiline commands may not be usable in this command.";
 	}
 
@@ -45,6 +59,14 @@ public class MapCommand extends Command {
 		String delimiter = data.substring(lastSpace).trim();
 
 		try {
+			// Compile the function once
+			Command function = CommandParser.parse(functionName);
+			if (function == null) {
+				print("Unknown function: " + functionName + "\n");
+				return;
+			}
+			ArgsTemplate template = new ArgsTemplate(funcArgs);
+
 			// Read collection
 			String collectionCommand = in.readLine().trim();
 			spaceIndex = collectionCommand.indexOf(' ');
@@ -56,33 +78,170 @@ public class MapCommand extends Command {
 						.trim();
 			}
 
+			// Read regex, checking the args only use groups it captures
+			String regexStr = in.readLine().trim();
+			Pattern regex = null;
+			int groupCount = 1;
+			if (!regexStr.isEmpty()) {
+				regex = Pattern.compile(regexStr);
+				groupCount = regex.matcher("").groupCount();
+			}
+			if (template.getMaxGroup() > groupCount) {
+				print("Function args use $" + template.getMaxGroup()
+						+ ", but captureRegExp only has " + groupCount
+						+ " groups.\n");
+				return;
+			}
+
 			// Run the command
 			Command command = CommandParser.parse(collectionName + " "
 					+ collectionArgs);
 			command.setPortHandler(handler);
 			command.execute();
-			String output = command.getResult();
 
-			// Read regex
-			String regexStr = in.readLine().trim();
-			Pattern regex = Pattern.compile(regexStr);
+			List<String> funcData = new ArrayList<>();
+			if (regex == null) {
+				// Use the items directly
+				Collection<? extends Identifiable> items = null;
+				if (command instanceof CollectionCommand)
+					items = ((CollectionCommand) command).getPrintedItems();
+				if (items == null) {
+					print("Collection did not return items.\n");
+					return;
+				}
+				for (Identifiable item : items) {
+					String id = item.getIdentifier();
+					funcData.add(template.apply(new String[] { id, id }));
+				}
+			} else {
+				Matcher m = regex.matcher(command.getResult());
+				while (m.find()) {
+					String[] groups = new String[m.groupCount() + 1];
+					for (int i = 0; i < groups.length; i++)
+						groups[i] = m.group(i);
+					funcData.add(template.apply(groups));
+				}
+			}
 
 			// Map function to it
-			Matcher m = regex.matcher(output);
-			while (m.find()) {
-				String[] groups = new String[m.groupCount() + 1];
-				for (int i = 0; i < groups.length; i++)
-					groups[i] = m.group(i);
-
-				Command funcCommand = CommandParser.parse(functionName + " "
-						+ UtilityMethods.replaceToken(funcArgs, groups));
-				funcCommand.setPortHandler(handler);
-				funcCommand.execute();
-				print(funcCommand.getResult());
+			String[] results = executeAll(function.getClass(), funcData);
+			for (String result : results) {
+				print(result);
 				print(delimiter + "\n");
 			}
 		} catch (Exception e) {
 			print("" + e);
 		}
 	}
+
+	/**
+	 * Gets the maximum number of items to execute at once.
+	 */
+	private int getConcurrency() {
+		try {
+			return Math.max(1, Integer.parseInt(handler
+					.get(DAGPortHandler.MAP_CONCURRENCY)));
+		} catch (Exception e) {
+			return 1;
+		}
+	}
+
+	/**
+	 * Executes the function on every item, spreading the items over helpers
+	 * in the bulk lane of the command scheduler (with this thread as one of
+	 * them). Only the items are waited for, so helpers that have not started
+	 * by the time this thread has claimed every item are not waited on.
+	 *
+	 * @param functionClass
+	 *            The class of the function command.
+	 * @param funcData
+	 *            The args of the function for each item.
+	 * @return The output of each item, in item order.
+	 */
+	private String[] executeAll(final Class<? extends Command> functionClass,
+			final List<String> funcData) throws Exception {
+		final String[] results = new String[funcData.size()];
+		final AtomicInteger next = new AtomicInteger();
+		final CountDownLatch remaining = new CountDownLatch(results.length);
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				int i;
+				while ((i = next.getAndIncrement()) < results.length) {
+					try {
+						Command funcCommand = functionClass.newInstance();
+						funcCommand.setData(funcData.get(i));
+						funcCommand.setPortHandler(handler);
+						funcCommand.execute();
+						results[i] = funcCommand.getResult();
+					} catch (Exception e) {
+						results[i] = e + "\n";
+					} finally {
+						remaining.countDown();
+					}
+				}
+			}
+		};
+
+		int numWorkers = Math.min(getConcurrency(), results.length);
+		CommandScheduler scheduler = CommandScheduler.getInstance();
+		for (int i = 1; i < numWorkers; i++)
+			scheduler.execute(Lane.BULK, worker);
+		worker.run();
+		remaining.await();
+		return results;
+	}
+
+	/**
+	 * The function args, split once into literal text and capture group
+	 * references.
+	 */
+	private static class ArgsTemplate {
+		/** The capture group after each literal (-1 for none). */
+		private final int[] groups_;
+		private final String[] literals_;
+
+		public ArgsTemplate(String funcArgs) {
+			List<String> literals = new ArrayList<>();
+			List<Integer> groups = new ArrayList<>();
+			Matcher m = GROUP_PATTERN.matcher(funcArgs);
+			int start = 0;
+			while (m.find()) {
+				literals.add(funcArgs.substring(start, m.start()));
+				groups.add(Integer.parseInt(m.group(1)));
+				start = m.end();
+			}
+			literals.add(funcArgs.substring(start));
+			groups.add(-1);
+			literals_ = literals.toArray(new String[literals.size()]);
+			groups_ = new int[groups.size()];
+			for (int i = 0; i < groups_.length; i++)
+				groups_[i] = groups.get(i);
+		}
+
+		/**
+		 * Gets the largest capture group referred to.
+		 *
+		 * @return The largest group, or -1 if none are referred to.
+		 */
+		public int getMaxGroup() {
+			int max = -1;
+			for (int group : groups_)
+				max = Math.max(max, group);
+			return max;
+		}
+
+		/**
+		 * Fills in the capture groups of an item.
+		 */
+		public String apply(String[] groupValues) {
+			StringBuilder buffer = new StringBuilder();
+			for (int i = 0; i < literals_.length; i++) {
+				buffer.append(literals_[i]);
+				if (groups_[i] != -1)
+					buffer.append(groupValues[groups_[i]]);
+			}
+			return buffer.toString();
+		}
+	}
 }
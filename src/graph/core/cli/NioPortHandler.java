@@ -0,0 +1,535 @@
+package graph.core.cli;
+
+import graph.core.DirectedAcyclicGraph;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import core.Command;
+import core.CommandParser;
+
+/**
+ * A text protocol connection served by an {@link EventLoopServer}. The
+ * selector thread appends the bytes read to the connection's lines and drains
+ * its queued output to the channel, so no thread is held while the client is
+ * idle. Commands are executed one at a time per connection on the server's
+ * workers, and respond exactly as they would on a threaded connection
+ * (prompt, elapsed time, result and end message). Commands reading further
+ * lines of the connection wait on a worker for the lines to arrive. Output
+ * streamed while a command executes waits once too much of it is queued, so
+ * a client that is not reading holds up its own command rather than filling
+ * memory, but a response that is already built is queued without waiting,
+ * so it never holds up a worker. Reading stops while too many unread
+ * characters are buffered, and a line longer than that closes the
+ * connection.
+ *
+ * @author Sam Sarjant
+ */
+public class NioPortHandler extends DAGPortHandler {
+	/** The number of characters of input buffered before reading stops. */
+	public static final int MAX_PENDING_INPUT = 1 << 16;
+
+	/** The number of bytes of output queued before streamed writes wait. */
+	public static final int MAX_PENDING_OUTPUT = 1 << 16;
+
+	/** The bytes of a character split across reads. */
+	private byte[] carry_;
+
+	private final SocketChannel channel_;
+
+	private final CharsetDecoder decoder_ = Charset.defaultCharset()
+			.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	private final SelectionKey key_;
+
+	private final LineBuffer lines_ = new LineBuffer();
+
+	private final ChannelOutput output_;
+
+	/** If a command of this connection is executing (guarded by lines_). */
+	private boolean running_;
+
+	private final EventLoopServer server_;
+
+	/** If a command has asked for the connection to close. */
+	private volatile boolean terminated_;
+
+	public NioPortHandler(SocketChannel channel, SelectionKey key,
+			EventLoopServer server, CommandScheduler scheduler,
+			DirectedAcyclicGraph dag) {
+		this(new ChannelOutput(channel, key, server), scheduler, dag);
+	}
+
+	private NioPortHandler(ChannelOutput output, CommandScheduler scheduler,
+			DirectedAcyclicGraph dag) {
+		super(new ChannelSocket(output), scheduler, dag);
+		output_ = output;
+		channel_ = output.channel_;
+		key_ = output.key_;
+		server_ = output.server_;
+		try {
+			out.write(get("/env/prompt"));
+			out.flush();
+		} catch (IOException e) {
+			close();
+		}
+	}
+
+	/**
+	 * Executes the next complete line, if no command is executing.
+	 */
+	private void dispatch() {
+		String line;
+		synchronized (lines_) {
+			if (running_ || terminated_ || output_.isClosed())
+				return;
+			line = lines_.pollLine();
+			if (line == null) {
+				if (lines_.isClosed())
+					output_.closeWhenDrained();
+				return;
+			}
+			running_ = true;
+		}
+
+		final Command command = CommandParser.parse(line);
+		server_.getExecutor(command).execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					respond(command);
+				} finally {
+					synchronized (lines_) {
+						running_ = false;
+					}
+				}
+				dispatch();
+			}
+		});
+	}
+
+	/**
+	 * Executes a command and writes its response, as a threaded connection
+	 * would.
+	 *
+	 * @param command
+	 *            The command, or null if it was unknown.
+	 */
+	private void respond(Command command) {
+		try {
+			if (command == null) {
+				out.write("Unknown command. Type 'list' for a list of valid "
+						+ "commands." + getNewLine());
+			} else {
+				command.setPortHandler(this);
+				if (command.addToCommandQueue()
+						&& command instanceof CollectionCommand)
+					((CollectionCommand) command).setStreaming(true);
+				output_.setStreaming(true);
+				try {
+					command.execute();
+				} finally {
+					output_.setStreaming(false);
+				}
+				if ("true".equalsIgnoreCase(get("/env/time")))
+					out.write("Elapsed time:" + command.getTimeToComplete()
+							+ getNewLine());
+				out.write(command.getResult());
+				if (terminated_) {
+					out.flush();
+					output_.closeWhenDrained();
+					return;
+				}
+			}
+			String endMessage = get("/env/endmessage");
+			out.write(endMessage);
+			if (endMessage.trim().length() > 0)
+				out.write(getNewLine());
+			if ("true".equalsIgnoreCase(get("/env/singleline")))
+				out.write(System.lineSeparator());
+			out.write(get("/env/prompt"));
+			out.flush();
+		} catch (IOException e) {
+			close();
+		}
+	}
+
+	/**
+	 * Closes the connection immediately.
+	 */
+	public void close() {
+		lines_.close();
+		output_.close();
+	}
+
+	/**
+	 * Gets the lines of the connection, waiting for lines yet to arrive.
+	 */
+	@Override
+	public BufferedReader getReader() {
+		return lines_;
+	}
+
+	/**
+	 * Reads the available bytes of the connection (on the selector thread).
+	 *
+	 * @param buffer
+	 *            The buffer to read with.
+	 */
+	public void readable(ByteBuffer buffer) throws IOException {
+		buffer.clear();
+		if (carry_ != null) {
+			buffer.put(carry_);
+			carry_ = null;
+		}
+		if (channel_.read(buffer) == -1) {
+			key_.interestOps(key_.interestOps() & ~SelectionKey.OP_READ);
+			lines_.close();
+			dispatch();
+			return;
+		}
+
+		buffer.flip();
+		CharBuffer chars = CharBuffer.allocate((int) Math.ceil(buffer
+				.remaining() * decoder_.maxCharsPerByte()));
+		decoder_.decode(buffer, chars, false);
+		if (buffer.hasRemaining()) {
+			carry_ = new byte[buffer.remaining()];
+			buffer.get(carry_);
+		}
+		chars.flip();
+		if (!lines_.append(chars)) {
+			// Wait for the buffered lines to be read before reading more
+			key_.interestOps(key_.interestOps() & ~SelectionKey.OP_READ);
+			if (!lines_.hasLine()) {
+				// A line that can never fit
+				close();
+				return;
+			}
+		}
+		dispatch();
+	}
+
+	/**
+	 * The connection thread started by the base handler has nothing to do, as
+	 * the connection is served by the event loop.
+	 */
+	@Override
+	public void run() {
+	}
+
+	@Override
+	public void terminate() {
+		super.terminate();
+		terminated_ = true;
+	}
+
+	/**
+	 * Writes queued output to the channel (on the selector thread).
+	 */
+	public void writable() throws IOException {
+		output_.writable();
+	}
+
+	/**
+	 * The output of a connection, queued for the selector thread to write.
+	 */
+	private static class ChannelOutput extends OutputStream {
+		private final SocketChannel channel_;
+
+		private boolean closed_;
+
+		/** If the channel closes once the queued output is written. */
+		private boolean closing_;
+
+		private final SelectionKey key_;
+
+		/** The number of bytes queued. */
+		private int pending_;
+
+		/** If a command is executing, so writes wait for the client. */
+		private boolean streaming_;
+
+		private final Deque<ByteBuffer> queue_ = new ArrayDeque<>();
+
+		private final EventLoopServer server_;
+
+		public ChannelOutput(SocketChannel channel, SelectionKey key,
+				EventLoopServer server) {
+			channel_ = channel;
+			key_ = key;
+			server_ = server;
+		}
+
+		@Override
+		public synchronized void close() {
+			if (closed_)
+				return;
+			closed_ = true;
+			queue_.clear();
+			notifyAll();
+			key_.cancel();
+			try {
+				channel_.close();
+			} catch (IOException e) {
+			}
+		}
+
+		/**
+		 * Closes the channel once the queued output is written.
+		 */
+		public synchronized void closeWhenDrained() {
+			closing_ = true;
+			if (queue_.isEmpty())
+				close();
+		}
+
+		public synchronized boolean isClosed() {
+			return closed_ || closing_;
+		}
+
+		/**
+		 * Sets if writes are streamed output, which wait while too much
+		 * output is queued, rather than a built response.
+		 */
+		public synchronized void setStreaming(boolean streaming) {
+			streaming_ = streaming;
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len)
+				throws IOException {
+			try {
+				while (streaming_ && pending_ >= MAX_PENDING_OUTPUT
+						&& !closed_)
+					wait();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			if (closed_ || closing_)
+				throw new IOException("Connection closed.");
+			if (len == 0)
+				return;
+			boolean idle = queue_.isEmpty();
+			queue_.add(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len)));
+			pending_ += len;
+			if (idle)
+				server_.requestWrite(key_);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		/**
+		 * Writes as much queued output as the channel accepts.
+		 */
+		public synchronized void writable() throws IOException {
+			ByteBuffer buffer;
+			while ((buffer = queue_.peek()) != null) {
+				pending_ -= channel_.write(buffer);
+				if (buffer.hasRemaining())
+					break;
+				queue_.poll();
+			}
+			notifyAll();
+			if (queue_.isEmpty()) {
+				if (closing_)
+					close();
+				else
+					key_.interestOps(key_.interestOps()
+							& ~SelectionKey.OP_WRITE);
+			}
+		}
+	}
+
+	/**
+	 * Stands in for the socket of the base handler, providing the queued
+	 * output as its output stream.
+	 */
+	private static class ChannelSocket extends Socket {
+		private final ChannelOutput output_;
+
+		public ChannelSocket(ChannelOutput output) {
+			output_ = output;
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return new ByteArrayInputStream(new byte[0]);
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return output_;
+		}
+	}
+
+	/**
+	 * The lines read from the connection. Lines are taken one at a time, so
+	 * a command reading further lines never reads ahead into the next
+	 * command.
+	 */
+	private class LineBuffer extends BufferedReader {
+		private final StringBuilder buffer_ = new StringBuilder();
+
+		/** If the client has stopped sending. */
+		private boolean closed_;
+
+		/** If reading stopped as the buffer was full. */
+		private boolean full_;
+
+		/** The length of the start of the buffer known to hold no line end. */
+		private int scanned_;
+
+		public LineBuffer() {
+			// Reads are taken from the buffer directly
+			super(new StringReader(""), 1);
+		}
+
+		/**
+		 * Appends characters read from the connection.
+		 *
+		 * @return False if the buffer is full, so reading must stop until
+		 *         it is read from.
+		 */
+		public synchronized boolean append(CharSequence chars) {
+			buffer_.append(chars);
+			notifyAll();
+			full_ = buffer_.length() > MAX_PENDING_INPUT;
+			return !full_;
+		}
+
+		/**
+		 * Notes characters were taken from the start of the buffer,
+		 * resuming reading if the buffer was full.
+		 */
+		private void consumed(int count) {
+			scanned_ = Math.max(0, scanned_ - count);
+			if (full_ && buffer_.length() <= MAX_PENDING_INPUT) {
+				full_ = false;
+				server_.requestRead(key_);
+			}
+		}
+
+		/**
+		 * Finds the end of the first line, scanning only characters not
+		 * already scanned.
+		 *
+		 * @return The index of the first line end, or -1.
+		 */
+		private int findLineEnd() {
+			int end = buffer_.indexOf("\n", scanned_);
+			scanned_ = (end == -1) ? buffer_.length() : end;
+			return end;
+		}
+
+		/**
+		 * If the buffer holds a complete line.
+		 */
+		public synchronized boolean hasLine() {
+			return findLineEnd() != -1;
+		}
+
+		@Override
+		public synchronized void close() {
+			closed_ = true;
+			notifyAll();
+		}
+
+		public synchronized boolean isClosed() {
+			return closed_;
+		}
+
+		/**
+		 * Takes the next complete line, if there is one.
+		 *
+		 * @return The line (without its line ending), or null.
+		 */
+		public synchronized String pollLine() {
+			int end = findLineEnd();
+			if (end == -1)
+				return null;
+			String line = buffer_.substring(0, (end > 0 && buffer_
+					.charAt(end - 1) == '\r') ? end - 1 : end);
+			buffer_.delete(0, end + 1);
+			consumed(end + 1);
+			return line;
+		}
+
+		@Override
+		public synchronized int read() throws IOException {
+			char[] c = new char[1];
+			return (read(c, 0, 1) == -1) ? -1 : c[0];
+		}
+
+		@Override
+		public synchronized int read(char[] cbuf, int off, int len)
+				throws IOException {
+			try {
+				while (buffer_.length() == 0) {
+					if (closed_)
+						return -1;
+					wait();
+				}
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			int count = Math.min(len, buffer_.length());
+			buffer_.getChars(0, count, cbuf, off);
+			buffer_.delete(0, count);
+			consumed(count);
+			return count;
+		}
+
+		/**
+		 * Takes the next line, waiting for it to arrive.
+		 *
+		 * @return The line, or null if the client has stopped sending.
+		 */
+		@Override
+		public synchronized String readLine() throws IOException {
+			try {
+				while (true) {
+					String line = pollLine();
+					if (line != null)
+						return line;
+					if (closed_) {
+						if (buffer_.length() == 0)
+							return null;
+						line = buffer_.toString();
+						buffer_.setLength(0);
+						consumed(line.length());
+						return line;
+					}
+					wait();
+				}
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+		}
+
+		@Override
+		public synchronized boolean ready() {
+			return buffer_.length() > 0;
+		}
+	}
+}
@@ -3,7 +3,7 @@ package graph.core.cli;
 import graph.core.DAGNode;
 import core.Command;
 
-public class NodeCommand extends Command {
+public class NodeCommand extends Command implements ReadOnlyCommand {
 	@Override
 	public String helpText() {
 		return "{0} ID : Returns information about a node by ID.";
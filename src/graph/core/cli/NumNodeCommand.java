@@ -2,7 +2,7 @@ package graph.core.cli;
 
 import core.Command;
 
-public class NumNodeCommand extends Command {
+public class NumNodeCommand extends Command implements ReadOnlyCommand {
 	@Override
 	public String helpText() {
 		return "{0} : Returns the number of nodes in the DAG.";
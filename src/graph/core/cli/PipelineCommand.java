@@ -0,0 +1,227 @@
+package graph.core.cli;
+
+import graph.core.cli.CommandScheduler.Lane;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import core.Command;
+import core.CommandParser;
+
+/**
+ * Switches the connection into pipelined mode, where the client sends tagged
+ * commands without waiting for each response. Read-only commands are
+ * executed concurrently, and every other command is executed alone once the
+ * commands before it are complete (so later commands see its changes). Every
+ * command is executed by the {@link CommandScheduler}, in its lane. Each
+ * response carries the tag of its request, so responses may be returned as
+ * commands complete rather than in request order.
+ *
+ * @author Sam Sarjant
+ */
+public class PipelineCommand extends Command {
+	/** The line ending pipelined mode. */
+	public static final String END = "end";
+
+	public PipelineCommand() {
+		// Read the connection directly, rather than hold a queue thread
+		addToQueue = false;
+	}
+
+	@Override
+	public String helpText() {
+		return "{0} [ordered|unordered] \\n tag command args \\n ... \\n "
+				+ END + " : Reads tagged commands until a line of " + END
+				+ ", executing each without waiting for the previous "
+				+ "response. Each response is returned as tag|length| "
+				+ "and a new line, followed by length bytes of UTF-8 "
+				+ "command output (always ending in a new line). "
+				+ "Read-only commands are executed concurrently (up to "
+				+ DAGPortHandler.PIPELINE_DEPTH + " commands are in "
+				+ "progress at once), and other commands are executed "
+				+ "alone, after every earlier command. Responses are "
+				+ "returned in request order, or as commands complete if "
+				+ "unordered (defaults to " + DAGPortHandler.PIPELINE_ORDERED
+				+ "). Returns the number of commands executed.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Executes tagged commands without waiting for each response.";
+	}
+
+	/**
+	 * Gets the maximum number of commands in progress at once.
+	 */
+	private int getDepth() {
+		try {
+			return Math.max(1, Integer.parseInt(handler
+					.get(DAGPortHandler.PIPELINE_DEPTH)));
+		} catch (Exception e) {
+			return 1;
+		}
+	}
+
+	@Override
+	protected void executeImpl() {
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		boolean ordered = !"false".equals(dagHandler
+				.get(DAGPortHandler.PIPELINE_ORDERED));
+		if (data.equals("ordered"))
+			ordered = true;
+		else if (data.equals("unordered"))
+			ordered = false;
+		else if (!data.isEmpty()) {
+			print("-1|Unknown pipeline mode: " + data + "\n");
+			return;
+		}
+
+		BufferedReader in = dagHandler.getReader();
+		CommandScheduler scheduler = CommandScheduler.getInstance();
+		final ResponseWriter writer = new ResponseWriter(dagHandler, ordered);
+		final int depth = getDepth();
+		final Semaphore inProgress = new Semaphore(depth);
+		long count = 0;
+		Exception error = null;
+		try {
+			String line;
+			while (!writer.isFailed() && (line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty())
+					continue;
+				if (line.equals(END))
+					break;
+				final long index = count++;
+				int spaceIndex = line.indexOf(' ');
+				final String tag = (spaceIndex == -1) ? line : line.substring(
+						0, spaceIndex);
+				final Command command = (spaceIndex == -1) ? null
+						: CommandParser.parse(line.substring(spaceIndex + 1)
+								.trim());
+				if (command == null) {
+					writer.complete(index, tag, "-1|Unknown command."
+							+ dagHandler.getNewLine());
+					continue;
+				}
+				command.setPortHandler(dagHandler);
+
+				if (Lane.of(command) == Lane.READ) {
+					inProgress.acquire();
+					scheduler.execute(command, new Runnable() {
+						@Override
+						public void run() {
+							try {
+								command.execute();
+								writer.complete(index, tag,
+										command.getResult());
+							} finally {
+								inProgress.release();
+							}
+						}
+					});
+				} else {
+					// Wait for every earlier command, and hold off later ones
+					inProgress.acquire(depth);
+					try {
+						dagHandler.executeQueued(command);
+						writer.complete(index, tag, command.getResult());
+					} finally {
+						inProgress.release(depth);
+					}
+				}
+			}
+		} catch (Exception e) {
+			error = e;
+		} finally {
+			// Wait for the commands in progress, so nothing is written after
+			inProgress.acquireUninterruptibly(depth);
+			inProgress.release(depth);
+		}
+		if (error != null)
+			print("-1|" + error + "\n");
+		else
+			print(count + "\n");
+	}
+
+	/**
+	 * Writes tagged responses to the client, holding completed responses back
+	 * until every earlier response is written if ordered.
+	 */
+	private static class ResponseWriter {
+		private final DAGPortHandler handler_;
+
+		/** The index of the next response to write (if ordered). */
+		private long next_;
+
+		private final boolean ordered_;
+
+		/** The completed responses waiting on earlier ones, by index. */
+		private final Map<Long, byte[]> pending_ = new HashMap<>();
+
+		private volatile boolean failed_;
+
+		public ResponseWriter(DAGPortHandler handler, boolean ordered) {
+			handler_ = handler;
+			ordered_ = ordered;
+		}
+
+		/**
+		 * Records the response of a command, writing it (and any responses it
+		 * was holding back) if it may be written.
+		 *
+		 * @param index
+		 *            The index of the request.
+		 * @param tag
+		 *            The tag of the request.
+		 * @param result
+		 *            The output of the command, in the connection's new lines.
+		 */
+		public synchronized void complete(long index, String tag,
+				String result) {
+			// Framed by length, as output may not end in (or contain) lines
+			String newLine = handler_.getNewLine();
+			if (!result.endsWith(newLine))
+				result += newLine;
+			byte[] output = result.getBytes(StandardCharsets.UTF_8);
+			byte[] header = (tag + "|" + output.length + "|" + newLine)
+					.getBytes(StandardCharsets.UTF_8);
+			byte[] response = Arrays.copyOf(header, header.length
+					+ output.length);
+			System.arraycopy(output, 0, response, header.length,
+					output.length);
+
+			if (ordered_) {
+				pending_.put(index, response);
+				if (index != next_)
+					return;
+				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				while ((response = pending_.remove(next_)) != null) {
+					buffer.write(response, 0, response.length);
+					next_++;
+				}
+				response = buffer.toByteArray();
+			}
+
+			if (failed_)
+				return;
+			try {
+				handler_.write(response);
+			} catch (IOException e) {
+				failed_ = true;
+			}
+		}
+
+		/**
+		 * If the client could not be written to.
+		 */
+		public boolean isFailed() {
+			return failed_;
+		}
+	}
+}
@@ -3,7 +3,7 @@ package graph.core.cli;
 import graph.core.Identifiable;
 import core.Command;
 
-public class RandomEdgeCommand extends Command {
+public class RandomEdgeCommand extends Command implements ReadOnlyCommand {
 
 	@Override
 	public String shortDescription() {
@@ -3,7 +3,7 @@ package graph.core.cli;
 import graph.core.Identifiable;
 import core.Command;
 
-public class RandomNodeCommand extends Command {
+public class RandomNodeCommand extends Command implements ReadOnlyCommand {
 
 	@Override
 	public String shortDescription() {
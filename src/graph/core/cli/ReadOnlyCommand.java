@@ -0,0 +1,12 @@
+package graph.core.cli;
+
+/**
+ * Marks a command that only reads the DAG and the connection's variables, so
+ * it may be executed concurrently with other read-only commands (such as
+ * within a pipeline). Commands without this mark (or the read lane, as a
+ * {@link LanedCommand}) are assumed to modify state, and are executed alone.
+ *
+ * @author Sam Sarjant
+ */
+public interface ReadOnlyCommand {
+}
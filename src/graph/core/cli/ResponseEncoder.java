@@ -0,0 +1,114 @@
+package graph.core.cli;
+
+import graph.core.Identifiable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Encodes a command response directly into a reusable buffer, which is
+ * written to the client in chunks as it fills. Writes block while the client
+ * is not reading, so a large response is produced no faster than it is
+ * consumed and never needs to be held in memory as a whole.
+ * 
+ * @author Sam Sarjant
+ */
+public class ResponseEncoder {
+	/** The number of characters buffered before writing to the client. */
+	public static final int CHUNK_SIZE = 1 << 13;
+
+	private final StringBuilder buffer_ = new StringBuilder(CHUNK_SIZE * 2);
+
+	private char[] chunk_ = new char[CHUNK_SIZE * 2];
+
+	private final DAGPortHandler handler_;
+
+	private String newLine_;
+
+	private final Writer out_;
+
+	/** The pretty results mode for the current response. */
+	private String pretty_;
+
+	public ResponseEncoder(DAGPortHandler handler, Writer out) {
+		handler_ = handler;
+		out_ = out;
+	}
+
+	/**
+	 * Writes the buffer out if it has filled a chunk.
+	 */
+	private void flushIfFull() {
+		if (buffer_.length() >= CHUNK_SIZE)
+			flush();
+	}
+
+	public ResponseEncoder append(char c) {
+		buffer_.append(c);
+		flushIfFull();
+		return this;
+	}
+
+	public ResponseEncoder append(long value) {
+		buffer_.append(value);
+		flushIfFull();
+		return this;
+	}
+
+	public ResponseEncoder append(String str) {
+		buffer_.append(str);
+		flushIfFull();
+		return this;
+	}
+
+	/**
+	 * Appends an object in the pretty results format of the connection,
+	 * followed by the item delimiter.
+	 * 
+	 * @param obj
+	 *            The object to append.
+	 */
+	public ResponseEncoder appendItem(Identifiable obj) {
+		buffer_.append(DAGPortHandler.textIDObject(obj, pretty_)).append('|');
+		flushIfFull();
+		return this;
+	}
+
+	/**
+	 * Writes any buffered output to the client.
+	 */
+	public void flush() {
+		int length = buffer_.length();
+		if (length > chunk_.length)
+			chunk_ = new char[length];
+		buffer_.getChars(0, length, chunk_, 0);
+		buffer_.setLength(0);
+		try {
+			out_.write(chunk_, 0, length);
+			out_.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Appends the connection's new line.
+	 */
+	public ResponseEncoder newLine() {
+		return append(newLine_);
+	}
+
+	/**
+	 * Prepares the encoder for a new response, reading the output format
+	 * variables of the connection.
+	 * 
+	 * @return This encoder.
+	 */
+	public ResponseEncoder start() {
+		buffer_.setLength(0);
+		newLine_ = handler_.getNewLine();
+		pretty_ = handler_.get(DAGPortHandler.PRETTY_RESULTS);
+		return this;
+	}
+}
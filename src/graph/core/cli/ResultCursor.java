@@ -0,0 +1,206 @@
+package graph.core.cli;
+
+import graph.core.cli.comparator.DefaultComparator;
+import graph.core.cli.comparator.DefaultComparator.SortKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A position within the result of a collection command, kept between page
+ * requests so later pages do not repeat the work of earlier ones. Unsorted
+ * results are read on from the last position of the collection they came
+ * from (which is not copied, so the cursor must be dropped once the DAG
+ * changes), and sorted results are only partially sorted (a bounded heap)
+ * for the first page, then fully sorted once if further pages are requested.
+ * Items are decorated with their sort keys once, when sorted by a
+ * {@link DefaultComparator}.
+ * 
+ * @author Sam Sarjant
+ */
+public class ResultCursor<T> {
+	/** The optional comparator for sorting the items. */
+	private Comparator<Object> comparator_;
+
+	/** The epoch of the DAG the result was found at. */
+	private final long epoch_;
+
+	/** The items of the result. */
+	private Collection<T> items_;
+
+	/** The items decorated with their sort keys. */
+	private List<SortKey<T>> keys_;
+
+	/** The iterator over unsorted items. */
+	private Iterator<T> iter_;
+
+	/** The index of the next item of the iterator. */
+	private int position_;
+
+	/** The fully sorted items. */
+	private List<T> sorted_;
+
+	/** If a page has been read from the cursor. */
+	private boolean used_;
+
+	public ResultCursor(Collection<T> items, Comparator<Object> comparator) {
+		this(items, comparator, -1);
+	}
+
+	/**
+	 * Opens a cursor on a result.
+	 * 
+	 * @param items
+	 *            The items of the result.
+	 * @param comparator
+	 *            The optional comparator for sorting the items.
+	 * @param epoch
+	 *            The epoch of the DAG the result was found at, or -1 if
+	 *            unknown.
+	 */
+	public ResultCursor(Collection<T> items, Comparator<Object> comparator,
+			long epoch) {
+		items_ = items;
+		comparator_ = comparator;
+		epoch_ = epoch;
+	}
+
+	/**
+	 * Selects the first k items in sorted order using a bounded heap.
+	 * 
+	 * @param items
+	 *            The items to select from.
+	 * @param comparator
+	 *            The comparator for the items.
+	 * @param k
+	 *            The number of items to select.
+	 * @return The first k items, sorted.
+	 */
+	private static <E> List<E> selectFirst(Collection<E> items,
+			Comparator<? super E> comparator, int k) {
+		PriorityQueue<E> heap = new PriorityQueue<>(k,
+				Collections.reverseOrder(comparator));
+		for (E item : items) {
+			if (heap.size() < k)
+				heap.add(item);
+			else if (comparator.compare(item, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(item);
+			}
+		}
+
+		List<E> first = new ArrayList<>(heap.size());
+		while (!heap.isEmpty())
+			first.add(heap.poll());
+		Collections.reverse(first);
+		return first;
+	}
+
+	/**
+	 * Selects the first k items in sorted order.
+	 */
+	private List<T> selectFirst(int k) {
+		if (comparator_ instanceof DefaultComparator) {
+			DefaultComparator comparator = (DefaultComparator) comparator_;
+			keys_ = comparator.decorate(items_);
+			return DefaultComparator.undecorate(selectFirst(keys_,
+					comparator.getKeyComparator(), k));
+		}
+		return selectFirst(items_, comparator_, k);
+	}
+
+	/**
+	 * Fully sorts the items.
+	 */
+	private List<T> sortAll() {
+		if (comparator_ instanceof DefaultComparator) {
+			DefaultComparator comparator = (DefaultComparator) comparator_;
+			if (keys_ == null)
+				keys_ = comparator.decorate(items_);
+			comparator.sortKeys(keys_);
+			List<T> sorted = DefaultComparator.undecorate(keys_);
+			keys_ = null;
+			return sorted;
+		}
+
+		List<T> sorted = new ArrayList<>(items_);
+		Collections.sort(sorted, comparator_);
+		return sorted;
+	}
+
+	/**
+	 * Fully sorts the result now, so any page can be read from it without
+	 * further sorting (or the collection the result came from).
+	 */
+	public synchronized void complete() {
+		used_ = true;
+		if (comparator_ != null && sorted_ == null) {
+			sorted_ = sortAll();
+			items_ = sorted_;
+		}
+	}
+
+	/**
+	 * Gets a page of the result.
+	 * 
+	 * @param start
+	 *            The start index (inclusive).
+	 * @param end
+	 *            The end index (exclusive).
+	 * @return The items within the range.
+	 */
+	public synchronized Collection<T> page(int start, int end) {
+		boolean firstPage = !used_;
+		used_ = true;
+		start = Math.max(0, start);
+		end = Math.min(items_.size(), end);
+		if (start >= end)
+			return new ArrayList<>(0);
+
+		if (comparator_ != null) {
+			if (sorted_ == null) {
+				// Only the first page can get away with a partial sort
+				if (firstPage && end < items_.size())
+					return selectFirst(end).subList(start, end);
+				sorted_ = sortAll();
+				items_ = sorted_;
+			}
+			return new ArrayList<>(sorted_.subList(start, end));
+		}
+
+		// Read on from the last position
+		if (iter_ == null || start < position_) {
+			iter_ = items_.iterator();
+			position_ = 0;
+		}
+		Collection<T> page = new ArrayList<>(end - start);
+		while (position_ < end && iter_.hasNext()) {
+			T item = iter_.next();
+			if (position_ >= start)
+				page.add(item);
+			position_++;
+		}
+		return page;
+	}
+
+	/**
+	 * Gets the epoch of the DAG the result was found at.
+	 * 
+	 * @return The epoch, or -1 if unknown.
+	 */
+	public long getEpoch() {
+		return epoch_;
+	}
+
+	/**
+	 * The total number of items in the result.
+	 */
+	public int size() {
+		return items_.size();
+	}
+}
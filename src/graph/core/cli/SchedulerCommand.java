@@ -0,0 +1,53 @@
+package graph.core.cli;
+
+import graph.core.cli.CommandScheduler.Lane;
+import core.Command;
+
+/**
+ * Reports the state of each lane of the command scheduler.
+ *
+ * @author Sam Sarjant
+ */
+public class SchedulerCommand extends Command {
+	public SchedulerCommand() {
+		// Report immediately, even when every worker is busy
+		addToQueue = false;
+	}
+
+	@Override
+	public String helpText() {
+		return "{0} [reset] : Returns a line for each lane of the command "
+				+ "scheduler (READ, WRITE, ADMIN, BULK) in the form "
+				+ "lane|queued|running|budget|completed|meanWaitMS|"
+				+ "maxWaitMS|. If reset, the completed counts and wait "
+				+ "times are reset after reporting.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns the queue depths and wait times of the scheduler.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		if (!data.isEmpty() && !data.equals("reset")) {
+			print("-1|Unknown argument: " + data + "\n");
+			return;
+		}
+
+		CommandScheduler scheduler = CommandScheduler.getInstance();
+		StringBuilder buffer = new StringBuilder();
+		for (Lane lane : Lane.values()) {
+			buffer.append(lane).append('|');
+			buffer.append(scheduler.getQueueDepth(lane)).append('|');
+			buffer.append(scheduler.getRunning(lane)).append('|');
+			buffer.append(scheduler.getBudget(lane)).append('|');
+			buffer.append(scheduler.getCompleted(lane)).append('|');
+			buffer.append(scheduler.getMeanWait(lane) / 1000000.0).append('|');
+			buffer.append(scheduler.getMaxWait(lane) / 1000000.0).append("|\n");
+		}
+		print(buffer.toString());
+		if (data.equals("reset"))
+			scheduler.resetStatistics();
+	}
+}
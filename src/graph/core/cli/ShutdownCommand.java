@@ -5,7 +5,7 @@ import java.io.IOException;
 
 import core.Command;
 
-public class ShutdownCommand extends Command {
+public class ShutdownCommand extends Command implements AdminCommand {
 
 	@Override
 	public String shortDescription() {
@@ -0,0 +1,124 @@
+package graph.core.cli;
+
+import graph.core.DirectedAcyclicGraph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of sorted query results shared between connections, keyed by query
+ * and sort order. Each result records the mutation epoch of the DAG it was
+ * computed at, and is only returned while the DAG is still at that epoch. The
+ * cache is bounded by the total number of cached items, evicting the least
+ * recently used results first.
+ * 
+ * @author Sam Sarjant
+ */
+public class SortedResultCache {
+	/** The default maximum number of items cached over all results. */
+	public static final int DEFAULT_MAX_ITEMS = 1 << 20;
+
+	/** The cached results, in access order. */
+	private final LinkedHashMap<String, CachedResult> results_ = new LinkedHashMap<>(
+			16, 0.75f, true);
+
+	/** The maximum number of items cached over all results. */
+	private final int maxItems_;
+
+	/** The number of items currently cached. */
+	private long numItems_;
+
+	public SortedResultCache() {
+		this(DEFAULT_MAX_ITEMS);
+	}
+
+	public SortedResultCache(int maxItems) {
+		maxItems_ = maxItems;
+	}
+
+	public synchronized void clear() {
+		results_.clear();
+		numItems_ = 0;
+	}
+
+	/**
+	 * Gets a cached result, if it is still current.
+	 * 
+	 * @param key
+	 *            The query and sort order.
+	 * @param dag
+	 *            The DAG the query is over.
+	 * @return The sorted result, or null if none is cached for the DAG's
+	 *         current epoch.
+	 */
+	public synchronized ResultCursor<?> get(String key, DirectedAcyclicGraph dag) {
+		CachedResult cached = results_.get(key);
+		if (cached == null)
+			return null;
+		if (cached.dag_ != dag || cached.epoch_ != dag.getEpoch()) {
+			remove(key);
+			return null;
+		}
+		return cached.result_;
+	}
+
+	/**
+	 * Caches a sorted result.
+	 * 
+	 * @param key
+	 *            The query and sort order.
+	 * @param dag
+	 *            The DAG the query is over.
+	 * @param epoch
+	 *            The epoch of the DAG when the query was started.
+	 * @param result
+	 *            The fully sorted result.
+	 */
+	public synchronized void put(String key, DirectedAcyclicGraph dag,
+			long epoch, ResultCursor<?> result) {
+		if (result.size() > maxItems_ || epoch != dag.getEpoch())
+			return;
+		remove(key);
+		results_.put(key, new CachedResult(dag, epoch, result));
+		numItems_ += result.size();
+
+		// Evict until within bounds
+		Iterator<CachedResult> iter = results_.values().iterator();
+		while (numItems_ > maxItems_ && iter.hasNext()) {
+			numItems_ -= iter.next().result_.size();
+			iter.remove();
+		}
+	}
+
+	private void remove(String key) {
+		CachedResult removed = results_.remove(key);
+		if (removed != null)
+			numItems_ -= removed.result_.size();
+	}
+
+	public synchronized int size() {
+		return results_.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return results_.size() + " results, " + numItems_ + " items";
+	}
+
+	/**
+	 * A sorted result and the epoch it was computed at.
+	 */
+	private static class CachedResult {
+		private final DirectedAcyclicGraph dag_;
+		private final long epoch_;
+		private final ResultCursor<?> result_;
+
+		public CachedResult(DirectedAcyclicGraph dag, long epoch,
+				ResultCursor<?> result) {
+			dag_ = dag;
+			epoch_ = epoch;
+			result_ = result;
+		}
+	}
+}
@@ -2,7 +2,7 @@ package graph.core.cli;
 
 import core.Command;
 
-public class SyncCommand extends Command {
+public class SyncCommand extends Command implements AdminCommand {
 
 	@Override
 	public String shortDescription() {
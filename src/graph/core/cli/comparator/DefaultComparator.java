@@ -2,11 +2,27 @@ package graph.core.cli.comparator;
 
 import graph.core.cli.DAGPortHandler;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 public abstract class DefaultComparator implements Comparator<Object> {
+	/** The number of items above which sorting is performed in parallel. */
+	public static final int PARALLEL_THRESHOLD = 1 << 13;
+
 	private DAGPortHandler handler_;
 
+	/** Compares decorated items by their precomputed keys. */
+	private final Comparator<SortKey<?>> keyComparator_ = new Comparator<SortKey<?>>() {
+		@Override
+		public int compare(SortKey<?> k1, SortKey<?> k2) {
+			return compareKeys(k1, k2);
+		}
+	};
+
 	@Override
 	public final int compare(Object o1, Object o2) {
 		if (o1 == null)
@@ -28,8 +44,14 @@ public abstract class DefaultComparator implements Comparator<Object> {
 		if (result != 0)
 			return result;
 
-		// Default to hashCode and classname comparison
-		result = Integer.compare(o1.hashCode(), o2.hashCode());
+		return compareDefault(o1, o2);
+	}
+
+	/**
+	 * Default to hashCode and classname comparison.
+	 */
+	private int compareDefault(Object o1, Object o2) {
+		int result = Integer.compare(o1.hashCode(), o2.hashCode());
 		if (result != 0)
 			return result;
 
@@ -37,9 +59,152 @@ public abstract class DefaultComparator implements Comparator<Object> {
 				.compareTo(o2.getClass().getCanonicalName());
 	}
 
+	/**
+	 * Compares two decorated items, giving the same result as comparing the
+	 * items themselves.
+	 */
+	private int compareKeys(SortKey<?> k1, SortKey<?> k2) {
+		if (k1.item_ == null)
+			if (k2.item_ == null)
+				return 0;
+			else
+				return 1;
+		else if (k2.item_ == null)
+			return -1;
+
+		// Items of the same class are compared by their converted forms
+		boolean converted = k1.item_.getClass().equals(k2.item_.getClass());
+		int result = (converted) ? compareCollationKeys(k1.key_, k2.key_)
+				: compareCollationKeys(k1.rawKey_, k2.rawKey_);
+		if (result != 0)
+			return result;
+
+		return (converted) ? compareDefault(k1.converted_, k2.converted_)
+				: compareDefault(k1.item_, k2.item_);
+	}
+
+	/**
+	 * Computes the collation key of an object, such that comparing the keys
+	 * of two objects with {@link #compareCollationKeys(Object, Object)} gives
+	 * the same result as {@link #compareInternal(Object, Object)} on the
+	 * objects. By default, the key is the object itself.
+	 * 
+	 * @param o
+	 *            The (converted) object.
+	 * @return The key to sort the object by.
+	 */
+	protected Object collationKey(Object o) {
+		return o;
+	}
+
+	/**
+	 * Compares two collation keys.
+	 * 
+	 * @see #collationKey(Object)
+	 */
+	protected int compareCollationKeys(Object k1, Object k2) {
+		return compareInternal(k1, k2);
+	}
+
 	protected abstract int compareInternal(Object o1, Object o2);
 
+	/**
+	 * Decorates each item with its precomputed sort keys, so conversion and
+	 * key computation happen once per item rather than once per comparison.
+	 * 
+	 * @param items
+	 *            The items to decorate.
+	 * @return The decorated items, in the same order.
+	 */
+	public <T> List<SortKey<T>> decorate(Collection<T> items) {
+		List<SortKey<T>> keys = new ArrayList<>(items.size());
+		for (T item : items) {
+			if (item == null) {
+				keys.add(new SortKey<T>(null, null, null, null));
+				continue;
+			}
+			Object converted = handler_.convertToComparable(item);
+			Object key = collationKey(converted);
+			Object rawKey = (converted == item) ? key : collationKey(item);
+			keys.add(new SortKey<T>(item, converted, key, rawKey));
+		}
+		return keys;
+	}
+
+	public Comparator<SortKey<?>> getKeyComparator() {
+		return keyComparator_;
+	}
+
 	public void setHandler(DAGPortHandler handler) {
 		handler_ = handler;
 	}
+
+	/**
+	 * Sorts a collection, using precomputed keys and sorting in parallel for
+	 * large collections.
+	 * 
+	 * @param items
+	 *            The items to sort.
+	 * @return A new sorted list of the items.
+	 */
+	public <T> List<T> sort(Collection<T> items) {
+		List<SortKey<T>> keys = decorate(items);
+		sortKeys(keys);
+		return undecorate(keys);
+	}
+
+	/**
+	 * Sorts decorated items in place, in parallel for large collections.
+	 * 
+	 * @param keys
+	 *            The decorated items to sort.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void sortKeys(List<SortKey<T>> keys) {
+		if (keys.size() < PARALLEL_THRESHOLD) {
+			Collections.sort(keys, keyComparator_);
+			return;
+		}
+
+		SortKey<?>[] array = keys.toArray(new SortKey<?>[keys.size()]);
+		Arrays.parallelSort(array, keyComparator_);
+		for (int i = 0; i < array.length; i++)
+			keys.set(i, (SortKey<T>) array[i]);
+	}
+
+	/**
+	 * Strips the keys from decorated items.
+	 * 
+	 * @param keys
+	 *            The decorated items.
+	 * @return The items, in the same order.
+	 */
+	public static <T> List<T> undecorate(List<SortKey<T>> keys) {
+		List<T> items = new ArrayList<>(keys.size());
+		for (SortKey<T> key : keys)
+			items.add(key.item_);
+		return items;
+	}
+
+	/**
+	 * An item decorated with its precomputed sort keys.
+	 */
+	public static class SortKey<T> {
+		private final Object converted_;
+		private final T item_;
+		private final Object key_;
+		/** The key of the unconverted item (for comparing across classes). */
+		private final Object rawKey_;
+
+		private SortKey(T item, Object converted, Object key, Object rawKey) {
+			item_ = item;
+			converted_ = converted;
+			key_ = key;
+			rawKey_ = rawKey;
+		}
+
+		public T getItem() {
+			return item_;
+		}
+	}
 }
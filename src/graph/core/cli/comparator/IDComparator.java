@@ -3,6 +3,20 @@ package graph.core.cli.comparator;
 import util.UniqueID;
 
 public class IDComparator extends DefaultComparator {
+	@Override
+	protected Object collationKey(Object o) {
+		if (o instanceof UniqueID)
+			return ((UniqueID) o).getID();
+		return null;
+	}
+
+	@Override
+	protected int compareCollationKeys(Object k1, Object k2) {
+		if (k1 != null && k2 != null)
+			return Long.compare((Long) k1, (Long) k2);
+		return 0;
+	}
+
 	@Override
 	protected int compareInternal(Object o1, Object o2) {
 		// Need to be identifiable
@@ -2,6 +2,16 @@ package graph.core.cli.comparator;
 
 public class StringComparator extends DefaultComparator {
 
+	@Override
+	protected Object collationKey(Object o) {
+		return o.toString();
+	}
+
+	@Override
+	protected int compareCollationKeys(Object k1, Object k2) {
+		return ((String) k1).compareTo((String) k2);
+	}
+
 	@Override
 	protected int compareInternal(Object o1, Object o2) {
 		return o1.toString().compareTo(o2.toString());
@@ -0,0 +1,481 @@
+package graph.module;
+
+import graph.core.DAGEdge;
+import graph.core.DAGNode;
+import graph.core.Edge;
+import graph.core.Node;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * An immutable compressed sparse row (CSR) adjacency snapshot of a chosen
+ * set of edges, for whole-graph analytics. Every node found at the source or
+ * target argument position of a chosen edge is given a dense index (in ID
+ * order), and the arcs leaving node i are the targets at positions
+ * offsets[i] to offsets[i + 1] of one flat int array, sorted by target. The
+ * predicate and edge ID of each arc can optionally be kept alongside. Edges
+ * sharing a source and target produce one arc each.
+ *
+ * The snapshot is built in parallel on the common fork-join pool, with a
+ * counting pass, a prefix sum over the degrees, and a filling pass, and is
+ * never modified afterwards, so any number of threads may read it.
+ *
+ * @author Sam Sarjant
+ */
+public class CSRSnapshot {
+	/** The number of elements below which a task runs serially. */
+	public static final int SPLIT_THRESHOLD = 4096;
+
+	/** The ID of the edge of each arc (or null). */
+	private final long[] edgeIDs_;
+
+	/** The DAG epoch the edges were read at. */
+	private final long epoch_;
+
+	/** The ID of each node index, ascending. */
+	private final long[] nodeIDs_;
+
+	/** The (1-indexed) argument position of each arc's source. */
+	private final int fromPosition_;
+
+	/** The first arc of each node index (and the number of arcs last). */
+	private final int[] offsets_;
+
+	/** The chosen predicate IDs, sorted (or null for every predicate). */
+	private final long[] predicateIDs_;
+
+	/** The predicate ID of each arc (or null). */
+	private final long[] predicates_;
+
+	/** If each edge also produces the reverse arc. */
+	private final boolean symmetric_;
+
+	/** The target node index of each arc. */
+	private final int[] targets_;
+
+	/** The (1-indexed) argument position of each arc's target. */
+	private final int toPosition_;
+
+	/**
+	 * Builds a snapshot from an array of edges.
+	 *
+	 * @param edges
+	 *            The edges to read (null elements are skipped).
+	 * @param predicates
+	 *            The IDs of the predicates (the first argument) of the edges
+	 *            to include, or null to include every edge.
+	 * @param fromPosition
+	 *            The (1-indexed) argument position of each arc's source.
+	 * @param toPosition
+	 *            The (1-indexed) argument position of each arc's target.
+	 * @param symmetric
+	 *            If each edge also produces the reverse arc.
+	 * @param labelled
+	 *            If the predicate and edge ID of each arc are kept.
+	 * @param epoch
+	 *            The DAG epoch the edges were read at.
+	 */
+	public CSRSnapshot(final Edge[] edges, long[] predicates,
+			final int fromPosition, final int toPosition,
+			final boolean symmetric, boolean labelled, long epoch) {
+		if (fromPosition < 1 || toPosition < 1)
+			throw new IllegalArgumentException(
+					"Argument positions start at 1.");
+		epoch_ = epoch;
+		fromPosition_ = fromPosition;
+		toPosition_ = toPosition;
+		symmetric_ = symmetric;
+		if (predicates != null) {
+			predicates = predicates.clone();
+			Arrays.sort(predicates);
+		}
+		final long[] predicateIDs = predicates;
+		predicateIDs_ = predicateIDs;
+
+		// Find the nodes
+		final ConcurrentBitSet found = new ConcurrentBitSet(
+				DAGNode.idCounter_ + 1);
+		forEachRange(edges.length, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				for (int i = start; i < end; i++) {
+					Node[] edgeNodes = arcNodes(edges[i], predicateIDs,
+							fromPosition, toPosition);
+					if (edgeNodes != null) {
+						found.set(((DAGNode) edgeNodes[fromPosition - 1])
+								.getID());
+						found.set(((DAGNode) edgeNodes[toPosition - 1])
+								.getID());
+					}
+				}
+			}
+		});
+		nodeIDs_ = found.toArray();
+
+		// Count the degrees
+		final AtomicIntegerArray degrees = new AtomicIntegerArray(
+				nodeIDs_.length);
+		forEachRange(edges.length, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				for (int i = start; i < end; i++) {
+					Node[] edgeNodes = arcNodes(edges[i], predicateIDs,
+							fromPosition, toPosition);
+					if (edgeNodes == null)
+						continue;
+					int from = indexOf(((DAGNode) edgeNodes[fromPosition - 1])
+							.getID());
+					int to = indexOf(((DAGNode) edgeNodes[toPosition - 1])
+							.getID());
+					degrees.incrementAndGet(from);
+					if (symmetric && from != to)
+						degrees.incrementAndGet(to);
+				}
+			}
+		});
+		offsets_ = new int[nodeIDs_.length + 1];
+		for (int i = 0; i < nodeIDs_.length; i++)
+			offsets_[i + 1] = offsets_[i] + degrees.get(i);
+
+		// Fill the arcs, reusing the degrees as each node's next free arc
+		for (int i = 0; i < nodeIDs_.length; i++)
+			degrees.set(i, offsets_[i]);
+		targets_ = new int[offsets_[nodeIDs_.length]];
+		predicates_ = (labelled) ? new long[targets_.length] : null;
+		edgeIDs_ = (labelled) ? new long[targets_.length] : null;
+		forEachRange(edges.length, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				for (int i = start; i < end; i++) {
+					Node[] edgeNodes = arcNodes(edges[i], predicateIDs,
+							fromPosition, toPosition);
+					if (edgeNodes == null)
+						continue;
+					int from = indexOf(((DAGNode) edgeNodes[fromPosition - 1])
+							.getID());
+					int to = indexOf(((DAGNode) edgeNodes[toPosition - 1])
+							.getID());
+					setArc(degrees.getAndIncrement(from), to, edges[i]);
+					if (symmetric && from != to)
+						setArc(degrees.getAndIncrement(to), from, edges[i]);
+				}
+			}
+		});
+
+		// Sort each node's arcs so the snapshot is deterministic
+		forEachRange(nodeIDs_.length, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				for (int i = start; i < end; i++)
+					sortArcs(offsets_[i], offsets_[i + 1]);
+			}
+		});
+	}
+
+	/**
+	 * Gets the nodes of an edge if it produces an arc.
+	 *
+	 * @return The nodes of the edge, or null if the edge is not of a chosen
+	 *         predicate or lacks DAG nodes at either position.
+	 */
+	private static Node[] arcNodes(Edge edge, long[] predicateIDs,
+			int fromPosition, int toPosition) {
+		if (edge == null)
+			return null;
+		Node[] edgeNodes = edge.getNodes();
+		if (edgeNodes.length < fromPosition || edgeNodes.length < toPosition
+				|| !(edgeNodes[fromPosition - 1] instanceof DAGNode)
+				|| !(edgeNodes[toPosition - 1] instanceof DAGNode))
+			return null;
+		if (predicateIDs != null
+				&& (!(edgeNodes[0] instanceof DAGNode) || Arrays.binarySearch(
+						predicateIDs, ((DAGNode) edgeNodes[0]).getID()) < 0))
+			return null;
+		return edgeNodes;
+	}
+
+	private void setArc(int arc, int target, Edge edge) {
+		targets_[arc] = target;
+		if (predicates_ != null) {
+			Node predicate = edge.getNodes()[0];
+			predicates_[arc] = (predicate instanceof DAGNode) ? ((DAGNode) predicate)
+					.getID() : -1;
+			edgeIDs_[arc] = (edge instanceof DAGEdge) ? ((DAGEdge) edge)
+					.getID() : -1;
+		}
+	}
+
+	/**
+	 * Sorts a range of arcs by target (then edge ID), keeping the labels of
+	 * each arc with it.
+	 */
+	private void sortArcs(int start, int end) {
+		if (end - start < 2)
+			return;
+		if (predicates_ == null) {
+			Arrays.sort(targets_, start, end);
+			return;
+		}
+
+		Integer[] order = new Integer[end - start];
+		for (int i = 0; i < order.length; i++)
+			order[i] = start + i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int result = Integer.compare(targets_[o1], targets_[o2]);
+				if (result != 0)
+					return result;
+				return Long.compare(edgeIDs_[o1], edgeIDs_[o2]);
+			}
+		});
+		int[] targets = new int[order.length];
+		long[] predicates = new long[order.length];
+		long[] edgeIDs = new long[order.length];
+		for (int i = 0; i < order.length; i++) {
+			targets[i] = targets_[order[i]];
+			predicates[i] = predicates_[order[i]];
+			edgeIDs[i] = edgeIDs_[order[i]];
+		}
+		System.arraycopy(targets, 0, targets_, start, order.length);
+		System.arraycopy(predicates, 0, predicates_, start, order.length);
+		System.arraycopy(edgeIDs, 0, edgeIDs_, start, order.length);
+	}
+
+	/**
+	 * Gets the number of arcs leaving a node.
+	 *
+	 * @param node
+	 *            The node index.
+	 * @return The out-degree of the node.
+	 */
+	public int getDegree(int node) {
+		return offsets_[node + 1] - offsets_[node];
+	}
+
+	/**
+	 * Gets the ID of the edge an arc came from.
+	 *
+	 * @param arc
+	 *            The arc index.
+	 * @return The edge ID.
+	 * @throws IllegalStateException
+	 *             If the snapshot is not labelled.
+	 */
+	public long getEdgeID(int arc) {
+		if (edgeIDs_ == null)
+			throw new IllegalStateException("Snapshot is not labelled.");
+		return edgeIDs_[arc];
+	}
+
+	/**
+	 * Gets the index of the first arc after a node's arcs.
+	 *
+	 * @param node
+	 *            The node index.
+	 * @return The end (exclusive) of the node's arcs.
+	 */
+	public int getEnd(int node) {
+		return offsets_[node + 1];
+	}
+
+	public long getEpoch() {
+		return epoch_;
+	}
+
+	/**
+	 * Gets the ID of an indexed node.
+	 *
+	 * @param node
+	 *            The node index.
+	 * @return The ID of the node.
+	 */
+	public long getNodeID(int node) {
+		return nodeIDs_[node];
+	}
+
+	public int getNumArcs() {
+		return targets_.length;
+	}
+
+	public int getNumNodes() {
+		return nodeIDs_.length;
+	}
+
+	/**
+	 * Gets the predicate ID of the edge an arc came from.
+	 *
+	 * @param arc
+	 *            The arc index.
+	 * @return The predicate ID.
+	 * @throws IllegalStateException
+	 *             If the snapshot is not labelled.
+	 */
+	public long getPredicateID(int arc) {
+		if (predicates_ == null)
+			throw new IllegalStateException("Snapshot is not labelled.");
+		return predicates_[arc];
+	}
+
+	/**
+	 * Gets the index of a node's first arc.
+	 *
+	 * @param node
+	 *            The node index.
+	 * @return The start (inclusive) of the node's arcs.
+	 */
+	public int getStart(int node) {
+		return offsets_[node];
+	}
+
+	/**
+	 * Gets the node an arc leads to.
+	 *
+	 * @param arc
+	 *            The arc index.
+	 * @return The index of the target node.
+	 */
+	public int getTarget(int arc) {
+		return targets_[arc];
+	}
+
+	/**
+	 * If an edge produces arcs in this snapshot, so adding or removing it
+	 * would change the snapshot.
+	 *
+	 * @param edge
+	 *            The edge.
+	 * @return True if the edge is of a chosen predicate and has DAG nodes at
+	 *         the source and target positions.
+	 */
+	public boolean includes(Edge edge) {
+		return includes(edge, predicateIDs_, fromPosition_, toPosition_);
+	}
+
+	/**
+	 * If an edge would produce arcs in a snapshot built with the given
+	 * arguments.
+	 *
+	 * @param edge
+	 *            The edge.
+	 * @param predicateIDs
+	 *            The IDs of the chosen predicates, sorted (or null for every
+	 *            predicate).
+	 * @param fromPosition
+	 *            The (1-indexed) argument position of each arc's source.
+	 * @param toPosition
+	 *            The (1-indexed) argument position of each arc's target.
+	 * @return True if the edge is of a chosen predicate and has DAG nodes at
+	 *         the source and target positions.
+	 */
+	public static boolean includes(Edge edge, long[] predicateIDs,
+			int fromPosition, int toPosition) {
+		return arcNodes(edge, predicateIDs, fromPosition, toPosition) != null;
+	}
+
+	/**
+	 * Finds the index of a node.
+	 *
+	 * @param nodeID
+	 *            The ID of the node.
+	 * @return The node's index, or -1 if it has no arcs.
+	 */
+	public int indexOf(long nodeID) {
+		int index = Arrays.binarySearch(nodeIDs_, nodeID);
+		return (index < 0) ? -1 : index;
+	}
+
+	public boolean isLabelled() {
+		return predicates_ != null;
+	}
+
+	public boolean isSymmetric() {
+		return symmetric_;
+	}
+
+	@Override
+	public String toString() {
+		return "CSR snapshot - Nodes: " + nodeIDs_.length + ", Arcs: "
+				+ targets_.length;
+	}
+
+	/**
+	 * Runs a handler over a range of indices, splitting the range between
+	 * the threads of the common fork-join pool when large.
+	 *
+	 * @param size
+	 *            The size of the range, starting from 0.
+	 * @param handler
+	 *            The handler of each sub-range.
+	 */
+	public static void forEachRange(int size, RangeHandler handler) {
+		forEachRange(size, SPLIT_THRESHOLD, handler);
+	}
+
+	/**
+	 * Runs a handler over a range of indices, splitting the range between
+	 * the threads of the common fork-join pool while larger than a
+	 * threshold, for handlers with costly indices.
+	 *
+	 * @param size
+	 *            The size of the range, starting from 0.
+	 * @param threshold
+	 *            The size of range below which a task runs serially.
+	 * @param handler
+	 *            The handler of each sub-range.
+	 */
+	public static void forEachRange(int size, int threshold,
+			RangeHandler handler) {
+		if (size <= threshold)
+			handler.process(0, size);
+		else
+			new RangeTask(handler, 0, size, threshold).invoke();
+	}
+
+	/**
+	 * Processes a range of indices.
+	 */
+	public interface RangeHandler {
+		/**
+		 * Processes the indices from start (inclusive) to end (exclusive).
+		 * May be called by several threads at once for disjoint ranges.
+		 */
+		public void process(int start, int end);
+	}
+
+	/**
+	 * Processes a range of indices, splitting it in half while large.
+	 */
+	private static class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int end_;
+		private final RangeHandler handler_;
+		private final int start_;
+		private final int threshold_;
+
+		public RangeTask(RangeHandler handler, int start, int end,
+				int threshold) {
+			handler_ = handler;
+			start_ = start;
+			end_ = end;
+			threshold_ = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (end_ - start_ <= threshold_) {
+				handler_.process(start_, end_);
+				return;
+			}
+
+			int mid = (start_ + end_) >>> 1;
+			RangeTask left = new RangeTask(handler_, start_, mid, threshold_);
+			left.fork();
+			new RangeTask(handler_, mid, end_, threshold_).compute();
+			left.join();
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package graph.module;
+
+import graph.module.CSRSnapshot.RangeHandler;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Node centrality measures computed over CSR snapshots with primitive
+ * arrays, each node's score written by one task of the common fork-join
+ * pool. Scores are returned as arrays indexed by the snapshot's node
+ * indices.
+ *
+ * @author Sam Sarjant
+ */
+public class Centrality {
+	/** The default number of pivots sampled when approximating closeness. */
+	public static final int DEFAULT_CLOSENESS_SAMPLES = 64;
+
+	/** The default probability of following an arc in PageRank. */
+	public static final double DEFAULT_DAMPING = 0.85;
+
+	/** The default maximum number of PageRank iterations. */
+	public static final int DEFAULT_MAX_ITERATIONS = 100;
+
+	/** The default total change in PageRank at which iteration stops. */
+	public static final double DEFAULT_TOLERANCE = 1e-9;
+
+	private Centrality() {
+	}
+
+	/**
+	 * Approximates the closeness of every node from breadth-first searches
+	 * out of a random sample of pivot nodes (run in parallel), treating arcs
+	 * as undirected if the snapshot is symmetric. Each node's closeness is
+	 * the fraction of the other pivots that reach it, divided by its mean
+	 * distance from them, so nodes in small components score lower. With
+	 * at least as many samples as nodes, the result is exact.
+	 *
+	 * @param snapshot
+	 *            The snapshot to search.
+	 * @param samples
+	 *            The number of pivots to search from.
+	 * @param seed
+	 *            The seed for choosing pivots.
+	 * @return The closeness of each node index, from 0 to 1.
+	 */
+	public static double[] closeness(final CSRSnapshot snapshot, int samples,
+			long seed) {
+		final int n = snapshot.getNumNodes();
+		final int[] pivots = samplePivots(n, samples, seed);
+		final AtomicLongArray distanceSums = new AtomicLongArray(n);
+		final AtomicIntegerArray reached = new AtomicIntegerArray(n);
+		CSRSnapshot.forEachRange(pivots.length, 1, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				int[] distances = new int[n];
+				int[] queue = new int[n];
+				for (int p = start; p < end; p++) {
+					Arrays.fill(distances, -1);
+					int head = 0;
+					int tail = 0;
+					queue[tail++] = pivots[p];
+					distances[pivots[p]] = 0;
+					while (head < tail) {
+						int node = queue[head++];
+						if (node != pivots[p]) {
+							distanceSums.addAndGet(node, distances[node]);
+							reached.incrementAndGet(node);
+						}
+						for (int arc = snapshot.getStart(node); arc < snapshot
+								.getEnd(node); arc++) {
+							int next = snapshot.getTarget(arc);
+							if (distances[next] == -1) {
+								distances[next] = distances[node] + 1;
+								queue[tail++] = next;
+							}
+						}
+					}
+				}
+			}
+		});
+
+		final boolean[] isPivot = new boolean[n];
+		for (int pivot : pivots)
+			isPivot[pivot] = true;
+		final double[] closeness = new double[n];
+		final int numPivots = pivots.length;
+		CSRSnapshot.forEachRange(n, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				for (int i = start; i < end; i++) {
+					int otherPivots = numPivots - ((isPivot[i]) ? 1 : 0);
+					int count = reached.get(i);
+					if (count == 0 || otherPivots == 0)
+						continue;
+					closeness[i] = (count / (double) otherPivots)
+							* (count / (double) distanceSums.get(i));
+				}
+			}
+		});
+		return closeness;
+	}
+
+	/**
+	 * Computes the degree centrality of every node: its number of arcs
+	 * divided by the number of other nodes. Over a symmetric snapshot this
+	 * counts the arcs into and out of each node.
+	 *
+	 * @param snapshot
+	 *            The snapshot.
+	 * @return The degree centrality of each node index.
+	 */
+	public static double[] degree(final CSRSnapshot snapshot) {
+		final int n = snapshot.getNumNodes();
+		final double[] degrees = new double[n];
+		final double normaliser = Math.max(1, n - 1);
+		CSRSnapshot.forEachRange(n, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				for (int i = start; i < end; i++)
+					degrees[i] = snapshot.getDegree(i) / normaliser;
+			}
+		});
+		return degrees;
+	}
+
+	/**
+	 * Computes the PageRank of every node by power iteration. Each iteration
+	 * pulls rank along the reversed arcs, so every node's new rank is
+	 * written by one task without contention. The rank of nodes without
+	 * arcs is spread evenly over every node.
+	 *
+	 * @param snapshot
+	 *            The snapshot rank flows along.
+	 * @param reverse
+	 *            The same snapshot with every arc reversed (built with the
+	 *            source and target positions swapped).
+	 * @param damping
+	 *            The probability of following an arc rather than jumping to
+	 *            a random node.
+	 * @param maxIterations
+	 *            The maximum number of iterations.
+	 * @param tolerance
+	 *            The total change in rank below which iteration stops.
+	 * @return The rank of each node index, summing to 1.
+	 */
+	public static double[] pageRank(final CSRSnapshot snapshot,
+			final CSRSnapshot reverse, final double damping,
+			int maxIterations, double tolerance) {
+		final int n = snapshot.getNumNodes();
+		if (reverse.getNumNodes() != n
+				|| reverse.getNumArcs() != snapshot.getNumArcs())
+			throw new IllegalArgumentException(
+					"Snapshots do not cover the same arcs.");
+		double[] rank = new double[n];
+		if (n == 0)
+			return rank;
+		Arrays.fill(rank, 1.0 / n);
+		final double[] contributions = new double[n];
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			double dangling = 0;
+			for (int i = 0; i < n; i++) {
+				int degree = snapshot.getDegree(i);
+				if (degree == 0) {
+					dangling += rank[i];
+					contributions[i] = 0;
+				} else
+					contributions[i] = rank[i] / degree;
+			}
+
+			final double base = (1 - damping) / n + damping * dangling / n;
+			final double[] next = new double[n];
+			CSRSnapshot.forEachRange(n, new RangeHandler() {
+				@Override
+				public void process(int start, int end) {
+					for (int i = start; i < end; i++) {
+						double sum = 0;
+						for (int arc = reverse.getStart(i); arc < reverse
+								.getEnd(i); arc++)
+							sum += contributions[reverse.getTarget(arc)];
+						next[i] = base + damping * sum;
+					}
+				}
+			});
+
+			double change = 0;
+			for (int i = 0; i < n; i++)
+				change += Math.abs(next[i] - rank[i]);
+			rank = next;
+			if (change < tolerance)
+				break;
+		}
+		return rank;
+	}
+
+	/**
+	 * Chooses distinct pivot indices at random (or every index if there are
+	 * too few).
+	 */
+	private static int[] samplePivots(int n, int samples, long seed) {
+		int[] indices = new int[n];
+		for (int i = 0; i < n; i++)
+			indices[i] = i;
+		if (samples >= n)
+			return indices;
+		Random random = new Random(seed);
+		for (int i = 0; i < samples; i++) {
+			int swap = i + random.nextInt(n - i);
+			int temp = indices[i];
+			indices[i] = indices[swap];
+			indices[swap] = temp;
+		}
+		return Arrays.copyOf(indices, samples);
+	}
+}
@@ -0,0 +1,163 @@
+package graph.module;
+
+import graph.core.DAGNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The centrality module computes node importance scores over CSR snapshots
+ * of chosen predicates (edges of the form (predicate from to), where rank
+ * flows from the first argument to the second) and keeps the latest scores
+ * of each measure, so nodes can be scored and ranked within the server. The
+ * scores are saved with the module but are not updated as edges change;
+ * they are recomputed on request. The execute method takes a measure name
+ * and returns its scores.
+ *
+ * @author Sam Sarjant
+ */
+public class CentralityModule extends DAGModule<NodeScores> {
+	private static final long serialVersionUID = -3584296093524714163L;
+
+	/** The seed for choosing closeness pivots, so scores are repeatable. */
+	private static final long PIVOT_SEED = 0;
+
+	/** The latest scores of each measure. */
+	private ConcurrentMap<Measure, NodeScores> scores_ = new ConcurrentHashMap<>();
+
+	@Override
+	public void clear() {
+		scores_.clear();
+	}
+
+	/**
+	 * Computes and stores the scores of a measure.
+	 *
+	 * @param measure
+	 *            The measure to compute.
+	 * @param predicates
+	 *            The predicates of the edges to compute over, or empty for
+	 *            every edge.
+	 * @return The scores.
+	 */
+	public NodeScores compute(Measure measure, Collection<DAGNode> predicates) {
+		SnapshotModule snapshotModule = (SnapshotModule) dag_
+				.getModule(SnapshotModule.class);
+		if (snapshotModule == null)
+			throw new ModuleException(
+					"Snapshot module is required to compute centrality.");
+
+		CSRSnapshot snapshot;
+		double[] scores;
+		switch (measure) {
+		case PAGERANK:
+			snapshot = snapshotModule.getSnapshot(predicates, 2, 3, false,
+					false);
+			CSRSnapshot reverse = snapshotModule.getSnapshot(predicates, 3, 2,
+					false, false);
+			scores = Centrality.pageRank(snapshot, reverse,
+					Centrality.DEFAULT_DAMPING,
+					Centrality.DEFAULT_MAX_ITERATIONS,
+					Centrality.DEFAULT_TOLERANCE);
+			break;
+		case DEGREE:
+			snapshot = snapshotModule
+					.getSnapshot(predicates, 2, 3, true, false);
+			scores = Centrality.degree(snapshot);
+			break;
+		case CLOSENESS:
+			snapshot = snapshotModule
+					.getSnapshot(predicates, 2, 3, true, false);
+			scores = Centrality.closeness(snapshot,
+					Centrality.DEFAULT_CLOSENESS_SAMPLES, PIVOT_SEED);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown measure: " + measure);
+		}
+
+		long[] nodeIDs = new long[snapshot.getNumNodes()];
+		for (int i = 0; i < nodeIDs.length; i++)
+			nodeIDs[i] = snapshot.getNodeID(i);
+		NodeScores nodeScores = new NodeScores(nodeIDs, scores,
+				snapshot.getEpoch());
+		scores_.put(measure, nodeScores);
+		return nodeScores;
+	}
+
+	@Override
+	public NodeScores execute(Object... args) throws IllegalArgumentException {
+		if (args == null || args.length < 1)
+			throw new IllegalArgumentException("Requires a measure.");
+		return getScores(Measure.parse(args[0].toString()));
+	}
+
+	/**
+	 * Gets the nodes within a range of ranks.
+	 *
+	 * @param measure
+	 *            The measure.
+	 * @param start
+	 *            The first (0-indexed) rank.
+	 * @param end
+	 *            The rank to stop before.
+	 * @return The existing nodes in rank order, highest score first, or null
+	 *         if the measure has not been computed.
+	 */
+	public List<DAGNode> getRanked(Measure measure, int start, int end) {
+		NodeScores scores = scores_.get(measure);
+		if (scores == null)
+			return null;
+		end = Math.min(end, scores.size());
+		List<DAGNode> nodes = new ArrayList<>(Math.max(0, end - start));
+		for (int rank = Math.max(0, start); rank < end; rank++) {
+			DAGNode node = dag_.getNodeByID(scores.getNodeIDAtRank(rank));
+			if (node != null)
+				nodes.add(node);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Gets the latest scores of a measure.
+	 *
+	 * @param measure
+	 *            The measure.
+	 * @return The scores, or null if the measure has not been computed.
+	 */
+	public NodeScores getScores(Measure measure) {
+		return scores_.get(measure);
+	}
+
+	@Override
+	public String toString() {
+		return "Centrality: " + scores_.keySet() + " computed";
+	}
+
+	/**
+	 * The centrality measures.
+	 */
+	public enum Measure {
+		/** The approximate closeness of nodes, over undirected edges. */
+		CLOSENESS,
+		/** The number of edges of nodes, over undirected edges. */
+		DEGREE,
+		/** The PageRank of nodes, over directed edges. */
+		PAGERANK;
+
+		/**
+		 * Parses a measure name, ignoring case.
+		 *
+		 * @param name
+		 *            The name of the measure.
+		 * @return The measure.
+		 * @throws IllegalArgumentException
+		 *             If no measure has the name.
+		 */
+		public static Measure parse(String name) {
+			return valueOf(name.toUpperCase());
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package graph.module;
+
+import graph.core.DAGEdge;
+import graph.core.DAGNode;
+import graph.core.Edge;
+import graph.core.Node;
+import graph.module.CSRSnapshot.RangeHandler;
+
+/**
+ * The component module keeps the connected components of the DAG, where two
+ * nodes are connected if they are both (non-predicate) arguments of an
+ * edge. Components are kept in a concurrent union-find over node IDs that is
+ * merged as edges are added, so component and size queries take
+ * near-constant time without locking. Union-find cannot split components,
+ * so removing an edge marks the components stale, and they are rebuilt in
+ * parallel from every edge by the next query (so a burst of removals costs
+ * one rebuild). The execute method takes a node and returns its component
+ * ID.
+ *
+ * @author Sam Sarjant
+ */
+public class ComponentModule extends DAGModule<Long> {
+	private static final long serialVersionUID = -2197473532207845032L;
+
+	/** The components (built when first needed). */
+	private transient volatile UnionFind components_;
+
+	/** If an edge has been removed since the components were built. */
+	private transient volatile boolean stale_;
+
+	/**
+	 * Gets the components, rebuilding them if required.
+	 */
+	private UnionFind getComponents() {
+		UnionFind components = components_;
+		if (components != null && !stale_)
+			return components;
+		// Lock the DAG first, as edge changes do
+		synchronized (dag_) {
+			synchronized (this) {
+				if (components_ == null || stale_)
+					rebuild();
+				return components_;
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the components from every edge, merging in parallel.
+	 */
+	private void rebuild() {
+		final DAGEdge[] edges = dag_.getEdges();
+		final UnionFind components = new UnionFind(
+				(int) DAGNode.idCounter_ + 1);
+		CSRSnapshot.forEachRange(edges.length, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				for (int i = start; i < end; i++)
+					merge(components, edges[i]);
+			}
+		});
+		components.recountSizes();
+		components_ = components;
+		stale_ = false;
+	}
+
+	/**
+	 * Merges the components of an edge's (non-predicate) DAG node arguments.
+	 */
+	private static void merge(UnionFind components, Edge edge) {
+		Node[] edgeNodes = edge.getNodes();
+		int first = -1;
+		for (int i = 1; i < edgeNodes.length; i++) {
+			if (!(edgeNodes[i] instanceof DAGNode))
+				continue;
+			int id = (int) ((DAGNode) edgeNodes[i]).getID();
+			if (first == -1)
+				first = id;
+			else
+				components.union(first, id);
+		}
+	}
+
+	/**
+	 * If an edge connects two distinct nodes.
+	 */
+	private static boolean connects(Edge edge) {
+		Node[] edgeNodes = edge.getNodes();
+		Node first = null;
+		for (int i = 1; i < edgeNodes.length; i++) {
+			if (!(edgeNodes[i] instanceof DAGNode))
+				continue;
+			if (first == null)
+				first = edgeNodes[i];
+			else if (!first.equals(edgeNodes[i]))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized boolean addEdge(Edge edge) {
+		// Only merge into current components; a rebuild will include the edge
+		if (components_ == null || stale_ || !connects(edge))
+			return true;
+		components_.ensureCapacity((int) DAGNode.idCounter_ + 1);
+		merge(components_, edge);
+		return true;
+	}
+
+	@Override
+	public synchronized void clear() {
+		components_ = null;
+		stale_ = false;
+	}
+
+	@Override
+	public Long execute(Object... args) throws IllegalArgumentException {
+		if (args == null || args.length < 1)
+			throw new IllegalArgumentException("Requires a node.");
+		return getComponent((DAGNode) args[0]);
+	}
+
+	/**
+	 * Gets the ID of a node's component: the ID of one node of it, which
+	 * stays the same until the component is merged or rebuilt.
+	 *
+	 * @param node
+	 *            The node.
+	 * @return The component ID.
+	 */
+	public long getComponent(DAGNode node) {
+		return getComponents().find((int) node.getID());
+	}
+
+	/**
+	 * Gets the number of nodes in a node's component.
+	 *
+	 * @param node
+	 *            The node.
+	 * @return The size of the component (1 if the node has no edges).
+	 */
+	public int getComponentSize(DAGNode node) {
+		return getComponents().getSize((int) node.getID());
+	}
+
+	/**
+	 * If two nodes are in the same component.
+	 *
+	 * @param a
+	 *            A node.
+	 * @param b
+	 *            Another node.
+	 * @return True if a chain of edges connects the nodes.
+	 */
+	public boolean isConnected(DAGNode a, DAGNode b) {
+		UnionFind components = getComponents();
+		return components.find((int) a.getID()) == components.find((int) b
+				.getID());
+	}
+
+	/**
+	 * Rebuilds the components from every edge now, rather than at the next
+	 * query after an edge is removed.
+	 */
+	public void recompute() {
+		synchronized (dag_) {
+			synchronized (this) {
+				rebuild();
+			}
+		}
+	}
+
+	@Override
+	public boolean removeEdge(Edge edge) {
+		if (connects(edge))
+			stale_ = true;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "Components: " + ((components_ == null) ? "not built"
+				: (stale_) ? "stale" : "current");
+	}
+}
@@ -0,0 +1,95 @@
+package graph.module;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size bit set that many threads can set bits of at once, used to
+ * mark visited node IDs during parallel traversals. Each bit is set with a
+ * compare-and-set on its word, so exactly one thread sees any bit go from
+ * clear to set. Indices beyond the capacity (such as nodes created after the
+ * set was sized) fall back to a concurrent hash set.
+ *
+ * @author Sam Sarjant
+ */
+public class ConcurrentBitSet {
+	private final AtomicLongArray words_;
+
+	private final long capacity_;
+
+	/** Indices beyond the capacity. */
+	private final Set<Long> overflow_ = Collections
+			.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	public ConcurrentBitSet(long capacity) {
+		capacity_ = capacity;
+		words_ = new AtomicLongArray((int) ((capacity + 63) >>> 6));
+	}
+
+	/**
+	 * If a bit is set.
+	 *
+	 * @param index
+	 *            The index of the bit.
+	 * @return True if the bit is set.
+	 */
+	public boolean get(long index) {
+		if (index < 0 || index >= capacity_)
+			return overflow_.contains(index);
+		return (words_.get((int) (index >>> 6)) & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets a bit.
+	 *
+	 * @param index
+	 *            The index of the bit.
+	 * @return True if this call set the bit, false if it was already set.
+	 */
+	public boolean set(long index) {
+		if (index < 0 || index >= capacity_)
+			return overflow_.add(index);
+		int word = (int) (index >>> 6);
+		long mask = 1L << index;
+		while (true) {
+			long current = words_.get(word);
+			if ((current & mask) != 0)
+				return false;
+			if (words_.compareAndSet(word, current, current | mask))
+				return true;
+		}
+	}
+
+	/**
+	 * Gets the indices of every set bit. Bits set while this is running may
+	 * or may not be included.
+	 *
+	 * @return The set indices, in ascending order.
+	 */
+	public long[] toArray() {
+		long[] words = new long[words_.length()];
+		int count = 0;
+		for (int i = 0; i < words.length; i++) {
+			words[i] = words_.get(i);
+			count += Long.bitCount(words[i]);
+		}
+		Long[] overflow = overflow_.toArray(new Long[0]);
+		long[] indices = new long[count + overflow.length];
+		int j = 0;
+		for (int i = 0; i < words.length; i++) {
+			long word = words[i];
+			while (word != 0) {
+				indices[j++] = ((long) i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		for (Long index : overflow)
+			indices[j++] = index;
+		if (overflow.length > 0)
+			Arrays.sort(indices);
+		return indices;
+	}
+}
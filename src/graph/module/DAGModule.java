@@ -5,6 +5,8 @@ import graph.core.DAGNode;
 import graph.core.DAGObject;
 import graph.core.DirectedAcyclicGraph;
 import graph.core.Edge;
+import graph.core.ErrorEdge;
+import graph.core.Node;
 
 import java.io.File;
 import java.io.Serializable;
@@ -48,6 +50,19 @@ public abstract class DAGModule<T> implements Serializable {
 		return true;
 	}
 
+	/**
+	 * Called before an edge is added to the DAG, allowing the module to
+	 * refuse it.
+	 * 
+	 * @param edgeNodes
+	 *            The nodes of the edge to be added.
+	 * @return Null if the edge may be added, otherwise the error returned in
+	 *         place of the edge.
+	 */
+	public ErrorEdge checkEdge(Node[] edgeNodes) {
+		return null;
+	}
+
 	public void addProperty(DAGObject dagObj, String key, String value) {
 
 	}
@@ -0,0 +1,149 @@
+package graph.module;
+
+import graph.core.Edge;
+import graph.core.Node;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.collection.MultiMap;
+
+/**
+ * Cardinality statistics for the related edge index, kept up to date as edges
+ * are added and removed. Per-position (and so per-predicate, as position 1)
+ * counts are the sizes of the index buckets themselves; this class records
+ * what the buckets cannot answer without a union: the number of distinct edges
+ * per node, and the overall edge count and arity.
+ * 
+ * @author Sam Sarjant
+ */
+public class EdgeStatistics implements Serializable {
+	private static final long serialVersionUID = -2618393570187066312L;
+
+	/**
+	 * The number of distinct edges each node (DAG, string or primitive) is an
+	 * argument of.
+	 */
+	private ConcurrentMap<Node, AtomicInteger> nodeCounts_ = new ConcurrentHashMap<>();
+
+	/** The number of indexed edges. */
+	private AtomicLong numEdges_ = new AtomicLong();
+
+	/** The total number of arguments over all indexed edges. */
+	private AtomicLong numArgs_ = new AtomicLong();
+
+	/**
+	 * If the node at an index was not seen earlier in the edge.
+	 */
+	private static boolean isFirstOccurrence(Node[] nodes, int index) {
+		for (int i = 0; i < index; i++)
+			if (nodes[i].equals(nodes[index]))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Records an edge being indexed.
+	 * 
+	 * @param edge
+	 *            The added edge.
+	 */
+	public void addEdge(Edge edge) {
+		Node[] nodes = edge.getNodes();
+		for (int i = 0; i < nodes.length; i++) {
+			if (!isFirstOccurrence(nodes, i))
+				continue;
+			AtomicInteger count = nodeCounts_.get(nodes[i]);
+			if (count == null) {
+				nodeCounts_.putIfAbsent(nodes[i], new AtomicInteger());
+				count = nodeCounts_.get(nodes[i]);
+			}
+			count.incrementAndGet();
+		}
+		numEdges_.incrementAndGet();
+		numArgs_.addAndGet(nodes.length);
+	}
+
+	/**
+	 * The average number of arguments per edge.
+	 * 
+	 * @return The average arity, or 0 if there are no edges.
+	 */
+	public double averageArity() {
+		long numEdges = numEdges_.get();
+		if (numEdges <= 0)
+			return 0;
+		return 1.0 * numArgs_.get() / numEdges;
+	}
+
+	public void clear() {
+		nodeCounts_.clear();
+		numEdges_.set(0);
+		numArgs_.set(0);
+	}
+
+	/**
+	 * Gets the number of distinct edges a node is an argument of.
+	 * 
+	 * @param node
+	 *            The node to get the count for.
+	 * @return The number of edges containing the node.
+	 */
+	public int getEdgeCount(Node node) {
+		AtomicInteger count = nodeCounts_.get(node);
+		return (count == null) ? 0 : count.get();
+	}
+
+	public long getNumEdges() {
+		return numEdges_.get();
+	}
+
+	/**
+	 * Rebuilds the statistics from an existing index (e.g. one loaded from a
+	 * file written before statistics were kept).
+	 * 
+	 * @param relatedEdges
+	 *            The per-node, per-position index.
+	 */
+	public void rebuild(Map<Node, MultiMap<Object, Edge>> relatedEdges) {
+		clear();
+		Set<Edge> edges = new HashSet<>();
+		for (MultiMap<Object, Edge> indexed : relatedEdges.values())
+			for (Collection<Edge> edgeCol : indexed.valuesCollections())
+				edges.addAll(edgeCol);
+		for (Edge edge : edges)
+			addEdge(edge);
+	}
+
+	/**
+	 * Records an edge being removed from the index.
+	 * 
+	 * @param edge
+	 *            The removed edge.
+	 */
+	public void removeEdge(Edge edge) {
+		Node[] nodes = edge.getNodes();
+		for (int i = 0; i < nodes.length; i++) {
+			if (!isFirstOccurrence(nodes, i))
+				continue;
+			AtomicInteger count = nodeCounts_.get(nodes[i]);
+			if (count != null && count.decrementAndGet() <= 0)
+				nodeCounts_.remove(nodes[i], count);
+		}
+		numEdges_.decrementAndGet();
+		numArgs_.addAndGet(-nodes.length);
+	}
+
+	@Override
+	public String toString() {
+		return "Edges: " + numEdges_ + ", Nodes: " + nodeCounts_.size()
+				+ String.format(", Avg arity: %.2f", averageArity());
+	}
+}
@@ -0,0 +1,224 @@
+package graph.module;
+
+import graph.core.DAGNode;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An open-addressed hash index from exact node names to nodes. The table
+ * holds the nodes themselves alongside their name hashes, so finding a node
+ * by name is a single probe sequence that compares cached hashes before
+ * names, and allocates nothing. The index is either case sensitive or
+ * matches names ignoring case (as {@link String#equalsIgnoreCase(String)}
+ * does).
+ *
+ * Reads take no lock. Writers are serialised on the index, and only ever fill
+ * empty slots of the published table or mark the slots of removed nodes (so
+ * a concurrent probe never misses a node that is still present). A table
+ * that fills up is rebuilt and published whole.
+ *
+ * @author Sam Sarjant
+ */
+public class NameIndex {
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	/** Marks the slot of a removed node, which probes continue past. */
+	private static final Object REMOVED = new Object();
+
+	private final boolean caseSensitive_;
+
+	/** The number of slots marked as removed (guarded by this). */
+	private int removed_;
+
+	/** The number of nodes indexed (guarded by this). */
+	private int size_;
+
+	/** The current table, replaced whole when rebuilt. */
+	private volatile Table table_;
+
+	public NameIndex(boolean caseSensitive) {
+		caseSensitive_ = caseSensitive;
+		table_ = new Table(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Hashes a name, ignoring case if the index is case insensitive.
+	 */
+	private int hash(String name) {
+		int hash;
+		if (caseSensitive_)
+			hash = name.hashCode();
+		else {
+			hash = 0;
+			for (int i = 0; i < name.length(); i++)
+				hash = 31
+						* hash
+						+ Character.toLowerCase(Character.toUpperCase(name
+								.charAt(i)));
+		}
+		// Spread the high bits into the masked low bits
+		return hash ^ (hash >>> 16);
+	}
+
+	private boolean matches(Object node, String name) {
+		if (node == REMOVED)
+			return false;
+		return (caseSensitive_) ? ((DAGNode) node).getName().equals(name)
+				: ((DAGNode) node).getName().equalsIgnoreCase(name);
+	}
+
+	/**
+	 * Indexes a node by its name.
+	 *
+	 * @param node
+	 *            The node to add.
+	 * @return True if the node was not already indexed.
+	 */
+	public synchronized boolean add(DAGNode node) {
+		Table table = table_;
+		if ((size_ + removed_ + 1) * 2 > table.capacity()) {
+			// Grow if full of nodes, otherwise just clear the removed slots
+			int capacity = table.capacity();
+			if ((size_ + 1) * 4 > capacity)
+				capacity *= 2;
+			table = rebuild(table, capacity);
+		}
+		int hash = hash(node.getName());
+		int mask = table.capacity() - 1;
+		int slot = hash & mask;
+		Object existing;
+		while ((existing = table.nodes_.get(slot)) != null) {
+			if (existing == node)
+				return false;
+			slot = (slot + 1) & mask;
+		}
+		// The hash is visible to any reader that sees the node
+		table.hashes_[slot] = hash;
+		table.nodes_.set(slot, node);
+		size_++;
+		return true;
+	}
+
+	public synchronized void clear() {
+		table_ = new Table(INITIAL_CAPACITY);
+		size_ = 0;
+		removed_ = 0;
+	}
+
+	/**
+	 * Finds a node with the given name.
+	 *
+	 * @param name
+	 *            The name of the node.
+	 * @return The first node found with the name, or null.
+	 */
+	public DAGNode get(String name) {
+		Table table = table_;
+		int hash = hash(name);
+		int mask = table.capacity() - 1;
+		int slot = hash & mask;
+		Object node;
+		while ((node = table.nodes_.get(slot)) != null) {
+			if (table.hashes_[slot] == hash && matches(node, name))
+				return (DAGNode) node;
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Finds every node with the given name.
+	 *
+	 * @param name
+	 *            The name of the nodes.
+	 * @param results
+	 *            The collection to add the found nodes to.
+	 */
+	public void getAll(String name, Collection<DAGNode> results) {
+		Table table = table_;
+		int hash = hash(name);
+		int mask = table.capacity() - 1;
+		int slot = hash & mask;
+		Object node;
+		while ((node = table.nodes_.get(slot)) != null) {
+			if (table.hashes_[slot] == hash && matches(node, name))
+				results.add((DAGNode) node);
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Removes a node from the index.
+	 *
+	 * @param node
+	 *            The node to remove.
+	 * @return True if the node was indexed.
+	 */
+	public synchronized boolean remove(DAGNode node) {
+		Table table = table_;
+		int mask = table.capacity() - 1;
+		int slot = hash(node.getName()) & mask;
+		Object existing;
+		while ((existing = table.nodes_.get(slot)) != node) {
+			if (existing == null)
+				return false;
+			slot = (slot + 1) & mask;
+		}
+		table.nodes_.set(slot, REMOVED);
+		size_--;
+		removed_++;
+		return true;
+	}
+
+	/**
+	 * Copies the nodes of a table into a new table (without the removed
+	 * slots) and publishes it.
+	 */
+	private Table rebuild(Table table, int capacity) {
+		Table rebuilt = new Table(capacity);
+		int mask = capacity - 1;
+		for (int i = 0; i < table.capacity(); i++) {
+			Object node = table.nodes_.get(i);
+			if (node == null || node == REMOVED)
+				continue;
+			int slot = table.hashes_[i] & mask;
+			while (rebuilt.nodes_.get(slot) != null)
+				slot = (slot + 1) & mask;
+			rebuilt.hashes_[slot] = table.hashes_[i];
+			rebuilt.nodes_.set(slot, node);
+		}
+		removed_ = 0;
+		table_ = rebuilt;
+		return rebuilt;
+	}
+
+	public synchronized int size() {
+		return size_;
+	}
+
+	@Override
+	public String toString() {
+		return "Name index - Nodes: " + size();
+	}
+
+	/**
+	 * The slots of the index.
+	 */
+	private static class Table {
+		/** The name hash of each slot. */
+		private final int[] hashes_;
+
+		/** The node in each slot, REMOVED, or null if empty. */
+		private final AtomicReferenceArray<Object> nodes_;
+
+		public Table(int capacity) {
+			hashes_ = new int[capacity];
+			nodes_ = new AtomicReferenceArray<>(capacity);
+		}
+
+		public int capacity() {
+			return hashes_.length;
+		}
+	}
+}
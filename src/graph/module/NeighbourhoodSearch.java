@@ -0,0 +1,187 @@
+package graph.module;
+
+import graph.core.DAGNode;
+import graph.core.Edge;
+import graph.core.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A level-synchronous breadth-first search over the related edge index,
+ * finding every node within k edges of a start node. Two nodes are
+ * neighbours if they are both (non-predicate) arguments of an edge,
+ * optionally only edges of given predicates. Each level's frontier is
+ * expanded in parallel on the common fork-join pool, with a shared
+ * concurrent bit set of visited node IDs ensuring each node is found by
+ * exactly one task.
+ *
+ * @author Sam Sarjant
+ */
+public class NeighbourhoodSearch {
+	/** The number of frontier nodes below which a task expands serially. */
+	public static final int SPLIT_THRESHOLD = 64;
+
+	private final DAGNode[] predicates_;
+
+	private final RelatedEdgeModule relatedModule_;
+
+	/**
+	 * Creates a search over the related edge index.
+	 *
+	 * @param relatedModule
+	 *            The related edge index.
+	 * @param predicates
+	 *            The predicates of the edges to follow, or empty to follow
+	 *            every edge.
+	 */
+	public NeighbourhoodSearch(RelatedEdgeModule relatedModule,
+			Collection<DAGNode> predicates) {
+		relatedModule_ = relatedModule;
+		predicates_ = predicates.toArray(new DAGNode[predicates.size()]);
+	}
+
+	/**
+	 * Finds the unvisited neighbours of a node, marking them visited.
+	 */
+	private void expand(DAGNode node, ConcurrentBitSet visited,
+			List<DAGNode> found) {
+		if (predicates_.length == 0) {
+			expandEdges(relatedModule_.execute(node), visited, found);
+			return;
+		}
+		for (DAGNode predicate : predicates_)
+			expandEdges(relatedModule_.execute(node, predicate, 1), visited,
+					found);
+	}
+
+	private void expandEdges(Collection<Edge> edges, ConcurrentBitSet visited,
+			List<DAGNode> found) {
+		for (Edge edge : edges) {
+			Node[] edgeNodes = edge.getNodes();
+			for (int i = 1; i < edgeNodes.length; i++) {
+				if (edgeNodes[i] instanceof DAGNode) {
+					DAGNode neighbour = (DAGNode) edgeNodes[i];
+					if (visited.set(neighbour.getID()))
+						found.add(neighbour);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds every node within k edges of a node, level by level.
+	 *
+	 * @param start
+	 *            The node to start from.
+	 * @param k
+	 *            The maximum number of edges from the start node (at least
+	 *            1).
+	 * @return The nodes first found at each distance from 1 to k (each
+	 *         ordered by ID), ending at the first distance with no nodes.
+	 */
+	public List<List<DAGNode>> search(DAGNode start, int k) {
+		final List<List<DAGNode>> levels = new ArrayList<>();
+		search(start, k, new LevelHandler() {
+			@Override
+			public void level(int depth, List<DAGNode> nodes) {
+				levels.add(nodes);
+			}
+		});
+		return levels;
+	}
+
+	/**
+	 * Finds every node within k edges of a node, passing each level to the
+	 * handler as soon as it is complete.
+	 *
+	 * @param start
+	 *            The node to start from.
+	 * @param k
+	 *            The maximum number of edges from the start node (at least
+	 *            1).
+	 * @param handler
+	 *            The handler of each level, called once for every distance
+	 *            from 1 to k, stopping after the first distance with no
+	 *            nodes (passed as an empty list).
+	 * @throws IllegalArgumentException
+	 *             If k is less than 1.
+	 */
+	public void search(DAGNode start, int k, LevelHandler handler) {
+		if (k < 1)
+			throw new IllegalArgumentException("k must be at least 1.");
+		ConcurrentBitSet visited = new ConcurrentBitSet(DAGNode.idCounter_ + 1);
+		visited.set(start.getID());
+		DAGNode[] frontier = { start };
+		for (int depth = 1; depth <= k && frontier.length > 0; depth++) {
+			List<DAGNode> level;
+			if (frontier.length < SPLIT_THRESHOLD) {
+				level = new ArrayList<>();
+				for (DAGNode node : frontier)
+					expand(node, visited, level);
+			} else
+				level = ForkJoinPool.commonPool().invoke(
+						new ExpandTask(frontier, 0, frontier.length, visited));
+
+			frontier = level.toArray(new DAGNode[level.size()]);
+			Arrays.sort(frontier);
+			handler.level(depth, Arrays.asList(frontier));
+		}
+	}
+
+	/**
+	 * Receives the levels of a search.
+	 */
+	public interface LevelHandler {
+		/**
+		 * Notes the nodes first found at a distance.
+		 *
+		 * @param depth
+		 *            The distance from the start node.
+		 * @param nodes
+		 *            The nodes at that distance, ordered by ID.
+		 */
+		public void level(int depth, List<DAGNode> nodes);
+	}
+
+	/**
+	 * Expands a range of the frontier, splitting it in half while large.
+	 */
+	private class ExpandTask extends RecursiveTask<List<DAGNode>> {
+		private static final long serialVersionUID = 1L;
+		private final int end_;
+		private final DAGNode[] frontier_;
+		private final int start_;
+		private final ConcurrentBitSet visited_;
+
+		public ExpandTask(DAGNode[] frontier, int start, int end,
+				ConcurrentBitSet visited) {
+			frontier_ = frontier;
+			start_ = start;
+			end_ = end;
+			visited_ = visited;
+		}
+
+		@Override
+		protected List<DAGNode> compute() {
+			if (end_ - start_ <= SPLIT_THRESHOLD) {
+				List<DAGNode> found = new ArrayList<>();
+				for (int i = start_; i < end_; i++)
+					expand(frontier_[i], visited_, found);
+				return found;
+			}
+
+			int mid = (start_ + end_) >>> 1;
+			ExpandTask left = new ExpandTask(frontier_, start_, mid, visited_);
+			left.fork();
+			List<DAGNode> found = new ExpandTask(frontier_, mid, end_,
+					visited_).compute();
+			found.addAll(left.join());
+			return found;
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package graph.module;
 
+import graph.core.DAGEdge;
 import graph.core.DAGNode;
 import graph.core.Edge;
 import graph.core.StringNode;
@@ -7,9 +8,11 @@ import graph.edge.properties.Alias;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
-
-import util.collection.StringTrie;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The node alias module encodes the aliases for a node (be they from node name
@@ -18,23 +21,32 @@ import util.collection.StringTrie;
  * @author Sam Sarjant
  */
 public class NodeAliasModule extends DAGModule<Collection<DAGNode>> {
-	private static final long serialVersionUID = 7451861373081932549L;
-	/** The Long actually represents a DAGNode ID. */
-	private StringTrie<DAGNode> aliasTrie_ = new StringTrie<>();
+	private static final long serialVersionUID = 7451861373081932550L;
+	/** The maximum edit distance for fuzzy alias searches. */
+	public static final int MAX_FUZZY_DISTANCE = 2;
+	/** The minimum number of characters required for prefix searching. */
+	private static final int MIN_PREFIX = 3;
+	/** The aliases, indexing DAGNode IDs. */
+	private RadixTrie aliasTrie_ = new RadixTrie();
+	/** The case-folded aliases, indexing DAGNode IDs. */
+	private RadixTrie foldedTrie_ = new RadixTrie();
+	/** The nodes by exact name (rebuilt on load). */
+	private transient NameIndex names_ = new NameIndex(true);
+	/** The nodes by exact name, ignoring case (rebuilt on load). */
+	private transient NameIndex foldedNames_ = new NameIndex(false);
 
 	@Override
 	public boolean addEdge(Edge edge) {
 		if (edge instanceof Alias) {
 			Alias aliasEdge = (Alias) edge;
 			for (StringNode alias : aliasEdge.getAliases())
-				aliasTrie_.put(processAlias(alias.getName()),
-						aliasEdge.getNode());
+				addAlias(aliasEdge.getNode(), alias.getName());
 			return true;
 		}
 		return false;
 	}
 
-	private String processAlias(String name) {
+	static String processAlias(String name) {
 		name = name.replaceAll("\\s{2,}", " ");
 		return name;
 	}
@@ -45,6 +57,8 @@ public class NodeAliasModule extends DAGModule<Collection<DAGNode>> {
 		int result = 1;
 		result = prime * result
 				+ ((aliasTrie_ == null) ? 0 : aliasTrie_.hashCode());
+		result = prime * result
+				+ ((foldedTrie_ == null) ? 0 : foldedTrie_.hashCode());
 		return result;
 	}
 
@@ -62,24 +76,120 @@ public class NodeAliasModule extends DAGModule<Collection<DAGNode>> {
 				return false;
 		} else if (!aliasTrie_.equals(other.aliasTrie_))
 			return false;
+		if (foldedTrie_ == null) {
+			if (other.foldedTrie_ != null)
+				return false;
+		} else if (!foldedTrie_.equals(other.foldedTrie_))
+			return false;
 		return true;
 	}
 
 	@Override
 	public boolean addNode(DAGNode node) {
-		if (!node.isAnonymous())
+		if (!node.isAnonymous()) {
 			addAlias(node, node.getName());
+			if (names_ != null) {
+				names_.add(node);
+				foldedNames_.add(node);
+			}
+		}
 		return true;
 	}
 
 	public boolean addAlias(DAGNode node, String alias) {
-		aliasTrie_.put(processAlias(alias), node);
+		alias = processAlias(alias);
+		aliasTrie_.put(alias, node.getID());
+		foldedTrie_.put(RadixTrie.fold(alias), node.getID());
 		return true;
 	}
 
 	@Override
 	public void clear() {
 		aliasTrie_.clear();
+		foldedTrie_.clear();
+		names_ = new NameIndex(true);
+		foldedNames_ = new NameIndex(false);
+	}
+
+	/**
+	 * Finds the IDs of the nodes indexed by an alias.
+	 * 
+	 * @param alias
+	 *            The (processed) alias.
+	 * @param caseSensitive
+	 *            If the alias is case sensitive.
+	 * @param exactString
+	 *            If the alias is exact or a prefix.
+	 * @return The sorted node IDs (not to be modified).
+	 */
+	private long[] findIDs(String alias, boolean caseSensitive,
+			boolean exactString) {
+		RadixTrie trie = aliasTrie_;
+		if (!caseSensitive) {
+			trie = foldedTrie_;
+			alias = RadixTrie.fold(alias);
+		}
+		if (exactString || alias.length() < MIN_PREFIX)
+			return trie.get(alias);
+		return trie.getPrefixed(alias);
+	}
+
+	@Override
+	public void initialisationComplete(Collection<DAGNode> nodes,
+			Collection<DAGEdge> edges) {
+		// The name indices are not serialised
+		if (names_ == null) {
+			names_ = new NameIndex(true);
+			foldedNames_ = new NameIndex(false);
+			for (DAGNode node : nodes) {
+				if (!node.isAnonymous()) {
+					names_.add(node);
+					foldedNames_.add(node);
+				}
+			}
+		}
+
+		// Rebuild an index lost to an older module format
+		if (!aliasTrie_.isEmpty() || nodes.isEmpty())
+			return;
+		System.out.print("Rebuilding node alias index... ");
+		for (DAGNode node : nodes)
+			addNode(node);
+		for (DAGEdge edge : edges)
+			addEdge(edge);
+		System.out.println("Done!");
+	}
+
+	/**
+	 * Removes an alias from a node.
+	 * 
+	 * @param node
+	 *            The node.
+	 * @param alias
+	 *            The alias to remove.
+	 * @return True if the alias was removed.
+	 */
+	public boolean removeAlias(DAGNode node, String alias) {
+		alias = processAlias(alias);
+		boolean removed = aliasTrie_.remove(alias, node.getID());
+		// The node may still have another alias with the same folding
+		String folded = RadixTrie.fold(alias);
+		if (removed && !aliasTrie_.containsFolded(folded, node.getID()))
+			foldedTrie_.remove(folded, node.getID());
+		return removed;
+	}
+
+	/**
+	 * Converts node IDs to their nodes.
+	 */
+	private Collection<DAGNode> toNodes(long[] ids) {
+		Collection<DAGNode> nodes = new ArrayList<>(ids.length);
+		for (long id : ids) {
+			DAGNode node = dag_.getNodeByID(id);
+			if (node != null)
+				nodes.add(node);
+		}
+		return nodes;
 	}
 
 	@Override
@@ -88,8 +198,7 @@ public class NodeAliasModule extends DAGModule<Collection<DAGNode>> {
 			Alias aliasEdge = (Alias) edge;
 			boolean changed = false;
 			for (StringNode alias : aliasEdge.getAliases())
-				changed |= aliasTrie_.remove(processAlias(alias.getName()),
-						aliasEdge.getNode());
+				changed |= removeAlias(aliasEdge.getNode(), alias.getName());
 			return changed;
 		}
 		return false;
@@ -97,8 +206,13 @@ public class NodeAliasModule extends DAGModule<Collection<DAGNode>> {
 
 	@Override
 	public boolean removeNode(DAGNode node) {
-		if (!node.isAnonymous())
-			return aliasTrie_.remove(processAlias(node.getName()), node);
+		if (!node.isAnonymous()) {
+			if (names_ != null) {
+				names_.remove(node);
+				foldedNames_.remove(node);
+			}
+			return removeAlias(node, node.getName());
+		}
 		return true;
 	}
 
@@ -141,15 +255,73 @@ public class NodeAliasModule extends DAGModule<Collection<DAGNode>> {
 	 */
 	public Collection<DAGNode> findNodeByAlias(String alias,
 			boolean caseSensitive, boolean exactString) {
-		Collection<DAGNode> nodes = aliasTrie_.getValue(processAlias(alias),
-				caseSensitive, exactString);
-		if (nodes == null)
-			return new ArrayList<>(0);
+		long[] ids = findIDs(processAlias(alias), caseSensitive, exactString);
 
 		// Converting ID to node
+		return toNodes(ids);
+	}
+
+	/**
+	 * Finds nodes with an alias within an edit distance of the given alias,
+	 * ranked by distance.
+	 * 
+	 * @param alias
+	 *            The alias to search with.
+	 * @param caseSensitive
+	 *            If the alias is case sensitive.
+	 * @param maxDistance
+	 *            The maximum edit distance (at most
+	 *            {@link #MAX_FUZZY_DISTANCE}).
+	 * @return The matching nodes, closest first (ties ordered by ID).
+	 */
+	public List<DAGNode> findNodeByFuzzyAlias(String alias,
+			boolean caseSensitive, int maxDistance) {
+		if (maxDistance < 0 || maxDistance > MAX_FUZZY_DISTANCE)
+			throw new IllegalArgumentException("Edit distance must be 0-"
+					+ MAX_FUZZY_DISTANCE + ".");
+		alias = processAlias(alias);
+		final Map<Long, Integer> matches = (caseSensitive) ? aliasTrie_
+				.getWithin(alias, maxDistance) : foldedTrie_.getWithin(
+				RadixTrie.fold(alias), maxDistance);
+
+		List<Long> ranked = new ArrayList<>(matches.keySet());
+		Collections.sort(ranked, new Comparator<Long>() {
+			@Override
+			public int compare(Long o1, Long o2) {
+				int result = Integer.compare(matches.get(o1), matches.get(o2));
+				if (result != 0)
+					return result;
+				return Long.compare(o1, o2);
+			}
+		});
+
+		List<DAGNode> nodes = new ArrayList<>(ranked.size());
+		for (Long id : ranked) {
+			DAGNode node = dag_.getNodeByID(id);
+			if (node != null)
+				nodes.add(node);
+		}
 		return nodes;
 	}
 
+	/**
+	 * Finds a single node by its exact name (not alias), without allocating.
+	 * 
+	 * @param nodeName
+	 *            The name of the node.
+	 * @param caseSensitive
+	 *            If the search is case sensitive.
+	 * @return A node with the name, or null if there is none.
+	 */
+	public DAGNode findNodeByExactName(String nodeName, boolean caseSensitive) {
+		if (names_ == null) {
+			Collection<DAGNode> nodes = findNodeByName(nodeName, caseSensitive);
+			return (nodes.isEmpty()) ? null : nodes.iterator().next();
+		}
+		return (caseSensitive) ? names_.get(nodeName) : foldedNames_
+				.get(nodeName);
+	}
+
 	/**
 	 * Finds a node(s) by its exact name (not alias).
 	 * 
@@ -161,6 +333,15 @@ public class NodeAliasModule extends DAGModule<Collection<DAGNode>> {
 	 */
 	public Collection<DAGNode> findNodeByName(String nodeName,
 			boolean caseSensitive) {
+		if (names_ != null) {
+			Collection<DAGNode> namedNodes = new ArrayList<>(1);
+			if (caseSensitive)
+				names_.getAll(nodeName, namedNodes);
+			else
+				foldedNames_.getAll(nodeName, namedNodes);
+			return namedNodes;
+		}
+
 		Collection<DAGNode> aliasNodes = findNodeByAlias(
 				processAlias(nodeName), caseSensitive, true);
 		Collection<DAGNode> namedNodes = new HashSet<>(aliasNodes.size());
@@ -173,6 +354,39 @@ public class NodeAliasModule extends DAGModule<Collection<DAGNode>> {
 		return namedNodes;
 	}
 
+	/**
+	 * Counts the nodes {@link #execute(Object...)} would return for the same
+	 * arguments, without copying the indexed nodes.
+	 * 
+	 * @param args
+	 *            The same arguments as given to execute.
+	 * @return The number of matching nodes.
+	 */
+	public int count(Object... args) throws IllegalArgumentException {
+		if (args == null || args.length == 0)
+			throw new IllegalArgumentException(
+					"Requires at least 1 string argument.");
+		String alias = (String) args[0];
+		boolean caseSensitive = (args.length >= 2) ? (boolean) args[1] : true;
+		boolean exactString = (args.length >= 3) ? (boolean) args[2] : true;
+		boolean onlyNodeNames = (args.length >= 4) ? (boolean) args[3]
+				: false;
+		if (onlyNodeNames)
+			exactString = true;
+
+		long[] ids = findIDs(processAlias(alias), caseSensitive, exactString);
+		if (!onlyNodeNames)
+			return ids.length;
+
+		int count = 0;
+		for (DAGNode node : toNodes(ids)) {
+			if (caseSensitive && node.getName().equals(alias)
+					|| !caseSensitive && node.getName().equalsIgnoreCase(alias))
+				count++;
+		}
+		return count;
+	}
+
 	@Override
 	public String toString() {
 		return aliasTrie_.toString();
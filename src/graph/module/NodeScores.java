@@ -0,0 +1,129 @@
+package graph.module;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A set of numeric scores for nodes, such as a centrality measure. Scores
+ * are kept in primitive arrays ordered by node ID, alongside the ranking of
+ * the nodes from highest to lowest score (ties broken by ID), so a node's
+ * score is a binary search and any range of ranks is a sequential read.
+ *
+ * @author Sam Sarjant
+ */
+public class NodeScores implements Serializable {
+	private static final long serialVersionUID = 4139032681577215606L;
+
+	/** The DAG epoch the scores were computed at. */
+	private long epoch_;
+
+	/** The IDs of the scored nodes, ascending. */
+	private long[] nodeIDs_;
+
+	/** The index of each node by rank, highest score first. */
+	private int[] ranked_;
+
+	/** The rank of each node index. */
+	private int[] ranks_;
+
+	/** The score of each node index. */
+	private double[] scores_;
+
+	/**
+	 * Creates a set of scores.
+	 *
+	 * @param nodeIDs
+	 *            The IDs of the scored nodes, ascending.
+	 * @param scores
+	 *            The score of each node.
+	 * @param epoch
+	 *            The DAG epoch the scores were computed at.
+	 */
+	public NodeScores(long[] nodeIDs, final double[] scores, long epoch) {
+		if (nodeIDs.length != scores.length)
+			throw new IllegalArgumentException(
+					"Every node requires one score.");
+		nodeIDs_ = nodeIDs;
+		scores_ = scores;
+		epoch_ = epoch;
+
+		Integer[] ranked = new Integer[nodeIDs.length];
+		for (int i = 0; i < ranked.length; i++)
+			ranked[i] = i;
+		Arrays.sort(ranked, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int result = Double.compare(scores[o2], scores[o1]);
+				if (result != 0)
+					return result;
+				return Integer.compare(o1, o2);
+			}
+		});
+		ranked_ = new int[ranked.length];
+		ranks_ = new int[ranked.length];
+		for (int rank = 0; rank < ranked.length; rank++) {
+			ranked_[rank] = ranked[rank];
+			ranks_[ranked[rank]] = rank;
+		}
+	}
+
+	public long getEpoch() {
+		return epoch_;
+	}
+
+	/**
+	 * Gets the ID of the node at a rank.
+	 *
+	 * @param rank
+	 *            The (0-indexed) rank, 0 being the highest score.
+	 * @return The ID of the node.
+	 */
+	public long getNodeIDAtRank(int rank) {
+		return nodeIDs_[ranked_[rank]];
+	}
+
+	/**
+	 * Gets the rank of a node.
+	 *
+	 * @param nodeID
+	 *            The ID of the node.
+	 * @return The (0-indexed) rank of the node, or -1 if it is not scored.
+	 */
+	public int getRank(long nodeID) {
+		int index = Arrays.binarySearch(nodeIDs_, nodeID);
+		return (index < 0) ? -1 : ranks_[index];
+	}
+
+	/**
+	 * Gets the score of a node.
+	 *
+	 * @param nodeID
+	 *            The ID of the node.
+	 * @return The score of the node, or null if it is not scored.
+	 */
+	public Double getScore(long nodeID) {
+		int index = Arrays.binarySearch(nodeIDs_, nodeID);
+		return (index < 0) ? null : scores_[index];
+	}
+
+	/**
+	 * Gets the score at a rank.
+	 *
+	 * @param rank
+	 *            The (0-indexed) rank, 0 being the highest score.
+	 * @return The score of the node at that rank.
+	 */
+	public double getScoreAtRank(int rank) {
+		return scores_[ranked_[rank]];
+	}
+
+	public int size() {
+		return nodeIDs_.length;
+	}
+
+	@Override
+	public String toString() {
+		return "Node scores: " + nodeIDs_.length;
+	}
+}
@@ -0,0 +1,349 @@
+package graph.module;
+
+import graph.core.Edge;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A sorted column of numeric values, each paired with the edge it came from.
+ * Values are kept in primitive arrays sorted by value so range and top-k
+ * queries are a binary search followed by a sequential read. New values are
+ * inserted into a small sorted buffer which is merged into the column once
+ * full, and removed values are blanked out until the next merge. The buffer
+ * grows with the square root of the column, so merges stay as rare as the
+ * inserts into the buffer are cheap. Many values can be added at once with
+ * {@link #addAll(double[], Edge[], int)}, which sorts them and merges once.
+ * Reads can start part way through a range, which is a binary search unless
+ * the column has removed values still to be compacted.
+ * 
+ * @author Sam Sarjant
+ */
+public class NumericColumn implements Serializable {
+	private static final long serialVersionUID = -4476393436549116297L;
+
+	/** The least number of values buffered before merging into the column. */
+	private static final int MIN_BUFFER_SIZE = 1024;
+
+	/** The buffered values (sorted). */
+	private double[] bufferValues_ = new double[16];
+
+	/** The edges of the buffered values. */
+	private Edge[] bufferEdges_ = new Edge[16];
+
+	private int bufferSize_;
+
+	/** The sorted values. */
+	private double[] values_ = new double[0];
+
+	/** The edges of the sorted values (null if removed). */
+	private Edge[] edges_ = new Edge[0];
+
+	/** The number of removed values still present in the column. */
+	private int numRemoved_;
+
+	/**
+	 * Finds the first index in a sorted array with a value greater than (or
+	 * equal to, if inclusive) the given value.
+	 */
+	private static int lowerIndex(double[] values, int length, double value,
+			boolean inclusive) {
+		int low = 0;
+		int high = length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < value || !inclusive && values[mid] == value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Reads edges from the column and the buffer in value order, between the
+	 * given indices of each, skipping the first offset edges.
+	 */
+	private List<Edge> read(int start, int end, int bufferStart,
+			int bufferEnd, int offset, int limit, boolean ascending) {
+		List<Edge> result = new ArrayList<>();
+		int i = (ascending) ? start : end - 1;
+		int j = (ascending) ? bufferStart : bufferEnd - 1;
+		int skipped = 0;
+		if (offset > 0 && numRemoved_ == 0) {
+			// Find how many of the skipped values are in the column
+			int low = Math.max(0, offset - (bufferEnd - bufferStart));
+			int high = Math.min(offset, end - start);
+			if (low > high)
+				return result;
+			while (low < high) {
+				int c = (low + high) >>> 1;
+				double columnValue = values_[(ascending) ? start + c : end
+						- 1 - c];
+				double bufferValue = bufferValues_[(ascending) ? bufferStart
+						+ offset - c - 1 : bufferEnd - offset + c];
+				// Column values come first when equal
+				if ((ascending) ? columnValue <= bufferValue
+						: columnValue >= bufferValue)
+					low = c + 1;
+				else
+					high = c;
+			}
+			i += (ascending) ? low : -low;
+			j += (ascending) ? offset - low : low - offset;
+			skipped = offset;
+		}
+
+		while (result.size() < limit) {
+			boolean hasColumn = (ascending) ? i < end : i >= start;
+			boolean hasBuffer = (ascending) ? j < bufferEnd : j >= bufferStart;
+			if (hasColumn && edges_[i] == null) {
+				i += (ascending) ? 1 : -1;
+				continue;
+			}
+
+			boolean fromColumn = hasColumn;
+			if (hasColumn && hasBuffer)
+				fromColumn = (ascending) ? values_[i] <= bufferValues_[j]
+						: values_[i] >= bufferValues_[j];
+			Edge edge;
+			if (fromColumn) {
+				edge = edges_[i];
+				i += (ascending) ? 1 : -1;
+			} else if (hasBuffer) {
+				edge = bufferEdges_[j];
+				j += (ascending) ? 1 : -1;
+			} else
+				break;
+			if (skipped < offset)
+				skipped++;
+			else
+				result.add(edge);
+		}
+		return result;
+	}
+
+	/**
+	 * Merges the buffer into the column, dropping removed values.
+	 */
+	private void merge() {
+		merge(bufferValues_, bufferEdges_, bufferSize_);
+		bufferSize_ = 0;
+		Arrays.fill(bufferEdges_, null);
+	}
+
+	/**
+	 * Merges sorted values into the column, dropping removed values.
+	 */
+	private void merge(double[] addValues, Edge[] addEdges, int addSize) {
+		int size = values_.length - numRemoved_ + addSize;
+		double[] values = new double[size];
+		Edge[] edges = new Edge[size];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < values_.length || j < addSize) {
+			if (i < values_.length && edges_[i] == null) {
+				i++;
+				continue;
+			}
+			if (j >= addSize || i < values_.length
+					&& values_[i] <= addValues[j]) {
+				values[k] = values_[i];
+				edges[k++] = edges_[i++];
+			} else {
+				values[k] = addValues[j];
+				edges[k++] = addEdges[j++];
+			}
+		}
+
+		values_ = values;
+		edges_ = edges;
+		numRemoved_ = 0;
+	}
+
+	/**
+	 * Adds a value to the column.
+	 * 
+	 * @param value
+	 *            The numeric value.
+	 * @param edge
+	 *            The edge the value is from.
+	 */
+	public synchronized void add(double value, Edge edge) {
+		if (bufferSize_ == bufferValues_.length) {
+			if (bufferSize_ >= MIN_BUFFER_SIZE
+					&& bufferSize_ * bufferSize_ >= values_.length) {
+				merge();
+			} else {
+				bufferValues_ = Arrays.copyOf(bufferValues_, bufferSize_ * 2);
+				bufferEdges_ = Arrays.copyOf(bufferEdges_, bufferSize_ * 2);
+			}
+		}
+
+		// Keep the buffer sorted
+		int index = lowerIndex(bufferValues_, bufferSize_, value, false);
+		System.arraycopy(bufferValues_, index, bufferValues_, index + 1,
+				bufferSize_ - index);
+		System.arraycopy(bufferEdges_, index, bufferEdges_, index + 1,
+				bufferSize_ - index);
+		bufferValues_[index] = value;
+		bufferEdges_[index] = edge;
+		bufferSize_++;
+	}
+
+	/**
+	 * Adds many values to the column at once, sorting them and merging them
+	 * into the column in a single pass.
+	 * 
+	 * @param values
+	 *            The numeric values.
+	 * @param edges
+	 *            The edges the values are from.
+	 * @param count
+	 *            The number of values to add (from the start of the arrays).
+	 */
+	public synchronized void addAll(final double[] values, Edge[] edges,
+			int count) {
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(values[o1], values[o2]);
+			}
+		});
+		double[] sortedValues = new double[count];
+		Edge[] sortedEdges = new Edge[count];
+		for (int i = 0; i < count; i++) {
+			sortedValues[i] = values[order[i]];
+			sortedEdges[i] = edges[order[i]];
+		}
+		merge(sortedValues, sortedEdges, count);
+	}
+
+	/**
+	 * Counts the values within a range.
+	 * 
+	 * @param min
+	 *            The minimum value.
+	 * @param minInclusive
+	 *            If the minimum value is included.
+	 * @param max
+	 *            The maximum value.
+	 * @param maxInclusive
+	 *            If the maximum value is included.
+	 * @return The number of values within the range.
+	 */
+	public synchronized int count(double min, boolean minInclusive,
+			double max, boolean maxInclusive) {
+		int start = lowerIndex(values_, values_.length, min, minInclusive);
+		int end = lowerIndex(values_, values_.length, max, !maxInclusive);
+		int count = Math.max(0, end - start);
+		if (numRemoved_ > 0)
+			for (int i = start; i < end; i++)
+				if (edges_[i] == null)
+					count--;
+		count += Math.max(0,
+				lowerIndex(bufferValues_, bufferSize_, max, !maxInclusive)
+						- lowerIndex(bufferValues_, bufferSize_, min,
+								minInclusive));
+		return count;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Finds the edges with values within a range.
+	 * 
+	 * @param min
+	 *            The minimum value.
+	 * @param minInclusive
+	 *            If the minimum value is included.
+	 * @param max
+	 *            The maximum value.
+	 * @param maxInclusive
+	 *            If the maximum value is included.
+	 * @param offset
+	 *            The number of edges to skip from the start of the range.
+	 * @param limit
+	 *            The maximum number of edges to return.
+	 * @return The edges within the range, in ascending value order.
+	 */
+	public synchronized List<Edge> range(double min, boolean minInclusive,
+			double max, boolean maxInclusive, int offset, int limit) {
+		return read(lowerIndex(values_, values_.length, min, minInclusive),
+				lowerIndex(values_, values_.length, max, !maxInclusive),
+				lowerIndex(bufferValues_, bufferSize_, min, minInclusive),
+				lowerIndex(bufferValues_, bufferSize_, max, !maxInclusive),
+				offset, limit, true);
+	}
+
+	/**
+	 * Removes a value from the column.
+	 * 
+	 * @param value
+	 *            The numeric value.
+	 * @param edge
+	 *            The edge the value is from.
+	 * @return True if the value was removed.
+	 */
+	public synchronized boolean remove(double value, Edge edge) {
+		for (int i = lowerIndex(bufferValues_, bufferSize_, value, true); i < bufferSize_
+				&& bufferValues_[i] == value; i++) {
+			if (edge.equals(bufferEdges_[i])) {
+				System.arraycopy(bufferValues_, i + 1, bufferValues_, i,
+						bufferSize_ - i - 1);
+				System.arraycopy(bufferEdges_, i + 1, bufferEdges_, i,
+						bufferSize_ - i - 1);
+				bufferEdges_[--bufferSize_] = null;
+				return true;
+			}
+		}
+
+		for (int i = lowerIndex(values_, values_.length, value, true); i < values_.length
+				&& values_[i] == value; i++) {
+			if (edge.equals(edges_[i])) {
+				edges_[i] = null;
+				numRemoved_++;
+				// Compact once a quarter of the column is removed
+				if (numRemoved_ > values_.length / 4)
+					merge();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public synchronized int size() {
+		return values_.length - numRemoved_ + bufferSize_;
+	}
+
+	/**
+	 * Finds the edges with the k largest (or smallest) values, after skipping
+	 * the most extreme offset values.
+	 * 
+	 * @param offset
+	 *            The number of edges to skip.
+	 * @param k
+	 *            The number of edges to return.
+	 * @param largest
+	 *            If the largest values are returned (otherwise the
+	 *            smallest).
+	 * @return The edges, ordered from the most extreme value.
+	 */
+	public synchronized List<Edge> topK(int offset, int k, boolean largest) {
+		return read(0, values_.length, 0, bufferSize_, offset, k, !largest);
+	}
+
+	@Override
+	public String toString() {
+		return size() + " values";
+	}
+}
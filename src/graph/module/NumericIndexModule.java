@@ -0,0 +1,287 @@
+package graph.module;
+
+import graph.core.DAGEdge;
+import graph.core.DAGNode;
+import graph.core.Edge;
+import graph.core.Node;
+import graph.core.PrimitiveNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The numeric index module keeps the numeric primitive arguments of edges in
+ * sorted columns, one per predicate (the first argument) and argument
+ * position, so range and top-k queries over values such as populations or
+ * dates take logarithmic time (as does skipping to a later page of one). The
+ * execute method takes a predicate, a
+ * (1-indexed) argument position, and optional minimum and maximum values.
+ * 
+ * Values are compared as doubles, so longs beyond 2^53 lose precision.
+ * 
+ * @author Sam Sarjant
+ */
+public class NumericIndexModule extends DAGModule<Collection<Edge>> {
+	private static final long serialVersionUID = -6301418406296442917L;
+	protected ConcurrentMap<Node, ConcurrentMap<Integer, NumericColumn>> columns_ = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the column for a predicate and argument position.
+	 * 
+	 * @param predicate
+	 *            The predicate of the edges.
+	 * @param position
+	 *            The (1-indexed) argument position.
+	 * @param createNew
+	 *            If the column should be created if it does not exist.
+	 * @return The column, or null if it does not exist.
+	 */
+	protected NumericColumn getColumn(Node predicate, int position,
+			boolean createNew) {
+		ConcurrentMap<Integer, NumericColumn> positions = columns_
+				.get(predicate);
+		if (positions == null) {
+			if (!createNew)
+				return null;
+			columns_.putIfAbsent(predicate,
+					new ConcurrentHashMap<Integer, NumericColumn>());
+			positions = columns_.get(predicate);
+		}
+
+		NumericColumn column = positions.get(position);
+		if (column == null && createNew) {
+			positions.putIfAbsent(position, new NumericColumn());
+			column = positions.get(position);
+		}
+		return column;
+	}
+
+	@Override
+	public boolean addEdge(Edge edge) {
+		Node[] nodes = edge.getNodes();
+		if (!(nodes[0] instanceof DAGNode))
+			return true;
+		for (int i = 1; i < nodes.length; i++) {
+			Double value = numericValue(nodes[i]);
+			if (value != null)
+				getColumn(nodes[0], i + 1, true).add(value, edge);
+		}
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		columns_.clear();
+	}
+
+	/**
+	 * Counts the edges with a numeric argument within a range.
+	 * 
+	 * @see #findRange(Node, int, double, boolean, double, boolean, int)
+	 */
+	public int countRange(Node predicate, int position, double min,
+			boolean minInclusive, double max, boolean maxInclusive) {
+		NumericColumn column = getColumn(predicate, position, false);
+		if (column == null)
+			return 0;
+		return column.count(min, minInclusive, max, maxInclusive);
+	}
+
+	@Override
+	public Collection<Edge> execute(Object... args)
+			throws IllegalArgumentException, ModuleException {
+		if (args == null || args.length < 2)
+			throw new IllegalArgumentException(
+					"Requires a predicate and an argument position.");
+		Node predicate = (Node) args[0];
+		int position = (int) args[1];
+		double min = Double.NEGATIVE_INFINITY;
+		if (args.length >= 3 && args[2] != null)
+			min = ((Number) args[2]).doubleValue();
+		double max = Double.POSITIVE_INFINITY;
+		if (args.length >= 4 && args[3] != null)
+			max = ((Number) args[3]).doubleValue();
+		return findRange(predicate, position, min, true, max, true,
+				Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Finds the edges of a predicate with a numeric argument within a range.
+	 * 
+	 * @see #findRange(Node, int, double, boolean, double, boolean, int, int)
+	 */
+	public List<Edge> findRange(Node predicate, int position, double min,
+			boolean minInclusive, double max, boolean maxInclusive, int limit) {
+		return findRange(predicate, position, min, minInclusive, max,
+				maxInclusive, 0, limit);
+	}
+
+	/**
+	 * Finds the edges of a predicate with a numeric argument within a range,
+	 * starting part way through the range.
+	 * 
+	 * @param predicate
+	 *            The predicate of the edges.
+	 * @param position
+	 *            The (1-indexed) position of the numeric argument.
+	 * @param min
+	 *            The minimum value.
+	 * @param minInclusive
+	 *            If the minimum value is included.
+	 * @param max
+	 *            The maximum value.
+	 * @param maxInclusive
+	 *            If the maximum value is included.
+	 * @param offset
+	 *            The number of edges to skip from the start of the range.
+	 * @param limit
+	 *            The maximum number of edges to return.
+	 * @return The edges in ascending value order.
+	 */
+	public List<Edge> findRange(Node predicate, int position, double min,
+			boolean minInclusive, double max, boolean maxInclusive,
+			int offset, int limit) {
+		NumericColumn column = getColumn(predicate, position, false);
+		if (column == null)
+			return new ArrayList<>(0);
+		return column.range(min, minInclusive, max, maxInclusive, offset,
+				limit);
+	}
+
+	/**
+	 * Finds the edges of a predicate with the k largest (or smallest) numeric
+	 * arguments.
+	 * 
+	 * @see #findTopK(Node, int, int, int, boolean)
+	 */
+	public List<Edge> findTopK(Node predicate, int position, int k,
+			boolean largest) {
+		return findTopK(predicate, position, 0, k, largest);
+	}
+
+	/**
+	 * Finds the edges of a predicate with the k largest (or smallest) numeric
+	 * arguments, after skipping the most extreme offset edges.
+	 * 
+	 * @param predicate
+	 *            The predicate of the edges.
+	 * @param position
+	 *            The (1-indexed) position of the numeric argument.
+	 * @param offset
+	 *            The number of edges to skip.
+	 * @param k
+	 *            The number of edges to return.
+	 * @param largest
+	 *            If the largest (otherwise smallest) values are returned.
+	 * @return The edges, ordered from the most extreme value.
+	 */
+	public List<Edge> findTopK(Node predicate, int position, int offset,
+			int k, boolean largest) {
+		NumericColumn column = getColumn(predicate, position, false);
+		if (column == null)
+			return new ArrayList<>(0);
+		return column.topK(offset, k, largest);
+	}
+
+	@Override
+	public void initialisationComplete(Collection<DAGNode> nodes,
+			Collection<DAGEdge> edges) {
+		// Index existing edges if the module is new
+		if (!columns_.isEmpty())
+			return;
+		// Gather the values of each column to sort them once
+		Map<NumericColumn, ColumnValues> columnValues = new HashMap<>();
+		for (DAGEdge edge : edges) {
+			Node[] args = edge.getNodes();
+			if (!(args[0] instanceof DAGNode))
+				continue;
+			for (int i = 1; i < args.length; i++) {
+				Double value = numericValue(args[i]);
+				if (value == null)
+					continue;
+				NumericColumn column = getColumn(args[0], i + 1, true);
+				ColumnValues values = columnValues.get(column);
+				if (values == null) {
+					values = new ColumnValues();
+					columnValues.put(column, values);
+				}
+				values.add(value, edge);
+			}
+		}
+		for (Map.Entry<NumericColumn, ColumnValues> entry : columnValues
+				.entrySet()) {
+			ColumnValues values = entry.getValue();
+			entry.getKey().addAll(values.values_, values.edges_,
+					values.size_);
+		}
+	}
+
+	@Override
+	public boolean removeEdge(Edge edge) {
+		Node[] nodes = edge.getNodes();
+		boolean result = false;
+		for (int i = 1; i < nodes.length; i++) {
+			Double value = numericValue(nodes[i]);
+			if (value == null)
+				continue;
+			NumericColumn column = getColumn(nodes[0], i + 1, false);
+			if (column != null)
+				result |= column.remove(value, edge);
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		int numColumns = 0;
+		for (ConcurrentMap<Integer, NumericColumn> positions : columns_
+				.values())
+			numColumns += positions.size();
+		return "Numeric columns: " + numColumns;
+	}
+
+	/**
+	 * Gets the numeric value of a node, if it has one.
+	 * 
+	 * @param node
+	 *            The node to get the value of.
+	 * @return The value as a double, or null if the node is not numeric.
+	 */
+	public static Double numericValue(Node node) {
+		if (!(node instanceof PrimitiveNode))
+			return null;
+		Object primitive = ((PrimitiveNode) node).getPrimitive();
+		if (!(primitive instanceof Number))
+			return null;
+		double value = ((Number) primitive).doubleValue();
+		if (Double.isNaN(value))
+			return null;
+		return value;
+	}
+
+	/**
+	 * The values gathered for a column while indexing existing edges.
+	 */
+	private static class ColumnValues {
+		private Edge[] edges_ = new Edge[16];
+
+		private int size_;
+
+		private double[] values_ = new double[16];
+
+		public void add(double value, Edge edge) {
+			if (size_ == values_.length) {
+				values_ = Arrays.copyOf(values_, size_ * 2);
+				edges_ = Arrays.copyOf(edges_, size_ * 2);
+			}
+			values_[size_] = value;
+			edges_[size_++] = edge;
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package graph.module;
+
+import graph.core.DAGNode;
+import graph.core.DAGObject;
+import graph.core.Edge;
+import graph.core.Node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A bidirectional shortest-path search between two nodes over the related
+ * edge index, where two nodes are adjacent if they are both (non-predicate)
+ * arguments of an edge, optionally only edges of given predicates. Without
+ * weights, breadth-first searches from both ends expand the smaller frontier
+ * a level at a time and stop at the level where they meet. With weights
+ * (read from a numeric edge property, default 1), Dijkstra searches from
+ * both ends stop once the smallest unsettled distances of the two sides sum
+ * to at least the best path found.
+ *
+ * @author Sam Sarjant
+ */
+public class PathSearch {
+	/** The weight of edges without a (valid) weight property. */
+	public static final double DEFAULT_WEIGHT = 1;
+
+	private final DAGNode[] predicates_;
+
+	private final RelatedEdgeModule relatedModule_;
+
+	/** The edge property to weight edges by, or null for unweighted. */
+	private final String weightProperty_;
+
+	/**
+	 * Creates a search over the related edge index.
+	 *
+	 * @param relatedModule
+	 *            The related edge index.
+	 * @param predicates
+	 *            The predicates of the edges to follow, or empty to follow
+	 *            every edge.
+	 * @param weightProperty
+	 *            The numeric edge property giving the weight of each edge,
+	 *            or null to count edges.
+	 */
+	public PathSearch(RelatedEdgeModule relatedModule,
+			Collection<DAGNode> predicates, String weightProperty) {
+		relatedModule_ = relatedModule;
+		predicates_ = predicates.toArray(new DAGNode[predicates.size()]);
+		weightProperty_ = weightProperty;
+	}
+
+	/**
+	 * Builds the chain of edges through the meeting node.
+	 */
+	private List<Edge> buildPath(DAGNode meet, Map<DAGNode, Step> forward,
+			Map<DAGNode, Step> backward) {
+		List<Edge> path = new ArrayList<>();
+		for (Step step = forward.get(meet); step.edge_ != null; step = forward
+				.get(step.previous_))
+			path.add(step.edge_);
+		Collections.reverse(path);
+		for (Step step = backward.get(meet); step.edge_ != null; step = backward
+				.get(step.previous_))
+			path.add(step.edge_);
+		return path;
+	}
+
+	/**
+	 * Finds a shortest path between two nodes.
+	 *
+	 * @param from
+	 *            The node to start from.
+	 * @param to
+	 *            The node to reach.
+	 * @return The edges of a shortest path, in order from the start node (an
+	 *         empty list if the nodes are the same), or null if there is no
+	 *         path.
+	 */
+	public List<Edge> findPath(DAGNode from, DAGNode to) {
+		if (from.equals(to))
+			return new ArrayList<>(0);
+		if (weightProperty_ == null)
+			return findUnweighted(from, to);
+		return findWeighted(from, to);
+	}
+
+	private List<Edge> findUnweighted(DAGNode from, DAGNode to) {
+		Map<DAGNode, Step> forward = new HashMap<>();
+		Map<DAGNode, Step> backward = new HashMap<>();
+		forward.put(from, new Step(null, null, 0));
+		backward.put(to, new Step(null, null, 0));
+		List<DAGNode> forwardFrontier = new ArrayList<>();
+		forwardFrontier.add(from);
+		List<DAGNode> backwardFrontier = new ArrayList<>();
+		backwardFrontier.add(to);
+
+		while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+			boolean isForward = forwardFrontier.size() <= backwardFrontier
+					.size();
+			List<DAGNode> frontier = (isForward) ? forwardFrontier
+					: backwardFrontier;
+			Map<DAGNode, Step> visited = (isForward) ? forward : backward;
+			Map<DAGNode, Step> other = (isForward) ? backward : forward;
+
+			// Expand a whole level, keeping the best meeting point
+			List<DAGNode> next = new ArrayList<>();
+			DAGNode meet = null;
+			double best = Double.POSITIVE_INFINITY;
+			for (DAGNode node : frontier) {
+				double distance = visited.get(node).distance_ + 1;
+				for (Edge edge : getEdges(node)) {
+					for (DAGNode neighbour : getNeighbours(edge)) {
+						if (visited.containsKey(neighbour))
+							continue;
+						visited.put(neighbour, new Step(edge, node, distance));
+						next.add(neighbour);
+						Step otherStep = other.get(neighbour);
+						if (otherStep != null
+								&& distance + otherStep.distance_ < best) {
+							best = distance + otherStep.distance_;
+							meet = neighbour;
+						}
+					}
+				}
+			}
+			if (meet != null)
+				return buildPath(meet, forward, backward);
+			if (isForward)
+				forwardFrontier = next;
+			else
+				backwardFrontier = next;
+		}
+		return null;
+	}
+
+	private List<Edge> findWeighted(DAGNode from, DAGNode to) {
+		Map<DAGNode, Step> forward = new HashMap<>();
+		Map<DAGNode, Step> backward = new HashMap<>();
+		forward.put(from, new Step(null, null, 0));
+		backward.put(to, new Step(null, null, 0));
+		PriorityQueue<QueueEntry> forwardQueue = new PriorityQueue<>();
+		forwardQueue.add(new QueueEntry(from, 0));
+		PriorityQueue<QueueEntry> backwardQueue = new PriorityQueue<>();
+		backwardQueue.add(new QueueEntry(to, 0));
+
+		DAGNode meet = null;
+		double best = Double.POSITIVE_INFINITY;
+		while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+			if (forwardQueue.peek().distance_ + backwardQueue.peek().distance_ >= best)
+				break;
+			boolean isForward = forwardQueue.size() <= backwardQueue.size();
+			PriorityQueue<QueueEntry> queue = (isForward) ? forwardQueue
+					: backwardQueue;
+			Map<DAGNode, Step> visited = (isForward) ? forward : backward;
+			Map<DAGNode, Step> other = (isForward) ? backward : forward;
+
+			QueueEntry entry = queue.poll();
+			if (entry.distance_ > visited.get(entry.node_).distance_)
+				continue;
+			for (Edge edge : getEdges(entry.node_)) {
+				double distance = entry.distance_ + getWeight(edge);
+				for (DAGNode neighbour : getNeighbours(edge)) {
+					Step step = visited.get(neighbour);
+					if (step != null && step.distance_ <= distance)
+						continue;
+					visited.put(neighbour, new Step(edge, entry.node_,
+							distance));
+					queue.add(new QueueEntry(neighbour, distance));
+					Step otherStep = other.get(neighbour);
+					if (otherStep != null
+							&& distance + otherStep.distance_ < best) {
+						best = distance + otherStep.distance_;
+						meet = neighbour;
+					}
+				}
+			}
+		}
+		if (meet == null)
+			return null;
+		return buildPath(meet, forward, backward);
+	}
+
+	/**
+	 * Gets the edges to follow from a node.
+	 */
+	private Collection<Edge> getEdges(DAGNode node) {
+		if (predicates_.length == 0)
+			return relatedModule_.execute(node);
+		Collection<Edge> edges = new ArrayList<>();
+		for (DAGNode predicate : predicates_)
+			edges.addAll(relatedModule_.execute(node, predicate, 1));
+		return edges;
+	}
+
+	/**
+	 * Gets the DAG node arguments of an edge (excluding the predicate).
+	 */
+	private List<DAGNode> getNeighbours(Edge edge) {
+		Node[] edgeNodes = edge.getNodes();
+		List<DAGNode> neighbours = new ArrayList<>(edgeNodes.length - 1);
+		for (int i = 1; i < edgeNodes.length; i++)
+			if (edgeNodes[i] instanceof DAGNode)
+				neighbours.add((DAGNode) edgeNodes[i]);
+		return neighbours;
+	}
+
+	/**
+	 * Gets the weight of an edge from its weight property.
+	 */
+	private double getWeight(Edge edge) {
+		if (!(edge instanceof DAGObject))
+			return DEFAULT_WEIGHT;
+		String value = ((DAGObject) edge).getProperty(weightProperty_);
+		if (value == null)
+			return DEFAULT_WEIGHT;
+		try {
+			double weight = Double.parseDouble(value);
+			return (weight >= 0) ? weight : DEFAULT_WEIGHT;
+		} catch (NumberFormatException e) {
+			return DEFAULT_WEIGHT;
+		}
+	}
+
+	/**
+	 * A node waiting to be settled, at a tentative distance.
+	 */
+	private static class QueueEntry implements Comparable<QueueEntry> {
+		private final double distance_;
+		private final DAGNode node_;
+
+		public QueueEntry(DAGNode node, double distance) {
+			node_ = node;
+			distance_ = distance;
+		}
+
+		@Override
+		public int compareTo(QueueEntry o) {
+			return Double.compare(distance_, o.distance_);
+		}
+	}
+
+	/**
+	 * The edge by which a node was reached, from which node, and at what
+	 * distance from the search's origin.
+	 */
+	private static class Step {
+		private final double distance_;
+		private final Edge edge_;
+		private final DAGNode previous_;
+
+		public Step(Edge edge, DAGNode previous, double distance) {
+			edge_ = edge;
+			previous_ = previous;
+			distance_ = distance;
+		}
+	}
+}
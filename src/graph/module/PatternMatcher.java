@@ -0,0 +1,299 @@
+package graph.module;
+
+import graph.core.Edge;
+import graph.core.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates conjunctive edge patterns with shared variables, such as
+ * <code>(isa ?x Dog) (owns ?y ?x)</code>, over the related edge index. The
+ * patterns are joined depth-first: at each step the remaining pattern with
+ * the smallest estimated number of edges (given the variables bound so far)
+ * is looked up in the index, and each matching edge binds its variables
+ * before the next pattern is chosen. Solutions are produced one at a time,
+ * so only the current partial binding is held in memory and evaluation
+ * stops as soon as enough solutions are found.
+ *
+ * @author Sam Sarjant
+ */
+public class PatternMatcher {
+	/** The prefix marking a variable. */
+	public static final String VARIABLE_PREFIX = "?";
+
+	private final RelatedEdgeModule relatedModule_;
+
+	/** The patterns, with variables as their variable indices. */
+	private final Object[][] patterns_;
+
+	/** The names of the variables, by index. */
+	private final String[] variables_;
+
+	/**
+	 * Creates a matcher for a set of patterns.
+	 *
+	 * @param relatedModule
+	 *            The related edge index to match against.
+	 * @param patterns
+	 *            The patterns, where each element is either a {@link Node}
+	 *            or a variable name (starting with ?).
+	 * @throws IllegalArgumentException
+	 *             If a pattern element is neither a node nor a variable.
+	 */
+	public PatternMatcher(RelatedEdgeModule relatedModule,
+			List<Object[]> patterns) throws IllegalArgumentException {
+		relatedModule_ = relatedModule;
+		Map<String, Integer> variables = new LinkedHashMap<>();
+		patterns_ = new Object[patterns.size()][];
+		for (int p = 0; p < patterns_.length; p++) {
+			Object[] pattern = patterns.get(p);
+			patterns_[p] = new Object[pattern.length];
+			for (int i = 0; i < pattern.length; i++) {
+				if (isVariable(pattern[i])) {
+					Integer index = variables.get(pattern[i]);
+					if (index == null) {
+						index = variables.size();
+						variables.put((String) pattern[i], index);
+					}
+					patterns_[p][i] = index;
+				} else if (pattern[i] instanceof Node)
+					patterns_[p][i] = pattern[i];
+				else
+					throw new IllegalArgumentException("Unknown pattern term: "
+							+ pattern[i]);
+			}
+		}
+		variables_ = variables.keySet().toArray(new String[variables.size()]);
+	}
+
+	public static boolean isVariable(Object term) {
+		return term instanceof String
+				&& ((String) term).startsWith(VARIABLE_PREFIX);
+	}
+
+	/**
+	 * Builds the index query arguments for a pattern: every bound term with
+	 * its (1-indexed) position.
+	 *
+	 * @return The arguments, or null if no term of the pattern is bound.
+	 */
+	private Object[] buildArgs(Object[] pattern, Node[] binding) {
+		ArrayList<Object> args = new ArrayList<>(pattern.length * 2);
+		for (int i = 0; i < pattern.length; i++) {
+			Node node = resolve(pattern[i], binding);
+			if (node != null) {
+				args.add(node);
+				args.add(i + 1);
+			}
+		}
+		if (args.isEmpty())
+			return null;
+		return args.toArray(new Object[args.size()]);
+	}
+
+	/**
+	 * Counts the solutions of the patterns.
+	 *
+	 * @return The number of distinct variable bindings.
+	 */
+	public int count() {
+		SolutionCounter counter = new SolutionCounter();
+		match(counter, 0, Integer.MAX_VALUE);
+		return counter.count_;
+	}
+
+	/**
+	 * Finds the solutions of the patterns.
+	 *
+	 * @param offset
+	 *            The number of solutions to skip.
+	 * @param limit
+	 *            The index after the last solution to return.
+	 * @return The variable bindings (in the order of
+	 *         {@link #getVariables()}) of each solution.
+	 */
+	public List<Node[]> findSolutions(int offset, int limit) {
+		final List<Node[]> solutions = new ArrayList<>();
+		match(new SolutionHandler() {
+			@Override
+			public void solution(Node[] binding) {
+				solutions.add(binding.clone());
+			}
+		}, offset, limit);
+		return solutions;
+	}
+
+	/**
+	 * The variable names, in the order they first appear in the patterns.
+	 */
+	public String[] getVariables() {
+		return variables_;
+	}
+
+	/**
+	 * Matches the patterns, passing each solution in the range to the
+	 * handler.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a pattern has no node to look it up by, even after
+	 *             binding the other patterns.
+	 */
+	public void match(SolutionHandler handler, int offset, int limit)
+			throws IllegalArgumentException {
+		if (limit <= offset)
+			return;
+		MatchState state = new MatchState(handler, offset, limit);
+		matchRemaining(new Node[variables_.length],
+				new boolean[patterns_.length], patterns_.length, state);
+	}
+
+	/**
+	 * Joins the remaining patterns under the current binding.
+	 *
+	 * @return False once enough solutions have been found.
+	 */
+	private boolean matchRemaining(Node[] binding, boolean[] matched,
+			int remaining, MatchState state) {
+		if (remaining == 0) {
+			if (state.found_++ >= state.offset_)
+				state.handler_.solution(binding);
+			return state.found_ < state.limit_;
+		}
+
+		// Choose the most selective remaining pattern
+		int best = -1;
+		Object[] bestArgs = null;
+		int bestEstimate = Integer.MAX_VALUE;
+		for (int p = 0; p < patterns_.length; p++) {
+			if (matched[p])
+				continue;
+			Object[] args = buildArgs(patterns_[p], binding);
+			if (args == null)
+				continue;
+			int estimate = relatedModule_.estimate(args);
+			if (best == -1 || estimate < bestEstimate) {
+				best = p;
+				bestArgs = args;
+				bestEstimate = estimate;
+			}
+		}
+		if (best == -1)
+			throw new IllegalArgumentException(
+					"Every pattern requires at least one node or "
+							+ "variable bound by another pattern.");
+		if (bestEstimate == 0)
+			return true;
+
+		Collection<Edge> edges = relatedModule_.execute(bestArgs);
+		Object[] pattern = patterns_[best];
+		matched[best] = true;
+		try {
+			for (Edge edge : edges) {
+				Node[] edgeNodes = edge.getNodes();
+				if (edgeNodes.length != pattern.length)
+					continue;
+
+				// Bind the unbound variables
+				Node[] extended = bind(pattern, edgeNodes, binding);
+				if (extended == null)
+					continue;
+				if (!matchRemaining(extended, matched, remaining - 1, state))
+					return false;
+			}
+		} finally {
+			matched[best] = false;
+		}
+		return true;
+	}
+
+	/**
+	 * Extends a binding with the variables of a pattern matched against an
+	 * edge.
+	 *
+	 * @return The extended binding, or null if the edge contradicts it.
+	 */
+	private Node[] bind(Object[] pattern, Node[] edgeNodes, Node[] binding) {
+		Node[] extended = null;
+		for (int i = 0; i < pattern.length; i++) {
+			if (pattern[i] instanceof Node) {
+				if (!pattern[i].equals(edgeNodes[i]))
+					return null;
+				continue;
+			}
+			int var = (int) pattern[i];
+			Node bound = (extended == null) ? binding[var] : extended[var];
+			if (bound == null) {
+				if (extended == null)
+					extended = Arrays.copyOf(binding, binding.length);
+				extended[var] = edgeNodes[i];
+			} else if (!bound.equals(edgeNodes[i]))
+				return null;
+		}
+		return (extended == null) ? binding : extended;
+	}
+
+	private Node resolve(Object term, Node[] binding) {
+		if (term instanceof Node)
+			return (Node) term;
+		return binding[(int) term];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+		for (Object[] pattern : patterns_) {
+			buffer.append('(');
+			for (int i = 0; i < pattern.length; i++) {
+				if (i > 0)
+					buffer.append(' ');
+				if (pattern[i] instanceof Node)
+					buffer.append(((Node) pattern[i]).getIdentifier());
+				else
+					buffer.append(variables_[(int) pattern[i]]);
+			}
+			buffer.append(')');
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Receives the solutions of a match.
+	 */
+	public interface SolutionHandler {
+		/**
+		 * Notes a solution. The binding array is reused, so it must be copied
+		 * to be kept.
+		 *
+		 * @param binding
+		 *            The node bound to each variable.
+		 */
+		public void solution(Node[] binding);
+	}
+
+	private static class MatchState {
+		private int found_;
+		private final SolutionHandler handler_;
+		private final int limit_;
+		private final int offset_;
+
+		public MatchState(SolutionHandler handler, int offset, int limit) {
+			handler_ = handler;
+			offset_ = offset;
+			limit_ = limit;
+		}
+	}
+
+	private static class SolutionCounter implements SolutionHandler {
+		private int count_;
+
+		@Override
+		public void solution(Node[] binding) {
+			count_++;
+		}
+	}
+}
@@ -0,0 +1,481 @@
+package graph.module;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A path-compressed trie from strings to sets of IDs. Each trie node stores
+ * the run of characters leading to it as a single char array, its children in
+ * an array sorted by first character, and its values as a sorted primitive
+ * array, so a key costs a handful of arrays rather than an object per
+ * character.
+ * 
+ * @author Sam Sarjant
+ */
+public class RadixTrie implements Serializable {
+	private static final long serialVersionUID = -6853120942387785542L;
+
+	private static final RadixNode[] NO_CHILDREN = new RadixNode[0];
+
+	private static final long[] NO_VALUES = new long[0];
+
+	/** The root of the trie (with an empty label). */
+	private RadixNode root_ = new RadixNode(new char[0]);
+
+	/** The number of key-value pairs in the trie. */
+	private int size_;
+
+	/**
+	 * Folds a string into its case-insensitive form.
+	 * 
+	 * @param str
+	 *            The string to fold.
+	 * @return The string with each character lower-cased.
+	 */
+	public static String fold(String str) {
+		char[] chars = str.toCharArray();
+		for (int i = 0; i < chars.length; i++)
+			chars[i] = Character.toLowerCase(chars[i]);
+		return new String(chars);
+	}
+
+	/**
+	 * Finds the index of the child starting with a character.
+	 * 
+	 * @return The index, or (-(insertion point) - 1) if there is no child.
+	 */
+	private static int childIndex(RadixNode node, char c) {
+		int low = 0;
+		int high = node.children_.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char midChar = node.children_[mid].label_[0];
+			if (midChar < c)
+				low = mid + 1;
+			else if (midChar > c)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * The number of leading characters a label shares with a key from an
+	 * index.
+	 */
+	private static int commonLength(char[] label, char[] key, int index) {
+		int i = 0;
+		while (i < label.length && index + i < key.length
+				&& label[i] == key[index + i])
+			i++;
+		return i;
+	}
+
+	/**
+	 * Adds all values below a node into a buffer.
+	 */
+	private static long[] collect(RadixNode node, long[] buffer, int[] size) {
+		if (node.values_.length > 0) {
+			if (size[0] + node.values_.length > buffer.length)
+				buffer = Arrays.copyOf(buffer,
+						Math.max(buffer.length * 2, size[0]
+								+ node.values_.length));
+			System.arraycopy(node.values_, 0, buffer, size[0],
+					node.values_.length);
+			size[0] += node.values_.length;
+		}
+		for (RadixNode child : node.children_)
+			buffer = collect(child, buffer, size);
+		return buffer;
+	}
+
+	/**
+	 * Finds the node reached by a key.
+	 * 
+	 * @param key
+	 *            The key to follow.
+	 * @param prefix
+	 *            If the key may end part way through a node's label.
+	 * @return The node, or null if the key leaves the trie.
+	 */
+	private RadixNode find(char[] key, boolean prefix) {
+		RadixNode node = root_;
+		int i = 0;
+		while (i < key.length) {
+			int c = childIndex(node, key[i]);
+			if (c < 0)
+				return null;
+			node = node.children_[c];
+			int common = commonLength(node.label_, key, i);
+			i += common;
+			if (common < node.label_.length)
+				return (prefix && i == key.length) ? node : null;
+		}
+		return node;
+	}
+
+	/**
+	 * Merges a node with its only child, if it has no values of its own.
+	 */
+	private static void compress(RadixNode node) {
+		if (node.values_.length > 0 || node.children_.length != 1)
+			return;
+		RadixNode child = node.children_[0];
+		char[] label = Arrays.copyOf(node.label_, node.label_.length
+				+ child.label_.length);
+		System.arraycopy(child.label_, 0, label, node.label_.length,
+				child.label_.length);
+		node.label_ = label;
+		node.children_ = child.children_;
+		node.values_ = child.values_;
+	}
+
+	/**
+	 * Collects the values of keys within an edit distance below a node,
+	 * stepping the edit distance row of the search key through each label
+	 * character and pruning branches that can no longer match.
+	 * 
+	 * @param row
+	 *            The edit distances between the node's key and each prefix of
+	 *            the search key.
+	 */
+	private static void collectWithin(RadixNode node, char[] key, int[] row,
+			int maxDistance, Map<Long, Integer> matches) {
+		int distance = row[key.length];
+		if (distance <= maxDistance) {
+			for (long value : node.values_) {
+				Integer prev = matches.get(value);
+				if (prev == null || distance < prev)
+					matches.put(value, distance);
+			}
+		}
+
+		for (RadixNode child : node.children_) {
+			int[] current = row;
+			boolean viable = true;
+			for (int i = 0; viable && i < child.label_.length; i++) {
+				current = nextRow(current, key, child.label_[i]);
+				viable = min(current) <= maxDistance;
+			}
+			if (viable)
+				collectWithin(child, key, current, maxDistance, matches);
+		}
+	}
+
+	private static int min(int[] row) {
+		int min = row[0];
+		for (int i = 1; i < row.length; i++)
+			min = Math.min(min, row[i]);
+		return min;
+	}
+
+	/**
+	 * Steps an edit distance row by one character of a trie key.
+	 */
+	private static int[] nextRow(int[] prev, char[] key, char c) {
+		int[] row = new int[prev.length];
+		row[0] = prev[0] + 1;
+		for (int i = 1; i < row.length; i++) {
+			int substitute = prev[i - 1] + ((key[i - 1] == c) ? 0 : 1);
+			row[i] = Math.min(substitute,
+					Math.min(row[i - 1] + 1, prev[i] + 1));
+		}
+		return row;
+	}
+
+	/**
+	 * Checks the keys below a node for one matching a folded key.
+	 */
+	private static boolean containsFolded(RadixNode node, char[] folded,
+			int index, long value) {
+		if (index == folded.length)
+			return Arrays.binarySearch(node.values_, value) >= 0;
+		for (RadixNode child : node.children_) {
+			char[] label = child.label_;
+			if (index + label.length > folded.length)
+				continue;
+			boolean matches = true;
+			for (int i = 0; matches && i < label.length; i++)
+				matches = Character.toLowerCase(label[i]) == folded[index + i];
+			if (matches
+					&& containsFolded(child, folded, index + label.length,
+							value))
+				return true;
+		}
+		return false;
+	}
+
+	public void clear() {
+		root_ = new RadixNode(new char[0]);
+		size_ = 0;
+	}
+
+	/**
+	 * If any key with the given case-folded form has a value.
+	 * 
+	 * @param folded
+	 *            The folded key.
+	 * @param value
+	 *            The value.
+	 * @return True if a key folding to the given key has the value.
+	 */
+	public boolean containsFolded(String folded, long value) {
+		return containsFolded(root_, folded.toCharArray(), 0, value);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		RadixTrie other = (RadixTrie) obj;
+		if (size_ != other.size_)
+			return false;
+		return root_.equals(other.root_);
+	}
+
+	/**
+	 * Gets the values of an exact key.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @return The sorted values of the key (not to be modified), or an empty
+	 *         array.
+	 */
+	public long[] get(String key) {
+		RadixNode node = find(key.toCharArray(), false);
+		return (node == null) ? NO_VALUES : node.values_;
+	}
+
+	/**
+	 * Gets the values of every key starting with a prefix.
+	 * 
+	 * @param prefix
+	 *            The prefix.
+	 * @return The distinct values of all keys with the prefix, sorted (not to
+	 *         be modified).
+	 */
+	public long[] getPrefixed(String prefix) {
+		RadixNode node = find(prefix.toCharArray(), true);
+		if (node == null)
+			return NO_VALUES;
+		if (node.children_.length == 0)
+			return node.values_;
+
+		int[] size = new int[1];
+		long[] values = collect(node, new long[16], size);
+		Arrays.sort(values, 0, size[0]);
+		int unique = 0;
+		for (int i = 0; i < size[0]; i++)
+			if (unique == 0 || values[i] != values[unique - 1])
+				values[unique++] = values[i];
+		return Arrays.copyOf(values, unique);
+	}
+
+	/**
+	 * Gets the values of every key within an edit (Levenshtein) distance of a
+	 * key.
+	 * 
+	 * @param key
+	 *            The key to search around.
+	 * @param maxDistance
+	 *            The maximum number of insertions, deletions and
+	 *            substitutions.
+	 * @return The values found, mapped to the smallest distance of any of
+	 *         their keys.
+	 */
+	public Map<Long, Integer> getWithin(String key, int maxDistance) {
+		char[] chars = key.toCharArray();
+		int[] row = new int[chars.length + 1];
+		for (int i = 0; i < row.length; i++)
+			row[i] = i;
+		Map<Long, Integer> matches = new HashMap<>();
+		collectWithin(root_, chars, row, maxDistance, matches);
+		return matches;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * size_ + root_.hashCode();
+	}
+
+	public boolean isEmpty() {
+		return size_ == 0;
+	}
+
+	/**
+	 * Adds a value to a key.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @param value
+	 *            The value.
+	 * @return True if the value was not already present for the key.
+	 */
+	public boolean put(String key, long value) {
+		char[] chars = key.toCharArray();
+		RadixNode node = root_;
+		int i = 0;
+		while (i < chars.length) {
+			int c = childIndex(node, chars[i]);
+			if (c < 0) {
+				// New leaf
+				RadixNode leaf = new RadixNode(Arrays.copyOfRange(chars, i,
+						chars.length));
+				leaf.values_ = new long[] { value };
+				int insert = -c - 1;
+				RadixNode[] children = new RadixNode[node.children_.length + 1];
+				System.arraycopy(node.children_, 0, children, 0, insert);
+				System.arraycopy(node.children_, insert, children, insert + 1,
+						node.children_.length - insert);
+				children[insert] = leaf;
+				node.children_ = children;
+				size_++;
+				return true;
+			}
+
+			RadixNode child = node.children_[c];
+			int common = commonLength(child.label_, chars, i);
+			if (common < child.label_.length) {
+				// Split the child's label
+				RadixNode split = new RadixNode(Arrays.copyOf(child.label_,
+						common));
+				child.label_ = Arrays.copyOfRange(child.label_, common,
+						child.label_.length);
+				split.children_ = new RadixNode[] { child };
+				node.children_[c] = split;
+				child = split;
+			}
+			node = child;
+			i += common;
+		}
+
+		int index = Arrays.binarySearch(node.values_, value);
+		if (index >= 0)
+			return false;
+		index = -index - 1;
+		long[] values = new long[node.values_.length + 1];
+		System.arraycopy(node.values_, 0, values, 0, index);
+		System.arraycopy(node.values_, index, values, index + 1,
+				node.values_.length - index);
+		values[index] = value;
+		node.values_ = values;
+		size_++;
+		return true;
+	}
+
+	/**
+	 * Removes a value from a key.
+	 * 
+	 * @param key
+	 *            The key.
+	 * @param value
+	 *            The value.
+	 * @return True if the value was present for the key.
+	 */
+	public boolean remove(String key, long value) {
+		char[] chars = key.toCharArray();
+		RadixNode parent = null;
+		RadixNode node = root_;
+		int childIndex = -1;
+		int i = 0;
+		while (i < chars.length) {
+			int c = childIndex(node, chars[i]);
+			if (c < 0)
+				return false;
+			RadixNode child = node.children_[c];
+			if (commonLength(child.label_, chars, i) < child.label_.length)
+				return false;
+			parent = node;
+			node = child;
+			childIndex = c;
+			i += child.label_.length;
+		}
+
+		int index = Arrays.binarySearch(node.values_, value);
+		if (index < 0)
+			return false;
+		long[] values = NO_VALUES;
+		if (node.values_.length > 1) {
+			values = new long[node.values_.length - 1];
+			System.arraycopy(node.values_, 0, values, 0, index);
+			System.arraycopy(node.values_, index + 1, values, index,
+					values.length - index);
+		}
+		node.values_ = values;
+		size_--;
+
+		// Tidy the structure
+		if (parent != null) {
+			if (node.values_.length == 0 && node.children_.length == 0) {
+				RadixNode[] children = NO_CHILDREN;
+				if (parent.children_.length > 1) {
+					children = new RadixNode[parent.children_.length - 1];
+					System.arraycopy(parent.children_, 0, children, 0,
+							childIndex);
+					System.arraycopy(parent.children_, childIndex + 1,
+							children, childIndex, children.length - childIndex);
+				}
+				parent.children_ = children;
+				if (parent != root_)
+					compress(parent);
+			} else
+				compress(node);
+		}
+		return true;
+	}
+
+	public int size() {
+		return size_;
+	}
+
+	@Override
+	public String toString() {
+		return "Radix trie - Values: " + size_;
+	}
+
+	/**
+	 * A node of the trie.
+	 */
+	private static class RadixNode implements Serializable {
+		private static final long serialVersionUID = 2905836170470531295L;
+
+		/** The children, sorted by the first character of their labels. */
+		private RadixNode[] children_ = NO_CHILDREN;
+
+		/** The characters between the parent node and this one. */
+		private char[] label_;
+
+		/** The sorted values of the key ending at this node. */
+		private long[] values_ = NO_VALUES;
+
+		public RadixNode(char[] label) {
+			label_ = label;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof RadixNode))
+				return false;
+			RadixNode other = (RadixNode) obj;
+			return Arrays.equals(label_, other.label_)
+					&& Arrays.equals(values_, other.values_)
+					&& Arrays.equals(children_, other.children_);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = Arrays.hashCode(label_);
+			result = 31 * result + Arrays.hashCode(values_);
+			return 31 * result + Arrays.hashCode(children_);
+		}
+	}
+}
@@ -0,0 +1,606 @@
+package graph.module;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A reachability index over the edges of a single binary predicate, where an
+ * edge (predicate child parent) makes the parent (and everything it reaches)
+ * an ancestor of the child. Every node is numbered in post-order over a
+ * depth-first walk down from the roots, and labelled with the sorted,
+ * merged intervals of the numbers of its descendants (including itself). A
+ * node is then a descendant of another if its number lies within one of the
+ * other's intervals: a binary search, and for tree-like hierarchies a single
+ * interval.
+ *
+ * Added edges update the labels of the parent and its ancestors in place
+ * (only where the child was not already a descendant). Removed edges cannot
+ * be subtracted from merged intervals, so the labels of the parent and its
+ * ancestors are recomputed from their children instead (or, if they are on
+ * a cycle, every label is recomputed on the next query). New nodes are
+ * numbered after every other node, so updates split labels into more
+ * intervals over time: once the labels hold twice as many intervals as
+ * after the last relabelling, every node is renumbered on the next query.
+ *
+ * @author Sam Sarjant
+ */
+public class ReachabilityIndex {
+	private static final int[] NO_EDGES = new int[0];
+
+	/** How many times the intervals may grow before relabelling. */
+	private static final int RELABEL_GROWTH = 2;
+
+	/** The node number of each node ID. */
+	private Map<Long, Integer> numbers_ = new HashMap<>();
+
+	/** The node ID of each number. */
+	private long[] ids_ = new long[16];
+
+	/** The numbers of the children of each node, by number. */
+	private ArrayList<int[]> children_ = new ArrayList<>();
+
+	/** The descendant intervals (inclusive pairs) of each node, by number. */
+	private ArrayList<int[]> labels_ = new ArrayList<>();
+
+	/** The numbers of the parents of each node, by number. */
+	private ArrayList<int[]> parents_ = new ArrayList<>();
+
+	/** If the labels must be recomputed before the next query. */
+	private boolean dirty_;
+
+	/** The total number of intervals over all labels. */
+	private int numIntervals_;
+
+	/** The number of intervals after the last relabelling. */
+	private int relabelIntervals_;
+
+	/** The search stamp of each node, by number. */
+	private int[] visited_ = new int[16];
+
+	/** The stamp of the current search (and one more for finished nodes). */
+	private int visitStamp_;
+
+	/**
+	 * Adds an edge from a child to a parent.
+	 *
+	 * @param childID
+	 *            The ID of the child (descendant) node.
+	 * @param parentID
+	 *            The ID of the parent (ancestor) node.
+	 */
+	public synchronized void addEdge(long childID, long parentID) {
+		int child = getOrCreateNumber(childID);
+		int parent = getOrCreateNumber(parentID);
+		children_.set(parent, append(children_.get(parent), child));
+		parents_.set(child, append(parents_.get(child), parent));
+		if (dirty_ || contains(labels_.get(parent), child))
+			return;
+
+		// Add the child's descendants to the parent and its ancestors
+		int[] delta = labels_.get(child);
+		ArrayList<Integer> queue = new ArrayList<>();
+		queue.add(parent);
+		while (!queue.isEmpty()) {
+			int node = queue.remove(queue.size() - 1);
+			int[] label = labels_.get(node);
+			// Ancestors of a node covering the delta also cover it
+			if (covers(label, delta))
+				continue;
+			setLabel(node, union(label, delta));
+			for (int ancestor : parents_.get(node))
+				queue.add(ancestor);
+		}
+		checkIntervals();
+	}
+
+	/**
+	 * Removes an edge from a child to a parent.
+	 */
+	public synchronized void removeEdge(long childID, long parentID) {
+		Integer child = numbers_.get(childID);
+		Integer parent = numbers_.get(parentID);
+		if (child == null || parent == null)
+			return;
+		children_.set(parent, without(children_.get(parent), child));
+		parents_.set(child, without(parents_.get(child), parent));
+		if (dirty_)
+			return;
+
+		// Recompute the parent and its ancestors, children first
+		int[] order = ancestorOrder(parent);
+		if (order == null) {
+			dirty_ = true;
+			return;
+		}
+		for (int i = order.length - 1; i >= 0; i--)
+			setLabel(order[i], computeLabel(order[i]));
+		checkIntervals();
+	}
+
+	/**
+	 * Orders a node and its ancestors by a depth-first walk up from the
+	 * node.
+	 *
+	 * @return The nodes in post-order of the walk (so each node after its
+	 *         parents), or null if the walk found a cycle.
+	 */
+	private int[] ancestorOrder(int start) {
+		int stamp = startSearch();
+		int[] order = new int[16];
+		int count = 0;
+		int[] stack = new int[16];
+		int[] edgeIndex = new int[16];
+		int depth = 0;
+		stack[0] = start;
+		edgeIndex[0] = 0;
+		visited_[start] = stamp;
+		while (depth >= 0) {
+			int node = stack[depth];
+			int[] parents = parents_.get(node);
+			if (edgeIndex[depth] < parents.length) {
+				int parent = parents[edgeIndex[depth]++];
+				if (visited_[parent] == stamp)
+					return null;
+				if (visited_[parent] == stamp + 1)
+					continue;
+				visited_[parent] = stamp;
+				depth++;
+				if (depth == stack.length) {
+					stack = Arrays.copyOf(stack, depth * 2);
+					edgeIndex = Arrays.copyOf(edgeIndex, depth * 2);
+				}
+				stack[depth] = parent;
+				edgeIndex[depth] = 0;
+			} else {
+				visited_[node] = stamp + 1;
+				if (count == order.length)
+					order = Arrays.copyOf(order, count * 2);
+				order[count++] = node;
+				depth--;
+			}
+		}
+		return Arrays.copyOf(order, count);
+	}
+
+	/**
+	 * Finds every ancestor of a node, nearest first.
+	 *
+	 * @param id
+	 *            The ID of the node.
+	 * @return The IDs of the proper ancestors of the node.
+	 */
+	public synchronized long[] getAncestors(long id) {
+		Integer start = numbers_.get(id);
+		if (start == null)
+			return new long[0];
+		int stamp = startSearch();
+		visited_[start] = stamp;
+		int[] queue = new int[16];
+		int head = 0, tail = 0;
+		for (int parent : parents_.get(start)) {
+			if (visited_[parent] == stamp)
+				continue;
+			visited_[parent] = stamp;
+			if (tail == queue.length)
+				queue = Arrays.copyOf(queue, tail * 2);
+			queue[tail++] = parent;
+		}
+		while (head < tail) {
+			int node = queue[head++];
+			for (int parent : parents_.get(node)) {
+				if (visited_[parent] == stamp)
+					continue;
+				visited_[parent] = stamp;
+				if (tail == queue.length)
+					queue = Arrays.copyOf(queue, tail * 2);
+				queue[tail++] = parent;
+			}
+		}
+		long[] ancestors = new long[tail];
+		for (int i = 0; i < tail; i++)
+			ancestors[i] = ids_[queue[i]];
+		return ancestors;
+	}
+
+	/**
+	 * Finds every descendant of a node, read directly from its label.
+	 *
+	 * @param id
+	 *            The ID of the node.
+	 * @return The IDs of the proper descendants of the node, in label order.
+	 */
+	public synchronized long[] getDescendants(long id) {
+		relabelIfDirty();
+		Integer node = numbers_.get(id);
+		if (node == null)
+			return new long[0];
+		int[] label = labels_.get(node);
+		int size = 0;
+		for (int i = 0; i < label.length; i += 2)
+			size += label[i + 1] - label[i] + 1;
+		long[] descendants = new long[size - 1];
+		int index = 0;
+		for (int i = 0; i < label.length; i += 2)
+			for (int n = label[i]; n <= label[i + 1]; n++)
+				if (n != node)
+					descendants[index++] = ids_[n];
+		return descendants;
+	}
+
+	/**
+	 * If one node is a (proper) descendant of another.
+	 *
+	 * @param descendantID
+	 *            The ID of the possible descendant.
+	 * @param ancestorID
+	 *            The ID of the possible ancestor.
+	 * @return True if the ancestor can be reached from the descendant by
+	 *         following edges from child to parent.
+	 */
+	public synchronized boolean isReachable(long descendantID, long ancestorID) {
+		if (descendantID == ancestorID)
+			return false;
+		relabelIfDirty();
+		Integer descendant = numbers_.get(descendantID);
+		Integer ancestor = numbers_.get(ancestorID);
+		if (descendant == null || ancestor == null)
+			return false;
+		return contains(labels_.get(ancestor), descendant);
+	}
+
+	/**
+	 * Recomputes every label from the edges. Nodes are renumbered in
+	 * post-order, so each subtree of the depth-first spanning forest is a
+	 * contiguous range and most labels collapse to a single interval.
+	 */
+	public synchronized void relabel() {
+		int numNodes = numbers_.size();
+		int[] order = new int[numNodes];
+		int count = 0;
+		byte[] state = new byte[numNodes];
+		int[] stack = new int[16];
+		int[] edgeIndex = new int[16];
+		boolean cyclic = false;
+
+		// Walk down from the roots first, then any nodes only on cycles
+		for (int pass = 0; pass < 2; pass++) {
+			for (int root = 0; root < numNodes; root++) {
+				if (state[root] != 0
+						|| (pass == 0 && parents_.get(root).length > 0))
+					continue;
+				int depth = 0;
+				stack[0] = root;
+				edgeIndex[0] = 0;
+				state[root] = 1;
+				while (depth >= 0) {
+					int node = stack[depth];
+					int[] children = children_.get(node);
+					if (edgeIndex[depth] < children.length) {
+						int child = children[edgeIndex[depth]++];
+						if (state[child] == 1)
+							cyclic = true;
+						if (state[child] != 0)
+							continue;
+						state[child] = 1;
+						depth++;
+						if (depth == stack.length) {
+							stack = Arrays.copyOf(stack, depth * 2);
+							edgeIndex = Arrays.copyOf(edgeIndex, depth * 2);
+						}
+						stack[depth] = child;
+						edgeIndex[depth] = 0;
+					} else {
+						state[node] = 2;
+						order[count++] = node;
+						depth--;
+					}
+				}
+			}
+		}
+		renumber(order);
+
+		// Label in post-order, so children are labelled before parents
+		for (int node = 0; node < numNodes; node++)
+			labels_.set(node, new int[] { node, node });
+		numIntervals_ = numNodes;
+		for (int node = 0; node < numNodes; node++)
+			setLabel(node, computeLabel(node));
+		// Back edges of cycles leave labels incomplete until a fixpoint
+		boolean changed = cyclic;
+		while (changed) {
+			changed = false;
+			for (int node = 0; node < numNodes; node++) {
+				int[] label = computeLabel(node);
+				if (!Arrays.equals(label, labels_.get(node))) {
+					setLabel(node, label);
+					changed = true;
+				}
+			}
+		}
+		relabelIntervals_ = numIntervals_;
+		dirty_ = false;
+	}
+
+	/**
+	 * Computes the label of a node from the labels of its children, merging
+	 * every interval in a single sort.
+	 */
+	private int[] computeLabel(int node) {
+		int[] children = children_.get(node);
+		int count = 1;
+		for (int child : children)
+			count += labels_.get(child).length / 2;
+		// Pack each interval into a long, which sorts by start then end
+		long[] intervals = new long[count];
+		intervals[0] = ((long) node << 32) | node;
+		int index = 1;
+		for (int child : children) {
+			int[] label = labels_.get(child);
+			for (int i = 0; i < label.length; i += 2)
+				intervals[index++] = ((long) label[i] << 32) | label[i + 1];
+		}
+		Arrays.sort(intervals);
+
+		int[] merged = new int[count * 2];
+		int size = 0;
+		for (long interval : intervals) {
+			int lo = (int) (interval >>> 32);
+			int hi = (int) interval;
+			if (size > 0 && lo <= merged[size - 1] + 1)
+				merged[size - 1] = Math.max(merged[size - 1], hi);
+			else {
+				merged[size++] = lo;
+				merged[size++] = hi;
+			}
+		}
+		return Arrays.copyOf(merged, size);
+	}
+
+	/**
+	 * Marks the labels for relabelling once updates have split them into
+	 * too many intervals.
+	 */
+	private void checkIntervals() {
+		if (numIntervals_ > RELABEL_GROWTH
+				* Math.max(numbers_.size(), relabelIntervals_))
+			dirty_ = true;
+	}
+
+	private void setLabel(int node, int[] label) {
+		numIntervals_ += (label.length - labels_.get(node).length) / 2;
+		labels_.set(node, label);
+	}
+
+	/**
+	 * Starts a search over the nodes, without clearing the marks of earlier
+	 * searches.
+	 *
+	 * @return The stamp marking nodes visited by the search.
+	 */
+	private int startSearch() {
+		if (visited_.length < numbers_.size())
+			visited_ = Arrays.copyOf(visited_,
+					Math.max(numbers_.size(), visited_.length * 2));
+		if (visitStamp_ >= Integer.MAX_VALUE - 2) {
+			Arrays.fill(visited_, 0);
+			visitStamp_ = 0;
+		}
+		visitStamp_ += 2;
+		return visitStamp_;
+	}
+
+	private void relabelIfDirty() {
+		if (dirty_)
+			relabel();
+	}
+
+	/**
+	 * Renumbers every node, so the node at order[i] becomes number i.
+	 */
+	private void renumber(int[] order) {
+		int numNodes = order.length;
+		int[] newNumber = new int[numNodes];
+		for (int i = 0; i < numNodes; i++)
+			newNumber[order[i]] = i;
+
+		long[] ids = new long[ids_.length];
+		ArrayList<int[]> children = new ArrayList<>(numNodes);
+		ArrayList<int[]> parents = new ArrayList<>(numNodes);
+		for (int i = 0; i < numNodes; i++) {
+			int old = order[i];
+			ids[i] = ids_[old];
+			numbers_.put(ids[i], i);
+			children.add(renumber(children_.get(old), newNumber));
+			parents.add(renumber(parents_.get(old), newNumber));
+		}
+		ids_ = ids;
+		children_ = children;
+		parents_ = parents;
+	}
+
+	private static int[] renumber(int[] nodes, int[] newNumber) {
+		int[] renumbered = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++)
+			renumbered[i] = newNumber[nodes[i]];
+		return renumbered;
+	}
+
+	public synchronized int size() {
+		return numbers_.size();
+	}
+
+	/**
+	 * The total number of intervals over all labels.
+	 */
+	public synchronized int getNumIntervals() {
+		relabelIfDirty();
+		return numIntervals_;
+	}
+
+	private int getOrCreateNumber(long id) {
+		Integer number = numbers_.get(id);
+		if (number != null)
+			return number;
+		number = numbers_.size();
+		numbers_.put(id, number);
+		if (number == ids_.length)
+			ids_ = Arrays.copyOf(ids_, number * 2);
+		ids_[number] = id;
+		children_.add(NO_EDGES);
+		parents_.add(NO_EDGES);
+		labels_.add(new int[] { number, number });
+		numIntervals_++;
+		return number;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Reachability index - Nodes: " + numbers_.size();
+	}
+
+	private static int[] append(int[] array, int value) {
+		int[] appended = Arrays.copyOf(array, array.length + 1);
+		appended[array.length] = value;
+		return appended;
+	}
+
+	/**
+	 * If a set of intervals covers every interval of another. Each covered
+	 * interval lies within a single interval of the set, as adjacent
+	 * intervals are always merged.
+	 */
+	static boolean covers(int[] intervals, int[] covered) {
+		for (int i = 0; i < covered.length; i += 2) {
+			int low = 0;
+			int high = intervals.length / 2 - 1;
+			boolean found = false;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (covered[i] < intervals[mid * 2])
+					high = mid - 1;
+				else if (covered[i] > intervals[mid * 2 + 1])
+					low = mid + 1;
+				else {
+					found = covered[i + 1] <= intervals[mid * 2 + 1];
+					break;
+				}
+			}
+			if (!found)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * If a number lies within a set of intervals.
+	 */
+	static boolean contains(int[] intervals, int value) {
+		int low = 0;
+		int high = intervals.length / 2 - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (value < intervals[mid * 2])
+				high = mid - 1;
+			else if (value > intervals[mid * 2 + 1])
+				low = mid + 1;
+			else
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Merges two sets of intervals.
+	 *
+	 * @return The merged intervals, or the first set itself if it already
+	 *         covers the second.
+	 */
+	static int[] union(int[] a, int[] b) {
+		if (b.length == 2)
+			return union(a, b[0], b[1]);
+		int[] merged = new int[a.length + b.length];
+		int size = 0;
+		int i = 0, j = 0;
+		while (i < a.length || j < b.length) {
+			int lo, hi;
+			if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+				lo = a[i];
+				hi = a[i + 1];
+				i += 2;
+			} else {
+				lo = b[j];
+				hi = b[j + 1];
+				j += 2;
+			}
+			// Merge overlapping or adjacent intervals
+			if (size > 0 && lo <= merged[size - 1] + 1)
+				merged[size - 1] = Math.max(merged[size - 1], hi);
+			else {
+				merged[size++] = lo;
+				merged[size++] = hi;
+			}
+		}
+		if (size == a.length) {
+			int same = 0;
+			while (same < size && merged[same] == a[same])
+				same++;
+			if (same == size)
+				return a;
+		}
+		return (size == merged.length) ? merged : Arrays.copyOf(merged, size);
+	}
+
+	/**
+	 * Merges a single interval into a set of intervals, copying the
+	 * untouched intervals either side of it.
+	 *
+	 * @return The merged intervals, or the set itself if it already covers
+	 *         the interval.
+	 */
+	private static int[] union(int[] a, int lo, int hi) {
+		// The first interval ending at or after lo - 1
+		int low = 0;
+		int high = a.length / 2;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (a[mid * 2 + 1] < lo - 1)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		int first = low;
+		if (first < a.length / 2 && a[first * 2] <= lo
+				&& hi <= a[first * 2 + 1])
+			return a;
+
+		// The intervals from first that overlap or adjoin the interval
+		int last = first;
+		while (last < a.length / 2 && a[last * 2] <= hi + 1)
+			last++;
+		if (last > first) {
+			lo = Math.min(lo, a[first * 2]);
+			hi = Math.max(hi, a[last * 2 - 1]);
+		}
+		int[] merged = new int[a.length - (last - first) * 2 + 2];
+		System.arraycopy(a, 0, merged, 0, first * 2);
+		merged[first * 2] = lo;
+		merged[first * 2 + 1] = hi;
+		System.arraycopy(a, last * 2, merged, first * 2 + 2, a.length - last
+				* 2);
+		return merged;
+	}
+
+	private static int[] without(int[] array, int value) {
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == value) {
+				int[] removed = new int[array.length - 1];
+				System.arraycopy(array, 0, removed, 0, i);
+				System.arraycopy(array, i + 1, removed, i, removed.length - i);
+				return removed;
+			}
+		}
+		return array;
+	}
+}
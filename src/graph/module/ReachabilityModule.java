@@ -0,0 +1,180 @@
+package graph.module;
+
+import graph.core.DAGNode;
+import graph.core.Edge;
+import graph.core.Node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The reachability module answers transitive hierarchy queries (is A a
+ * transitive child of B, all ancestors/descendants of X) for binary
+ * predicates such as isa or genls, where an edge (predicate child parent)
+ * leads from the child up to the parent. A predicate is indexed the first
+ * time it is queried, from the related edge index, and then kept up to date
+ * as its edges are added and removed. The execute method takes the
+ * predicate, the node, and true for ancestors or false for descendants.
+ *
+ * @author Sam Sarjant
+ */
+public class ReachabilityModule extends DAGModule<Collection<DAGNode>> {
+	private static final long serialVersionUID = 3182557960386475219L;
+
+	/** The reachability index of each queried predicate, by predicate ID. */
+	private transient Map<Long, ReachabilityIndex> indices_;
+
+	/**
+	 * Gets the index of an edge's predicate, if the edge is a binary (child,
+	 * parent) edge of an indexed predicate.
+	 *
+	 * @return The index of the edge's predicate, or null if the edge is not
+	 *         indexed.
+	 */
+	private ReachabilityIndex getIndexFor(Node[] edgeNodes) {
+		if (indices_ == null || edgeNodes.length != 3
+				|| !(edgeNodes[0] instanceof DAGNode)
+				|| !(edgeNodes[1] instanceof DAGNode)
+				|| !(edgeNodes[2] instanceof DAGNode))
+			return null;
+		return indices_.get(((DAGNode) edgeNodes[0]).getID());
+	}
+
+	@Override
+	public synchronized boolean addEdge(Edge edge) {
+		Node[] edgeNodes = edge.getNodes();
+		ReachabilityIndex index = getIndexFor(edgeNodes);
+		if (index != null)
+			index.addEdge(((DAGNode) edgeNodes[1]).getID(),
+					((DAGNode) edgeNodes[2]).getID());
+		return true;
+	}
+
+	@Override
+	public synchronized void clear() {
+		indices_ = null;
+	}
+
+	@Override
+	public Collection<DAGNode> execute(Object... args)
+			throws IllegalArgumentException {
+		if (args == null || args.length < 2)
+			throw new IllegalArgumentException(
+					"Requires a predicate and a node.");
+		boolean ancestors = (args.length >= 3) ? (boolean) args[2] : true;
+		if (ancestors)
+			return getAncestors((DAGNode) args[0], (DAGNode) args[1]);
+		return getDescendants((DAGNode) args[0], (DAGNode) args[1]);
+	}
+
+	/**
+	 * Finds every node reachable upwards from a node.
+	 *
+	 * @param predicate
+	 *            The hierarchy predicate.
+	 * @param node
+	 *            The node to start from.
+	 * @return The ancestors of the node, nearest first.
+	 */
+	public List<DAGNode> getAncestors(DAGNode predicate, DAGNode node) {
+		return toNodes(getIndex(predicate).getAncestors(node.getID()));
+	}
+
+	/**
+	 * Finds every node that reaches a node upwards.
+	 *
+	 * @param predicate
+	 *            The hierarchy predicate.
+	 * @param node
+	 *            The node to start from.
+	 * @return The descendants of the node.
+	 */
+	public List<DAGNode> getDescendants(DAGNode predicate, DAGNode node) {
+		return toNodes(getIndex(predicate).getDescendants(node.getID()));
+	}
+
+	/**
+	 * Gets the reachability index of a predicate, building it from the
+	 * related edge index if the predicate has not been queried before.
+	 *
+	 * @param predicate
+	 *            The hierarchy predicate.
+	 * @return The index of the predicate's edges.
+	 */
+	public synchronized ReachabilityIndex getIndex(DAGNode predicate) {
+		if (indices_ == null)
+			indices_ = new HashMap<>();
+		ReachabilityIndex index = indices_.get(predicate.getID());
+		if (index != null)
+			return index;
+
+		RelatedEdgeModule relatedModule = (RelatedEdgeModule) dag_
+				.getModule(RelatedEdgeModule.class);
+		if (relatedModule == null)
+			throw new ModuleException(
+					"Related Edge module is required to index reachability.");
+		index = new ReachabilityIndex();
+		for (Edge edge : relatedModule.execute(predicate, 1)) {
+			Node[] edgeNodes = edge.getNodes();
+			if (edgeNodes.length == 3 && edgeNodes[1] instanceof DAGNode
+					&& edgeNodes[2] instanceof DAGNode)
+				index.addEdge(((DAGNode) edgeNodes[1]).getID(),
+						((DAGNode) edgeNodes[2]).getID());
+		}
+		index.relabel();
+		indices_.put(predicate.getID(), index);
+		return index;
+	}
+
+	/**
+	 * If a node can reach another by following edges of a predicate upwards.
+	 *
+	 * @param predicate
+	 *            The hierarchy predicate.
+	 * @param descendant
+	 *            The lower node.
+	 * @param ancestor
+	 *            The upper node.
+	 * @return True if the ancestor is a (proper) transitive parent of the
+	 *         descendant.
+	 */
+	public boolean isReachable(DAGNode predicate, DAGNode descendant,
+			DAGNode ancestor) {
+		return getIndex(predicate).isReachable(descendant.getID(),
+				ancestor.getID());
+	}
+
+	@Override
+	public synchronized boolean removeEdge(Edge edge) {
+		Node[] edgeNodes = edge.getNodes();
+		ReachabilityIndex index = getIndexFor(edgeNodes);
+		if (index == null)
+			return false;
+		index.removeEdge(((DAGNode) edgeNodes[1]).getID(),
+				((DAGNode) edgeNodes[2]).getID());
+		return true;
+	}
+
+	/**
+	 * Converts node IDs to their nodes.
+	 */
+	private List<DAGNode> toNodes(long[] ids) {
+		List<DAGNode> nodes = new ArrayList<>(ids.length);
+		for (long id : ids) {
+			DAGNode node = dag_.getNodeByID(id);
+			if (node != null)
+				nodes.add(node);
+		}
+		return nodes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Reachability: "
+				+ ((indices_ == null) ? 0 : indices_.size())
+				+ " predicates indexed";
+	}
+}
@@ -1,15 +1,21 @@
 package graph.module;
 
+import graph.core.DAGEdge;
 import graph.core.DAGNode;
 import graph.core.Edge;
 import graph.core.Node;
+import graph.core.PrimitiveNode;
+import graph.core.StringNode;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -24,14 +30,20 @@ import util.collection.MultiMap;
 /**
  * The related edge module indexes sets of edges related to a node. The execute
  * method can take both Nodes and ints, representing Nodes present in the edge
- * and the positions of those nodes (if provided).
+ * and the positions of those nodes (if provided). String and primitive
+ * arguments are indexed by value, so they can be looked up like DAG nodes.
  * 
  * @author Sam Sarjant
  */
 // TODO Refactor class to use DAGEdges instead of Edges
 public class RelatedEdgeModule extends DAGModule<Collection<Edge>> {
 	private static final long serialVersionUID = 1588174113071358990L;
+	/** The cost of probing an index, relative to checking an edge argument. */
+	private static final double PROBE_COST = 2;
 	protected ConcurrentMap<Node, MultiMap<Object, Edge>> relatedEdges_ = new ConcurrentHashMap<>();
+	protected volatile EdgeStatistics statistics_ = new EdgeStatistics();
+	/** If string and primitive arguments are present in the index. */
+	protected boolean literalsIndexed_ = true;
 
 	protected final Collection<Edge> filterNonDAGs(Collection<Edge> edges,
 			Object[] args) {
@@ -44,26 +56,35 @@ public class RelatedEdgeModule extends DAGModule<Collection<Edge>> {
 		// Check every edge (EXPENSIVE)
 		Collection<Edge> filtered = new HashSet<>();
 		for (Edge e : edges) {
-			Node[] edgeNodes = e.getNodes();
-			boolean matches = true;
-			for (Pair<Node, Object> nonDAG : nonDAGNodes) {
-				if (nonDAG.objB_ == defaultKey()) {
-					if (!ArrayUtils.contains(edgeNodes, nonDAG.objA_)) {
-						matches = false;
-						break;
-					}
-				} else if (!matchingNonDAG(nonDAG, edgeNodes)) {
-					matches = false;
-					break;
-				}
-			}
-
-			if (matches)
+			if (matchesNonDAGs(e, nonDAGNodes))
 				filtered.add(e);
 		}
 		return filtered;
 	}
 
+	/**
+	 * Checks if an edge contains every non-DAG node (at the required position,
+	 * if given).
+	 * 
+	 * @param edge
+	 *            The edge to check.
+	 * @param nonDAGNodes
+	 *            The non-DAG nodes and their keys.
+	 * @return True if the edge matches every non-DAG node.
+	 */
+	protected final boolean matchesNonDAGs(Edge edge,
+			Collection<Pair<Node, Object>> nonDAGNodes) {
+		Node[] edgeNodes = edge.getNodes();
+		for (Pair<Node, Object> nonDAG : nonDAGNodes) {
+			if (nonDAG.objB_ == defaultKey()) {
+				if (!ArrayUtils.contains(edgeNodes, nonDAG.objA_))
+					return false;
+			} else if (!matchingNonDAG(nonDAG, edgeNodes))
+				return false;
+		}
+		return true;
+	}
+
 	protected final Collection<Pair<Node, Object>> findNonDAGs(Object[] args) {
 		Collection<Pair<Node, Object>> nonDAGNodes = new ArrayList<>();
 		for (int i = 0; i < args.length; i++) {
@@ -82,7 +103,7 @@ public class RelatedEdgeModule extends DAGModule<Collection<Edge>> {
 
 	protected void addIfNonDAG(Node node, Object key,
 			Collection<Pair<Node, Object>> nonDAGNodes) {
-		if (!(node instanceof DAGNode))
+		if (!isIndexed(node))
 			nonDAGNodes.add(new Pair<Node, Object>(node, key));
 	}
 
@@ -122,6 +143,30 @@ public class RelatedEdgeModule extends DAGModule<Collection<Edge>> {
 		return edges;
 	}
 
+	/**
+	 * Gets the edges indexed under a node without copying them. If no key is
+	 * given, the per-position collections are presented as a single union
+	 * view.
+	 * 
+	 * @param node
+	 *            The node to get the edges for.
+	 * @param edgeKey
+	 *            The key the edges are indexed under, or null for all edges.
+	 * @return The live edge collection (or view) for the node.
+	 */
+	protected Collection<Edge> getEdgeView(Node node, Object edgeKey) {
+		MultiMap<Object, Edge> indexedEdges = relatedEdges_.get(node);
+		if (indexedEdges == null)
+			return Collections.emptySet();
+		if (edgeKey != null) {
+			Collection<Edge> edges = indexedEdges.get(edgeKey);
+			return (edges == null) ? Collections.<Edge> emptySet() : edges;
+		}
+		if (indexedEdges.size() == 1)
+			return indexedEdges.valuesCollections().iterator().next();
+		return new EdgeUnion(indexedEdges.valuesCollections());
+	}
+
 	protected List<EdgeCol> locateEdgeCollections(boolean createNew,
 			Object... args) {
 		List<EdgeCol> edgeCols = new ArrayList<>();
@@ -140,7 +185,7 @@ public class RelatedEdgeModule extends DAGModule<Collection<Edge>> {
 				}
 			}
 
-			if (!(n instanceof DAGNode))
+			if (!isIndexed(n))
 				continue;
 
 			Collection<Edge> edgeCol = getEdges(n, index, createNew);
@@ -149,6 +194,20 @@ public class RelatedEdgeModule extends DAGModule<Collection<Edge>> {
 		return edgeCols;
 	}
 
+	/**
+	 * If a node is indexed by this module. DAG nodes are indexed by identity,
+	 * string and primitive nodes by value, so the index key is the single
+	 * shared instance for every edge using that value.
+	 * 
+	 * @param node
+	 *            The node to check.
+	 * @return True if edges are indexed under the node.
+	 */
+	protected boolean isIndexed(Node node) {
+		return node instanceof DAGNode || node instanceof StringNode
+				|| node instanceof PrimitiveNode;
+	}
+
 	protected boolean matchingNonDAG(Pair<Node, Object> nonDAG, Node[] edgeNodes) {
 		return edgeNodes[(Integer) nonDAG.objB_].equals(nonDAG.objA_);
 	}
@@ -157,23 +216,225 @@ public class RelatedEdgeModule extends DAGModule<Collection<Edge>> {
 		return (int) arg - 1;
 	}
 
+	/**
+	 * Plans a query: every DAG node argument is costed from the statistics
+	 * (before any edges are fetched), the most selective additive argument
+	 * drives the query, and every other argument becomes a check applied to
+	 * the driving edges, either as an index probe or as a direct check of the
+	 * edge's arguments, whichever is cheaper.
+	 * 
+	 * @param args
+	 *            The same arguments as given to execute.
+	 * @return The plan for the query, or null if it has no additive DAG node
+	 *         argument to drive it.
+	 */
+	protected QueryPlan planQuery(Object... args) {
+		EdgeStatistics statistics = getStatistics();
+		List<EdgeConstraint> constraints = new ArrayList<>();
+		EdgeConstraint driver = null;
+		for (int i = 0; i < args.length; i++) {
+			Node n = (Node) args[i];
+			boolean additive = true;
+
+			// Get index of node
+			Integer index = null;
+			if (i < args.length - 1 && args[i + 1] instanceof Integer) {
+				i++;
+				index = (int) args[i];
+				if (index < 0) {
+					additive = false;
+					index *= -1;
+				}
+			}
+
+			if (!isIndexed(n))
+				continue;
+
+			int estimate = (index == null) ? statistics.getEdgeCount(n)
+					: getEdgeView(n, index).size();
+			EdgeConstraint constraint = new EdgeConstraint(n, index,
+					additive, estimate);
+			// No edges can match
+			if (additive && estimate == 0)
+				return new QueryPlan(constraint,
+						Collections.<Edge> emptySet(),
+						new ArrayList<EdgeConstraint>(0), null);
+
+			constraints.add(constraint);
+			if (additive
+					&& (driver == null || estimate < driver.estimate_))
+				driver = constraint;
+		}
+		if (driver == null)
+			return null;
+		constraints.remove(driver);
+
+		// Choose between probing the index and checking the edge arguments
+		double arity = Math.max(1, statistics.averageArity());
+		for (EdgeConstraint constraint : constraints) {
+			double probeCost = PROBE_COST;
+			double checkCost = 1;
+			if (constraint.position_ == null) {
+				MultiMap<Object, Edge> indexed = relatedEdges_
+						.get(constraint.node_);
+				probeCost *= (indexed == null) ? 1 : indexed.size();
+				checkCost = arity;
+			}
+			if (probeCost < checkCost)
+				constraint.index_ = getEdgeView(constraint.node_,
+						constraint.position_);
+		}
+
+		// Apply the most selective checks first
+		Collections.sort(constraints, new Comparator<EdgeConstraint>() {
+			@Override
+			public int compare(EdgeConstraint o1, EdgeConstraint o2) {
+				if (o1.additive_ != o2.additive_)
+					return (o1.additive_) ? -1 : 1;
+				if (o1.additive_)
+					return Integer.compare(o1.estimate_, o2.estimate_);
+				return Integer.compare(o2.estimate_, o1.estimate_);
+			}
+		});
+
+		Collection<Edge> driverEdges = getEdgeView(driver.node_,
+				driver.position_);
+		return new QueryPlan(driver, driverEdges, constraints,
+				findNonDAGs(args));
+	}
+
 	@Override
 	public boolean addEdge(Edge edge) {
 		Collection<EdgeCol> edgeCollections = locateEdgeCollections(true,
 				asIndexed(edge.getNodes()));
+		boolean added = false;
 		for (EdgeCol edgeCol : edgeCollections)
-			edgeCol.add(edge);
+			added |= edgeCol.add(edge);
+		if (added)
+			getStatistics().addEdge(edge);
 		return true;
 	}
 
 	@Override
 	public void clear() {
 		relatedEdges_.clear();
+		getStatistics().clear();
+	}
+
+	@Override
+	public void initialisationComplete(Collection<DAGNode> nodes,
+			Collection<DAGEdge> edges) {
+		if (literalsIndexed_)
+			return;
+
+		// Index loaded before literal arguments were indexed
+		for (DAGEdge edge : edges) {
+			Node[] edgeNodes = edge.getNodes();
+			for (int i = 0; i < edgeNodes.length; i++)
+				if (!(edgeNodes[i] instanceof DAGNode)
+						&& isIndexed(edgeNodes[i]))
+					getEdges(edgeNodes[i], i + 1, true).add(edge);
+		}
+		statistics_ = null;
+		literalsIndexed_ = true;
 	}
 
 	@Override
 	public Collection<Edge> execute(Object... args)
 			throws IllegalArgumentException {
+		QueryPlan plan = planQuery(args);
+		if (plan == null)
+			return intersectEdgeCollections(args);
+
+		if (plan.isDirect()) {
+			// Edges of every position are a live view, so copy them
+			if (plan.driver_.position_ == null)
+				return new ArrayList<>(plan.driverEdges_);
+			return plan.driverEdges_;
+		}
+
+		Collection<Edge> edges = new ArrayList<>();
+		for (Edge edge : plan.driverEdges_)
+			if (plan.matches(edge))
+				edges.add(edge);
+		return edges;
+	}
+
+	/**
+	 * Counts the edges {@link #execute(Object...)} would return for the same
+	 * arguments, without building the result collection. A single node is
+	 * answered from the statistics or the size of its index, multiple nodes
+	 * only check the edges of the most selective node.
+	 * 
+	 * @param args
+	 *            The same arguments as given to execute.
+	 * @return The number of matching edges.
+	 */
+	public int count(Object... args) {
+		QueryPlan plan = planQuery(args);
+		if (plan == null)
+			return intersectEdgeCollections(args).size();
+		if (plan.isDirect())
+			return (plan.driverEdges_.isEmpty()) ? 0 : plan.driver_.estimate_;
+
+		int count = 0;
+		for (Edge edge : plan.driverEdges_)
+			if (plan.matches(edge))
+				count++;
+		return count;
+	}
+
+	/**
+	 * Estimates the number of edges {@link #execute(Object...)} would return
+	 * for the same arguments, from the statistics alone (without fetching
+	 * any edges). The estimate is the size of the most selective argument's
+	 * edges, so it is an upper bound on the result.
+	 * 
+	 * @param args
+	 *            The same arguments as given to execute.
+	 * @return The estimated number of matching edges, or
+	 *         {@link Integer#MAX_VALUE} if no argument is indexed.
+	 */
+	public int estimate(Object... args) {
+		QueryPlan plan = planQuery(args);
+		if (plan == null)
+			return Integer.MAX_VALUE;
+		if (plan.driverEdges_.isEmpty())
+			return 0;
+		return plan.driver_.estimate_;
+	}
+
+	/**
+	 * Gets the cardinality statistics for the index, rebuilding them if they
+	 * were not loaded with the module.
+	 * 
+	 * @return The index statistics.
+	 */
+	public EdgeStatistics getStatistics() {
+		// Only the rebuild is locked, as every edge change reads the statistics
+		EdgeStatistics statistics = statistics_;
+		if (statistics == null) {
+			synchronized (this) {
+				statistics = statistics_;
+				if (statistics == null) {
+					statistics = new EdgeStatistics();
+					statistics.rebuild(relatedEdges_);
+					statistics_ = statistics;
+				}
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Intersects (and subtracts) the indexed edge collections of every DAG
+	 * node argument, smallest first, then filters the non-DAG arguments.
+	 * 
+	 * @param args
+	 *            The same arguments as given to execute.
+	 * @return The matching edges.
+	 */
+	protected Collection<Edge> intersectEdgeCollections(Object... args) {
 		List<EdgeCol> edgeCollections = locateEdgeCollections(false, args);
 		Collections.sort(edgeCollections, new SmallestFirstComparator());
 		Collection<Edge> edges = null;
@@ -208,12 +469,104 @@ public class RelatedEdgeModule extends DAGModule<Collection<Edge>> {
 
 		for (EdgeCol col : indexedEdges)
 			result |= col.remove(edge);
+		if (result)
+			getStatistics().removeEdge(edge);
 		return result;
 	}
 
 	@Override
 	public String toString() {
-		return "Related Edges: " + relatedEdges_.size();
+		return "Related Edges: " + relatedEdges_.size() + " ("
+				+ getStatistics() + ")";
+	}
+
+	/**
+	 * A single node argument of a query, with its estimated number of edges
+	 * and, if the planner chose to probe it, the index to probe.
+	 */
+	protected class EdgeConstraint {
+		public boolean additive_;
+
+		public int estimate_;
+
+		public Collection<Edge> index_;
+
+		public Node node_;
+
+		public Integer position_;
+
+		public EdgeConstraint(Node node, Integer position, boolean additive,
+				int estimate) {
+			node_ = node;
+			position_ = position;
+			additive_ = additive;
+			estimate_ = estimate;
+		}
+
+		public boolean matches(Edge edge) {
+			if (index_ != null)
+				return index_.contains(edge) == additive_;
+
+			Node[] edgeNodes = edge.getNodes();
+			boolean contained;
+			if (position_ == null)
+				contained = ArrayUtils.contains(edgeNodes, node_);
+			else
+				contained = position_ <= edgeNodes.length
+						&& edgeNodes[position_ - 1].equals(node_);
+			return contained == additive_;
+		}
+
+		@Override
+		public String toString() {
+			return node_ + ((position_ == null) ? "" : " (" + position_ + ")")
+					+ ((additive_) ? "" : " NOT") + " ~" + estimate_
+					+ ((index_ == null) ? " check" : " probe");
+		}
+	}
+
+	/**
+	 * The plan for a query: the edges of the driving argument, and the checks
+	 * every driving edge must pass.
+	 */
+	protected class QueryPlan {
+		public List<EdgeConstraint> checks_;
+
+		public EdgeConstraint driver_;
+
+		public Collection<Edge> driverEdges_;
+
+		public Collection<Pair<Node, Object>> nonDAGNodes_;
+
+		public QueryPlan(EdgeConstraint driver, Collection<Edge> driverEdges,
+				List<EdgeConstraint> checks,
+				Collection<Pair<Node, Object>> nonDAGNodes) {
+			driver_ = driver;
+			driverEdges_ = driverEdges;
+			checks_ = checks;
+			nonDAGNodes_ = nonDAGNodes;
+		}
+
+		/**
+		 * If the driving edges are the result, without any checks.
+		 */
+		public boolean isDirect() {
+			return driverEdges_.isEmpty()
+					|| (checks_.isEmpty() && (nonDAGNodes_ == null || nonDAGNodes_
+							.isEmpty()));
+		}
+
+		public boolean matches(Edge edge) {
+			for (EdgeConstraint check : checks_)
+				if (!check.matches(edge))
+					return false;
+			return nonDAGNodes_ == null || matchesNonDAGs(edge, nonDAGNodes_);
+		}
+
+		@Override
+		public String toString() {
+			return "Drive " + driver_ + ", check " + checks_;
+		}
 	}
 
 	protected class EdgeCol {
@@ -244,6 +597,102 @@ public class RelatedEdgeModule extends DAGModule<Collection<Edge>> {
 		}
 	}
 
+	/**
+	 * A read-only union of a node's per-position edge collections. The
+	 * largest collection is read first, so only edges of the smaller
+	 * collections need to be checked for duplicates.
+	 */
+	protected static class EdgeUnion extends AbstractCollection<Edge> {
+		private List<Collection<Edge>> edgeCols_;
+
+		private int size_ = -1;
+
+		public EdgeUnion(Collection<Collection<Edge>> edgeCols) {
+			edgeCols_ = new ArrayList<>(edgeCols);
+			Collections.sort(edgeCols_, new Comparator<Collection<Edge>>() {
+				@Override
+				public int compare(Collection<Edge> o1, Collection<Edge> o2) {
+					return Integer.compare(o2.size(), o1.size());
+				}
+			});
+		}
+
+		/**
+		 * If an edge from a collection was already reported by an earlier
+		 * collection.
+		 */
+		private boolean isDuplicate(Edge edge, int colIndex) {
+			for (int i = 0; i < colIndex; i++)
+				if (edgeCols_.get(i).contains(edge))
+					return true;
+			return false;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			for (Collection<Edge> edgeCol : edgeCols_)
+				if (edgeCol.contains(o))
+					return true;
+			return false;
+		}
+
+		@Override
+		public Iterator<Edge> iterator() {
+			return new Iterator<Edge>() {
+				private int colIndex_ = -1;
+				private Iterator<Edge> current_ = Collections
+						.<Edge> emptySet().iterator();
+				private Edge next_ = advance();
+
+				private Edge advance() {
+					while (true) {
+						while (current_.hasNext()) {
+							Edge edge = current_.next();
+							if (!isDuplicate(edge, colIndex_))
+								return edge;
+						}
+						if (++colIndex_ >= edgeCols_.size())
+							return null;
+						current_ = edgeCols_.get(colIndex_).iterator();
+					}
+				}
+
+				@Override
+				public boolean hasNext() {
+					return next_ != null;
+				}
+
+				@Override
+				public Edge next() {
+					if (next_ == null)
+						throw new NoSuchElementException();
+					Edge edge = next_;
+					next_ = advance();
+					return edge;
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			if (size_ == -1) {
+				int size = edgeCols_.get(0).size();
+				for (int i = 1; i < edgeCols_.size(); i++) {
+					for (Edge edge : edgeCols_.get(i))
+						if (!isDuplicate(edge, i))
+							size++;
+				}
+				size_ = size;
+			}
+			return size_;
+		}
+	}
+
 	protected class SmallestFirstComparator implements Comparator<EdgeCol> {
 		@Override
 		public int compare(EdgeCol o1, EdgeCol o2) {
@@ -0,0 +1,194 @@
+package graph.module;
+
+import graph.core.DAGNode;
+import graph.core.Edge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The snapshot module builds and caches immutable CSR adjacency snapshots of
+ * the DAG for whole-graph analytics, so several algorithms can share one
+ * snapshot. A cached snapshot is dropped as soon as an edge it includes is
+ * added or removed, and rebuilt on the next request (a snapshot is only
+ * cached if no edge it includes changed while it was built). The execute
+ * method
+ * takes the (1-indexed) source and target argument positions, then any
+ * number of predicates (none for every edge), and returns a directed,
+ * unlabelled snapshot.
+ *
+ * @author Sam Sarjant
+ */
+public class SnapshotModule extends DAGModule<CSRSnapshot> {
+	private static final long serialVersionUID = 2816542287410327758L;
+
+	/** The snapshots being built (guarded by this). */
+	private transient Set<Build> builds_;
+
+	/** The cached snapshots, by their arguments. */
+	private transient ConcurrentMap<String, CSRSnapshot> snapshots_;
+
+	private synchronized ConcurrentMap<String, CSRSnapshot> getCache() {
+		if (snapshots_ == null) {
+			snapshots_ = new ConcurrentHashMap<>();
+			builds_ = new HashSet<>();
+		}
+		return snapshots_;
+	}
+
+	/**
+	 * Drops every cached snapshot that includes an edge, and notes the edge
+	 * change on every build that would include it.
+	 */
+	private synchronized void invalidate(Edge edge) {
+		ConcurrentMap<String, CSRSnapshot> cache = getCache();
+		for (Build build : builds_)
+			if (CSRSnapshot.includes(edge, build.predicateIDs_,
+					build.fromPosition_, build.toPosition_))
+				build.changed_ = true;
+		for (CSRSnapshot snapshot : cache.values())
+			if (snapshot.includes(edge))
+				cache.values().remove(snapshot);
+	}
+
+	@Override
+	public boolean addEdge(Edge edge) {
+		invalidate(edge);
+		return true;
+	}
+
+	@Override
+	public synchronized void clear() {
+		getCache().clear();
+		for (Build build : builds_)
+			build.changed_ = true;
+	}
+
+	@Override
+	public CSRSnapshot execute(Object... args) throws IllegalArgumentException {
+		if (args == null || args.length < 2)
+			throw new IllegalArgumentException(
+					"Requires source and target argument positions.");
+		List<DAGNode> predicates = new ArrayList<>();
+		for (int i = 2; i < args.length; i++)
+			predicates.add((DAGNode) args[i]);
+		return getSnapshot(predicates, (Integer) args[0], (Integer) args[1],
+				false, false);
+	}
+
+	/**
+	 * Gets a snapshot of the DAG, building it (in parallel) if no current
+	 * snapshot with the same arguments is cached.
+	 *
+	 * @param predicates
+	 *            The predicates of the edges to include, or empty to include
+	 *            every edge.
+	 * @param fromPosition
+	 *            The (1-indexed) argument position of each arc's source.
+	 * @param toPosition
+	 *            The (1-indexed) argument position of each arc's target.
+	 * @param symmetric
+	 *            If each edge also produces the reverse arc.
+	 * @param labelled
+	 *            If the predicate and edge ID of each arc are kept.
+	 * @return The snapshot.
+	 */
+	public CSRSnapshot getSnapshot(Collection<DAGNode> predicates,
+			int fromPosition, int toPosition, boolean symmetric,
+			boolean labelled) {
+		long[] predicateIDs = null;
+		if (!predicates.isEmpty()) {
+			predicateIDs = new long[predicates.size()];
+			int i = 0;
+			for (DAGNode predicate : predicates)
+				predicateIDs[i++] = predicate.getID();
+			Arrays.sort(predicateIDs);
+		}
+		String key = Arrays.toString(predicateIDs) + fromPosition + ","
+				+ toPosition + "," + symmetric + "," + labelled;
+		ConcurrentMap<String, CSRSnapshot> cache = getCache();
+		CSRSnapshot snapshot = cache.get(key);
+		if (snapshot != null)
+			return snapshot;
+
+		// Read the edges, from the related edge index if possible
+		Build build = new Build(predicateIDs, fromPosition, toPosition);
+		synchronized (this) {
+			builds_.add(build);
+		}
+		RelatedEdgeModule relatedModule = (RelatedEdgeModule) dag_
+				.getModule(RelatedEdgeModule.class);
+		Edge[] edges;
+		long epoch;
+		synchronized (dag_) {
+			epoch = dag_.getEpoch();
+			if (predicateIDs == null || relatedModule == null)
+				edges = dag_.getEdges();
+			else {
+				List<Edge> predicateEdges = new ArrayList<>();
+				for (DAGNode predicate : new HashSet<>(predicates))
+					predicateEdges.addAll(relatedModule.execute(predicate, 1));
+				edges = predicateEdges.toArray(new Edge[predicateEdges.size()]);
+			}
+		}
+
+		snapshot = new CSRSnapshot(edges, predicateIDs, fromPosition,
+				toPosition, symmetric, labelled, epoch);
+		// Only cache if no included edge changed since the edges were read
+		synchronized (this) {
+			builds_.remove(build);
+			if (!build.changed_)
+				cache.put(key, snapshot);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * If a snapshot is still cached, so no edge it includes has changed
+	 * since it was built.
+	 *
+	 * @param snapshot
+	 *            The snapshot.
+	 * @return True if the snapshot is current.
+	 */
+	public boolean isCurrent(CSRSnapshot snapshot) {
+		return getCache().containsValue(snapshot);
+	}
+
+	@Override
+	public boolean removeEdge(Edge edge) {
+		invalidate(edge);
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "Snapshot module: " + getCache().size() + " snapshots cached";
+	}
+
+	/**
+	 * A snapshot being built, noting if an edge it would include changed.
+	 */
+	private static class Build {
+		/** If an edge it includes has changed (guarded by the module). */
+		private boolean changed_;
+
+		private final int fromPosition_;
+
+		private final long[] predicateIDs_;
+
+		private final int toPosition_;
+
+		public Build(long[] predicateIDs, int fromPosition, int toPosition) {
+			predicateIDs_ = predicateIDs;
+			fromPosition_ = fromPosition;
+			toPosition_ = toPosition;
+		}
+	}
+}
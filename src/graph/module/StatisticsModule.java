@@ -0,0 +1,274 @@
+package graph.module;
+
+import graph.core.DAGEdge;
+import graph.core.DAGNode;
+import graph.core.Edge;
+import graph.core.Node;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The statistics module keeps counters describing the shape of the DAG as
+ * edges are added and removed: a histogram of edge arities, a histogram of
+ * node degrees (the number of edges each DAG node is an argument of, in
+ * power-of-two buckets), and the number of edges of each predicate. Degrees
+ * only count the arguments after the predicate, as predicates are counted
+ * separately (so hubs are not simply the most frequent predicates). Each
+ * edge costs a few atomic increments, so the write path is barely affected.
+ * The most frequent predicates and highest degree nodes are found from the
+ * counters when asked for. The execute method takes a node and returns its
+ * degree.
+ *
+ * @author Sam Sarjant
+ */
+public class StatisticsModule extends DAGModule<Integer> {
+	/** The arity of the last arity bucket, which includes all larger arities. */
+	public static final int MAX_ARITY = 16;
+
+	/** The number of degree buckets (bucket i holds degrees 2^i to 2^(i+1)-1). */
+	public static final int NUM_DEGREE_BUCKETS = 32;
+
+	private static final long serialVersionUID = 6517052796930433447L;
+
+	/** The number of edges of each arity. */
+	private AtomicLongArray arities_ = new AtomicLongArray(MAX_ARITY + 1);
+
+	/** The number of nodes in each degree bucket. */
+	private AtomicLongArray degreeBuckets_ = new AtomicLongArray(
+			NUM_DEGREE_BUCKETS);
+
+	/** The number of edges each DAG node is a (non-predicate) argument of. */
+	private ConcurrentMap<DAGNode, AtomicInteger> degrees_ = new ConcurrentHashMap<>();
+
+	/** The number of edges of each predicate. */
+	private ConcurrentMap<DAGNode, AtomicInteger> predicates_ = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the degree bucket of a (positive) degree.
+	 */
+	private static int bucket(int degree) {
+		return 31 - Integer.numberOfLeadingZeros(degree);
+	}
+
+	/**
+	 * If the node at an index was not seen earlier in the edge's arguments.
+	 */
+	private static boolean isFirstOccurrence(Node[] nodes, int index) {
+		for (int i = 1; i < index; i++)
+			if (nodes[i].equals(nodes[index]))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Changes the count of a key, removing it once it reaches 0.
+	 *
+	 * @return The new count, or -1 if a missing key was decremented.
+	 */
+	private static int adjust(ConcurrentMap<DAGNode, AtomicInteger> counts,
+			DAGNode key, int delta) {
+		AtomicInteger count = counts.get(key);
+		if (count == null) {
+			if (delta < 0)
+				return -1;
+			counts.putIfAbsent(key, new AtomicInteger());
+			count = counts.get(key);
+		}
+		int value = count.addAndGet(delta);
+		if (value <= 0)
+			counts.remove(key, count);
+		return value;
+	}
+
+	/**
+	 * Gets the keys with the highest counts (ties broken by ID).
+	 */
+	private static List<DAGNode> top(
+			ConcurrentMap<DAGNode, AtomicInteger> counts, int k) {
+		if (k <= 0)
+			return new ArrayList<>(0);
+		Comparator<Map.Entry<DAGNode, Integer>> comparator;
+		comparator = new Comparator<Map.Entry<DAGNode, Integer>>() {
+			@Override
+			public int compare(Map.Entry<DAGNode, Integer> o1,
+					Map.Entry<DAGNode, Integer> o2) {
+				int result = Integer.compare(o1.getValue(), o2.getValue());
+				if (result != 0)
+					return result;
+				return o2.getKey().compareTo(o1.getKey());
+			}
+		};
+		// Keep the k largest in a min-heap, reading each count once
+		PriorityQueue<Map.Entry<DAGNode, Integer>> heap = new PriorityQueue<>(
+				k, comparator);
+		for (Map.Entry<DAGNode, AtomicInteger> entry : counts.entrySet()) {
+			Map.Entry<DAGNode, Integer> candidate = new SimpleImmutableEntry<>(
+					entry.getKey(), entry.getValue().get());
+			if (heap.size() < k)
+				heap.add(candidate);
+			else if (comparator.compare(candidate, heap.peek()) > 0) {
+				heap.poll();
+				heap.add(candidate);
+			}
+		}
+		List<DAGNode> result = new ArrayList<>(heap.size());
+		while (!heap.isEmpty())
+			result.add(heap.poll().getKey());
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * Records an edge being added (1) or removed (-1).
+	 */
+	private void record(Edge edge, int delta) {
+		Node[] nodes = edge.getNodes();
+		arities_.addAndGet(Math.min(nodes.length, MAX_ARITY), delta);
+		if (nodes.length > 0 && nodes[0] instanceof DAGNode)
+			adjust(predicates_, (DAGNode) nodes[0], delta);
+		for (int i = 1; i < nodes.length; i++) {
+			if (!(nodes[i] instanceof DAGNode) || !isFirstOccurrence(nodes, i))
+				continue;
+			int degree = adjust(degrees_, (DAGNode) nodes[i], delta);
+			if (degree == -1)
+				continue;
+			int oldDegree = degree - delta;
+			if (oldDegree > 0)
+				degreeBuckets_.decrementAndGet(bucket(oldDegree));
+			if (degree > 0)
+				degreeBuckets_.incrementAndGet(bucket(degree));
+		}
+	}
+
+	@Override
+	public boolean addEdge(Edge edge) {
+		record(edge, 1);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < arities_.length(); i++)
+			arities_.set(i, 0);
+		for (int i = 0; i < degreeBuckets_.length(); i++)
+			degreeBuckets_.set(i, 0);
+		degrees_.clear();
+		predicates_.clear();
+	}
+
+	@Override
+	public Integer execute(Object... args) throws IllegalArgumentException {
+		if (args == null || args.length < 1)
+			throw new IllegalArgumentException("Requires a node.");
+		return getDegree((DAGNode) args[0]);
+	}
+
+	/**
+	 * Gets the number of edges of each arity.
+	 *
+	 * @return The edge counts, indexed by arity (the last including all
+	 *         larger arities).
+	 */
+	public long[] getArityHistogram() {
+		long[] histogram = new long[arities_.length()];
+		for (int i = 0; i < histogram.length; i++)
+			histogram[i] = arities_.get(i);
+		return histogram;
+	}
+
+	/**
+	 * Gets the number of edges a node is an argument of.
+	 *
+	 * @param node
+	 *            The node.
+	 * @return The degree of the node.
+	 */
+	public int getDegree(DAGNode node) {
+		AtomicInteger degree = degrees_.get(node);
+		return (degree == null) ? 0 : degree.get();
+	}
+
+	/**
+	 * Gets the number of nodes in each degree bucket.
+	 *
+	 * @return The node counts, where index i counts the nodes with degree
+	 *         from 2^i to 2^(i+1) - 1.
+	 */
+	public long[] getDegreeHistogram() {
+		long[] histogram = new long[degreeBuckets_.length()];
+		for (int i = 0; i < histogram.length; i++)
+			histogram[i] = degreeBuckets_.get(i);
+		return histogram;
+	}
+
+	/**
+	 * Gets the nodes with the highest degrees.
+	 *
+	 * @param k
+	 *            The number of nodes.
+	 * @return Up to k nodes, highest degree first.
+	 */
+	public List<DAGNode> getHubs(int k) {
+		return top(degrees_, k);
+	}
+
+	public int getNumPredicates() {
+		return predicates_.size();
+	}
+
+	/**
+	 * Gets the number of edges of a predicate.
+	 *
+	 * @param predicate
+	 *            The predicate.
+	 * @return The number of edges with the predicate as first argument.
+	 */
+	public int getPredicateCount(DAGNode predicate) {
+		AtomicInteger count = predicates_.get(predicate);
+		return (count == null) ? 0 : count.get();
+	}
+
+	/**
+	 * Gets the predicates of the most edges.
+	 *
+	 * @param k
+	 *            The number of predicates.
+	 * @return Up to k predicates, most frequent first.
+	 */
+	public List<DAGNode> getTopPredicates(int k) {
+		return top(predicates_, k);
+	}
+
+	@Override
+	public void initialisationComplete(Collection<DAGNode> nodes,
+			Collection<DAGEdge> edges) {
+		// Count existing edges if the module is new
+		if (!degrees_.isEmpty())
+			return;
+		for (DAGEdge edge : edges)
+			record(edge, 1);
+	}
+
+	@Override
+	public boolean removeEdge(Edge edge) {
+		record(edge, -1);
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "Statistics: " + degrees_.size() + " nodes with edges, "
+				+ predicates_.size() + " predicates";
+	}
+}
@@ -0,0 +1,352 @@
+package graph.module;
+
+import graph.core.DAGEdge;
+import graph.core.DAGNode;
+import graph.core.Edge;
+import graph.core.StringNode;
+import graph.edge.properties.Alias;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The substring alias module indexes every node name and alias by its
+ * (case-folded) trigrams, so aliases containing a string anywhere (not just
+ * as a prefix) can be found without scanning every alias. A query intersects
+ * the posting lists of its trigrams, smallest first, and verifies each
+ * candidate alias actually contains the query. The execute method takes the
+ * text, and optionally case sensitivity and a result limit.
+ *
+ * @author Sam Sarjant
+ */
+public class SubstringAliasModule extends DAGModule<Collection<DAGNode>> {
+	private static final long serialVersionUID = -2931548046720939562L;
+
+	/** The default maximum number of nodes returned. */
+	public static final int DEFAULT_LIMIT = 1000;
+
+	/** The length of the indexed n-grams. */
+	private static final int N = 3;
+
+	/** The distinct aliases, by entry index (null if freed). */
+	private ArrayList<String> aliases_ = new ArrayList<>();
+
+	/** The entry index of each alias. */
+	private Map<String, Integer> entries_ = new HashMap<>();
+
+	/** Freed entry indices available for reuse. */
+	private Postings freeEntries_ = new Postings();
+
+	/** The IDs of the nodes with each alias, by entry index. */
+	private ArrayList<long[]> nodeIDs_ = new ArrayList<>();
+
+	/** The entries containing each trigram. */
+	private Map<Long, Postings> postings_ = new HashMap<>();
+
+	/**
+	 * Packs the trigram of a string at an index into a key.
+	 */
+	private static long trigram(String str, int index) {
+		return ((long) str.charAt(index) << 32)
+				| ((long) str.charAt(index + 1) << 16) | str.charAt(index + 2);
+	}
+
+	/**
+	 * If an alias contains the query text.
+	 */
+	private static boolean verify(String alias, String text,
+			boolean caseSensitive) {
+		if (caseSensitive)
+			return alias.contains(text);
+		return RadixTrie.fold(alias).contains(text);
+	}
+
+	/**
+	 * Adds a node ID to an alias, indexing the alias if it is new.
+	 */
+	private synchronized boolean addAlias(String alias, long id) {
+		alias = NodeAliasModule.processAlias(alias);
+		Integer entry = entries_.get(alias);
+		if (entry == null) {
+			if (freeEntries_.size() > 0) {
+				entry = freeEntries_.get(freeEntries_.size() - 1);
+				freeEntries_.remove(entry);
+				aliases_.set(entry, alias);
+				nodeIDs_.set(entry, new long[] { id });
+			} else {
+				entry = aliases_.size();
+				aliases_.add(alias);
+				nodeIDs_.add(new long[] { id });
+			}
+			entries_.put(alias, entry);
+
+			String folded = RadixTrie.fold(alias);
+			for (int i = 0; i + N <= folded.length(); i++) {
+				Long gram = trigram(folded, i);
+				Postings entryPostings = postings_.get(gram);
+				if (entryPostings == null) {
+					entryPostings = new Postings();
+					postings_.put(gram, entryPostings);
+				}
+				entryPostings.add(entry);
+			}
+			return true;
+		}
+
+		long[] ids = nodeIDs_.get(entry);
+		for (long other : ids)
+			if (other == id)
+				return false;
+		ids = Arrays.copyOf(ids, ids.length + 1);
+		ids[ids.length - 1] = id;
+		nodeIDs_.set(entry, ids);
+		return true;
+	}
+
+	/**
+	 * Removes a node ID from an alias, unindexing the alias if no nodes
+	 * remain.
+	 */
+	private synchronized boolean removeAlias(String alias, long id) {
+		alias = NodeAliasModule.processAlias(alias);
+		Integer entry = entries_.get(alias);
+		if (entry == null)
+			return false;
+		long[] ids = nodeIDs_.get(entry);
+		int index = -1;
+		for (int i = 0; i < ids.length; i++)
+			if (ids[i] == id)
+				index = i;
+		if (index == -1)
+			return false;
+		if (ids.length > 1) {
+			long[] remaining = new long[ids.length - 1];
+			System.arraycopy(ids, 0, remaining, 0, index);
+			System.arraycopy(ids, index + 1, remaining, index,
+					remaining.length - index);
+			nodeIDs_.set(entry, remaining);
+			return true;
+		}
+
+		// Unindex the alias
+		String folded = RadixTrie.fold(alias);
+		for (int i = 0; i + N <= folded.length(); i++) {
+			Long gram = trigram(folded, i);
+			Postings entryPostings = postings_.get(gram);
+			if (entryPostings != null) {
+				entryPostings.remove(entry);
+				if (entryPostings.size() == 0)
+					postings_.remove(gram);
+			}
+		}
+		entries_.remove(alias);
+		aliases_.set(entry, null);
+		nodeIDs_.set(entry, null);
+		freeEntries_.add(entry);
+		return true;
+	}
+
+	@Override
+	public boolean addEdge(Edge edge) {
+		if (edge instanceof Alias) {
+			Alias aliasEdge = (Alias) edge;
+			for (StringNode alias : aliasEdge.getAliases())
+				addAlias(alias.getName(), aliasEdge.getNode().getID());
+		}
+		return true;
+	}
+
+	@Override
+	public boolean addNode(DAGNode node) {
+		if (!node.isAnonymous())
+			addAlias(node.getName(), node.getID());
+		return true;
+	}
+
+	@Override
+	public synchronized void clear() {
+		aliases_.clear();
+		entries_.clear();
+		freeEntries_ = new Postings();
+		nodeIDs_.clear();
+		postings_.clear();
+	}
+
+	@Override
+	public Collection<DAGNode> execute(Object... args)
+			throws IllegalArgumentException {
+		if (args == null || args.length == 0)
+			throw new IllegalArgumentException(
+					"Requires at least 1 string argument.");
+		String text = (String) args[0];
+		boolean caseSensitive = (args.length >= 2) ? (boolean) args[1] : true;
+		int limit = (args.length >= 3) ? (int) args[2] : DEFAULT_LIMIT;
+		return findContaining(text, caseSensitive, limit);
+	}
+
+	/**
+	 * Finds the nodes with a name or alias containing the given text.
+	 *
+	 * @param text
+	 *            The text to find.
+	 * @param caseSensitive
+	 *            If the text is case sensitive.
+	 * @param limit
+	 *            The maximum number of nodes to return.
+	 * @return The nodes with a matching alias, in no particular order.
+	 */
+	public synchronized List<DAGNode> findContaining(String text,
+			boolean caseSensitive, int limit) {
+		text = NodeAliasModule.processAlias(text);
+		String folded = RadixTrie.fold(text);
+		String verifyText = (caseSensitive) ? text : folded;
+		Collection<DAGNode> nodes = new LinkedHashSet<>();
+
+		if (folded.length() < N) {
+			// Too short to have a trigram: check every alias
+			for (int entry = 0; entry < aliases_.size()
+					&& nodes.size() < limit; entry++) {
+				String alias = aliases_.get(entry);
+				if (alias != null && verify(alias, verifyText, caseSensitive))
+					addNodes(entry, nodes, limit);
+			}
+			return new ArrayList<>(nodes);
+		}
+
+		// Gather the posting lists, smallest first
+		List<Postings> lists = new ArrayList<>();
+		for (int i = 0; i + N <= folded.length(); i++) {
+			Postings entryPostings = postings_.get(trigram(folded, i));
+			if (entryPostings == null)
+				return new ArrayList<>(0);
+			lists.add(entryPostings);
+		}
+		Postings smallest = lists.get(0);
+		for (Postings list : lists)
+			if (list.size() < smallest.size())
+				smallest = list;
+
+		for (int i = 0; i < smallest.size() && nodes.size() < limit; i++) {
+			int entry = smallest.get(i);
+			boolean candidate = true;
+			for (Postings list : lists)
+				if (list != smallest && !list.contains(entry)) {
+					candidate = false;
+					break;
+				}
+			if (candidate
+					&& verify(aliases_.get(entry), verifyText, caseSensitive))
+				addNodes(entry, nodes, limit);
+		}
+		return new ArrayList<>(nodes);
+	}
+
+	/**
+	 * Adds the nodes of an alias entry to the results, up to the limit.
+	 */
+	private void addNodes(int entry, Collection<DAGNode> nodes, int limit) {
+		for (long id : nodeIDs_.get(entry)) {
+			if (nodes.size() >= limit)
+				return;
+			DAGNode node = dag_.getNodeByID(id);
+			if (node != null)
+				nodes.add(node);
+		}
+	}
+
+	@Override
+	public void initialisationComplete(Collection<DAGNode> nodes,
+			Collection<DAGEdge> edges) {
+		if (!entries_.isEmpty() || nodes.isEmpty())
+			return;
+		System.out.print("Building substring alias index... ");
+		for (DAGNode node : nodes)
+			addNode(node);
+		for (DAGEdge edge : edges)
+			addEdge(edge);
+		System.out.println("Done!");
+	}
+
+	@Override
+	public boolean removeEdge(Edge edge) {
+		if (edge instanceof Alias) {
+			Alias aliasEdge = (Alias) edge;
+			boolean changed = false;
+			for (StringNode alias : aliasEdge.getAliases())
+				changed |= removeAlias(alias.getName(), aliasEdge.getNode()
+						.getID());
+			return changed;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeNode(DAGNode node) {
+		if (!node.isAnonymous())
+			return removeAlias(node.getName(), node.getID());
+		return true;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Substring aliases: " + entries_.size() + " aliases, "
+				+ postings_.size() + " trigrams";
+	}
+
+	/**
+	 * A sorted set of entry indices.
+	 */
+	private static class Postings implements Serializable {
+		private static final long serialVersionUID = 5407417745693327751L;
+
+		private int[] entries_ = new int[2];
+
+		private int size_;
+
+		public void add(int entry) {
+			if (size_ > 0 && entries_[size_ - 1] >= entry) {
+				int index = Arrays.binarySearch(entries_, 0, size_, entry);
+				if (index >= 0)
+					return;
+				index = -index - 1;
+				if (size_ == entries_.length)
+					entries_ = Arrays.copyOf(entries_, size_ * 2);
+				System.arraycopy(entries_, index, entries_, index + 1, size_
+						- index);
+				entries_[index] = entry;
+			} else {
+				if (size_ == entries_.length)
+					entries_ = Arrays.copyOf(entries_, size_ * 2);
+				entries_[size_] = entry;
+			}
+			size_++;
+		}
+
+		public boolean contains(int entry) {
+			return Arrays.binarySearch(entries_, 0, size_, entry) >= 0;
+		}
+
+		public int get(int index) {
+			return entries_[index];
+		}
+
+		public void remove(int entry) {
+			int index = Arrays.binarySearch(entries_, 0, size_, entry);
+			if (index < 0)
+				return;
+			System.arraycopy(entries_, index + 1, entries_, index, size_
+					- index - 1);
+			size_--;
+		}
+
+		public int size() {
+			return size_;
+		}
+	}
+}
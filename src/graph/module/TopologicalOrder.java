@@ -0,0 +1,269 @@
+package graph.module;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A topological order of the nodes of a directed graph, maintained as edges
+ * are added with the Pearce-Kelly algorithm: adding an edge that already
+ * agrees with the order costs nothing, otherwise only the nodes whose
+ * positions lie between the edge's endpoints (and that are reachable from
+ * them) are searched and shuffled into a consistent order. The same search
+ * detects edges that would close a cycle, which are refused. Searches mark
+ * the nodes they visit with a stamp rather than clearing a mark per node, so
+ * their cost is only that of the affected region.
+ *
+ * @author Sam Sarjant
+ */
+public class TopologicalOrder {
+	private static final int[] NO_EDGES = new int[0];
+
+	/** The slot of each node ID. */
+	private Map<Long, Integer> slots_ = new HashMap<>();
+
+	/** The node ID of each slot. */
+	private long[] ids_ = new long[16];
+
+	/** The position in the order of each slot. */
+	private int[] order_ = new int[16];
+
+	/** The successor slots of each slot. */
+	private ArrayList<int[]> successors_ = new ArrayList<>();
+
+	/** The predecessor slots of each slot. */
+	private ArrayList<int[]> predecessors_ = new ArrayList<>();
+
+	/** The search stamp of each slot. */
+	private int[] visited_ = new int[16];
+
+	/** The stamp of the current search. */
+	private int visitStamp_;
+
+	/**
+	 * Adds an edge, reordering the nodes so the source precedes the target.
+	 *
+	 * @param fromID
+	 *            The ID of the source node.
+	 * @param toID
+	 *            The ID of the target node.
+	 * @return False (and the edge is not added) if the edge would create a
+	 *         cycle.
+	 */
+	public synchronized boolean addEdge(long fromID, long toID) {
+		if (!order(fromID, toID))
+			return false;
+		int from = slots_.get(fromID);
+		int to = slots_.get(toID);
+		successors_.set(from, append(successors_.get(from), to));
+		predecessors_.set(to, append(predecessors_.get(to), from));
+		return true;
+	}
+
+	/**
+	 * Gets the position of a node in the order.
+	 *
+	 * @param id
+	 *            The ID of the node.
+	 * @return The position of the node, or -1 if it has no edges.
+	 */
+	public synchronized int getPosition(long id) {
+		Integer slot = slots_.get(id);
+		return (slot == null) ? -1 : order_[slot];
+	}
+
+	/**
+	 * Gets every node, in topological order.
+	 *
+	 * @return The IDs of the nodes, each preceding its successors.
+	 */
+	public synchronized long[] getOrder() {
+		long[] sorted = new long[slots_.size()];
+		for (int slot = 0; slot < sorted.length; slot++)
+			sorted[order_[slot]] = ids_[slot];
+		return sorted;
+	}
+
+	/**
+	 * If a path of edges leads from one node to another, searching only the
+	 * nodes ordered between them.
+	 *
+	 * @param fromID
+	 *            The ID of the source node.
+	 * @param toID
+	 *            The ID of the target node.
+	 * @return True if the target is reachable from the source.
+	 */
+	public synchronized boolean isReachable(long fromID, long toID) {
+		Integer from = slots_.get(fromID);
+		Integer to = slots_.get(toID);
+		if (from == null || to == null || order_[from] >= order_[to])
+			return from != null && from.equals(to);
+		return search(from, order_[to], true, startSearch(), to, null);
+	}
+
+	/**
+	 * Ensures the source of a prospective edge precedes its target,
+	 * reordering the affected nodes if required.
+	 *
+	 * @param fromID
+	 *            The ID of the source node.
+	 * @param toID
+	 *            The ID of the target node.
+	 * @return False (and the order is unchanged) if the target already
+	 *         reaches the source, so the edge would create a cycle.
+	 */
+	public synchronized boolean order(long fromID, long toID) {
+		if (fromID == toID)
+			return false;
+		int from = getOrCreateSlot(fromID);
+		int to = getOrCreateSlot(toID);
+		int lower = order_[to];
+		int upper = order_[from];
+		if (lower > upper)
+			return true;
+
+		// Search forward from the target and back from the source
+		int stamp = startSearch();
+		ArrayList<Integer> forward = new ArrayList<>();
+		if (search(to, upper, true, stamp, from, forward))
+			return false;
+		ArrayList<Integer> backward = new ArrayList<>();
+		search(from, lower, false, stamp, -1, backward);
+
+		// Reassign the affected positions, backward nodes first
+		Integer[] nodes = new Integer[backward.size() + forward.size()];
+		sortByOrder(backward);
+		sortByOrder(forward);
+		int i = 0;
+		for (int node : backward)
+			nodes[i++] = node;
+		for (int node : forward)
+			nodes[i++] = node;
+		int[] positions = new int[nodes.length];
+		for (i = 0; i < nodes.length; i++)
+			positions[i] = order_[nodes[i]];
+		Arrays.sort(positions);
+		for (i = 0; i < nodes.length; i++)
+			order_[nodes[i]] = positions[i];
+		return true;
+	}
+
+	/**
+	 * Removes an edge. The order remains valid.
+	 */
+	public synchronized void removeEdge(long fromID, long toID) {
+		Integer from = slots_.get(fromID);
+		Integer to = slots_.get(toID);
+		if (from == null || to == null)
+			return;
+		successors_.set(from, without(successors_.get(from), to));
+		predecessors_.set(to, without(predecessors_.get(to), from));
+	}
+
+	/**
+	 * Depth-first searches along successors (or predecessors), only through
+	 * nodes positioned before (or after) a bound and not yet marked with the
+	 * stamp of the search.
+	 *
+	 * @return True if the target slot was reached.
+	 */
+	private boolean search(int start, int bound, boolean forward, int stamp,
+			int target, ArrayList<Integer> found) {
+		int[] stack = new int[16];
+		int size = 0;
+		stack[size++] = start;
+		visited_[start] = stamp;
+		while (size > 0) {
+			int node = stack[--size];
+			if (found != null)
+				found.add(node);
+			for (int next : (forward) ? successors_.get(node) : predecessors_
+					.get(node)) {
+				if (next == target)
+					return true;
+				if (visited_[next] == stamp
+						|| (forward ? order_[next] > bound
+								: order_[next] < bound))
+					continue;
+				visited_[next] = stamp;
+				if (size == stack.length)
+					stack = Arrays.copyOf(stack, size * 2);
+				stack[size++] = next;
+			}
+		}
+		return false;
+	}
+
+	public synchronized int size() {
+		return slots_.size();
+	}
+
+	/**
+	 * Starts a search over the nodes, without clearing the marks of earlier
+	 * searches.
+	 *
+	 * @return The stamp marking nodes visited by the search.
+	 */
+	private int startSearch() {
+		if (visitStamp_ == Integer.MAX_VALUE) {
+			Arrays.fill(visited_, 0);
+			visitStamp_ = 0;
+		}
+		return ++visitStamp_;
+	}
+
+	private void sortByOrder(ArrayList<Integer> nodes) {
+		Collections.sort(nodes, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Integer.compare(order_[o1], order_[o2]);
+			}
+		});
+	}
+
+	private int getOrCreateSlot(long id) {
+		Integer slot = slots_.get(id);
+		if (slot != null)
+			return slot;
+		slot = slots_.size();
+		slots_.put(id, slot);
+		if (slot == ids_.length) {
+			ids_ = Arrays.copyOf(ids_, slot * 2);
+			order_ = Arrays.copyOf(order_, slot * 2);
+			visited_ = Arrays.copyOf(visited_, slot * 2);
+		}
+		ids_[slot] = id;
+		// New nodes have no edges, so can go last
+		order_[slot] = slot;
+		successors_.add(NO_EDGES);
+		predecessors_.add(NO_EDGES);
+		return slot;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Topological order - Nodes: " + slots_.size();
+	}
+
+	private static int[] append(int[] array, int value) {
+		int[] appended = Arrays.copyOf(array, array.length + 1);
+		appended[array.length] = value;
+		return appended;
+	}
+
+	private static int[] without(int[] array, int value) {
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == value) {
+				int[] removed = new int[array.length - 1];
+				System.arraycopy(array, 0, removed, 0, i);
+				System.arraycopy(array, i + 1, removed, i, removed.length - i);
+				return removed;
+			}
+		}
+		return array;
+	}
+}
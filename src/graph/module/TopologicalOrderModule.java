@@ -0,0 +1,253 @@
+package graph.module;
+
+import graph.core.DAGErrorEdge;
+import graph.core.DAGNode;
+import graph.core.Edge;
+import graph.core.ErrorEdge;
+import graph.core.Node;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The topological order module keeps the binary edges (predicate child
+ * parent) of chosen predicates acyclic, maintaining a topological order of
+ * each predicate's nodes (children before parents) as edges are added. Each
+ * predicate is either in reject mode, where an edge that would close a cycle
+ * is refused before it is added, or flag mode, where such edges are added to
+ * the DAG but recorded as cyclic and left out of the order. The execute
+ * method takes a predicate and returns its nodes in topological order.
+ *
+ * @author Sam Sarjant
+ */
+public class TopologicalOrderModule extends DAGModule<List<DAGNode>> {
+	private static final long serialVersionUID = -5296410788722301367L;
+
+	/** The edges of each predicate that were added despite closing a cycle. */
+	private transient Map<Long, Set<Edge>> cyclicEdges_;
+
+	/** The order of each checked predicate (built when first needed). */
+	private transient Map<Long, TopologicalOrder> orders_;
+
+	/** The checked predicates, and if cyclic edges are rejected (or flagged). */
+	private Map<Long, Boolean> predicates_ = new HashMap<>();
+
+	/**
+	 * Gets the predicate of a binary DAG node edge, if it is checked.
+	 *
+	 * @return The predicate ID, or null if the edge is not checked.
+	 */
+	private Long getCheckedPredicate(Node[] edgeNodes) {
+		if (edgeNodes == null || edgeNodes.length != 3
+				|| !(edgeNodes[0] instanceof DAGNode)
+				|| !(edgeNodes[1] instanceof DAGNode)
+				|| !(edgeNodes[2] instanceof DAGNode))
+			return null;
+		long predicate = ((DAGNode) edgeNodes[0]).getID();
+		return (predicates_.containsKey(predicate)) ? predicate : null;
+	}
+
+	/**
+	 * Gets the order of a checked predicate, building it from the related
+	 * edge index if required.
+	 */
+	private TopologicalOrder getOrder(long predicate) {
+		if (orders_ == null) {
+			orders_ = new HashMap<>();
+			cyclicEdges_ = new HashMap<>();
+		}
+		TopologicalOrder order = orders_.get(predicate);
+		if (order != null)
+			return order;
+
+		RelatedEdgeModule relatedModule = (RelatedEdgeModule) dag_
+				.getModule(RelatedEdgeModule.class);
+		if (relatedModule == null)
+			throw new ModuleException(
+					"Related Edge module is required to order predicates.");
+		order = new TopologicalOrder();
+		Set<Edge> cyclic = new HashSet<>();
+		orders_.put(predicate, order);
+		cyclicEdges_.put(predicate, cyclic);
+		// Existing cycles can only be flagged
+		for (Edge edge : relatedModule.execute(dag_.getNodeByID(predicate), 1)) {
+			Node[] edgeNodes = edge.getNodes();
+			if (getCheckedPredicate(edgeNodes) != null
+					&& !order.addEdge(((DAGNode) edgeNodes[1]).getID(),
+							((DAGNode) edgeNodes[2]).getID()))
+				cyclic.add(edge);
+		}
+		return order;
+	}
+
+	@Override
+	public synchronized boolean addEdge(Edge edge) {
+		Node[] edgeNodes = edge.getNodes();
+		Long predicate = getCheckedPredicate(edgeNodes);
+		if (predicate == null)
+			return true;
+		if (!getOrder(predicate).addEdge(((DAGNode) edgeNodes[1]).getID(),
+				((DAGNode) edgeNodes[2]).getID()))
+			cyclicEdges_.get(predicate).add(edge);
+		return true;
+	}
+
+	@Override
+	public synchronized ErrorEdge checkEdge(Node[] edgeNodes) {
+		Long predicate = getCheckedPredicate(edgeNodes);
+		if (predicate == null)
+			return null;
+		TopologicalOrder order = getOrder(predicate);
+		if (predicates_.get(predicate)
+				&& !order.order(((DAGNode) edgeNodes[1]).getID(),
+						((DAGNode) edgeNodes[2]).getID()))
+			return DAGErrorEdge.CYCLIC_EDGE;
+		return null;
+	}
+
+	@Override
+	public synchronized void clear() {
+		predicates_.clear();
+		orders_ = null;
+		cyclicEdges_ = null;
+	}
+
+	@Override
+	public List<DAGNode> execute(Object... args)
+			throws IllegalArgumentException {
+		if (args == null || args.length < 1)
+			throw new IllegalArgumentException("Requires a predicate.");
+		return getTopologicalOrder((DAGNode) args[0]);
+	}
+
+	/**
+	 * Gets the edges of a predicate added despite closing a cycle.
+	 *
+	 * @param predicate
+	 *            The checked predicate.
+	 * @return The cyclic edges, or null if the predicate is not checked.
+	 */
+	public synchronized Collection<Edge> getCyclicEdges(DAGNode predicate) {
+		if (!predicates_.containsKey(predicate.getID()))
+			return null;
+		getOrder(predicate.getID());
+		return new ArrayList<>(cyclicEdges_.get(predicate.getID()));
+	}
+
+	/**
+	 * Gets the mode of a predicate.
+	 *
+	 * @param predicate
+	 *            The predicate.
+	 * @return True if cyclic edges are rejected, false if they are flagged,
+	 *         or null if the predicate is not checked.
+	 */
+	public synchronized Boolean getMode(DAGNode predicate) {
+		return predicates_.get(predicate.getID());
+	}
+
+	/**
+	 * Gets the position of a node in the order of a predicate.
+	 *
+	 * @param predicate
+	 *            The checked predicate.
+	 * @param node
+	 *            The node.
+	 * @return The position of the node (children before parents), or -1 if
+	 *         it has no edges of the predicate.
+	 */
+	public synchronized int getPosition(DAGNode predicate, DAGNode node) {
+		if (!predicates_.containsKey(predicate.getID()))
+			return -1;
+		return getOrder(predicate.getID()).getPosition(node.getID());
+	}
+
+	/**
+	 * Gets the nodes of a predicate's edges in topological order.
+	 *
+	 * @param predicate
+	 *            The checked predicate.
+	 * @return The nodes, each child before its parents, or null if the
+	 *         predicate is not checked.
+	 */
+	public synchronized List<DAGNode> getTopologicalOrder(DAGNode predicate) {
+		if (!predicates_.containsKey(predicate.getID()))
+			return null;
+		long[] ids = getOrder(predicate.getID()).getOrder();
+		List<DAGNode> nodes = new ArrayList<>(ids.length);
+		for (long id : ids) {
+			DAGNode node = dag_.getNodeByID(id);
+			if (node != null)
+				nodes.add(node);
+		}
+		return nodes;
+	}
+
+	/**
+	 * If a node is a transitive child of another, only searching the nodes
+	 * between them in the order.
+	 *
+	 * @param predicate
+	 *            The checked predicate.
+	 * @param descendant
+	 *            The lower node.
+	 * @param ancestor
+	 *            The upper node.
+	 * @return True if the ancestor can be reached from the descendant.
+	 */
+	public synchronized boolean isReachable(DAGNode predicate,
+			DAGNode descendant, DAGNode ancestor) {
+		if (!predicates_.containsKey(predicate.getID()))
+			return false;
+		return getOrder(predicate.getID()).isReachable(descendant.getID(),
+				ancestor.getID());
+	}
+
+	@Override
+	public synchronized boolean removeEdge(Edge edge) {
+		Node[] edgeNodes = edge.getNodes();
+		Long predicate = getCheckedPredicate(edgeNodes);
+		if (predicate == null || orders_ == null
+				|| !orders_.containsKey(predicate))
+			return false;
+		if (!cyclicEdges_.get(predicate).remove(edge))
+			orders_.get(predicate).removeEdge(
+					((DAGNode) edgeNodes[1]).getID(),
+					((DAGNode) edgeNodes[2]).getID());
+		return true;
+	}
+
+	/**
+	 * Sets how a predicate is checked for cycles.
+	 *
+	 * @param predicate
+	 *            The predicate.
+	 * @param reject
+	 *            True to reject cyclic edges, false to flag them, or null to
+	 *            stop checking the predicate.
+	 */
+	public synchronized void setMode(DAGNode predicate, Boolean reject) {
+		long id = predicate.getID();
+		if (reject == null) {
+			predicates_.remove(id);
+			if (orders_ != null) {
+				orders_.remove(id);
+				cyclicEdges_.remove(id);
+			}
+			return;
+		}
+		predicates_.put(id, reject);
+		getOrder(id);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Topological order: " + predicates_.size()
+				+ " predicates checked";
+	}
+}
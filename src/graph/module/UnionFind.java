@@ -0,0 +1,163 @@
+package graph.module;
+
+import graph.module.CSRSnapshot.RangeHandler;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A disjoint-set forest over the integers from 0 to a capacity, in atomic
+ * arrays so any number of threads can find sets while others merge them.
+ * Finding compresses paths by halving (each visited element is pointed at
+ * its grandparent with a compare-and-set), and merging links the root with
+ * the larger index under the other with a compare-and-set, so sets stay
+ * acyclic however unions interleave. Elements beyond the capacity are
+ * singletons until the forest grows.
+ *
+ * The size of each set is kept at its root. Sizes are exact while unions
+ * are made one at a time; after concurrent unions they must be recounted.
+ *
+ * @author Sam Sarjant
+ */
+public class UnionFind {
+	/** The parent of each element (itself for roots). */
+	private volatile AtomicIntegerArray parents_;
+
+	/** The size of the set of each root. */
+	private volatile AtomicIntegerArray sizes_;
+
+	public UnionFind(int capacity) {
+		AtomicIntegerArray parents = new AtomicIntegerArray(capacity);
+		AtomicIntegerArray sizes = new AtomicIntegerArray(capacity);
+		init(parents, sizes, 0, capacity);
+		sizes_ = sizes;
+		parents_ = parents;
+	}
+
+	/**
+	 * Makes a range of elements singletons.
+	 */
+	private static void init(final AtomicIntegerArray parents,
+			final AtomicIntegerArray sizes, final int start, final int end) {
+		CSRSnapshot.forEachRange(end - start, new RangeHandler() {
+			@Override
+			public void process(int from, int to) {
+				for (int i = start + from; i < start + to; i++) {
+					parents.set(i, i);
+					sizes.set(i, 1);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Grows the forest to hold at least a number of elements. Must not run
+	 * at the same time as a union.
+	 *
+	 * @param capacity
+	 *            The required capacity.
+	 */
+	public synchronized void ensureCapacity(int capacity) {
+		int oldCapacity = parents_.length();
+		if (capacity <= oldCapacity)
+			return;
+		capacity = Math.max(capacity, oldCapacity * 2);
+		AtomicIntegerArray parents = new AtomicIntegerArray(capacity);
+		AtomicIntegerArray sizes = new AtomicIntegerArray(capacity);
+		for (int i = 0; i < oldCapacity; i++) {
+			parents.set(i, parents_.get(i));
+			sizes.set(i, sizes_.get(i));
+		}
+		init(parents, sizes, oldCapacity, capacity);
+		sizes_ = sizes;
+		parents_ = parents;
+	}
+
+	/**
+	 * Finds the root of an element's set.
+	 *
+	 * @param element
+	 *            The element.
+	 * @return The root element, identifying the set until it is merged.
+	 */
+	public int find(int element) {
+		AtomicIntegerArray parents = parents_;
+		if (element >= parents.length())
+			return element;
+		while (true) {
+			int parent = parents.get(element);
+			if (parent == element)
+				return element;
+			int grandparent = parents.get(parent);
+			if (parent != grandparent)
+				parents.compareAndSet(element, parent, grandparent);
+			element = grandparent;
+		}
+	}
+
+	public int getCapacity() {
+		return parents_.length();
+	}
+
+	/**
+	 * Gets the size of an element's set.
+	 *
+	 * @param element
+	 *            The element.
+	 * @return The number of elements in the set.
+	 */
+	public int getSize(int element) {
+		if (element >= sizes_.length())
+			return 1;
+		return sizes_.get(find(element));
+	}
+
+	/**
+	 * Recounts the size of every set, in parallel, after concurrent unions.
+	 */
+	public void recountSizes() {
+		final AtomicIntegerArray sizes = sizes_;
+		final int capacity = parents_.length();
+		CSRSnapshot.forEachRange(capacity, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				for (int i = start; i < end; i++)
+					sizes.set(i, 0);
+			}
+		});
+		CSRSnapshot.forEachRange(capacity, new RangeHandler() {
+			@Override
+			public void process(int start, int end) {
+				for (int i = start; i < end; i++)
+					sizes.incrementAndGet(find(i));
+			}
+		});
+	}
+
+	/**
+	 * Merges the sets of two elements, which must be within the capacity.
+	 *
+	 * @param a
+	 *            An element.
+	 * @param b
+	 *            Another element.
+	 * @return True if the elements were in different sets.
+	 */
+	public boolean union(int a, int b) {
+		AtomicIntegerArray parents = parents_;
+		while (true) {
+			a = find(a);
+			b = find(b);
+			if (a == b)
+				return false;
+			if (a < b) {
+				int temp = a;
+				a = b;
+				b = temp;
+			}
+			if (parents.compareAndSet(a, a, b)) {
+				sizes_.addAndGet(b, sizes_.get(a));
+				return true;
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package graph.module.cli;
+
+import graph.core.DAGNode;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.CommandScheduler.Lane;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.LanedCommand;
+import graph.module.TopologicalOrderModule;
+
+import java.util.ArrayList;
+
+import util.UtilityMethods;
+
+/**
+ * Sets or reports how a predicate is checked for cycles, and lists its
+ * topological order or cyclic edges.
+ *
+ * @author Sam Sarjant
+ */
+public class AcyclicCommand extends CollectionCommand implements
+		LanedCommand {
+	/**
+	 * Reporting the mode, order or cycles only reads, and setting the mode is
+	 * administration.
+	 */
+	@Override
+	public Lane getLane() {
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		String mode = (split.size() >= 2) ? split.get(1).toLowerCase() : "";
+		switch (mode) {
+		case "reject":
+		case "flag":
+		case "off":
+			return Lane.ADMIN;
+		default:
+			return Lane.READ;
+		}
+	}
+
+	@Override
+	public String helpText() {
+		return "{0} predicate [reject|flag|off|order|cycles] : "
+				+ "Checks edges of the form (predicate child parent) for "
+				+ "cycles, either rejecting edges that would create a "
+				+ "cycle or flagging them, or stops checking. With no "
+				+ "mode, prints the current mode and number of flagged "
+				+ "edges. 'order' returns the predicate's nodes in "
+				+ "topological order (children first), 'cycles' returns "
+				+ "the flagged edges.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Keeps a predicate acyclic and topologically ordered.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		super.executeImpl();
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		TopologicalOrderModule orderModule = (TopologicalOrderModule) dagHandler
+				.getDAG().getModule(TopologicalOrderModule.class);
+		if (orderModule == null) {
+			print("Topological Order module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		DAGNode predicate = (DAGNode) dagHandler.getDAG().findOrCreateNode(
+				split.get(0), null, false, true, false);
+		if (predicate == null) {
+			print("-1|No node found.\n");
+			return;
+		}
+		String mode = (split.size() >= 2) ? split.get(1).toLowerCase() : "";
+
+		switch (mode) {
+		case "reject":
+			orderModule.setMode(predicate, true);
+			break;
+		case "flag":
+			orderModule.setMode(predicate, false);
+			break;
+		case "off":
+			orderModule.setMode(predicate, null);
+			break;
+		case "order":
+		case "cycles":
+			if (orderModule.getMode(predicate) == null) {
+				print("-1|Predicate is not checked.\n");
+				return;
+			}
+			if (mode.equals("order"))
+				printItems(page(orderModule.getTopologicalOrder(predicate)));
+			else
+				printItems(page(orderModule.getCyclicEdges(predicate)));
+			return;
+		case "":
+			break;
+		default:
+			print("-1|Unknown mode: " + mode + "\n");
+			return;
+		}
+
+		Boolean reject = orderModule.getMode(predicate);
+		if (reject == null)
+			print("1|off\n");
+		else
+			print("1|" + ((reject) ? "reject" : "flag") + "|"
+					+ orderModule.getCyclicEdges(predicate).size() + "\n");
+	}
+}
@@ -0,0 +1,76 @@
+package graph.module.cli;
+
+import graph.core.DAGNode;
+import graph.core.cli.BulkCommand;
+import graph.core.cli.DAGPortHandler;
+import graph.module.CentralityModule;
+import graph.module.CentralityModule.Measure;
+import graph.module.NodeScores;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import util.UtilityMethods;
+import core.Command;
+
+/**
+ * Computes and stores a centrality measure for every node.
+ *
+ * @author Sam Sarjant
+ */
+public class CentralityCommand extends Command implements BulkCommand {
+	@Override
+	public String helpText() {
+		return "{0} pagerank|degree|closeness [predicate ...] : "
+				+ "Scores every node of the edges (optionally only of "
+				+ "the given predicates) by PageRank, following edges "
+				+ "from the first argument to the second, or by degree "
+				+ "or approximate closeness, treating edges as "
+				+ "undirected. The scores replace any earlier scores of "
+				+ "the measure and can be queried with the score "
+				+ "command. Returns the number of nodes scored.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Computes the centrality of every node.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		CentralityModule centralityModule = (CentralityModule) dagHandler
+				.getDAG().getModule(CentralityModule.class);
+		if (centralityModule == null) {
+			print("Centrality module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		Measure measure;
+		try {
+			measure = Measure.parse(split.get(0));
+		} catch (IllegalArgumentException e) {
+			print("-1|Unknown measure: " + split.get(0) + "\n");
+			return;
+		}
+		List<DAGNode> predicates = new ArrayList<>();
+		for (String arg : split.subList(1, split.size())) {
+			DAGNode predicate = (DAGNode) dagHandler.getDAG().findOrCreateNode(
+					arg, null, false, true, false);
+			if (predicate == null) {
+				print("-1|No node found.\n");
+				return;
+			}
+			predicates.add(predicate);
+		}
+
+		NodeScores scores = centralityModule.compute(measure, predicates);
+		print(scores.size() + "|\n");
+	}
+}
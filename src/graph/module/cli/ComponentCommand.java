@@ -0,0 +1,74 @@
+package graph.module.cli;
+
+import graph.core.DAGNode;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.module.ComponentModule;
+
+import java.util.ArrayList;
+
+import util.UtilityMethods;
+import core.Command;
+
+/**
+ * Finds the connected component of a node, or checks if two nodes are
+ * connected.
+ *
+ * @author Sam Sarjant
+ */
+public class ComponentCommand extends Command implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} node [node] : "
+				+ "Returns the component ID and size of node as id|size|, "
+				+ "where nodes are connected if they share an edge. With "
+				+ "two nodes, returns 1|T if they are in the same "
+				+ "component, otherwise 0|F.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns the connected component of a node.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		ComponentModule componentModule = (ComponentModule) dagHandler
+				.getDAG().getModule(ComponentModule.class);
+		if (componentModule == null) {
+			print("Component module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		if (split.size() > 2) {
+			print("-1|Requires one or two nodes.\n");
+			return;
+		}
+		DAGNode[] nodes = new DAGNode[split.size()];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = (DAGNode) dagHandler.getDAG().findOrCreateNode(
+					split.get(i), null, false, true, false);
+			if (nodes[i] == null) {
+				print("-1|No node found.\n");
+				return;
+			}
+		}
+
+		if (nodes.length == 2) {
+			if (componentModule.isConnected(nodes[0], nodes[1]))
+				print("1|T\n");
+			else
+				print("0|F\n");
+			return;
+		}
+		print(componentModule.getComponent(nodes[0]) + "|"
+				+ componentModule.getComponentSize(nodes[0]) + "|\n");
+	}
+}
@@ -3,12 +3,14 @@ package graph.module.cli;
 import graph.core.DAGNode;
 import graph.core.cli.CollectionCommand;
 import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
 import graph.module.DAGModule;
 import graph.module.ModuleException;
 import graph.module.NodeAliasModule;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.TreeSet;
 
 import util.UtilityMethods;
@@ -19,7 +21,8 @@ import util.UtilityMethods;
  * 
  * @author Sam Sarjant
  */
-public class FindNodeByAliasCommand extends CollectionCommand {
+public class FindNodeByAliasCommand extends CollectionCommand
+		implements ReadOnlyCommand {
 	@Override
 	public String helpText() {
 		return "{0} alias [caseSensitive] [exactString] : "
@@ -27,7 +30,11 @@ public class FindNodeByAliasCommand extends CollectionCommand {
 				+ "optional parameters [caseSensitive] (T/F) and "
 				+ "[exactString] (T/F) to perform case-sensitive "
 				+ "search or exact/prefix string search "
-				+ "(defaults true for each).";
+				+ "(defaults true for each). Alternatively, "
+				+ "{0} alias ~k [caseSensitive] returns all nodes with "
+				+ "an alias within edit distance k (up to "
+				+ NodeAliasModule.MAX_FUZZY_DISTANCE
+				+ ") of the alias, closest first.";
 	}
 
 	@Override
@@ -45,6 +52,13 @@ public class FindNodeByAliasCommand extends CollectionCommand {
 			return;
 		}
 
+		Collection<DAGNode> nodes = (countOnly_) ? null : this
+				.<DAGNode> continuePage();
+		if (nodes != null) {
+			printItems(nodes);
+			return;
+		}
+
 		Collection<DAGModule<Collection<DAGNode>>> aliasModules = null;
 		try {
 			aliasModules = getAllAliasModules(dagHandler);
@@ -57,6 +71,10 @@ public class FindNodeByAliasCommand extends CollectionCommand {
 		String alias = split.get(0);
 		if (alias.matches(DAGNode.QUOTED_NAME.pattern()))
 			alias = UtilityMethods.shrinkString(alias, 1);
+		if (split.size() >= 2 && split.get(1).matches("~\\d+")) {
+			findFuzzy(alias, split, aliasModules);
+			return;
+		}
 		boolean caseSensitive = true;
 		if (split.size() >= 2 && split.get(1).equals("F"))
 			caseSensitive = false;
@@ -64,15 +82,48 @@ public class FindNodeByAliasCommand extends CollectionCommand {
 		if (split.size() >= 3 && split.get(2).equals("F"))
 			exactString = false;
 
-		Collection<DAGNode> nodes = new TreeSet<>();
+		if (countOnly_ && aliasModules.size() == 1) {
+			DAGModule<Collection<DAGNode>> aliasModule = aliasModules
+					.iterator().next();
+			if (aliasModule instanceof NodeAliasModule) {
+				printCount(((NodeAliasModule) aliasModule).count(alias,
+						caseSensitive, exactString));
+				return;
+			}
+		}
+
+		nodes = new TreeSet<>();
 		for (DAGModule<Collection<DAGNode>> aliasModule : aliasModules)
 			nodes.addAll(aliasModule.execute(alias, caseSensitive, exactString));
-		nodes = dagHandler.sort(nodes, rangeStart_, rangeEnd_);
+		nodes = page(nodes);
+		printItems(nodes);
+	}
+
+	/**
+	 * Finds nodes by a fuzzy alias, in order of edit distance.
+	 */
+	protected void findFuzzy(String alias, ArrayList<String> split,
+			Collection<DAGModule<Collection<DAGNode>>> aliasModules) {
+		int maxDistance = Integer.parseInt(split.get(1).substring(1));
+		if (maxDistance > NodeAliasModule.MAX_FUZZY_DISTANCE) {
+			print("-1|Edit distance must be at most "
+					+ NodeAliasModule.MAX_FUZZY_DISTANCE + ".\n");
+			return;
+		}
+		boolean caseSensitive = !(split.size() >= 3 && split.get(2)
+				.equals("F"));
 
-		print(nodes.size() + "|");
-		for (DAGNode n : nodes)
-			print(dagHandler.textIDObject(n) + "|");
-		print("\n");
+		Collection<DAGNode> nodes = new LinkedHashSet<>();
+		for (DAGModule<Collection<DAGNode>> aliasModule : aliasModules)
+			if (aliasModule instanceof NodeAliasModule)
+				nodes.addAll(((NodeAliasModule) aliasModule)
+						.findNodeByFuzzyAlias(alias, caseSensitive,
+								maxDistance));
+		if (countOnly_) {
+			printCount(nodes.size());
+			return;
+		}
+		printItems(page(nodes));
 	}
 
 	protected Collection<DAGModule<Collection<DAGNode>>> getAllAliasModules(
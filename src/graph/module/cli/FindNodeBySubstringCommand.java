@@ -0,0 +1,84 @@
+package graph.module.cli;
+
+import graph.core.DAGNode;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.module.SubstringAliasModule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.TreeSet;
+
+import util.UtilityMethods;
+
+/**
+ * Finds nodes with a name or alias containing a string anywhere within it.
+ *
+ * @author Sam Sarjant
+ */
+public class FindNodeBySubstringCommand extends CollectionCommand
+		implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} text [caseSensitive] [limit] : "
+				+ "Return nodes with a name or alias containing text "
+				+ "(optionally quoted), with optional parameters "
+				+ "[caseSensitive] (T/F, default true) and [limit], the "
+				+ "maximum number of nodes to find (default "
+				+ SubstringAliasModule.DEFAULT_LIMIT + ").";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Finds all nodes with a name/alias containing a string.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		super.executeImpl();
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		SubstringAliasModule substringModule = (SubstringAliasModule) dagHandler
+				.getDAG().getModule(SubstringAliasModule.class);
+		if (substringModule == null) {
+			print("Substring Alias module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		Collection<DAGNode> nodes = (countOnly_) ? null : this
+				.<DAGNode> continuePage();
+		if (nodes != null) {
+			printItems(nodes);
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		String text = split.get(0);
+		if (text.matches(DAGNode.QUOTED_NAME.pattern()))
+			text = UtilityMethods.shrinkString(text, 1);
+		boolean caseSensitive = !(split.size() >= 2 && split.get(1)
+				.equals("F"));
+		int limit = SubstringAliasModule.DEFAULT_LIMIT;
+		if (split.size() >= 3) {
+			try {
+				limit = Integer.parseInt(split.get(2));
+			} catch (NumberFormatException e) {
+				print("-1|Could not parse limit.\n");
+				return;
+			}
+		}
+
+		nodes = new TreeSet<>(substringModule.findContaining(text,
+				caseSensitive, limit));
+		if (countOnly_) {
+			printCount(nodes.size());
+			return;
+		}
+		printItems(page(nodes));
+	}
+}
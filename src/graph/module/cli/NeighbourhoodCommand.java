@@ -0,0 +1,125 @@
+package graph.module.cli;
+
+import graph.core.DAGNode;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.core.cli.ResponseEncoder;
+import graph.module.NeighbourhoodSearch;
+import graph.module.NeighbourhoodSearch.LevelHandler;
+import graph.module.RelatedEdgeModule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import util.UtilityMethods;
+
+/**
+ * Finds every node within k edges of a node, level by level.
+ *
+ * @author Sam Sarjant
+ */
+public class NeighbourhoodCommand extends CollectionCommand
+		implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} node k [predicate ...] : "
+				+ "Returns the nodes within k edges of node (sharing an "
+				+ "edge, optionally only edges of the given predicates). "
+				+ "Prints one line per distance from 1 to k, of the form "
+				+ "distance|count|node|node|..., stopping after the first "
+				+ "distance with no nodes.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns the nodes within k edges of a node.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		super.executeImpl();
+		final DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		RelatedEdgeModule relatedModule = (RelatedEdgeModule) dagHandler
+				.getDAG().getModule(RelatedEdgeModule.class);
+		if (relatedModule == null) {
+			print("Related Edge module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		if (split.size() < 2) {
+			print("-1|Requires a node and k.\n");
+			return;
+		}
+		DAGNode start = (DAGNode) dagHandler.getDAG().findOrCreateNode(
+				split.get(0), null, false, true, false);
+		if (start == null) {
+			print("-1|No node found.\n");
+			return;
+		}
+		int k;
+		try {
+			k = Integer.parseInt(split.get(1));
+		} catch (NumberFormatException e) {
+			print("-1|Could not parse k.\n");
+			return;
+		}
+		if (k < 1) {
+			print("-1|k must be at least 1.\n");
+			return;
+		}
+		Collection<DAGNode> predicates = new ArrayList<>();
+		for (int i = 2; i < split.size(); i++) {
+			DAGNode predicate = (DAGNode) dagHandler.getDAG()
+					.findOrCreateNode(split.get(i), null, false, true, false);
+			if (predicate == null) {
+				print("-1|No node found.\n");
+				return;
+			}
+			predicates.add(predicate);
+		}
+
+		NeighbourhoodSearch search = new NeighbourhoodSearch(relatedModule,
+				predicates);
+		if (countOnly_) {
+			int count = 0;
+			for (List<DAGNode> level : search.search(start, k))
+				count += level.size();
+			printCount(count);
+			return;
+		}
+
+		if (streaming_ && dagHandler.canStream()) {
+			final ResponseEncoder encoder = dagHandler.startResponse();
+			search.search(start, k, new LevelHandler() {
+				@Override
+				public void level(int depth, List<DAGNode> nodes) {
+					encoder.append(depth).append('|').append(nodes.size())
+							.append('|');
+					for (DAGNode node : nodes)
+						encoder.appendItem(node);
+					encoder.newLine().flush();
+				}
+			});
+			return;
+		}
+
+		StringBuilder buffer = new StringBuilder();
+		int depth = 1;
+		for (List<DAGNode> level : search.search(start, k)) {
+			buffer.append(depth++).append('|').append(level.size())
+					.append('|');
+			for (DAGNode node : level)
+				buffer.append(dagHandler.textIDObject(node)).append('|');
+			buffer.append('\n');
+		}
+		print(buffer.toString());
+	}
+}
@@ -0,0 +1,118 @@
+package graph.module.cli;
+
+import graph.core.Edge;
+import graph.core.Node;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.module.NumericIndexModule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import util.UtilityMethods;
+
+/**
+ * Finds the edges of a predicate with a numeric argument within a range.
+ * 
+ * @author Sam Sarjant
+ */
+public class NumericRangeCommand extends CollectionCommand
+		implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} predicate argPosition min max : "
+				+ "Returns all edges of predicate with a numeric "
+				+ "argument at argPosition (1-indexed) between min "
+				+ "and max (inclusive), in ascending order. Use * for "
+				+ "an unbounded value, or prefix min with > or max "
+				+ "with < for an exclusive bound.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns all edges with a numeric argument within a range.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		super.executeImpl();
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		NumericIndexModule numericModule = (NumericIndexModule) dagHandler
+				.getDAG().getModule(NumericIndexModule.class);
+		if (numericModule == null) {
+			print("Numeric Index module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		if (split.size() != 4) {
+			print("-1|Requires predicate, argPosition, min and max.\n");
+			return;
+		}
+
+		Node predicate = dagHandler.getDAG().findOrCreateNode(split.get(0),
+				null, false, true, false);
+		if (predicate == null) {
+			print("-1|No node found.\n");
+			return;
+		}
+
+		int position;
+		double min, max;
+		boolean minInclusive = !split.get(2).startsWith(">");
+		boolean maxInclusive = !split.get(3).startsWith("<");
+		try {
+			position = Integer.parseInt(split.get(1));
+			min = parseBound(split.get(2), Double.NEGATIVE_INFINITY);
+			max = parseBound(split.get(3), Double.POSITIVE_INFINITY);
+		} catch (NumberFormatException e) {
+			print("-1|Could not parse arguments.\n");
+			return;
+		}
+
+		if (countOnly_) {
+			printCount(numericModule.countRange(predicate, position, min,
+					minInclusive, max, maxInclusive));
+			return;
+		}
+
+		// Pages are read straight from the column, unless re-sorted
+		Collection<Edge> edges;
+		if (!dagHandler.isSorting())
+			edges = numericModule.findRange(predicate, position, min,
+					minInclusive, max, maxInclusive, rangeStart_, rangeEnd_
+							- rangeStart_);
+		else {
+			// A sorted page may hold any edges of the range, so find them all
+			edges = continuePage();
+			if (edges == null)
+				edges = page(numericModule.findRange(predicate, position,
+						min, minInclusive, max, maxInclusive,
+						Integer.MAX_VALUE));
+		}
+		printItems(edges);
+	}
+
+	/**
+	 * Parses a range bound, ignoring any exclusive prefix.
+	 * 
+	 * @param bound
+	 *            The bound to parse.
+	 * @param unbounded
+	 *            The value to use for *.
+	 * @return The parsed bound.
+	 */
+	protected double parseBound(String bound, double unbounded) {
+		if (bound.startsWith(">") || bound.startsWith("<"))
+			bound = bound.substring(1);
+		if (bound.equals("*"))
+			return unbounded;
+		return Double.parseDouble(bound);
+	}
+}
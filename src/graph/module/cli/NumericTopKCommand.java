@@ -0,0 +1,95 @@
+package graph.module.cli;
+
+import graph.core.Edge;
+import graph.core.Node;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.module.NumericIndexModule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import util.UtilityMethods;
+
+/**
+ * Finds the edges of a predicate with the largest (or smallest) numeric
+ * arguments.
+ * 
+ * @author Sam Sarjant
+ */
+public class NumericTopKCommand extends CollectionCommand
+		implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} predicate argPosition k [smallest] : "
+				+ "Returns the k edges of predicate with the largest "
+				+ "numeric arguments at argPosition (1-indexed), "
+				+ "largest first. If smallest is T, returns the k "
+				+ "smallest instead, smallest first.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns the edges with the largest/smallest numeric arguments.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		super.executeImpl();
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		NumericIndexModule numericModule = (NumericIndexModule) dagHandler
+				.getDAG().getModule(NumericIndexModule.class);
+		if (numericModule == null) {
+			print("Numeric Index module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		if (split.size() < 3) {
+			print("-1|Requires predicate, argPosition and k.\n");
+			return;
+		}
+
+		Node predicate = dagHandler.getDAG().findOrCreateNode(split.get(0),
+				null, false, true, false);
+		if (predicate == null) {
+			print("-1|No node found.\n");
+			return;
+		}
+
+		int position, k;
+		try {
+			position = Integer.parseInt(split.get(1));
+			k = Integer.parseInt(split.get(2));
+		} catch (NumberFormatException e) {
+			print("-1|Could not parse arguments.\n");
+			return;
+		}
+		boolean largest = split.size() < 4 || !split.get(3).equals("T");
+
+		if (countOnly_) {
+			printCount(numericModule.findTopK(predicate, position, k,
+					largest).size());
+			return;
+		}
+		// Pages are read straight from the column, unless re-sorted
+		Collection<Edge> edges;
+		if (!dagHandler.isSorting()) {
+			int end = Math.min(k, rangeEnd_);
+			edges = numericModule.findTopK(predicate, position, rangeStart_,
+					Math.max(0, end - rangeStart_), largest);
+		} else {
+			edges = continuePage();
+			if (edges == null)
+				edges = page(numericModule.findTopK(predicate, position, k,
+						largest));
+		}
+		printItems(edges);
+	}
+}
@@ -0,0 +1,144 @@
+package graph.module.cli;
+
+import graph.core.Node;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.core.cli.ResponseEncoder;
+import graph.module.PatternMatcher;
+import graph.module.RelatedEdgeModule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import util.UtilityMethods;
+
+/**
+ * Finds the variable bindings satisfying a conjunction of edge patterns, so
+ * multi-hop questions can be answered in a single request.
+ *
+ * @author Sam Sarjant
+ */
+public class PatternQueryCommand extends CollectionCommand
+		implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} (pattern) {1,} : "
+				+ "Returns every binding of the ?variables in the "
+				+ "edge patterns such that all patterns are edges, e.g. "
+				+ "(isa ?x Dog) (owns ?y ?x). Each pattern must contain a "
+				+ "node or a variable shared with another pattern. The "
+				+ "first line lists the number of bindings and the "
+				+ "variables, followed by one line of nodes per binding.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns the variable bindings matching edge patterns.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		super.executeImpl();
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		RelatedEdgeModule relatedModule = (RelatedEdgeModule) dagHandler
+				.getDAG().getModule(RelatedEdgeModule.class);
+		if (relatedModule == null) {
+			print("Related Edge module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		List<Object[]> patterns = parsePatterns(data, dagHandler);
+		if (patterns == null)
+			return;
+
+		try {
+			PatternMatcher matcher = new PatternMatcher(relatedModule,
+					patterns);
+			if (countOnly_) {
+				printCount(matcher.count());
+				return;
+			}
+			printSolutions(matcher.getVariables(),
+					matcher.findSolutions(rangeStart_, rangeEnd_));
+		} catch (IllegalArgumentException e) {
+			print("-1|" + e.getMessage() + "\n");
+		}
+	}
+
+	/**
+	 * Parses the bracketed patterns into nodes and variable names.
+	 *
+	 * @return The patterns, or null if they could not be parsed.
+	 */
+	protected List<Object[]> parsePatterns(String data,
+			DAGPortHandler dagHandler) {
+		List<Object[]> patterns = new ArrayList<>();
+		for (String patternStr : UtilityMethods.split(data, ' ')) {
+			if (!patternStr.startsWith("(") || !patternStr.endsWith(")")) {
+				print("-1|Each pattern must be bracketed.\n");
+				return null;
+			}
+			ArrayList<String> split = UtilityMethods.split(
+					UtilityMethods.shrinkString(patternStr, 1), ' ');
+			if (split.isEmpty()) {
+				print("-1|Empty pattern.\n");
+				return null;
+			}
+			Object[] pattern = new Object[split.size()];
+			for (int i = 0; i < pattern.length; i++) {
+				String arg = split.get(i);
+				if (PatternMatcher.isVariable(arg)) {
+					pattern[i] = arg;
+					continue;
+				}
+				pattern[i] = dagHandler.getDAG().findOrCreateNode(arg, null,
+						false, false, false);
+				if (pattern[i] == null) {
+					print("-1|No node found: " + arg + "\n");
+					return null;
+				}
+			}
+			patterns.add(pattern);
+		}
+		return patterns;
+	}
+
+	/**
+	 * Prints the variables, then each binding on its own line.
+	 */
+	protected void printSolutions(String[] variables, List<Node[]> solutions) {
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		if (streaming_ && dagHandler.canStream()) {
+			ResponseEncoder encoder = dagHandler.startResponse();
+			encoder.append(solutions.size()).append('|');
+			for (String variable : variables)
+				encoder.append(variable).append('|');
+			encoder.newLine();
+			for (Node[] solution : solutions) {
+				for (Node node : solution)
+					encoder.appendItem(node);
+				encoder.newLine();
+			}
+			encoder.flush();
+			return;
+		}
+
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(solutions.size()).append('|');
+		for (String variable : variables)
+			buffer.append(variable).append('|');
+		buffer.append('\n');
+		for (Node[] solution : solutions) {
+			for (Node node : solution)
+				buffer.append(dagHandler.textIDObject(node)).append('|');
+			buffer.append('\n');
+		}
+		print(buffer.toString());
+	}
+}
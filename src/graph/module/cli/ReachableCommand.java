@@ -0,0 +1,67 @@
+package graph.module.cli;
+
+import graph.core.DAGNode;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.module.ReachabilityModule;
+
+import java.util.ArrayList;
+
+import util.UtilityMethods;
+import core.Command;
+
+/**
+ * Checks if a node is transitively below another over a hierarchy predicate.
+ *
+ * @author Sam Sarjant
+ */
+public class ReachableCommand extends Command implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} predicate node ancestor : "
+				+ "Returns 1|T if ancestor is transitively above node, "
+				+ "following edges of the form (predicate child parent), "
+				+ "otherwise 0|F.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Checks if a node is a transitive child of another.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		ReachabilityModule reachModule = (ReachabilityModule) dagHandler
+				.getDAG().getModule(ReachabilityModule.class);
+		if (reachModule == null) {
+			print("Reachability module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		if (split.size() != 3) {
+			print("-1|Requires a predicate, a node and an ancestor.\n");
+			return;
+		}
+		DAGNode[] nodes = new DAGNode[3];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = (DAGNode) dagHandler.getDAG().findOrCreateNode(
+					split.get(i), null, false, true, false);
+			if (nodes[i] == null) {
+				print("-1|No node found.\n");
+				return;
+			}
+		}
+
+		if (reachModule.isReachable(nodes[0], nodes[1], nodes[2]))
+			print("1|T\n");
+		else
+			print("0|F\n");
+	}
+}
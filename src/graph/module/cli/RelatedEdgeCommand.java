@@ -4,6 +4,7 @@ import graph.core.Edge;
 import graph.core.Node;
 import graph.core.cli.CollectionCommand;
 import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
 import graph.module.RelatedEdgeModule;
 
 import java.util.ArrayList;
@@ -11,11 +12,13 @@ import java.util.Collection;
 
 import util.UtilityMethods;
 
-public class RelatedEdgeCommand extends CollectionCommand {
+public class RelatedEdgeCommand extends CollectionCommand
+		implements ReadOnlyCommand {
 	@Override
 	public String helpText() {
 		return "{0} node [(nodePosition)] {1,} : "
-				+ "Returns all edges using the provided node(s), "
+				+ "Returns all edges using the provided node(s) "
+				+ "(DAG nodes, \"strings\" or 'primitives), "
 				+ "each optionally bounded to a specific argument "
 				+ "position in the edge's arguments (1-indexed).";
 	}
@@ -41,6 +44,13 @@ public class RelatedEdgeCommand extends CollectionCommand {
 			return;
 		}
 
+		Collection<Edge> edges = (countOnly_) ? null : this
+				.<Edge> continuePage();
+		if (edges != null) {
+			printItems(edges);
+			return;
+		}
+
 		Object[] args = null;
 		try {
 			args = parseArgs(data, dagHandler);
@@ -51,14 +61,13 @@ public class RelatedEdgeCommand extends CollectionCommand {
 			return;
 		}
 
-		Collection<Edge> edges = relatedModule.execute(args);
-		edges = dagHandler.sort(edges, rangeStart_, rangeEnd_);
-
-		print(edges.size() + "|");
-		for (Edge edge : edges) {
-			print(dagHandler.textIDObject(edge) + "|");
+		if (countOnly_) {
+			printCount(relatedModule.count(args));
+			return;
 		}
-		print("\n");
+
+		edges = page(relatedModule.execute(args));
+		printItems(edges);
 	}
 
 	protected Object[] parseArgs(String data, DAGPortHandler dagHandler) {
@@ -0,0 +1,99 @@
+package graph.module.cli;
+
+import graph.core.DAGNode;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.module.CentralityModule;
+import graph.module.CentralityModule.Measure;
+import graph.module.NodeScores;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import util.UtilityMethods;
+
+/**
+ * Queries the stored centrality scores of nodes.
+ *
+ * @author Sam Sarjant
+ */
+public class ScoreCommand extends CollectionCommand implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} measure [node] : "
+				+ "Returns the score and (0-indexed) rank of node for a "
+				+ "measure computed by the centrality command, as "
+				+ "score|rank|. Without a node, returns the scored "
+				+ "nodes in rank order, highest score first.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns centrality scores or the nodes ranked by score.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		super.executeImpl();
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		CentralityModule centralityModule = (CentralityModule) dagHandler
+				.getDAG().getModule(CentralityModule.class);
+		if (centralityModule == null) {
+			print("Centrality module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		NodeScores scores;
+		Measure measure;
+		try {
+			measure = Measure.parse(split.get(0));
+			scores = centralityModule.getScores(measure);
+		} catch (IllegalArgumentException e) {
+			print("-1|Unknown measure: " + split.get(0) + "\n");
+			return;
+		}
+		if (scores == null) {
+			print("-1|Measure has not been computed.\n");
+			return;
+		}
+
+		if (split.size() >= 2) {
+			DAGNode node = (DAGNode) dagHandler.getDAG().findOrCreateNode(
+					split.get(1), null, false, true, false);
+			if (node == null) {
+				print("-1|No node found.\n");
+				return;
+			}
+			Double score = scores.getScore(node.getID());
+			if (score == null) {
+				print("-1|Node is not scored.\n");
+				return;
+			}
+			print(score + "|" + scores.getRank(node.getID()) + "|\n");
+			return;
+		}
+
+		if (countOnly_) {
+			printCount(scores.size());
+			return;
+		}
+		// Ranked nodes are read straight from the range, unless re-sorted
+		Collection<DAGNode> nodes;
+		if (!dagHandler.isSorting())
+			nodes = centralityModule.getRanked(measure, rangeStart_, rangeEnd_);
+		else {
+			nodes = continuePage();
+			if (nodes == null)
+				nodes = page(centralityModule.getRanked(measure, 0,
+						scores.size()));
+		}
+		printItems(nodes);
+	}
+}
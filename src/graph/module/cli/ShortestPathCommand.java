@@ -0,0 +1,96 @@
+package graph.module.cli;
+
+import graph.core.DAGNode;
+import graph.core.Edge;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.module.PathSearch;
+import graph.module.RelatedEdgeModule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import util.UtilityMethods;
+
+/**
+ * Finds a shortest chain of edges connecting two nodes.
+ *
+ * @author Sam Sarjant
+ */
+public class ShortestPathCommand extends CollectionCommand
+		implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} node node [predicate ...] [-w property] : "
+				+ "Returns the edges of a shortest path between the "
+				+ "two nodes, in order, where nodes sharing an edge "
+				+ "(optionally only of the given predicates) are "
+				+ "adjacent. With -w, edges are weighted by the numeric "
+				+ "edge property (default " + PathSearch.DEFAULT_WEIGHT
+				+ "). Returns -1| if the nodes are not connected.";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns the shortest path of edges between two nodes.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		super.executeImpl();
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		RelatedEdgeModule relatedModule = (RelatedEdgeModule) dagHandler
+				.getDAG().getModule(RelatedEdgeModule.class);
+		if (relatedModule == null) {
+			print("Related Edge module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		String weightProperty = null;
+		int weightIndex = split.indexOf("-w");
+		if (weightIndex != -1) {
+			if (weightIndex != split.size() - 2) {
+				print("-1|The weight property must be last.\n");
+				return;
+			}
+			weightProperty = split.get(weightIndex + 1);
+			split = new ArrayList<>(split.subList(0, weightIndex));
+		}
+		if (split.size() < 2) {
+			print("-1|Requires two nodes.\n");
+			return;
+		}
+
+		List<DAGNode> nodes = new ArrayList<>();
+		for (String arg : split) {
+			DAGNode node = (DAGNode) dagHandler.getDAG().findOrCreateNode(arg,
+					null, false, true, false);
+			if (node == null) {
+				print("-1|No node found.\n");
+				return;
+			}
+			nodes.add(node);
+		}
+		Collection<DAGNode> predicates = nodes.subList(2, nodes.size());
+
+		List<Edge> path = new PathSearch(relatedModule, predicates,
+				weightProperty).findPath(nodes.get(0), nodes.get(1));
+		if (path == null) {
+			print("-1|No path found.\n");
+			return;
+		}
+		if (countOnly_) {
+			printCount(path.size());
+			return;
+		}
+		printItems(path);
+	}
+}
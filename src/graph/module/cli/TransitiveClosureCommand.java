@@ -0,0 +1,80 @@
+package graph.module.cli;
+
+import graph.core.DAGNode;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.ReadOnlyCommand;
+import graph.module.ReachabilityModule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import util.UtilityMethods;
+
+/**
+ * Finds every ancestor or descendant of a node over a hierarchy predicate.
+ *
+ * @author Sam Sarjant
+ */
+public class TransitiveClosureCommand extends CollectionCommand
+		implements ReadOnlyCommand {
+	@Override
+	public String helpText() {
+		return "{0} predicate node [up|down] : "
+				+ "Returns every node transitively above (up, the "
+				+ "default) or below (down) node, following edges of "
+				+ "the form (predicate child parent).";
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns all transitive ancestors/descendants of a node.";
+	}
+
+	@Override
+	protected void executeImpl() {
+		super.executeImpl();
+		DAGPortHandler dagHandler = (DAGPortHandler) handler;
+		ReachabilityModule reachModule = (ReachabilityModule) dagHandler
+				.getDAG().getModule(ReachabilityModule.class);
+		if (reachModule == null) {
+			print("Reachability module is not in use for this DAG.\n");
+			return;
+		}
+
+		if (data.isEmpty()) {
+			printErrorNoData();
+			return;
+		}
+
+		Collection<DAGNode> nodes = (countOnly_) ? null : this
+				.<DAGNode> continuePage();
+		if (nodes != null) {
+			printItems(nodes);
+			return;
+		}
+
+		ArrayList<String> split = UtilityMethods.split(data, ' ');
+		if (split.size() < 2) {
+			print("-1|Requires a predicate and a node.\n");
+			return;
+		}
+		DAGNode predicate = (DAGNode) dagHandler.getDAG().findOrCreateNode(
+				split.get(0), null, false, true, false);
+		DAGNode node = (DAGNode) dagHandler.getDAG().findOrCreateNode(
+				split.get(1), null, false, true, false);
+		if (predicate == null || node == null) {
+			print("-1|No node found.\n");
+			return;
+		}
+		boolean up = split.size() < 3 || !split.get(2).equalsIgnoreCase("down");
+
+		nodes = (up) ? reachModule.getAncestors(predicate, node) : reachModule
+				.getDescendants(predicate, node);
+		if (countOnly_) {
+			printCount(nodes.size());
+			return;
+		}
+		printItems(page(nodes));
+	}
+}
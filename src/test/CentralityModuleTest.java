@@ -0,0 +1,100 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import graph.core.DAGNode;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.Node;
+import graph.core.StringNode;
+import graph.module.CentralityModule;
+import graph.module.CentralityModule.Measure;
+import graph.module.NodeScores;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CentralityModuleTest {
+	private CentralityModule sut_;
+	private DirectedAcyclicGraph dag_;
+	private Node creator_ = new StringNode("TestCreator");
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		sut_ = (CentralityModule) dag_.getModule(CentralityModule.class);
+		sut_.clear();
+	}
+
+	@After
+	public void tearDown() {
+		sut_.clear();
+	}
+
+	private DAGNode node(String name) {
+		return (DAGNode) dag_.findOrCreateNode(name, creator_, true, true,
+				true);
+	}
+
+	@Test
+	public void testPageRank() {
+		DAGNode links = node("rankLinks");
+		DAGNode hub = node("RankHub");
+		DAGNode a = node("RankA");
+		DAGNode b = node("RankB");
+		DAGNode c = node("RankC");
+		dag_.findOrCreateEdge(creator_, false, links, a, hub);
+		dag_.findOrCreateEdge(creator_, false, links, b, hub);
+		dag_.findOrCreateEdge(creator_, false, links, c, hub);
+		dag_.findOrCreateEdge(creator_, false, links, hub, a);
+
+		assertNull(sut_.getScores(Measure.PAGERANK));
+		NodeScores scores = sut_.compute(Measure.PAGERANK, Arrays.asList(links));
+		assertEquals(4, scores.size());
+		double sum = 0;
+		for (int rank = 0; rank < scores.size(); rank++) {
+			sum += scores.getScoreAtRank(rank);
+			if (rank > 0)
+				assertTrue(scores.getScoreAtRank(rank - 1) >= scores
+						.getScoreAtRank(rank));
+		}
+		assertEquals(1, sum, 1e-6);
+		assertEquals(0, scores.getRank(hub.getID()));
+		assertEquals(1, scores.getRank(a.getID()));
+		assertEquals(scores.getScore(b.getID()), scores.getScore(c.getID()));
+		assertNull(scores.getScore(links.getID()));
+
+		List<DAGNode> ranked = sut_.getRanked(Measure.PAGERANK, 0, 2);
+		assertEquals(Arrays.asList(hub, a), ranked);
+		assertEquals(scores, sut_.execute("pagerank"));
+	}
+
+	@Test
+	public void testDegreeAndCloseness() {
+		// A path a - b - c - d - e
+		DAGNode next = node("rankNext");
+		DAGNode[] path = new DAGNode[5];
+		for (int i = 0; i < path.length; i++)
+			path[i] = node("RankPath" + i);
+		for (int i = 1; i < path.length; i++)
+			dag_.findOrCreateEdge(creator_, false, next, path[i - 1], path[i]);
+
+		NodeScores degree = sut_.compute(Measure.DEGREE, Arrays.asList(next));
+		assertEquals(0.25, degree.getScore(path[0].getID()), 1e-9);
+		assertEquals(0.5, degree.getScore(path[2].getID()), 1e-9);
+
+		// Exact with every node as a pivot
+		NodeScores closeness = sut_.compute(Measure.CLOSENESS,
+				Arrays.asList(next));
+		assertEquals(0, closeness.getRank(path[2].getID()));
+		assertEquals(4.0 / 6, closeness.getScore(path[2].getID()), 1e-9);
+		assertEquals(4.0 / 10, closeness.getScore(path[0].getID()), 1e-9);
+		assertEquals(closeness.getScore(path[1].getID()),
+				closeness.getScore(path[3].getID()));
+	}
+}
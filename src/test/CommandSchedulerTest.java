@@ -0,0 +1,124 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import graph.core.cli.AddEdgeCommand;
+import graph.core.cli.CommandScheduler;
+import graph.core.cli.CommandScheduler.Lane;
+import graph.core.cli.CountCommand;
+import graph.core.cli.MapCommand;
+import graph.core.cli.NodeCommand;
+import graph.core.cli.SyncCommand;
+import graph.module.cli.AcyclicCommand;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import core.CommandParser;
+
+public class CommandSchedulerTest {
+	@Test
+	public void testLanes() {
+		assertEquals(Lane.READ, Lane.of(new NodeCommand()));
+		assertEquals(Lane.WRITE, Lane.of(new AddEdgeCommand()));
+		assertEquals(Lane.ADMIN, Lane.of(new SyncCommand()));
+		assertEquals(Lane.BULK, Lane.of(new MapCommand()));
+	}
+
+	@Test
+	public void testArgumentLanes() {
+		CommandParser.addCommand("node", NodeCommand.class);
+		CommandParser.addCommand("addEdge", AddEdgeCommand.class);
+		CommandParser.addCommand("map", MapCommand.class);
+		CommandParser.addCommand("count", CountCommand.class);
+		CommandParser.addCommand("acyclic", AcyclicCommand.class);
+		// Counting is scheduled as the counted command
+		assertEquals(Lane.READ, Lane.of(CommandParser.parse("count node 1")));
+		assertEquals(Lane.WRITE,
+				Lane.of(CommandParser.parse("count addEdge 1 2 3")));
+		assertEquals(Lane.BULK,
+				Lane.of(CommandParser.parse("count map edge $1 ;")));
+		// Only setting the acyclic mode is administration
+		assertEquals(Lane.READ, Lane.of(CommandParser.parse("acyclic 1")));
+		assertEquals(Lane.READ,
+				Lane.of(CommandParser.parse("acyclic 1 order")));
+		assertEquals(Lane.READ,
+				Lane.of(CommandParser.parse("acyclic 1 cycles")));
+		assertEquals(Lane.ADMIN,
+				Lane.of(CommandParser.parse("acyclic 1 reject")));
+	}
+
+	@Test
+	public void testWorkerErrors() throws Exception {
+		CommandScheduler sut = new CommandScheduler(1, null, null);
+		for (int i = 0; i < 3; i++) {
+			sut.execute(Lane.WRITE, new Runnable() {
+				@Override
+				public void run() {
+					throw new AssertionError("Expected test error.");
+				}
+			});
+		}
+		// The only worker keeps executing after the errors
+		final CountDownLatch done = new CountDownLatch(1);
+		sut.execute(Lane.WRITE, new Runnable() {
+			@Override
+			public void run() {
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		sut.shutdown();
+	}
+
+	@Test
+	public void testBudgets() throws Exception {
+		CommandScheduler sut = new CommandScheduler(4, new int[] { 4, 2, 1,
+				1 }, null);
+		// No lane may take every worker
+		assertEquals(3, sut.getBudget(Lane.READ));
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch bulkDone = new CountDownLatch(3);
+		Runnable bulk = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+				}
+				bulkDone.countDown();
+			}
+		};
+		for (int i = 0; i < 3; i++)
+			sut.execute(Lane.BULK, bulk);
+		for (int i = 0; i < 100 && sut.getRunning(Lane.BULK) == 0; i++)
+			Thread.sleep(10);
+
+		// Reads are not held up by the bulk backlog
+		final CountDownLatch readDone = new CountDownLatch(5);
+		for (int i = 0; i < 5; i++) {
+			sut.execute(Lane.READ, new Runnable() {
+				@Override
+				public void run() {
+					readDone.countDown();
+				}
+			});
+		}
+		assertTrue(readDone.await(5, TimeUnit.SECONDS));
+		assertEquals(1, sut.getRunning(Lane.BULK));
+		assertEquals(2, sut.getQueueDepth(Lane.BULK));
+
+		release.countDown();
+		assertTrue(bulkDone.await(5, TimeUnit.SECONDS));
+		// Completion is recorded just after the task returns
+		for (int i = 0; i < 100 && sut.getCompleted(Lane.BULK) < 3; i++)
+			Thread.sleep(10);
+		assertEquals(3, sut.getCompleted(Lane.BULK));
+		assertEquals(0, sut.getQueueDepth(Lane.BULK));
+		assertTrue(sut.getMaxWait(Lane.BULK) >= sut.getMeanWait(Lane.BULK));
+		assertTrue(sut.getMaxWait(Lane.BULK) > 0);
+		sut.shutdown();
+	}
+}
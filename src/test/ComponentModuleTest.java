@@ -0,0 +1,100 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import graph.core.DAGNode;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.Edge;
+import graph.core.Node;
+import graph.core.StringNode;
+import graph.module.CSRSnapshot;
+import graph.module.ComponentModule;
+import graph.module.UnionFind;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ComponentModuleTest {
+	private ComponentModule sut_;
+	private DirectedAcyclicGraph dag_;
+	private Node creator_ = new StringNode("TestCreator");
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		sut_ = (ComponentModule) dag_.getModule(ComponentModule.class);
+		sut_.clear();
+	}
+
+	@After
+	public void tearDown() {
+		sut_.clear();
+	}
+
+	private DAGNode node(String name) {
+		return (DAGNode) dag_.findOrCreateNode(name, creator_, true, true,
+				true);
+	}
+
+	@Test
+	public void testComponents() {
+		DAGNode links = node("compLinks");
+		DAGNode a = node("CompA");
+		DAGNode b = node("CompB");
+		DAGNode c = node("CompC");
+		DAGNode d = node("CompD");
+		dag_.findOrCreateEdge(creator_, false, links, a, b);
+		assertTrue(sut_.isConnected(a, b));
+		assertFalse(sut_.isConnected(a, c));
+		assertEquals(1, sut_.getComponentSize(d));
+		int before = sut_.getComponentSize(a);
+
+		// Merged incrementally
+		Edge bc = dag_.findOrCreateEdge(creator_, false, links, b, c);
+		assertTrue(sut_.isConnected(a, c));
+		assertEquals(before + 1, sut_.getComponentSize(c));
+		assertEquals(sut_.getComponent(a), sut_.getComponent(c));
+		assertEquals((Long) sut_.getComponent(b), sut_.execute(b));
+
+		// Split on the next query after removal
+		dag_.removeEdge(bc);
+		assertFalse(sut_.isConnected(a, c));
+		assertTrue(sut_.isConnected(a, b));
+		assertEquals(before, sut_.getComponentSize(a));
+	}
+
+	@Test
+	public void testParallelUnions() {
+		Random random = new Random(7);
+		final int size = 5000;
+		final int[][] pairs = new int[3 * CSRSnapshot.SPLIT_THRESHOLD][2];
+		for (int[] pair : pairs) {
+			pair[0] = random.nextInt(size);
+			pair[1] = random.nextInt(size);
+		}
+
+		final UnionFind parallel = new UnionFind(size);
+		CSRSnapshot.forEachRange(pairs.length, 1024,
+				new CSRSnapshot.RangeHandler() {
+					@Override
+					public void process(int start, int end) {
+						for (int i = start; i < end; i++)
+							parallel.union(pairs[i][0], pairs[i][1]);
+					}
+				});
+		parallel.recountSizes();
+		UnionFind serial = new UnionFind(size);
+		for (int[] pair : pairs)
+			serial.union(pair[0], pair[1]);
+
+		for (int i = 0; i < size; i++) {
+			assertEquals(serial.find(i), parallel.find(i));
+			assertEquals(serial.getSize(i), parallel.getSize(i));
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.cli.AddNodeCommand;
+import graph.core.cli.CommandScheduler;
+import graph.core.cli.EventLoopServer;
+import graph.core.cli.NioPortHandler;
+import graph.core.cli.NodeCommand;
+import graph.core.cli.NumNodeCommand;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import core.CommandParser;
+
+public class EventLoopServerTest {
+	private static final String END_MESSAGE = "--message end--";
+	private static DirectedAcyclicGraph dag_;
+	private static int port_;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		CommandParser.addCommand("node", NodeCommand.class);
+		CommandParser.addCommand("addNode", AddNodeCommand.class);
+		CommandParser.addCommand("numNodes", NumNodeCommand.class);
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port_ = socket.getLocalPort();
+		}
+		new EventLoopServer(port_, CommandScheduler.getInstance(), dag_)
+				.start();
+	}
+
+	/**
+	 * Connects to the server, waiting for it to start listening.
+	 */
+	private Socket connect() throws Exception {
+		for (int i = 0;; i++) {
+			try {
+				Socket socket = new Socket("localhost", port_);
+				socket.setSoTimeout(10000);
+				return socket;
+			} catch (ConnectException e) {
+				if (i == 100)
+					throw e;
+				Thread.sleep(50);
+			}
+		}
+	}
+
+	/**
+	 * Reads the responses of a number of commands.
+	 */
+	private String read(Socket socket, int responses) throws IOException {
+		InputStream in = socket.getInputStream();
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		while (true) {
+			String text = new String(read.toByteArray(),
+					Charset.defaultCharset());
+			if (count(text, END_MESSAGE) >= responses)
+				return text;
+			int length = in.read(buffer);
+			if (length == -1)
+				return text;
+			read.write(buffer, 0, length);
+		}
+	}
+
+	/**
+	 * Reads until the server closes the connection.
+	 *
+	 * @return The text read, or null if the connection stayed open.
+	 */
+	private String readToClose(Socket socket) throws IOException {
+		InputStream in = socket.getInputStream();
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		try {
+			int length;
+			while ((length = in.read(buffer)) != -1)
+				read.write(buffer, 0, length);
+		} catch (SocketTimeoutException e) {
+			return null;
+		} catch (IOException e) {
+			// Reset, as the server closed with input unread
+		}
+		return new String(read.toByteArray(), Charset.defaultCharset());
+	}
+
+	private int count(String text, String part) {
+		int count = 0;
+		for (int i = text.indexOf(part); i != -1; i = text.indexOf(part, i
+				+ part.length()))
+			count++;
+		return count;
+	}
+
+	@Test
+	public void testSplitCharacter() throws Exception {
+		Charset charset = Charset.defaultCharset();
+		if ("\u00e9".getBytes(charset).length == 1)
+			// No character is split in a single byte charset
+			return;
+		String name = "Split\u00e9" + System.nanoTime();
+		byte[] bytes = ("addNode " + name + "\n").getBytes(charset);
+		// Split within the bytes of the accented character
+		int split = "addNode Split".getBytes(charset).length + 1;
+		try (Socket socket = connect()) {
+			OutputStream out = socket.getOutputStream();
+			out.write(bytes, 0, split);
+			out.flush();
+			Thread.sleep(200);
+			out.write(bytes, split, bytes.length - split);
+			out.flush();
+			assertTrue(read(socket, 1).contains("|" + name + "|"));
+		}
+	}
+
+	@Test
+	public void testLongLine() throws Exception {
+		char[] line = new char[NioPortHandler.MAX_PENDING_INPUT + 1024];
+		Arrays.fill(line, 'a');
+		try (Socket socket = connect()) {
+			try {
+				OutputStream out = socket.getOutputStream();
+				out.write(new String(line)
+						.getBytes(Charset.defaultCharset()));
+				out.flush();
+			} catch (IOException e) {
+				// Closed before the whole line was sent
+			}
+			String read = readToClose(socket);
+			assertTrue(read != null);
+			assertEquals(0, count(read, END_MESSAGE));
+		}
+	}
+
+	@Test
+	public void testBackToBackLines() throws Exception {
+		String prefix = "Order" + System.nanoTime() + "_";
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 20; i++)
+			lines.append("addNode " + prefix + i + "\n");
+		try (Socket socket = connect()) {
+			OutputStream out = socket.getOutputStream();
+			out.write(lines.toString().getBytes(Charset.defaultCharset()));
+			out.flush();
+			String read = read(socket, 20);
+			assertEquals(20, count(read, END_MESSAGE));
+			// Each response follows the previous one
+			int position = 0;
+			for (int i = 0; i < 20; i++) {
+				int index = read.indexOf("|" + prefix + i + "|");
+				assertTrue(index > position);
+				position = index;
+			}
+		}
+	}
+
+	@Test
+	public void testCloseAfterTerminate() throws Exception {
+		// Quit terminates the connection as shutdown does
+		try (Socket socket = connect()) {
+			OutputStream out = socket.getOutputStream();
+			out.write("numNodes\nquit\nnumNodes\n".getBytes(Charset
+					.defaultCharset()));
+			out.flush();
+			String read = readToClose(socket);
+			assertTrue(read != null);
+			// The first response is written in full, and no more commands
+			assertEquals(1, count(read, END_MESSAGE));
+			assertTrue(read.contains(dag_.getNumNodes() + "\n"
+					+ END_MESSAGE));
+		}
+	}
+}
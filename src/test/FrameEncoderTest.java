@@ -0,0 +1,122 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import graph.core.Identifiable;
+import graph.core.PrimitiveNode;
+import graph.core.StringNode;
+import graph.core.cli.FrameEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FrameEncoderTest {
+	/**
+	 * Reads the next frame of a stream.
+	 */
+	private static byte[] readFrame(InputStream in) throws IOException {
+		long length = FrameEncoder.readVarint(in);
+		if (length == -1)
+			return null;
+		byte[] frame = new byte[(int) length];
+		assertEquals(frame.length, in.read(frame));
+		return frame;
+	}
+
+	/**
+	 * Decodes the items of an items frame (after its request ID and type).
+	 */
+	private static void readItems(byte[] frame, int[] position,
+			List<Object> items) throws IOException {
+		while (position[0] < frame.length) {
+			byte type = frame[position[0]++];
+			if (type == FrameEncoder.INTEGER) {
+				long value = FrameEncoder.readVarint(frame, position);
+				items.add((value >>> 1) ^ -(value & 1));
+			} else if (type == FrameEncoder.REAL) {
+				long bits = 0;
+				for (int i = 0; i < 8; i++)
+					bits = (bits << 8) | (frame[position[0]++] & 0xff);
+				items.add(Double.longBitsToDouble(bits));
+			} else {
+				assertEquals(FrameEncoder.STRING, type);
+				int length = (int) FrameEncoder.readVarint(frame, position);
+				items.add(new String(frame, position[0], length,
+						StandardCharsets.UTF_8));
+				position[0] += length;
+			}
+		}
+	}
+
+	@Test
+	public void testPrimitives() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FrameEncoder sut = new FrameEncoder(out);
+		long requestID = (1L << 40) + 3;
+		List<Identifiable> items = new ArrayList<>();
+		for (String value : new String[] { "0", "-1", "-5", "300",
+				"-123456789", "268435457", "1099511627776",
+				"-1099511627776", "1.5" })
+			items.add(PrimitiveNode.parseNode(value));
+		sut.writeItems(requestID, items, false);
+		sut.writeEnd(requestID);
+
+		InputStream in = new ByteArrayInputStream(out.toByteArray());
+		byte[] frame = readFrame(in);
+		int[] position = { 0 };
+		assertEquals(requestID, FrameEncoder.readVarint(frame, position));
+		assertEquals(FrameEncoder.ITEMS, frame[position[0]++]);
+		List<Object> decoded = new ArrayList<>();
+		readItems(frame, position, decoded);
+		assertEquals(Arrays.<Object> asList(0L, -1L, -5L, 300L, -123456789L,
+				268435457L, 1099511627776L, -1099511627776L, 1.5), decoded);
+
+		frame = readFrame(in);
+		position[0] = 0;
+		assertEquals(requestID, FrameEncoder.readVarint(frame, position));
+		assertEquals(FrameEncoder.END, frame[position[0]++]);
+		assertEquals(frame.length, position[0]);
+		assertEquals(null, readFrame(in));
+	}
+
+	@Test
+	public void testChunkedItems() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FrameEncoder sut = new FrameEncoder(out);
+		List<Identifiable> items = new ArrayList<>();
+		List<Object> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			String name = "Item" + i + "-abcdefghijklmnopqrstuvwxyz";
+			items.add(new StringNode(name));
+			expected.add(name);
+		}
+		sut.writeItems(7, items, false);
+		sut.writeEnd(7);
+
+		InputStream in = new ByteArrayInputStream(out.toByteArray());
+		List<Object> decoded = new ArrayList<>();
+		int numFrames = 0;
+		byte[] frame;
+		while ((frame = readFrame(in)) != null) {
+			int[] position = { 0 };
+			assertEquals(7, FrameEncoder.readVarint(frame, position));
+			byte type = frame[position[0]++];
+			if (type == FrameEncoder.END)
+				break;
+			assertEquals(FrameEncoder.ITEMS, type);
+			assertTrue(frame.length < FrameEncoder.CHUNK_SIZE + 64);
+			readItems(frame, position, decoded);
+			numFrames++;
+		}
+		assertTrue(numFrames > 3);
+		assertEquals(expected, decoded);
+	}
+}
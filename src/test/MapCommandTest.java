@@ -0,0 +1,129 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import graph.core.DAGNode;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.Identifiable;
+import graph.core.Node;
+import graph.core.StringNode;
+import graph.core.cli.CollectionCommand;
+import graph.core.cli.CommandScheduler;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.EdgeCommand;
+import graph.core.cli.MapCommand;
+import graph.module.RelatedEdgeModule;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.Socket;
+import java.util.Collection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import core.Command;
+import core.CommandParser;
+
+public class MapCommandTest {
+	private DirectedAcyclicGraph dag_;
+	private RelatedEdgeModule relatedModule_;
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		relatedModule_ = (RelatedEdgeModule) dag_
+				.getModule(RelatedEdgeModule.class);
+		relatedModule_.clear();
+		CommandParser.addCommand("edge", EdgeCommand.class);
+		CommandParser.addCommand("map", MapCommand.class);
+	}
+
+	@After
+	public void tearDown() {
+		relatedModule_.clear();
+	}
+
+	/**
+	 * Executes a command on a handler that reads the given further lines.
+	 */
+	private Command execute(String line, String further) {
+		Command command = CommandParser.parse(line);
+		command.setPortHandler(new TestHandler(dag_, further));
+		command.execute();
+		return command;
+	}
+
+	@Test
+	public void testMapIDs() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode link = (DAGNode) dag_.findOrCreateNode("mapLink", creator,
+				true, true, true);
+		DAGNode hub = (DAGNode) dag_.findOrCreateNode("MapHub", creator, true,
+				true, true);
+		for (int i = 0; i < 50; i++) {
+			DAGNode spoke = (DAGNode) dag_.findOrCreateNode("MapSpoke" + i,
+					creator, true, true, true);
+			dag_.findOrCreateEdge(creator, false, link, hub, spoke);
+		}
+
+		// The collection's items, in order
+		Command edges = execute("findEdges MapHub", "");
+		Collection<? extends Identifiable> items = ((CollectionCommand) edges)
+				.getPrintedItems();
+		assertEquals(50, items.size());
+		StringBuilder expected = new StringBuilder();
+		for (Identifiable item : items) {
+			Command edge = execute("edge " + item.getIdentifier(), "");
+			expected.append(edge.getResult()).append(";\n");
+			assertTrue(edge.getResult().startsWith(item.getIdentifier()));
+		}
+
+		// An empty regexp maps the IDs, with outputs in item order
+		Command map = execute("map edge $1 ;", "findEdges MapHub\n\n");
+		assertEquals(expected.toString(), map.getResult());
+	}
+
+	@Test
+	public void testMissingGroup() {
+		Command map = execute("map edge $2 ;", "findEdges MapHub\n\n");
+		assertEquals("Function args use $2, but captureRegExp only has 1 "
+				+ "groups.\n", map.getResult());
+		map = execute("map edge $3 ;", "findEdges MapHub\n(\\d+)\\|(\\d+)\n");
+		assertEquals("Function args use $3, but captureRegExp only has 2 "
+				+ "groups.\n", map.getResult());
+	}
+
+	/**
+	 * A handler without a client, reading further lines from a string.
+	 */
+	private static class TestHandler extends DAGPortHandler {
+		private final BufferedReader reader_;
+
+		public TestHandler(DirectedAcyclicGraph dag, String lines) {
+			super(new Socket() {
+				@Override
+				public InputStream getInputStream() {
+					return new ByteArrayInputStream(new byte[0]);
+				}
+
+				@Override
+				public OutputStream getOutputStream() {
+					return new ByteArrayOutputStream();
+				}
+			}, CommandScheduler.getInstance(), dag);
+			reader_ = new BufferedReader(new StringReader(lines));
+		}
+
+		@Override
+		public BufferedReader getReader() {
+			return reader_;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import graph.core.DAGNode;
+import graph.module.NameIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NameIndexTest {
+	@Test
+	public void testRemove() {
+		NameIndex sut = new NameIndex(true);
+		// Equal hash codes, so BB probes past Aa
+		DAGNode aa = new DAGNode("Aa");
+		DAGNode bb = new DAGNode("BB");
+		assertTrue(sut.add(aa));
+		assertTrue(sut.add(bb));
+		assertFalse(sut.add(bb));
+
+		assertTrue(sut.remove(aa));
+		assertFalse(sut.remove(aa));
+		assertNull(sut.get("Aa"));
+		assertSame(bb, sut.get("BB"));
+		assertEquals(1, sut.size());
+	}
+
+	@Test
+	public void testRebuild() {
+		NameIndex sut = new NameIndex(false);
+		List<DAGNode> nodes = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			DAGNode node = new DAGNode("Node" + i);
+			nodes.add(node);
+			sut.add(node);
+			// Removed slots are cleared out as the table fills
+			if (i % 2 == 1)
+				sut.remove(nodes.get(i - 1));
+		}
+		assertEquals(2500, sut.size());
+		assertNull(sut.get("node0"));
+		assertSame(nodes.get(4999), sut.get("NODE4999"));
+
+		Collection<DAGNode> found = new ArrayList<>();
+		sut.getAll("node11", found);
+		assertEquals(1, found.size());
+	}
+}
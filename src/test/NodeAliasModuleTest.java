@@ -1,13 +1,17 @@
 package test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import graph.core.DAGNode;
 import graph.core.DirectedAcyclicGraph;
 import graph.core.StringNode;
 import graph.module.NodeAliasModule;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import javax.naming.NamingException;
 
@@ -104,4 +108,87 @@ public class NodeAliasModuleTest {
 		assertEquals(result.size(), 1);
 	}
 
+	@Test
+	public void testFindNodeByExactName() {
+		DAGNode[] nodes = new DAGNode[2000];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = (DAGNode) dag_.findOrCreateNode("NameTest" + i, null,
+					true, true, true);
+		for (int i = 0; i < nodes.length; i++) {
+			assertSame(nodes[i], sut_.findNodeByExactName("NameTest" + i, true));
+			assertSame(nodes[i], sut_.findNodeByExactName("nametest" + i, false));
+		}
+		assertNull(sut_.findNodeByExactName("nametest1", true));
+		assertNull(sut_.findNodeByExactName("NameTest", true));
+
+		// Removing nodes leaves the others findable
+		for (int i = 0; i < nodes.length; i += 2)
+			dag_.removeNode(nodes[i]);
+		for (int i = 0; i < nodes.length; i++) {
+			DAGNode expected = (i % 2 == 0) ? null : nodes[i];
+			assertSame(expected, sut_.findNodeByExactName("NameTest" + i, true));
+			assertSame(expected,
+					sut_.findNodeByExactName("NAMETEST" + i, false));
+		}
+		for (int i = 1; i < nodes.length; i += 2)
+			dag_.removeNode(nodes[i]);
+	}
+
+	@Test
+	public void testCaseFolding() {
+		DAGNode dog = (DAGNode) dag_.findOrCreateNode("Dog", null, true, true,
+				true);
+		sut_.addAlias(dog, "DOG");
+		sut_.addAlias(dog, "Doggy");
+		assertEquals(sut_.findNodeByAlias("dog", false, true).size(), 1);
+		assertEquals(sut_.findNodeByAlias("DOGGY", false, true).size(), 1);
+		assertEquals(sut_.findNodeByAlias("dOg", false, false).size(), 1);
+		assertEquals(sut_.findNodeByAlias("dog", true, false).size(), 0);
+
+		// Another alias still folds to the same key
+		sut_.removeAlias(dog, "DOG");
+		assertEquals(sut_.findNodeByAlias("DOG", true, true).size(), 0);
+		assertEquals(sut_.findNodeByAlias("DOG", false, true).size(), 1);
+		sut_.removeAlias(dog, "Dog");
+		assertEquals(sut_.findNodeByAlias("DOG", false, true).size(), 0);
+		assertEquals(sut_.findNodeByAlias("dog", false, false).size(), 1);
+	}
+
+	@Test
+	public void testFuzzyAlias() {
+		DAGNode london = (DAGNode) dag_.findOrCreateNode("London", null, true,
+				true, true);
+		DAGNode londo = (DAGNode) dag_.findOrCreateNode("Londo", null, true,
+				true, true);
+		dag_.findOrCreateNode("Lisbon", null, true, true, true);
+		sut_.addAlias(london, "Big Smoke");
+
+		List<DAGNode> result = sut_.findNodeByFuzzyAlias("Londn", true, 1);
+		assertEquals(result, Arrays.asList(london, londo));
+		result = sut_.findNodeByFuzzyAlias("Lond", true, 2);
+		assertEquals(result, Arrays.asList(londo, london));
+		result = sut_.findNodeByFuzzyAlias("Lodnon", true, 1);
+		assertEquals(result.size(), 0);
+		result = sut_.findNodeByFuzzyAlias("Lodnon", true, 2);
+		assertEquals(result, Arrays.asList(london));
+		result = sut_.findNodeByFuzzyAlias("london", true, 1);
+		assertEquals(result, Arrays.asList(london));
+		result = sut_.findNodeByFuzzyAlias("LONDON", false, 0);
+		assertEquals(result, Arrays.asList(london));
+		result = sut_.findNodeByFuzzyAlias("big smoak", false, 2);
+		assertEquals(result, Arrays.asList(london));
+	}
+
+	@Test
+	public void testCount() {
+		dag_.findOrCreateNode("Fruit", null, true, true, true);
+		dag_.findOrCreateNode("FruitFn", null, true, true, true);
+		dag_.findOrCreateNode("fruit", null, true, true, true);
+		assertEquals(sut_.count("Fruit"), 1);
+		assertEquals(sut_.count("Fruit", false), 2);
+		assertEquals(sut_.count("Fruit", true, false), 2);
+		assertEquals(sut_.count("Fruit", false, false), 3);
+		assertEquals(sut_.count("fruit", false, false, true), 2);
+		assertEquals(sut_.count("Apple"), 0);
+	}
 }
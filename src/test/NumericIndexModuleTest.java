@@ -0,0 +1,187 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import graph.core.DAGEdge;
+import graph.core.DAGNode;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.Edge;
+import graph.core.Node;
+import graph.core.PrimitiveNode;
+import graph.core.StringNode;
+import graph.module.NumericIndexModule;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NumericIndexModuleTest {
+	private NumericIndexModule sut_;
+	private DirectedAcyclicGraph dag_;
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		sut_ = (NumericIndexModule) dag_.getModule(NumericIndexModule.class);
+		sut_.clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		sut_.clear();
+	}
+
+	@Test
+	public void testRangeAndTopK() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode population = (DAGNode) dag_.findOrCreateNode("population",
+				creator, true, true, true);
+		String[] cities = { "Paris", "Auckland", "Hamilton", "Tokyo", "Lyon" };
+		String[] values = { "2200000", "1600000", "160000", "13900000",
+				"500000" };
+		DAGEdge[] edges = new DAGEdge[cities.length];
+		for (int i = 0; i < cities.length; i++) {
+			Node city = dag_.findOrCreateNode(cities[i], creator, true, true,
+					true);
+			edges[i] = (DAGEdge) dag_.findOrCreateEdge(creator, false,
+					population, city, PrimitiveNode.parseNode(values[i]));
+		}
+
+		List<Edge> result = sut_.findRange(population, 3, 1000000, false,
+				Double.POSITIVE_INFINITY, true, Integer.MAX_VALUE);
+		assertEquals(result.size(), 3);
+		assertEquals(result.get(0), edges[1]);
+		assertEquals(result.get(1), edges[0]);
+		assertEquals(result.get(2), edges[3]);
+		assertEquals(sut_.countRange(population, 3, 1000000, false,
+				Double.POSITIVE_INFINITY, true), 3);
+
+		result = sut_.findRange(population, 3, 160000, true, 500000, false,
+				Integer.MAX_VALUE);
+		assertEquals(result.size(), 1);
+		assertTrue(result.contains(edges[2]));
+		assertEquals(sut_.findRange(population, 2, 0, true, 1e9, true, 10)
+				.size(), 0);
+
+		result = sut_.findTopK(population, 3, 2, true);
+		assertEquals(result.size(), 2);
+		assertEquals(result.get(0), edges[3]);
+		assertEquals(result.get(1), edges[0]);
+		result = sut_.findTopK(population, 3, 1, false);
+		assertEquals(result.get(0), edges[2]);
+
+		dag_.removeEdge(edges[3]);
+		result = sut_.findTopK(population, 3, 1, true);
+		assertEquals(result.get(0), edges[0]);
+		assertEquals(sut_.execute(population, 3).size(), 4);
+		assertEquals(sut_.execute(population, 3, 500000, 2200000).size(), 3);
+	}
+
+	@Test
+	public void testManyValues() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode score = (DAGNode) dag_.findOrCreateNode("score", creator,
+				true, true, true);
+		DAGNode thing = (DAGNode) dag_.findOrCreateNode("Thing", creator,
+				true, true, true);
+		// Enough values to merge the buffer into the column several times
+		for (int i = 0; i < 5000; i++)
+			dag_.findOrCreateEdge(creator, false, score, thing,
+					PrimitiveNode.parseNode("" + ((i * 7919) % 5000)));
+		List<Edge> result = sut_.findRange(score, 3, 100, true, 199, true,
+				Integer.MAX_VALUE);
+		assertEquals(result.size(), 100);
+		double previous = -1;
+		for (Edge edge : result) {
+			double value = NumericIndexModule.numericValue(edge.getNodes()[2]);
+			assertTrue(value > previous);
+			previous = value;
+		}
+		for (Edge edge : result.subList(0, 50))
+			dag_.removeEdge(edge);
+		assertEquals(sut_.countRange(score, 3, 100, true, 199, true), 50);
+		assertEquals(sut_.findRange(score, 3, 0, true, 4999, true,
+				Integer.MAX_VALUE).size(), 4950);
+		assertEquals(sut_.findTopK(score, 3, 3, true).size(), 3);
+		assertEquals(
+				NumericIndexModule.numericValue(sut_.findTopK(score, 3, 1,
+						true).get(0).getNodes()[2]), 4999, 0);
+	}
+
+	@Test
+	public void testInitialisation() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode weight = (DAGNode) dag_.findOrCreateNode("weight", creator,
+				true, true, true);
+		DAGNode thing = (DAGNode) dag_.findOrCreateNode("Thing", creator,
+				true, true, true);
+		for (int i = 0; i < 3000; i++)
+			dag_.findOrCreateEdge(creator, false, weight, thing,
+					PrimitiveNode.parseNode("" + ((i * 7919) % 3000)));
+
+		// Index the existing edges in one pass
+		sut_.clear();
+		sut_.initialisationComplete(new ArrayList<DAGNode>(),
+				Arrays.asList(dag_.getEdges()));
+		List<Edge> result = sut_.findRange(weight, 3, 0, true, 2999, true,
+				Integer.MAX_VALUE);
+		assertEquals(result.size(), 3000);
+		for (int i = 0; i < result.size(); i++)
+			assertEquals(NumericIndexModule.numericValue(result.get(i)
+					.getNodes()[2]), i, 0);
+
+		// Values added afterwards are merged in order
+		dag_.findOrCreateEdge(creator, false, weight, thing,
+				PrimitiveNode.parseNode("1500.5"));
+		result = sut_.findRange(weight, 3, 1500, true, 1501, true,
+				Integer.MAX_VALUE);
+		assertEquals(result.size(), 3);
+		assertEquals(NumericIndexModule.numericValue(result.get(1)
+				.getNodes()[2]), 1500.5, 0);
+	}
+
+	@Test
+	public void testOffset() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode height = (DAGNode) dag_.findOrCreateNode("height", creator,
+				true, true, true);
+		DAGNode thing = (DAGNode) dag_.findOrCreateNode("Thing", creator,
+				true, true, true);
+		for (int i = 0; i < 3000; i++)
+			dag_.findOrCreateEdge(creator, false, height, thing,
+					PrimitiveNode.parseNode("" + ((i * 7919) % 3000)));
+
+		// Pages skip into the column and the insert buffer alike
+		for (int offset = 0; offset < 3000; offset += 997) {
+			List<Edge> result = sut_.findRange(height, 3, 0, true, 2999,
+					true, offset, 5);
+			assertEquals(result.size(), 5);
+			for (int i = 0; i < 5; i++)
+				assertEquals(NumericIndexModule.numericValue(result.get(i)
+						.getNodes()[2]), offset + i, 0);
+			result = sut_.findTopK(height, 3, offset, 5, true);
+			for (int i = 0; i < 5; i++)
+				assertEquals(NumericIndexModule.numericValue(result.get(i)
+						.getNodes()[2]), 2999 - offset - i, 0);
+		}
+		assertEquals(sut_.findRange(height, 3, 100, true, 199, true, 95, 10)
+				.size(), 5);
+		assertEquals(sut_.findRange(height, 3, 100, true, 199, true, 200, 10)
+				.size(), 0);
+
+		// Removed values are skipped over
+		List<Edge> removed = sut_.findRange(height, 3, 10, true, 19, true,
+				Integer.MAX_VALUE);
+		for (Edge edge : removed)
+			dag_.removeEdge(edge);
+		List<Edge> result = sut_.findRange(height, 3, 0, true, 2999, true,
+				10, 1);
+		assertEquals(NumericIndexModule.numericValue(result.get(0)
+				.getNodes()[2]), 20, 0);
+	}
+}
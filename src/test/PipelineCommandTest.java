@@ -0,0 +1,203 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.cli.AddNodeCommand;
+import graph.core.cli.CommandScheduler;
+import graph.core.cli.DAGPortHandler;
+import graph.core.cli.NodeCommand;
+import graph.core.cli.NumNodeCommand;
+import graph.core.cli.PipelineCommand;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import core.Command;
+import core.CommandParser;
+
+public class PipelineCommandTest {
+	private static final String NEW_LINE = System.lineSeparator();
+	private DirectedAcyclicGraph dag_;
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		CommandParser.addCommand("node", NodeCommand.class);
+		CommandParser.addCommand("addNode", AddNodeCommand.class);
+		CommandParser.addCommand("numNodes", NumNodeCommand.class);
+		CommandParser.addCommand("pipeline", PipelineCommand.class);
+	}
+
+	/**
+	 * Executes a pipeline of commands, returning the framed responses in the
+	 * order they were written.
+	 */
+	private List<String[]> pipeline(String mode, String lines) {
+		TestHandler handler = new TestHandler(dag_, lines + "end\n");
+		Command pipeline = CommandParser.parse("pipeline " + mode);
+		pipeline.setPortHandler(handler);
+		pipeline.execute();
+		List<String[]> responses = parse(handler.written_.toByteArray());
+		assertEquals(responses.size() + "\n", pipeline.getResult());
+		return responses;
+	}
+
+	/**
+	 * Parses tag|length| framed responses, checking each is length bytes.
+	 */
+	private List<String[]> parse(byte[] bytes) {
+		List<String[]> responses = new ArrayList<>();
+		int position = 0;
+		while (position < bytes.length) {
+			int tagEnd = indexOf(bytes, (byte) '|', position);
+			int lengthEnd = indexOf(bytes, (byte) '|', tagEnd + 1);
+			String tag = new String(bytes, position, tagEnd - position,
+					StandardCharsets.UTF_8);
+			int length = Integer.parseInt(new String(bytes, tagEnd + 1,
+					lengthEnd - tagEnd - 1, StandardCharsets.UTF_8));
+			position = lengthEnd + 1 + NEW_LINE.length();
+			assertTrue(position + length <= bytes.length);
+			String result = new String(Arrays.copyOfRange(bytes, position,
+					position + length), StandardCharsets.UTF_8);
+			assertTrue(result.endsWith(NEW_LINE));
+			responses.add(new String[] { tag, result });
+			position += length;
+		}
+		return responses;
+	}
+
+	private int indexOf(byte[] bytes, byte b, int from) {
+		for (int i = from; i < bytes.length; i++)
+			if (bytes[i] == b)
+				return i;
+		throw new AssertionError("Unterminated response header.");
+	}
+
+	@Test
+	public void testOrdered() {
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 50; i++)
+			lines.append("t" + i + " numNodes\n");
+		List<String[]> responses = pipeline("ordered", lines.toString());
+		assertEquals(50, responses.size());
+		for (int i = 0; i < 50; i++) {
+			assertEquals("t" + i, responses.get(i)[0]);
+			assertEquals(dag_.getNumNodes() + NEW_LINE, responses.get(i)[1]);
+		}
+	}
+
+	@Test
+	public void testUnordered() {
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 50; i++)
+			lines.append("t" + i + " numNodes\n");
+		List<String[]> responses = pipeline("unordered", lines.toString());
+		assertEquals(50, responses.size());
+		HashSet<String> tags = new HashSet<>();
+		for (String[] response : responses) {
+			assertTrue(tags.add(response[0]));
+			assertEquals(dag_.getNumNodes() + NEW_LINE, response[1]);
+		}
+		for (int i = 0; i < 50; i++)
+			assertTrue(tags.contains("t" + i));
+	}
+
+	@Test
+	public void testWriteBarrier() {
+		String name = "PipeNode" + System.nanoTime();
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 20; i++)
+			lines.append("before" + i + " node " + name + "\n");
+		lines.append("add addNode " + name + "\n");
+		for (int i = 0; i < 20; i++)
+			lines.append("after" + i + " node " + name + "\n");
+		Map<String, String> results = new LinkedHashMap<>();
+		for (String[] response : pipeline("unordered", lines.toString()))
+			results.put(response[0], response[1]);
+		assertEquals(41, results.size());
+
+		// Reads before the write do not see it, and reads after it do
+		for (int i = 0; i < 20; i++)
+			assertTrue(results.get("before" + i).startsWith("-1|"));
+		String added = results.get("add");
+		assertTrue(added.startsWith(dag_.findOrCreateNode(name, null, false,
+				false, false).getIdentifier() + "|"));
+		for (int i = 0; i < 20; i++)
+			assertEquals(added, results.get("after" + i));
+	}
+
+	@Test
+	public void testUnknownCommand() {
+		List<String[]> responses = pipeline("",
+				"a notACommand\nb\nc numNodes\n");
+		assertEquals(3, responses.size());
+		assertEquals("a", responses.get(0)[0]);
+		assertEquals("-1|Unknown command." + NEW_LINE, responses.get(0)[1]);
+		assertEquals("b", responses.get(1)[0]);
+		assertEquals("-1|Unknown command." + NEW_LINE, responses.get(1)[1]);
+		assertEquals("c", responses.get(2)[0]);
+	}
+
+	@Test
+	public void testByteLength() {
+		// Multi-byte characters are framed by their UTF-8 length
+		String name = "Caf\u00e9\u4e2d" + System.nanoTime();
+		List<String[]> responses = pipeline("", "a addNode " + name
+				+ "\nb node " + name + "\n");
+		assertEquals(2, responses.size());
+		assertTrue(responses.get(1)[1].contains("|" + name + "|"));
+	}
+
+	/**
+	 * A handler without a client, reading further lines from a string and
+	 * keeping the bytes written to it.
+	 */
+	private static class TestHandler extends DAGPortHandler {
+		private final BufferedReader reader_;
+
+		private final ByteArrayOutputStream written_ =
+				new ByteArrayOutputStream();
+
+		public TestHandler(DirectedAcyclicGraph dag, String lines) {
+			super(new Socket() {
+				@Override
+				public InputStream getInputStream() {
+					return new ByteArrayInputStream(new byte[0]);
+				}
+
+				@Override
+				public OutputStream getOutputStream() {
+					return new ByteArrayOutputStream();
+				}
+			}, CommandScheduler.getInstance(), dag);
+			reader_ = new BufferedReader(new StringReader(lines));
+		}
+
+		@Override
+		public BufferedReader getReader() {
+			return reader_;
+		}
+
+		@Override
+		public synchronized void write(byte[] bytes) {
+			written_.write(bytes, 0, bytes.length);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import graph.core.DAGNode;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.Edge;
+import graph.core.Node;
+import graph.core.StringNode;
+import graph.module.ReachabilityIndex;
+import graph.module.ReachabilityModule;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReachabilityModuleTest {
+	private ReachabilityModule sut_;
+	private DirectedAcyclicGraph dag_;
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		sut_ = (ReachabilityModule) dag_.getModule(ReachabilityModule.class);
+		sut_.clear();
+	}
+
+	@After
+	public void tearDown() {
+		sut_.clear();
+	}
+
+	private DAGNode node(String name) {
+		return (DAGNode) dag_.findOrCreateNode(name, new StringNode(
+				"TestCreator"), true, true, true);
+	}
+
+	@Test
+	public void testHierarchy() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode genls = node("reachGenls");
+		DAGNode thing = node("ReachThing");
+		DAGNode animal = node("ReachAnimal");
+		DAGNode pet = node("ReachPet");
+		DAGNode dog = node("ReachDog");
+		DAGNode cat = node("ReachCat");
+		dag_.findOrCreateEdge(creator, false, genls, animal, thing);
+		dag_.findOrCreateEdge(creator, false, genls, dog, animal);
+		dag_.findOrCreateEdge(creator, false, genls, cat, animal);
+
+		assertTrue(sut_.isReachable(genls, dog, thing));
+		assertTrue(sut_.isReachable(genls, dog, animal));
+		assertFalse(sut_.isReachable(genls, thing, dog));
+		assertFalse(sut_.isReachable(genls, dog, cat));
+		assertFalse(sut_.isReachable(genls, dog, dog));
+		assertEquals(2, sut_.getAncestors(genls, dog).size());
+		assertEquals(animal, sut_.getAncestors(genls, dog).get(0));
+		assertEquals(3, sut_.getDescendants(genls, thing).size());
+
+		// Incremental additions
+		dag_.findOrCreateEdge(creator, false, genls, dog, pet);
+		dag_.findOrCreateEdge(creator, false, genls, pet, thing);
+		assertTrue(sut_.isReachable(genls, dog, pet));
+		assertFalse(sut_.isReachable(genls, cat, pet));
+		assertEquals(4, sut_.getDescendants(genls, thing).size());
+		assertEquals(3, sut_.getAncestors(genls, dog).size());
+
+		// Removal
+		Edge animalEdge = dag_.findEdge(genls, animal, thing);
+		dag_.removeEdge(animalEdge);
+		assertTrue(sut_.isReachable(genls, dog, thing));
+		assertFalse(sut_.isReachable(genls, cat, thing));
+		List<DAGNode> descendants = sut_.getDescendants(genls, thing);
+		assertEquals(2, descendants.size());
+		assertTrue(descendants.contains(pet));
+		assertTrue(descendants.contains(dog));
+	}
+
+	@Test
+	public void testRandomIndex() {
+		// Compare the labels against a plain search on random DAGs
+		Random random = new Random(1);
+		int numNodes = 60;
+		ReachabilityIndex index = new ReachabilityIndex();
+		boolean[][] edges = new boolean[numNodes][numNodes];
+		for (int i = 0; i < 300; i++) {
+			int child = random.nextInt(numNodes - 1);
+			int parent = child + 1 + random.nextInt(numNodes - child - 1);
+			if (random.nextInt(5) == 0 && edges[child][parent]) {
+				edges[child][parent] = false;
+				index.removeEdge(child, parent);
+			} else if (!edges[child][parent]) {
+				edges[child][parent] = true;
+				index.addEdge(child, parent);
+			}
+
+			if (i % 20 == 0) {
+				for (int a = 0; a < numNodes; a++) {
+					HashSet<Long> expected = new HashSet<>();
+					for (int b = 0; b < numNodes; b++)
+						if (b != a && reaches(edges, a, b))
+							expected.add((long) b);
+					HashSet<Long> ancestors = new HashSet<>();
+					for (long ancestor : index.getAncestors(a))
+						ancestors.add(ancestor);
+					assertEquals(expected, ancestors);
+					for (int b = 0; b < numNodes; b++)
+						assertEquals(expected.contains((long) b),
+								index.isReachable(a, b));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testIncrementalLabels() {
+		// Grow a random tree, so new nodes are always numbered last
+		Random random = new Random(2);
+		int numNodes = 2000;
+		int[] parent = new int[numNodes];
+		ReachabilityIndex index = new ReachabilityIndex();
+		for (int i = 1; i < numNodes; i++) {
+			parent[i] = random.nextInt(i);
+			index.addEdge(i, parent[i]);
+			if (i % 250 == 0) {
+				assertTrue(index.getNumIntervals() <= 2 * index.size());
+				for (int j = 0; j < 50; j++) {
+					int a = random.nextInt(i + 1);
+					int b = random.nextInt(i + 1);
+					boolean expected = false;
+					for (int n = a; n != 0 && !expected; n = parent[n])
+						expected = parent[n] == b;
+					assertEquals(expected, index.isReachable(a, b));
+				}
+			}
+		}
+
+		// Removals only relabel the ancestors of the parent
+		for (int i = numNodes - 1; i > numNodes - 100; i--) {
+			index.removeEdge(i, parent[i]);
+			assertFalse(index.isReachable(i, 0));
+			assertTrue(index.isReachable(parent[i], 0) || parent[i] == 0);
+		}
+	}
+
+	@Test
+	public void testCycleRemoval() {
+		ReachabilityIndex index = new ReachabilityIndex();
+		index.addEdge(1, 2);
+		index.addEdge(2, 1);
+		index.addEdge(3, 1);
+		assertTrue(index.isReachable(3, 2));
+		assertTrue(index.isReachable(2, 1));
+		index.removeEdge(3, 1);
+		assertFalse(index.isReachable(3, 2));
+		assertTrue(index.isReachable(1, 2));
+		index.removeEdge(2, 1);
+		assertFalse(index.isReachable(2, 1));
+		assertTrue(index.isReachable(1, 2));
+	}
+
+	private boolean reaches(boolean[][] edges, int from, int to) {
+		if (from == to)
+			return true;
+		for (int parent = from + 1; parent <= to; parent++)
+			if (edges[from][parent] && reaches(edges, parent, to))
+				return true;
+		return false;
+	}
+}
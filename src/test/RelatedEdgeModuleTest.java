@@ -1,6 +1,9 @@
 package test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import graph.core.DAGEdge;
 import graph.core.DAGNode;
@@ -9,10 +12,19 @@ import graph.core.Edge;
 import graph.core.Node;
 import graph.core.PrimitiveNode;
 import graph.core.StringNode;
+import graph.module.EdgeStatistics;
+import graph.module.NeighbourhoodSearch;
+import graph.module.PathSearch;
+import graph.module.PatternMatcher;
 import graph.module.RelatedEdgeModule;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.Before;
@@ -34,6 +46,160 @@ public class RelatedEdgeModuleTest {
 		sut_.clear();
 	}
 
+	@Test
+	public void testPatternMatcher() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode isa = (DAGNode) dag_.findOrCreateNode("patIsa", creator, true,
+				true, true);
+		DAGNode owns = (DAGNode) dag_.findOrCreateNode("patOwns", creator,
+				true, true, true);
+		DAGNode dog = (DAGNode) dag_.findOrCreateNode("PatDog", creator, true,
+				true, true);
+		DAGNode cat = (DAGNode) dag_.findOrCreateNode("PatCat", creator, true,
+				true, true);
+		DAGNode rex = (DAGNode) dag_.findOrCreateNode("PatRex", creator, true,
+				true, true);
+		DAGNode fido = (DAGNode) dag_.findOrCreateNode("PatFido", creator,
+				true, true, true);
+		DAGNode tom = (DAGNode) dag_.findOrCreateNode("PatTom", creator, true,
+				true, true);
+		DAGNode alice = (DAGNode) dag_.findOrCreateNode("PatAlice", creator,
+				true, true, true);
+		DAGNode bob = (DAGNode) dag_.findOrCreateNode("PatBob", creator, true,
+				true, true);
+		dag_.findOrCreateEdge(creator, false, isa, rex, dog);
+		dag_.findOrCreateEdge(creator, false, isa, fido, dog);
+		dag_.findOrCreateEdge(creator, false, isa, tom, cat);
+		dag_.findOrCreateEdge(creator, false, owns, alice, rex);
+		dag_.findOrCreateEdge(creator, false, owns, alice, tom);
+		dag_.findOrCreateEdge(creator, false, owns, bob, fido);
+		dag_.findOrCreateEdge(creator, false, owns, bob, bob);
+
+		List<Object[]> patterns = new ArrayList<>();
+		patterns.add(new Object[] { isa, "?x", dog });
+		patterns.add(new Object[] { owns, "?y", "?x" });
+		PatternMatcher matcher = new PatternMatcher(sut_, patterns);
+		assertArrayEquals(new String[] { "?x", "?y" }, matcher.getVariables());
+		List<Node[]> solutions = matcher.findSolutions(0, Integer.MAX_VALUE);
+		assertEquals(2, solutions.size());
+		Set<List<Node>> bindings = new HashSet<>();
+		for (Node[] solution : solutions)
+			bindings.add(Arrays.asList(solution));
+		assertTrue(bindings.contains(Arrays.<Node> asList(rex, alice)));
+		assertTrue(bindings.contains(Arrays.<Node> asList(fido, bob)));
+		assertEquals(2, matcher.count());
+		assertEquals(1, matcher.findSolutions(1, 5).size());
+
+		// Repeated variables
+		patterns.clear();
+		patterns.add(new Object[] { owns, "?y", "?y" });
+		solutions = new PatternMatcher(sut_, patterns).findSolutions(0, 10);
+		assertEquals(1, solutions.size());
+		assertEquals(bob, solutions.get(0)[0]);
+
+		// No solutions
+		patterns.clear();
+		patterns.add(new Object[] { isa, "?x", cat });
+		patterns.add(new Object[] { owns, bob, "?x" });
+		assertEquals(0, new PatternMatcher(sut_, patterns).count());
+	}
+
+	@Test
+	public void testNeighbourhoodSearch() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode link = (DAGNode) dag_.findOrCreateNode("nbLink", creator, true,
+				true, true);
+		DAGNode other = (DAGNode) dag_.findOrCreateNode("nbOther", creator,
+				true, true, true);
+		DAGNode hub = (DAGNode) dag_.findOrCreateNode("NbHub", creator, true,
+				true, true);
+		// A hub with many spokes, each with its own leaf
+		DAGNode[] spokes = new DAGNode[200];
+		for (int i = 0; i < spokes.length; i++) {
+			spokes[i] = (DAGNode) dag_.findOrCreateNode("NbSpoke" + i, creator,
+					true, true, true);
+			DAGNode leaf = (DAGNode) dag_.findOrCreateNode("NbLeaf" + i,
+					creator, true, true, true);
+			dag_.findOrCreateEdge(creator, false, link, hub, spokes[i]);
+			dag_.findOrCreateEdge(creator, false, link, spokes[i], leaf);
+		}
+		DAGNode stranger = (DAGNode) dag_.findOrCreateNode("NbStranger",
+				creator, true, true, true);
+		dag_.findOrCreateEdge(creator, false, other, spokes[0], stranger);
+
+		List<List<DAGNode>> levels = new NeighbourhoodSearch(sut_,
+				new ArrayList<DAGNode>()).search(hub, 3);
+		assertEquals(3, levels.size());
+		assertEquals(200, levels.get(0).size());
+		assertEquals(201, levels.get(1).size());
+		assertTrue(levels.get(1).contains(stranger));
+		assertFalse(levels.get(1).contains(hub));
+		assertEquals(0, levels.get(2).size());
+
+		// The search ends once nothing is left to find
+		levels = new NeighbourhoodSearch(sut_, new ArrayList<DAGNode>())
+				.search(hub, 2000000000);
+		assertEquals(3, levels.size());
+
+		levels = new NeighbourhoodSearch(sut_, Arrays.asList(link)).search(
+				hub, 2);
+		assertEquals(200, levels.get(1).size());
+		assertFalse(levels.get(1).contains(stranger));
+	}
+
+	@Test
+	public void testPathSearch() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode link = (DAGNode) dag_.findOrCreateNode("psLink", creator, true,
+				true, true);
+		DAGNode shortcut = (DAGNode) dag_.findOrCreateNode("psShortcut",
+				creator, true, true, true);
+		DAGNode[] chain = new DAGNode[6];
+		DAGEdge[] edges = new DAGEdge[chain.length - 1];
+		for (int i = 0; i < chain.length; i++) {
+			chain[i] = (DAGNode) dag_.findOrCreateNode("PsNode" + i, creator,
+					true, true, true);
+			if (i > 0)
+				edges[i - 1] = (DAGEdge) dag_.findOrCreateEdge(creator, false,
+						link, chain[i - 1], chain[i]);
+		}
+		DAGEdge skip = (DAGEdge) dag_.findOrCreateEdge(creator, false,
+				shortcut, chain[1], chain[4]);
+		DAGNode island = (DAGNode) dag_.findOrCreateNode("PsIsland", creator,
+				true, true, true);
+
+		PathSearch search = new PathSearch(sut_, new ArrayList<DAGNode>(),
+				null);
+		List<Edge> path = search.findPath(chain[0], chain[5]);
+		assertEquals(Arrays.<Edge> asList(edges[0], skip, edges[4]), path);
+		path = search.findPath(chain[5], chain[0]);
+		assertEquals(Arrays.<Edge> asList(edges[4], skip, edges[0]), path);
+		assertEquals(0, search.findPath(chain[2], chain[2]).size());
+		assertNull(search.findPath(chain[0], island));
+
+		// Predicate filter
+		path = new PathSearch(sut_, Arrays.asList(link), null).findPath(
+				chain[0], chain[5]);
+		assertEquals(Arrays.<Edge> asList(edges), path);
+
+		// Weighted
+		dag_.addProperty(skip, "psWeight", "10");
+		path = new PathSearch(sut_, new ArrayList<DAGNode>(), "psWeight")
+				.findPath(chain[0], chain[5]);
+		assertEquals(Arrays.<Edge> asList(edges), path);
+		dag_.addProperty(skip, "psWeight", "1.5");
+		path = new PathSearch(sut_, new ArrayList<DAGNode>(), "psWeight")
+				.findPath(chain[0], chain[5]);
+		assertEquals(Arrays.<Edge> asList(edges[0], skip, edges[4]), path);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnboundPattern() {
+		List<Object[]> patterns = new ArrayList<>();
+		patterns.add(new Object[] { "?p", "?x", "?y" });
+		new PatternMatcher(sut_, patterns).count();
+	}
+
 	@Test
 	public void testExecute() {
 		Node creator = new StringNode("TestCreator");
@@ -173,4 +339,110 @@ public class RelatedEdgeModuleTest {
 		assertEquals(result.size(), 1);
 		assertTrue(result.contains(stringEdge));
 	}
+
+	@Test
+	public void testCount() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode testNode = (DAGNode) dag_.findOrCreateNode("test", creator,
+				true, true, true);
+		DAGNode isa = (DAGNode) dag_.findOrCreateNode("isa", creator, true,
+				true, true);
+		DAGNode mammal = (DAGNode) dag_.findOrCreateNode("Mammal", creator,
+				true, true, true);
+		DAGNode cowNode = (DAGNode) dag_.findOrCreateNode("Cow", creator, true,
+				true, true);
+		dag_.findOrCreateEdge(creator, false, isa, testNode, mammal);
+		dag_.findOrCreateEdge(creator, false, isa, cowNode, mammal);
+		dag_.findOrCreateEdge(creator, false, isa, mammal, mammal);
+		dag_.findOrCreateEdge(creator, false, isa, cowNode,
+				PrimitiveNode.parseNode("1"));
+
+		Object[][] queries = { { isa }, { mammal }, { testNode },
+				{ mammal, 2 }, { mammal, 3 }, { isa, mammal },
+				{ mammal, cowNode }, { isa, cowNode, -2 },
+				{ cowNode, PrimitiveNode.parseNode("1") },
+				{ cowNode, PrimitiveNode.parseNode("1"), 2 }, { testNode, 1 },
+				{ PrimitiveNode.parseNode("1") } };
+		for (Object[] query : queries)
+			assertEquals(sut_.execute(query).size(), sut_.count(query));
+		assertEquals(sut_.count(mammal), 3);
+	}
+
+	@Test
+	public void testStatistics() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode isa = (DAGNode) dag_.findOrCreateNode("isa", creator, true,
+				true, true);
+		DAGNode mammal = (DAGNode) dag_.findOrCreateNode("Mammal", creator,
+				true, true, true);
+		DAGNode cowNode = (DAGNode) dag_.findOrCreateNode("Cow", creator, true,
+				true, true);
+		Edge cowEdge = dag_.findOrCreateEdge(creator, false, isa, cowNode,
+				mammal);
+		dag_.findOrCreateEdge(creator, false, isa, mammal, mammal);
+		EdgeStatistics stats = sut_.getStatistics();
+		assertEquals(stats.getNumEdges(), 2);
+		assertEquals(stats.getEdgeCount(isa), 2);
+		assertEquals(stats.getEdgeCount(mammal), 2);
+		assertEquals(stats.getEdgeCount(cowNode), 1);
+		assertEquals(stats.averageArity(), 3, 0.0001);
+
+		dag_.removeEdge(cowEdge);
+		assertEquals(stats.getNumEdges(), 1);
+		assertEquals(stats.getEdgeCount(cowNode), 0);
+		assertEquals(stats.getEdgeCount(mammal), 1);
+
+		// Early exit and planned lookups
+		assertEquals(sut_.execute(isa, cowNode).size(), 0);
+		assertEquals(sut_.execute(mammal, isa, 1).size(), 1);
+		assertEquals(sut_.execute(mammal, 3, isa).size(), 1);
+		assertEquals(sut_.execute(isa, mammal, -2).size(), 0);
+	}
+
+	@Test
+	public void testLiteralIndex() {
+		Node creator = new StringNode("TestCreator");
+		DAGNode capital = (DAGNode) dag_.findOrCreateNode("capitalCity",
+				creator, true, true, true);
+		DAGNode population = (DAGNode) dag_.findOrCreateNode("population",
+				creator, true, true, true);
+		DAGNode france = (DAGNode) dag_.findOrCreateNode("France", creator,
+				true, true, true);
+		DAGNode texas = (DAGNode) dag_.findOrCreateNode("Texas", creator,
+				true, true, true);
+		DAGEdge franceEdge = (DAGEdge) dag_.findOrCreateEdge(creator, false,
+				capital, france, new StringNode("Paris"));
+		DAGEdge texasEdge = (DAGEdge) dag_.findOrCreateEdge(creator, false,
+				capital, texas, new StringNode("Austin"));
+		DAGEdge popEdge = (DAGEdge) dag_.findOrCreateEdge(creator, false,
+				population, new StringNode("Paris"),
+				PrimitiveNode.parseNode("2200000"));
+
+		// Literal-only lookups
+		Collection<Edge> result = sut_.execute(new StringNode("Paris"));
+		assertEquals(result.size(), 2);
+		assertTrue(result.contains(franceEdge));
+		assertTrue(result.contains(popEdge));
+		result = sut_.execute(new StringNode("Paris"), 3);
+		assertEquals(result.size(), 1);
+		assertTrue(result.contains(franceEdge));
+		result = sut_.execute(PrimitiveNode.parseNode("2200000"));
+		assertEquals(result.size(), 1);
+		assertTrue(result.contains(popEdge));
+		assertEquals(sut_.count(new StringNode("Paris"), 2), 1);
+
+		// Combined with DAG nodes
+		result = sut_.execute(capital, 1, new StringNode("Austin"), 3);
+		assertEquals(result.size(), 1);
+		assertTrue(result.contains(texasEdge));
+		result = sut_.execute(capital, new StringNode("Paris"), -3);
+		assertEquals(result.size(), 1);
+		assertTrue(result.contains(texasEdge));
+
+		dag_.removeEdge(franceEdge);
+		result = sut_.execute(new StringNode("Paris"));
+		assertEquals(result.size(), 1);
+		assertTrue(result.contains(popEdge));
+		assertEquals(sut_.execute(new StringNode("Berlin")).size(), 0);
+	}
 }
@@ -0,0 +1,102 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import graph.core.cli.ResultCursor;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ResultCursorTest {
+	private static final Comparator<Object> NATURAL = new Comparator<Object>() {
+		@Override
+		public int compare(Object o1, Object o2) {
+			return ((Integer) o1).compareTo((Integer) o2);
+		}
+	};
+
+	@Test
+	public void testSortedPages() {
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+			items.add((i * 37) % 100);
+
+		ResultCursor<Integer> sut = new ResultCursor<>(items, NATURAL);
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4), sut.page(0, 5));
+		assertEquals(Arrays.asList(5, 6, 7, 8, 9), sut.page(5, 10));
+		assertEquals(Arrays.asList(98, 99), sut.page(98, 200));
+		assertEquals(0, sut.page(100, 110).size());
+
+		// Heap selection on a fresh cursor, mid-range
+		sut = new ResultCursor<>(items, NATURAL);
+		assertEquals(Arrays.asList(10, 11, 12), sut.page(10, 13));
+	}
+
+	@Test
+	public void testUnsortedPages() {
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < 50; i++)
+			items.add(i);
+
+		ResultCursor<Integer> sut = new ResultCursor<>(items, null);
+		Collection<Integer> all = new ArrayList<>();
+		for (int i = 0; i < 50; i += 7)
+			all.addAll(sut.page(i, i + 7));
+		assertEquals(items, all);
+
+		// Going back restarts the read
+		assertEquals(Arrays.asList(3, 4), sut.page(3, 5));
+		assertEquals(50, sut.size());
+	}
+
+	@Test
+	public void testReadsOn() {
+		final int[] reads = new int[1];
+		final List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			items.add(i);
+		// Counts the items read from the source
+		Collection<Integer> source = new AbstractCollection<Integer>() {
+			@Override
+			public Iterator<Integer> iterator() {
+				final Iterator<Integer> iter = items.iterator();
+				return new Iterator<Integer>() {
+					@Override
+					public boolean hasNext() {
+						return iter.hasNext();
+					}
+
+					@Override
+					public Integer next() {
+						reads[0]++;
+						return iter.next();
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return items.size();
+			}
+		};
+
+		ResultCursor<Integer> sut = new ResultCursor<>(source, null, 3);
+		assertEquals(Arrays.asList(0, 1, 2), sut.page(0, 3));
+		assertEquals(Arrays.asList(3, 4, 5), sut.page(3, 6));
+		// Only the items up to the end of each page are read, once
+		assertEquals(6, reads[0]);
+		assertEquals(1000, sut.size());
+		assertEquals(3, sut.getEpoch());
+	}
+}
@@ -0,0 +1,182 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import graph.core.DAGEdge;
+import graph.core.DAGNode;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.Edge;
+import graph.core.Node;
+import graph.core.StringNode;
+import graph.module.CSRSnapshot;
+import graph.module.SnapshotModule;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotModuleTest {
+	private SnapshotModule sut_;
+	private DirectedAcyclicGraph dag_;
+	private Node creator_ = new StringNode("TestCreator");
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		sut_ = (SnapshotModule) dag_.getModule(SnapshotModule.class);
+		sut_.clear();
+	}
+
+	@After
+	public void tearDown() {
+		sut_.clear();
+	}
+
+	private DAGNode node(String name) {
+		return (DAGNode) dag_.findOrCreateNode(name, creator_, true, true,
+				true);
+	}
+
+	private List<Long> neighbours(CSRSnapshot snapshot, DAGNode node) {
+		List<Long> ids = new ArrayList<>();
+		int index = snapshot.indexOf(node.getID());
+		if (index == -1)
+			return ids;
+		for (int arc = snapshot.getStart(index); arc < snapshot.getEnd(index); arc++)
+			ids.add(snapshot.getNodeID(snapshot.getTarget(arc)));
+		return ids;
+	}
+
+	@Test
+	public void testSnapshot() {
+		DAGNode genls = node("snapGenls");
+		DAGNode isa = node("snapIsa");
+		DAGNode a = node("SnapA");
+		DAGNode b = node("SnapB");
+		DAGNode c = node("SnapC");
+		dag_.findOrCreateEdge(creator_, false, genls, a, b);
+		dag_.findOrCreateEdge(creator_, false, genls, a, c);
+		dag_.findOrCreateEdge(creator_, false, genls, b, c);
+		Edge isaEdge = dag_.findOrCreateEdge(creator_, false, isa, c, a);
+
+		CSRSnapshot snapshot = sut_.getSnapshot(Arrays.asList(genls), 2, 3,
+				false, true);
+		assertEquals(3, snapshot.getNumNodes());
+		assertEquals(3, snapshot.getNumArcs());
+		assertEquals(Arrays.asList(b.getID(), c.getID()),
+				neighbours(snapshot, a));
+		assertEquals(Arrays.asList(c.getID()), neighbours(snapshot, b));
+		assertEquals(0, snapshot.getDegree(snapshot.indexOf(c.getID())));
+		int arc = snapshot.getStart(snapshot.indexOf(b.getID()));
+		assertEquals(genls.getID(), snapshot.getPredicateID(arc));
+		assertEquals(dag_.findEdge(genls, b, c),
+				dag_.getEdgeByID(snapshot.getEdgeID(arc)));
+
+		// Symmetric snapshots over both predicates
+		CSRSnapshot both = sut_.getSnapshot(Arrays.asList(genls, isa), 2, 3,
+				true, false);
+		assertEquals(8, both.getNumArcs());
+		assertEquals(Arrays.asList(a.getID(), a.getID(), b.getID()),
+				neighbours(both, c));
+
+		// Cached until an included edge changes
+		assertSame(snapshot,
+				sut_.getSnapshot(Arrays.asList(genls), 2, 3, false, true));
+		dag_.removeEdge(isaEdge);
+		assertTrue(sut_.isCurrent(snapshot));
+		assertFalse(sut_.isCurrent(both));
+		dag_.findOrCreateEdge(creator_, false, genls, c, a);
+		assertFalse(sut_.isCurrent(snapshot));
+		CSRSnapshot rebuilt = sut_.getSnapshot(Arrays.asList(genls), 2, 3,
+				false, true);
+		assertNotSame(snapshot, rebuilt);
+		assertEquals(Arrays.asList(a.getID()), neighbours(rebuilt, c));
+	}
+
+	@Test
+	public void testUnrelatedWrites() throws Exception {
+		final DAGNode genls = node("snapWriteGenls");
+		final DAGNode other = node("snapWriteOther");
+		final DAGNode a = node("SnapWriteA");
+		// Enough edges that each build overlaps some writes
+		DAGNode[] nodes = new DAGNode[200];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = node("SnapWriteNode" + i);
+		Random random = new Random(3);
+		for (int i = 0; i < 3 * CSRSnapshot.SPLIT_THRESHOLD; i++)
+			dag_.findOrCreateEdge(creator_, false, genls,
+					nodes[random.nextInt(nodes.length)],
+					nodes[random.nextInt(nodes.length)]);
+
+		// Writes to another predicate do not stop snapshots being cached
+		final AtomicBoolean stop = new AtomicBoolean();
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; !stop.get(); i++) {
+					DAGNode node = node("SnapWriteNode" + (i % 200));
+					Edge edge = dag_.findOrCreateEdge(creator_, false, other,
+							node, a);
+					dag_.removeEdge(edge);
+				}
+			}
+		};
+		writer.start();
+		try {
+			for (int i = 0; i < 20; i++) {
+				CSRSnapshot snapshot = sut_.getSnapshot(Arrays.asList(genls),
+						2, 3, false, false);
+				assertTrue(sut_.isCurrent(snapshot));
+				sut_.clear();
+			}
+		} finally {
+			stop.set(true);
+			writer.join();
+		}
+	}
+
+	@Test
+	public void testParallelBuild() {
+		Random random = new Random(5);
+		DAGNode[] nodes = new DAGNode[200];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = node("SnapNode" + i);
+		DAGNode predicate = node("snapLinks");
+		for (int i = 0; i < 3 * CSRSnapshot.SPLIT_THRESHOLD; i++)
+			dag_.findOrCreateEdge(creator_, false, predicate,
+					nodes[random.nextInt(nodes.length)],
+					nodes[random.nextInt(nodes.length)]);
+
+		CSRSnapshot snapshot = sut_.getSnapshot(
+				Collections.<DAGNode> emptyList(), 2, 3, false, false);
+		int numArcs = 0;
+		for (DAGEdge edge : dag_.getEdges()) {
+			Node[] edgeNodes = edge.getNodes();
+			if (edgeNodes.length < 3 || !(edgeNodes[1] instanceof DAGNode)
+					|| !(edgeNodes[2] instanceof DAGNode))
+				continue;
+			numArcs++;
+			int from = snapshot.indexOf(((DAGNode) edgeNodes[1]).getID());
+			int to = snapshot.indexOf(((DAGNode) edgeNodes[2]).getID());
+			boolean found = false;
+			for (int arc = snapshot.getStart(from); arc < snapshot.getEnd(from); arc++)
+				found |= snapshot.getTarget(arc) == to;
+			assertTrue(found);
+		}
+		assertEquals(numArcs, snapshot.getNumArcs());
+		for (int i = 0; i < snapshot.getNumNodes(); i++)
+			for (int arc = snapshot.getStart(i) + 1; arc < snapshot.getEnd(i); arc++)
+				assertTrue(snapshot.getTarget(arc - 1) <= snapshot.getTarget(arc));
+	}
+}
@@ -0,0 +1,67 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.cli.ResultCursor;
+import graph.core.cli.SortedResultCache;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SortedResultCacheTest {
+	private DirectedAcyclicGraph dag_;
+	private SortedResultCache sut_;
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		sut_ = new SortedResultCache(5);
+	}
+
+	@After
+	public void tearDown() {
+		dag_.clear();
+	}
+
+	@Test
+	public void testEpochInvalidation() {
+		ResultCursor<Integer> result = new ResultCursor<>(Arrays.asList(1, 2,
+				3), null);
+		sut_.put("query", dag_, dag_.getEpoch(), result);
+		assertNotNull(sut_.get("query", dag_));
+
+		// A mutation invalidates the result
+		dag_.findOrCreateNode("CacheTestNode", null, true, true, false);
+		assertNull(sut_.get("query", dag_));
+		assertEquals(0, sut_.size());
+
+		// A result computed before the mutation is not cached
+		sut_.put("query", dag_, dag_.getEpoch() - 1, result);
+		assertNull(sut_.get("query", dag_));
+	}
+
+	@Test
+	public void testEviction() {
+		sut_.put("a", dag_, dag_.getEpoch(), new ResultCursor<>(Arrays.asList(
+				1, 2, 3), null));
+		sut_.put("b", dag_, dag_.getEpoch(), new ResultCursor<>(Arrays.asList(
+				4, 5), null));
+		assertEquals(2, sut_.size());
+		sut_.put("c", dag_, dag_.getEpoch(), new ResultCursor<>(Arrays.asList(
+				6), null));
+		assertNull(sut_.get("a", dag_));
+		assertNotNull(sut_.get("b", dag_));
+		assertNotNull(sut_.get("c", dag_));
+
+		// Too large to cache at all
+		sut_.put("d", dag_, dag_.getEpoch(), new ResultCursor<>(Arrays.asList(
+				1, 2, 3, 4, 5, 6), null));
+		assertNull(sut_.get("d", dag_));
+	}
+}
@@ -0,0 +1,83 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import graph.core.DAGNode;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.Edge;
+import graph.core.Node;
+import graph.core.PrimitiveNode;
+import graph.core.StringNode;
+import graph.module.StatisticsModule;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StatisticsModuleTest {
+	private StatisticsModule sut_;
+	private DirectedAcyclicGraph dag_;
+	private Node creator_ = new StringNode("TestCreator");
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		sut_ = (StatisticsModule) dag_.getModule(StatisticsModule.class);
+		sut_.clear();
+	}
+
+	@After
+	public void tearDown() {
+		sut_.clear();
+	}
+
+	private DAGNode node(String name) {
+		return (DAGNode) dag_.findOrCreateNode(name, creator_, true, true,
+				true);
+	}
+
+	@Test
+	public void testStatistics() {
+		DAGNode isa = node("statIsa");
+		DAGNode genls = node("statGenls");
+		DAGNode hub = node("StatHub");
+		DAGNode a = node("StatA");
+		DAGNode b = node("StatB");
+		DAGNode c = node("StatC");
+		dag_.findOrCreateEdge(creator_, false, isa, a, hub);
+		dag_.findOrCreateEdge(creator_, false, isa, b, hub);
+		dag_.findOrCreateEdge(creator_, false, isa, c, hub);
+		Edge genlsEdge = dag_.findOrCreateEdge(creator_, false, genls, hub,
+				hub);
+		dag_.findOrCreateEdge(creator_, false, genls, a, b,
+				PrimitiveNode.parseNode("5"));
+
+		long[] arities = sut_.getArityHistogram();
+		assertEquals(4, arities[3]);
+		assertEquals(1, arities[4]);
+		// Repeated arguments count once, and predicates not at all
+		assertEquals(4, sut_.getDegree(hub));
+		assertEquals(2, sut_.getDegree(a));
+		assertEquals(0, sut_.getDegree(isa));
+		assertEquals(3, sut_.getPredicateCount(isa));
+		assertEquals(Arrays.asList(hub, a), sut_.getHubs(2));
+		assertEquals(Arrays.asList(isa, genls), sut_.getTopPredicates(5));
+
+		// Degrees: c = 1, a/b = 2, hub = 4
+		long[] degrees = sut_.getDegreeHistogram();
+		assertEquals(1, degrees[0]);
+		assertEquals(2, degrees[1]);
+		assertEquals(1, degrees[2]);
+
+		dag_.removeEdge(genlsEdge);
+		assertEquals(3, sut_.getDegree(hub));
+		assertEquals(1, sut_.getPredicateCount(genls));
+		assertEquals(3, sut_.getArityHistogram()[3]);
+		degrees = sut_.getDegreeHistogram();
+		assertEquals(1, degrees[0]);
+		assertEquals(3, degrees[1]);
+		assertEquals(0, degrees[2]);
+	}
+}
@@ -0,0 +1,85 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import graph.core.DAGNode;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.StringNode;
+import graph.edge.AliasEdge;
+import graph.module.SubstringAliasModule;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SubstringAliasModuleTest {
+	private SubstringAliasModule sut_;
+	private DirectedAcyclicGraph dag_;
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		sut_ = new SubstringAliasModule();
+		sut_.setDAG(dag_);
+		dag_.getModules().put(SubstringAliasModule.class.getCanonicalName(),
+				sut_);
+	}
+
+	@After
+	public void tearDown() {
+		dag_.getModules().remove(SubstringAliasModule.class.getCanonicalName());
+		sut_.clear();
+	}
+
+	@Test
+	public void testFindContaining() {
+		DAGNode hotDog = (DAGNode) dag_.findOrCreateNode("HotDog", null, true,
+				true, true);
+		DAGNode dogHouse = (DAGNode) dag_.findOrCreateNode("DogHouse", null,
+				true, true, true);
+		DAGNode cat = (DAGNode) dag_.findOrCreateNode("CatFlap", null, true,
+				true, true);
+
+		List<DAGNode> result = sut_.findContaining("Dog", true, 10);
+		assertEquals(2, result.size());
+		assertTrue(result.contains(hotDog));
+		assertTrue(result.contains(dogHouse));
+		assertEquals(0, sut_.findContaining("dog", true, 10).size());
+		assertEquals(2, sut_.findContaining("dog", false, 10).size());
+		assertEquals(1, sut_.findContaining("tDo", true, 10).size());
+		assertEquals(1, sut_.findContaining("HotDog", true, 10).size());
+		assertEquals(0, sut_.findContaining("HotDogs", true, 10).size());
+
+		// Trigrams present but not contiguous
+		assertEquals(0, sut_.findContaining("HouseDog", true, 10).size());
+
+		// Short queries are scanned
+		result = sut_.findContaining("Fl", true, 10);
+		assertEquals(1, result.size());
+		assertTrue(result.contains(cat));
+
+		// Limit
+		assertEquals(1, sut_.findContaining("Dog", true, 1).size());
+	}
+
+	@Test
+	public void testAliasChanges() {
+		DAGNode dog = (DAGNode) dag_.findOrCreateNode("Dog", null, true, true,
+				true);
+		AliasEdge alias = new AliasEdge(dog, new StringNode("Domestic  Canine"));
+		sut_.addEdge(alias);
+		List<DAGNode> result = sut_.findContaining("canine", false, 10);
+		assertEquals(1, result.size());
+		assertTrue(result.contains(dog));
+
+		assertEquals(1, sut_.findContaining("c canine", false, 10).size());
+		sut_.removeEdge(alias);
+		assertEquals(0, sut_.findContaining("canine", false, 10).size());
+
+		dag_.removeNode(dog);
+		assertEquals(0, sut_.findContaining("Dog", true, 10).size());
+	}
+}
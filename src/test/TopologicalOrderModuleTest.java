@@ -0,0 +1,133 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import graph.core.DAGErrorEdge;
+import graph.core.DAGNode;
+import graph.core.DirectedAcyclicGraph;
+import graph.core.Edge;
+import graph.core.Node;
+import graph.core.StringNode;
+import graph.module.TopologicalOrder;
+import graph.module.TopologicalOrderModule;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopologicalOrderModuleTest {
+	private TopologicalOrderModule sut_;
+	private DirectedAcyclicGraph dag_;
+	private Node creator_ = new StringNode("TestCreator");
+
+	@Before
+	public void setUp() throws Exception {
+		dag_ = new DirectedAcyclicGraph(new File("test"));
+		sut_ = (TopologicalOrderModule) dag_
+				.getModule(TopologicalOrderModule.class);
+		sut_.clear();
+	}
+
+	@After
+	public void tearDown() {
+		sut_.clear();
+	}
+
+	private DAGNode node(String name) {
+		return (DAGNode) dag_.findOrCreateNode(name, creator_, true, true,
+				true);
+	}
+
+	@Test
+	public void testRejectCycles() {
+		DAGNode genls = node("topoGenls");
+		DAGNode a = node("TopoA");
+		DAGNode b = node("TopoB");
+		DAGNode c = node("TopoC");
+		dag_.findOrCreateEdge(creator_, false, genls, c, b);
+		sut_.setMode(genls, true);
+		dag_.findOrCreateEdge(creator_, false, genls, b, a);
+
+		assertSame(DAGErrorEdge.CYCLIC_EDGE,
+				dag_.findOrCreateEdge(creator_, false, genls, a, c));
+		assertSame(DAGErrorEdge.CYCLIC_EDGE,
+				dag_.findOrCreateEdge(creator_, false, genls, a, a));
+		assertEquals(null, dag_.findEdge(genls, a, c));
+
+		List<DAGNode> order = sut_.getTopologicalOrder(genls);
+		assertTrue(order.indexOf(c) < order.indexOf(b));
+		assertTrue(order.indexOf(b) < order.indexOf(a));
+		assertTrue(sut_.isReachable(genls, c, a));
+		assertFalse(sut_.isReachable(genls, a, c));
+
+		// Removing an edge allows the reverse
+		dag_.removeEdge(dag_.findEdge(genls, b, a));
+		Edge reversed = dag_.findOrCreateEdge(creator_, false, genls, a, b);
+		assertFalse(reversed instanceof DAGErrorEdge);
+		order = sut_.getTopologicalOrder(genls);
+		assertTrue(order.indexOf(a) < order.indexOf(b));
+	}
+
+	@Test
+	public void testFlagCycles() {
+		DAGNode genls = node("topoFlagGenls");
+		DAGNode a = node("TopoFlagA");
+		DAGNode b = node("TopoFlagB");
+		sut_.setMode(genls, false);
+		dag_.findOrCreateEdge(creator_, false, genls, a, b);
+		Edge cyclic = dag_.findOrCreateEdge(creator_, false, genls, b, a);
+		assertFalse(cyclic instanceof DAGErrorEdge);
+		assertEquals(1, sut_.getCyclicEdges(genls).size());
+		assertTrue(sut_.getCyclicEdges(genls).contains(cyclic));
+
+		dag_.removeEdge(cyclic);
+		assertEquals(0, sut_.getCyclicEdges(genls).size());
+	}
+
+	@Test
+	public void testRandomOrder() {
+		Random random = new Random(3);
+		int numNodes = 40;
+		TopologicalOrder order = new TopologicalOrder();
+		boolean[][] edges = new boolean[numNodes][numNodes];
+		for (int i = 0; i < 400; i++) {
+			int from = random.nextInt(numNodes);
+			int to = random.nextInt(numNodes);
+			boolean cycle = from == to || reaches(edges, to, from, numNodes);
+			assertEquals(!cycle, order.addEdge(from, to));
+			if (!cycle)
+				edges[from][to] = true;
+
+			// Every edge must agree with the order
+			for (int x = 0; x < numNodes; x++)
+				for (int y = 0; y < numNodes; y++)
+					if (edges[x][y])
+						assertTrue(order.getPosition(x) < order.getPosition(y));
+		}
+	}
+
+	private boolean reaches(boolean[][] edges, int from, int to, int numNodes) {
+		boolean[] visited = new boolean[numNodes];
+		int[] stack = new int[numNodes];
+		int size = 0;
+		stack[size++] = from;
+		visited[from] = true;
+		while (size > 0) {
+			int node = stack[--size];
+			if (node == to)
+				return true;
+			for (int next = 0; next < numNodes; next++)
+				if (edges[node][next] && !visited[next]) {
+					visited[next] = true;
+					stack[size++] = next;
+				}
+		}
+		return false;
+	}
+}
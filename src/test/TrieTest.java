@@ -1,8 +1,10 @@
 package test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import graph.module.RadixTrie;
 
 import java.util.Set;
 
@@ -149,6 +151,48 @@ public class TrieTest {
 		assertEquals(strTrie.calcDepth(), 6);
 	}
 
+	@Test
+	public void testRadixTrie() {
+		RadixTrie trie = new RadixTrie();
+		assertTrue(trie.put("cat", 1));
+		assertFalse(trie.put("cat", 1));
+		assertTrue(trie.put("cat", 2));
+		assertTrue(trie.put("catch", 3));
+		assertTrue(trie.put("catcus", 4));
+		assertTrue(trie.put("dog", 5));
+		assertTrue(trie.put("", 6));
+		assertEquals(trie.size(), 6);
+
+		assertArrayEquals(new long[] { 1, 2 }, trie.get("cat"));
+		assertArrayEquals(new long[0], trie.get("catc"));
+		assertArrayEquals(new long[] { 6 }, trie.get(""));
+		assertArrayEquals(new long[] { 3, 4 }, trie.getPrefixed("catc"));
+		assertArrayEquals(new long[] { 1, 2, 3, 4 }, trie.getPrefixed("ca"));
+		assertArrayEquals(new long[0], trie.getPrefixed("cab"));
+
+		// Removal re-compresses the branches
+		assertTrue(trie.remove("catch", 3));
+		assertFalse(trie.remove("catch", 3));
+		assertFalse(trie.remove("catc", 4));
+		assertArrayEquals(new long[] { 4 }, trie.get("catcus"));
+		assertTrue(trie.remove("cat", 1));
+		assertTrue(trie.remove("cat", 2));
+		assertArrayEquals(new long[] { 4 }, trie.getPrefixed("cat"));
+		assertEquals(trie.size(), 3);
+
+		RadixTrie other = new RadixTrie();
+		other.put("catcus", 4);
+		other.put("dog", 5);
+		other.put("", 6);
+		assertEquals(other, trie);
+
+		// Case folding
+		trie.put("CatCus", 7);
+		assertTrue(trie.containsFolded("catcus", 7));
+		assertFalse(trie.containsFolded("catcu", 7));
+		assertEquals("catcus", RadixTrie.fold("CatCus"));
+	}
+
 	private Integer[] toArray(String string) {
 		Integer[] ints = new Integer[string.length()];
 		for (int i = 0; i < ints.length; i++)